@@ -26,6 +26,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -47,6 +48,12 @@ import frodo2.solutionSpaces.DCOPProblemInterface;
 public abstract class AbstractDCOPsolver < V extends Addable<V>, U extends Addable<U>, S extends Solution<V, U> > 
 	extends AbstractSolver<DCOPProblemInterface<V, U>, V, U, S> {
 
+	/** The listeners notified of each variable assignment as soon as it is decided */
+	protected final List< AssignmentListener<V> > assignmentListeners = new ArrayList< AssignmentListener<V> > ();
+	
+	/** The wall clock time (in nanoseconds) at which the algorithm started, or 0 when using simulated time */
+	protected long timeOrigin;
+
 	/** Solves a problem and writes statistics to a file
 	 * @param args 	[algoName, solverClassName, agentConfigFile, problemFile, timeout in seconds, outputFile]
 	 * @throws Exception if an error occurs
@@ -265,6 +272,34 @@ public abstract class AbstractDCOPsolver < V extends Addable<V>, U extends Addab
 		return this.solve(problem, cleanAfterwards, timeout);
 	}
 	
+	/** @see AbstractSolver#solve(frodo2.solutionSpaces.ProblemInterface, boolean, java.lang.Long) */
+	@Override
+	public S solve (DCOPProblemInterface<V, U> problem, boolean cleanAfterwards, Long timeout) throws OutOfMemoryError {
+		
+		// Simulated time starts at 0; otherwise, record when the algorithm starts
+		String measureTime = agentDesc.getRootElement().getAttributeValue("measureTime");
+		this.timeOrigin = (measureTime == null || Boolean.parseBoolean(measureTime) ? 0 : System.nanoTime());
+		
+		return super.solve(problem, cleanAfterwards, timeout);
+	}
+	
+	/** Registers a listener to be notified of each variable assignment as soon as the agent owning the variable has decided its value
+	 * 
+	 * This makes it possible to act on some of the variables before solve() returns. 
+	 * @param listener 	the listener
+	 * @note Only takes effect for solvers whose solution gatherers report assignments as they come. 
+	 */
+	public void addAssignmentListener (AssignmentListener<V> listener) {
+		this.assignmentListeners.add(listener);
+	}
+	
+	/** Unregisters a listener
+	 * @param listener 	the listener
+	 */
+	public void removeAssignmentListener (AssignmentListener<V> listener) {
+		this.assignmentListeners.remove(listener);
+	}
+	
 	/** Sets the number of rounds of VariableElection
 	 * @param nbrElectionRounds 	the number of rounds of VariableElection (must be greater than the diameter of the constraint graph)
 	 */
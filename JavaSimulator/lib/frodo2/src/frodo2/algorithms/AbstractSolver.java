@@ -61,10 +61,10 @@ public abstract class AbstractSolver < P extends ProblemInterface<V, U>, V exten
 	protected final boolean useTCP;
 	
 	/** \c true when the solver timed out, \c false otherwise */
-	private boolean timedOut;
+	protected boolean timedOut;
 	
 	/** \c true when the solver ran out of memory, \c false otherwise */
-	private boolean outOfMem;
+	protected boolean outOfMem;
 	
 	/**
 	 * Dummy constructor
@@ -430,6 +430,8 @@ public abstract class AbstractSolver < P extends ProblemInterface<V, U>, V exten
 		}
 		
 		S solution = this.buildSolution();
+		if (solution != null) 
+			solution.setStartupTime(factory.getStartupTime());
 		
 		if (cleanAfterwards) 
 			this.clear();
@@ -0,0 +1,325 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+package frodo2.algorithms;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.communication.MessageListener;
+import frodo2.communication.mailer.CentralMailer;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.MASProblemInterface;
+import frodo2.solutionSpaces.ProblemInterface;
+
+/** An agent description compiled into method handles, which can be used to instantiate many agents without reading the description again
+ * 
+ * The agent description is parsed only once: the agent and module classes are looked up, their constructors are turned into method handles, 
+ * and the new values of the modules' message types are resolved. Creating an agent then only consists in writing these message types 
+ * and invoking the constructors. 
+ * 
+ * @note The values of the message types that refer to fields of other classes (through the attribute \c ownerClass) are resolved 
+ * when the blueprint is compiled, and not when each agent is created. 
+ */
+public class AgentBlueprint {
+	
+	/** The method type to which all module constructors are adapted */
+	private static final MethodType MODULE_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+	
+	/** The method type to which all agent constructors are adapted */
+	private static final MethodType AGENT_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object.class, Object.class, Object.class);
+	
+	/** A module, compiled from its description */
+	static class ModuleBlueprint {
+		
+		/** The name of the module class */
+		final String className;
+		
+		/** The description of the module, passed to its constructor */
+		final Element moduleElmt;
+		
+		/** The constructor of the module, taking in the problem and the module description */
+		private final MethodHandle constructor;
+		
+		/** The setters of the static fields holding the message types to be changed */
+		private final MethodHandle[] msgTypeSetters;
+		
+		/** The new values of the message types */
+		private final String[] msgTypes;
+		
+		/** Constructor
+		 * @param moduleElmt 				the description of the module
+		 * @param probDescClass 			the class of the problem passed to the module constructor
+		 * @throws ClassNotFoundException 	if the module class or the owner class of one of its message types is unknown
+		 * @throws NoSuchMethodException 	if the module class has no constructor that takes in a problem and an Element
+		 * @throws IllegalAccessException 	if the module constructor is not accessible
+		 */
+		@SuppressWarnings("unchecked")
+		private ModuleBlueprint (Element moduleElmt, Class<?> probDescClass) 
+		throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+			
+			this.className = moduleElmt.getAttributeValue("className");
+			this.moduleElmt = moduleElmt;
+			Class< MessageListener<String> > moduleClass = (Class< MessageListener<String> >) Class.forName(className);
+			
+			// Resolve the new message types, and change them right away in case the next modules refer to them
+			ArrayList<MethodHandle> setters = new ArrayList<MethodHandle> ();
+			ArrayList<String> types = new ArrayList<String> ();
+			Element allMsgsElmt = moduleElmt.getChild("messages");
+			if (allMsgsElmt != null) {
+				for (Element msgElmt : allMsgsElmt.getChildren()) {
+
+					// Look up the new value for the message type
+					String newType = msgElmt.getAttributeValue("value");
+					String ownerClassName = msgElmt.getAttributeValue("ownerClass");
+					if (ownerClassName != null) { // the attribute "value" actually refers to a field in a class
+						Class<?> ownerClass = Class.forName(ownerClassName);
+						try {
+							Field field = ownerClass.getDeclaredField(newType);
+							newType = (String) field.get(newType);
+						} catch (NoSuchFieldException e) {
+							System.err.println("Unable to read the value of the field " + ownerClass.getName() + "." + newType);
+							e.printStackTrace();
+						}
+					}
+					
+					// Look up the field holding the message type
+					String name = msgElmt.getAttributeValue("name");
+					MethodHandle setter;
+					try {
+						setter = MethodHandles.publicLookup().unreflectSetter(moduleClass.getField(name));
+					} catch (NoSuchFieldException e) {
+						System.err.println("Unable to find the field " + moduleClass.getName() + "." + name);
+						e.printStackTrace();
+						continue;
+					} catch (IllegalAccessException e) {
+						System.err.println("Failed to set the field " + moduleClass.getName() + "." + name);
+						e.printStackTrace();
+						continue;
+					}
+					
+					setters.add(setter);
+					types.add(newType);
+					setMsgType(setter, newType);
+				}
+			}
+			this.msgTypeSetters = setters.toArray(new MethodHandle [setters.size()]);
+			this.msgTypes = types.toArray(new String [types.size()]);
+			
+			this.constructor = MethodHandles.publicLookup().unreflectConstructor(moduleClass.getConstructor(probDescClass, Element.class))
+					.asType(MODULE_CONSTRUCTOR_TYPE);
+		}
+		
+		/** Writes the new values of the message types of the module */
+		void setMsgTypes () {
+			for (int i = 0; i < this.msgTypeSetters.length; i++) 
+				setMsgType(this.msgTypeSetters[i], this.msgTypes[i]);
+		}
+		
+		/** Writes a message type
+		 * @param setter 	the setter of the static field
+		 * @param type 		the new value
+		 */
+		private static void setMsgType (MethodHandle setter, String type) {
+			try {
+				setter.invokeExact(type);
+			} catch (Throwable e) { // should never happen
+				e.printStackTrace();
+			}
+		}
+		
+		/** Instantiates the module
+		 * @param probDesc 		the problem
+		 * @return a new module
+		 * @throws InvocationTargetException 	if the module constructor throws an exception
+		 */
+		@SuppressWarnings("unchecked")
+		MessageListener<String> newInstance (ProblemInterface<?, ?> probDesc) throws InvocationTargetException {
+			try {
+				return (MessageListener<String>) (Object) this.constructor.invokeExact((Object) probDesc, (Object) this.moduleElmt);
+			} catch (Throwable e) {
+				throw new InvocationTargetException (e);
+			}
+		}
+	}
+	
+	/** The modules of an agent, compiled from a \c modules element */
+	static class ModuleSet {
+		
+		/** The name of the class of the solution monitor, or \c null if there is none */
+		final String solutionMonitor;
+		
+		/** The modules, in the order in which they must be instantiated */
+		final ModuleBlueprint[] modules;
+		
+		/** Constructor
+		 * @param modsElmt 					the \c modules element
+		 * @param probDescClass 			the class of the problem passed to the module constructors
+		 * @throws ClassNotFoundException 	if a module class is unknown
+		 * @throws NoSuchMethodException 	if a module class has no constructor that takes in a problem and an Element
+		 * @throws IllegalAccessException 	if a module constructor is not accessible
+		 */
+		private ModuleSet (Element modsElmt, Class<?> probDescClass) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+			this.solutionMonitor = modsElmt.getAttributeValue("solutionMonitor");
+			List<Element> children = modsElmt.getChildren();
+			this.modules = new ModuleBlueprint [children.size()];
+			for (int i = 0; i < this.modules.length; i++) 
+				this.modules[i] = new ModuleBlueprint (children.get(i), probDescClass);
+		}
+	}
+	
+	/** The agent description */
+	private final Document agentDesc;
+	
+	/** The constructor of the agent class, or \c null if the agent class cannot be built from an AgentBlueprint */
+	private final MethodHandle agentConstructor;
+	
+	/** The constructor of the agent class that takes in the agent description */
+	private final Constructor<?> docConstructor;
+	
+	/** Whether the agents use the CentralMailer */
+	final boolean useCentralMailer;
+	
+	/** Whether the agents should count messages */
+	final boolean measureMsgs;
+	
+	/** The modules, if the description contains a single \c modules element */
+	private final ModuleSet modules;
+	
+	/** For each agent type, its modules, if the description contains several \c modules elements */
+	private final HashMap<String, ModuleSet> modulesByType;
+	
+	/** Constructor
+	 * @param agentDesc 				the agent description
+	 * @throws ClassNotFoundException 	if a class mentioned in the description is unknown
+	 * @throws NoSuchMethodException 	if the agent class or a module class does not have the expected constructor
+	 * @throws IllegalAccessException 	if the constructor of the agent class or of a module class is not accessible
+	 */
+	@SuppressWarnings("unchecked")
+	private AgentBlueprint (Document agentDesc) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+		
+		this.agentDesc = agentDesc;
+		Element root = agentDesc.getRootElement();
+		
+		// Look up the constructor of the agent class
+		String agentClassName = root.getAttributeValue("className");
+		assert agentClassName != null : "The agent description does not have an attribute of name \"className\"";
+		Class< ? extends AgentInterface<?> > agentClass = (Class< ? extends AgentInterface<?> >) Class.forName(agentClassName);
+		MethodHandle agentConstructor = null;
+		try {
+			agentConstructor = MethodHandles.publicLookup().unreflectConstructor(
+					agentClass.getConstructor(ProblemInterface.class, AgentBlueprint.class, CentralMailer.class)).asType(AGENT_CONSTRUCTOR_TYPE);
+		} catch (NoSuchMethodException e) { } // use the constructor that takes in the agent description
+		this.agentConstructor = agentConstructor;
+		this.docConstructor = (agentConstructor != null ? null : agentClass.getConstructor(ProblemInterface.class, Document.class, CentralMailer.class));
+		
+		String measureTime = root.getAttributeValue("measureTime");
+		this.useCentralMailer = (measureTime == null || Boolean.parseBoolean(measureTime));
+		this.measureMsgs = Boolean.parseBoolean(root.getAttributeValue("measureMsgs"));
+		
+		// Read the problem description class name from the agent description, the standard value is DCOPProblemInterface
+		Class<?> probDescClass = DCOPProblemInterface.class;
+		Element parserDesc = root.getChild("parser");
+		if (parserDesc != null) {
+			String probDescClassName = parserDesc.getAttributeValue("probDescClass");
+			if (probDescClassName != null) 
+				probDescClass = Class.forName(probDescClassName);
+		}
+		
+		// Compile the modules
+		List<Element> types = root.getChildren("modules");
+		if (types.size() == 1) {
+			this.modules = new ModuleSet (types.get(0), probDescClass);
+			this.modulesByType = null;
+		} else {
+			this.modules = null;
+			this.modulesByType = new HashMap<String, ModuleSet> ();
+			for (Element t : types) {
+				String type = t.getAttributeValue("agentType");
+				if (! this.modulesByType.containsKey(type)) 
+					this.modulesByType.put(type, new ModuleSet (t, probDescClass));
+			}
+		}
+	}
+	
+	/** Compiles an agent description
+	 * @param agentDesc 				the agent description
+	 * @return the blueprint of the agents described by \a agentDesc
+	 * @throws ClassNotFoundException 	if a class mentioned in the description is unknown
+	 * @throws NoSuchMethodException 	if the agent class or a module class does not have the expected constructor
+	 * @throws IllegalAccessException 	if the constructor of the agent class or of a module class is not accessible
+	 */
+	public static AgentBlueprint compile (Document agentDesc) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+		return new AgentBlueprint (agentDesc);
+	}
+	
+	/** @return the agent description from which this blueprint was compiled */
+	public Document getAgentDesc () {
+		return this.agentDesc;
+	}
+	
+	/** Returns the modules of a given agent
+	 * @param probDesc 	the agent's subproblem
+	 * @return the agent's modules, or \c null if the agent has none
+	 */
+	ModuleSet getModules (ProblemInterface<?, ?> probDesc) {
+		if (this.modules != null) 
+			return this.modules;
+		else if (this.modulesByType.isEmpty()) 
+			return null;
+		return this.modulesByType.get(((MASProblemInterface<?, ?>) probDesc).getType());
+	}
+	
+	/** Creates a new agent
+	 * @param <V> 			the type used for variable values
+	 * @param probDesc 		the agent's subproblem
+	 * @param mailman 		the CentralMailer; ignored if not measuring Simulated Time
+	 * @return a new agent
+	 * @throws InvocationTargetException 	if the agent constructor throws an exception
+	 * @throws InstantiationException 		if the agent class is abstract
+	 * @throws IllegalAccessException 		if the constructor of the agent class is not accessible
+	 */
+	@SuppressWarnings("unchecked")
+	public < V extends Addable<V> > AgentInterface<V> newAgent (ProblemInterface<V, ?> probDesc, CentralMailer mailman) 
+	throws InvocationTargetException, InstantiationException, IllegalAccessException {
+		
+		if (this.agentConstructor == null) 
+			return (AgentInterface<V>) this.docConstructor.newInstance(probDesc, this.agentDesc, mailman);
+		
+		try {
+			return (AgentInterface<V>) (Object) this.agentConstructor.invokeExact((Object) probDesc, (Object) this, (Object) mailman);
+		} catch (Throwable e) {
+			throw new InvocationTargetException (e);
+		}
+	}
+	
+}
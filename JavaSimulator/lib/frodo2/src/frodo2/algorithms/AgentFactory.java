@@ -38,6 +38,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.jdom2.Document;
 import org.jdom2.Element;
@@ -142,19 +147,10 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 	 * @throws InstantiationException 		thrown if the agent class provided in the description is an abstract class
 	 * @throws IllegalArgumentException 	if an error occurs in passing arguments to the constructor of the agent class
 	 */
-	@SuppressWarnings("unchecked")
 	private static < V extends Addable<V> > AgentInterface<V> instantiateAgent (ProblemInterface<V, ?> probDesc, Document agentDesc, CentralMailer mailman) 
 	throws ClassNotFoundException, NoSuchMethodException, IllegalArgumentException, InstantiationException, 
 	IllegalAccessException, InvocationTargetException {
-
-		// Read the agent class name from the agent description
-		String agentClassName = agentDesc.getRootElement().getAttributeValue("className");
-		assert agentClassName != null : "The agent description does not have an attribute of name \"className\"";
-
-		// Create a new instance of that class, passing the two descriptions as input parameters
-		Class< ? extends AgentInterface<V> > agentClass = (Class<? extends AgentInterface<V>>) Class.forName(agentClassName);
-		Constructor< ? extends AgentInterface<V> > constructor = agentClass.getConstructor(ProblemInterface.class, Document.class, CentralMailer.class);
-		return constructor.newInstance(probDesc, agentDesc, mailman);
+		return AgentBlueprint.compile(agentDesc).newAgent(probDesc, mailman);
 	}
 
 	/** Runs the input algorithm on the input problem
@@ -305,6 +301,12 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 
 	/** The start time of the algorithm, in milliseconds */
 	private long startTime;
+	
+	/** The time (in ms) at which the factory started creating the agents */
+	private long setupStartTime;
+	
+	/** The wall clock time (in ms) spent creating and connecting the agents before the algorithm was started */
+	private long startupTime = -1;
 
 	/** Whether information should be printed out */
 	private boolean silent = false;
@@ -329,6 +331,9 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 
 	/** The agent configuration */
 	private Document agentDesc;
+	
+	/** The agent configuration, compiled once for all agents */
+	private AgentBlueprint blueprint;
 
 	/** The problem */
 	private ProblemInterface<V, ?> problem;
@@ -513,14 +518,9 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 			agents = new HashMap< String, AgentInterface<V> > (nbrAgents);
 			subProbs = new HashMap< String, ProblemInterface<V, ?> > ();
 			synchronized (agents) {
-				for (String agent : agentNames) {
-					ProblemInterface<V, ?> subProb = problem.getSubProblem(agent);
-					if (this.useTCP) 
-						agents.put(agent, (AgentInterface<V>) AgentFactory.createAgent(pipe, pipe, subProb, agentDesc, ++port));
-					else 
-						agents.put(agent, (AgentInterface<V>) AgentFactory.createAgent(pipe, subProb, agentDesc, mailman));
-					subProbs.put(agent, subProb);
-				}
+				this.setupStartTime = System.currentTimeMillis();
+				this.blueprint = AgentBlueprint.compile(this.agentDesc);
+				this.createAgents(agentNames);
 
 				// Add to my queue all the statistics listeners
 				if (!silent) {
@@ -563,6 +563,101 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 		this.waitForEnd();
 	}
 
+	/** Creates the given agents, extracting their subproblems and instantiating their modules in parallel
+	 * 
+	 * The work is spread over a thread pool whose size is given by the attribute \c setupThreads of the agent description, 
+	 * defaulting to one thread per available processor. The agents are then set up and reported to the controller 
+	 * sequentially, in the iteration order of \a agentNames, such that the TCP ports and the order of the messages 
+	 * do not depend on the thread scheduling. 
+	 * @param agentNames 	the names of the agents to create
+	 */
+	private void createAgents (Collection<String> agentNames) {
+		
+		String setupThreads = this.agentDesc.getRootElement().getAttributeValue("setupThreads");
+		final int nbrThreads = Math.min(agentNames.size(), 
+				(setupThreads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(setupThreads)));
+		
+		ArrayList< ProblemInterface<V, ?> > subProbList = new ArrayList< ProblemInterface<V, ?> > (agentNames.size());
+		ArrayList< AgentInterface<V> > agentList = new ArrayList< AgentInterface<V> > (agentNames.size());
+		
+		if (nbrThreads <= 1) { // no need for a thread pool
+			for (String agent : agentNames) {
+				ProblemInterface<V, ?> subProb = problem.getSubProblem(agent);
+				subProbList.add(subProb);
+				agentList.add(this.newAgent(subProb));
+			}
+			
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(nbrThreads);
+			ArrayList< Future< ProblemInterface<V, ?> > > subProbFutures = new ArrayList< Future< ProblemInterface<V, ?> > > (agentNames.size());
+			ArrayList< Future< AgentInterface<V> > > agentFutures = new ArrayList< Future< AgentInterface<V> > > (agentNames.size());
+			for (final String agent : agentNames) {
+				final Future< ProblemInterface<V, ?> > subProbFuture = executor.submit(new Callable< ProblemInterface<V, ?> > () {
+					public ProblemInterface<V, ?> call() {
+						return problem.getSubProblem(agent);
+					}
+				});
+				subProbFutures.add(subProbFuture);
+				agentFutures.add(executor.submit(new Callable< AgentInterface<V> > () {
+					public AgentInterface<V> call() throws Exception {
+						return newAgent(subProbFuture.get());
+					}
+				}));
+			}
+			
+			try {
+				for (int i = 0; i < agentFutures.size(); i++) {
+					ProblemInterface<V, ?> subProb = null;
+					AgentInterface<V> agent = null;
+					try {
+						subProb = subProbFutures.get(i).get();
+						agent = agentFutures.get(i).get();
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof OutOfMemoryError) 
+							throw (OutOfMemoryError) e.getCause();
+						e.getCause().printStackTrace();
+					}
+					subProbList.add(subProb);
+					agentList.add(agent);
+				}
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+				return;
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		
+		// Set up the agents in a deterministic order
+		int i = 0;
+		for (String agent : agentNames) {
+			ProblemInterface<V, ?> subProb = subProbList.get(i);
+			AgentInterface<V> agentInstance = agentList.get(i++);
+			if (agentInstance != null) 
+				agentInstance.setup(pipe, pipe, (this.useTCP ? ++port : -1));
+			agents.put(agent, agentInstance);
+			subProbs.put(agent, subProb);
+		}
+	}
+	
+	/** Instantiates an agent, without setting it up
+	 * @param subProb 	the agent's subproblem
+	 * @return a new agent, or \c null if the instantiation failed
+	 */
+	private AgentInterface<V> newAgent (ProblemInterface<V, ?> subProb) {
+		
+		assert ! this.useTCP || ! Boolean.parseBoolean(agentDesc.getRootElement().getAttributeValue("measureTime")) :
+			"measureTime == true, but the Simulated Time metric does not support TCP pipes";
+		
+		try {
+			return this.blueprint.newAgent(subProb, (this.useTCP ? null : mailman));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+
 	/** Parses the given problem
 	 * @param problemDesc 					the problem in XCSP format
 	 * @return 								the problem
@@ -633,6 +728,7 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 		this.done = false;
 		this.finalNCCCcount = -1;
 		this.finalTime = -1;
+		this.startupTime = -1;
 		if (this.measureMsgs) {
 			this.msgNbrs = new TreeMap<String, Integer> ();
 			this.msgSizes = new TreeMap<String, Long> ();
@@ -659,6 +755,8 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 
 		// Instantiate the new agents and restarts the old ones
 		synchronized (agents) {
+			ArrayList<String> newAgents = new ArrayList<String> ();
+			this.setupStartTime = System.currentTimeMillis();
 			for (String agentName : agentNames) {
 
 				// Check if this agent is old or new
@@ -667,15 +765,10 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 					this.subProbs.get(agentName).reset((ProblemInterface) problem.getSubProblem(agentName));
 					agent.report();
 
-				} else { // new agent
-					ProblemInterface<V, ?> subProb = problem.getSubProblem(agentName);
-					if (this.useTCP) 
-						agents.put(agentName, (AgentInterface<V>) AgentFactory.createAgent(pipe, pipe, subProb, agentDesc, ++port));
-					else 
-						agents.put(agentName, (AgentInterface<V>) AgentFactory.createAgent(pipe, subProb, agentDesc, mailman));
-					this.subProbs.put(agentName, subProb);
-				}
+				} else // new agent
+					newAgents.add(agentName);
 			}
+			this.createAgents(newAgents);
 		}
 
 		// Wait for all agents to finish
@@ -747,6 +840,7 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 				if (!silent) 
 					System.out.println("Starting the algorithm...");
 				this.startTime = System.currentTimeMillis();
+				this.startupTime = this.startTime - this.setupStartTime;
 				queue.sendMessageToMulti(pipes.keySet(), new Message (AgentInterface.START_AGENT));
 			}
 		}
@@ -905,6 +999,11 @@ public class AgentFactory < V extends Addable<V> > implements IncomingMsgPolicyI
 		return finalTime / 1000000;
 	}
 
+	/** @return the wall clock time (in ms) spent creating and connecting the agents before the algorithm was started, or -1 if unknown */
+	public long getStartupTime() {
+		return this.startupTime;
+	}
+
 	/** @return the total number of messages sent */
 	public int getNbrMsgs() {
 		int nbr = 0;
@@ -0,0 +1,42 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+*/
+
+package frodo2.algorithms;
+
+import frodo2.solutionSpaces.Addable;
+
+/** A listener notified of each variable assignment as soon as the agent owning the variable has decided its value
+ * 
+ * This makes it possible to act on the values of some variables before the whole problem has been solved. 
+ * @param <V> type used for variable values
+ * @warning The listener is called by the thread of the queue that gathers the statistics, while the solver is still running. 
+ */
+public interface AssignmentListener < V extends Addable<V> > {
+
+	/** Called when the value of a variable has been decided
+	 * @param var 		the variable
+	 * @param val 		its value
+	 * @param time 		the time elapsed since the start of the algorithm (in ms)
+	 */
+	public void assignmentFound (String var, V val, long time);
+	
+}
@@ -67,6 +67,10 @@ public class Problem < V extends Addable<V>, U extends Addable<U> > implements D
 	/** The domain of each variable */
 	private Map<String, V[]> domains;
 	
+	/** The class used for variable values */
+	@SuppressWarnings("unchecked")
+	private Class<V> domClass = (Class<V>) AddableInteger.class;
+	
 	/** The class used for utility values */
 	@SuppressWarnings("unchecked")
 	private Class<U> utilClass = (Class<U>) AddableInteger.class;
@@ -188,14 +192,13 @@ public class Problem < V extends Addable<V>, U extends Addable<U> > implements D
 	
 	/** @see ProblemInterface#setDomClass(java.lang.Class) */
 	public void setDomClass(Class<V> domClass) {
-		assert domClass == AddableInteger.class : "Unsupported domain class: " + domClass;
+		this.domClass = domClass;
 	}
 	
 	/** @see ProblemInterface#getDomClass() */
-	@SuppressWarnings("unchecked")
 	@Override
 	public Class<V> getDomClass() {
-		return (Class<V>) AddableInteger.class;
+		return this.domClass;
 	}
 	
 	/** @see DCOPProblemInterface#setUtilClass(java.lang.Class) */
@@ -808,6 +811,7 @@ public class Problem < V extends Addable<V>, U extends Addable<U> > implements D
 		
 		Problem<V, U> out = new Problem<V, U> (this.maximize);
 		out.setAgent(agent);
+		out.setDomClass(this.domClass);
 		out.setUtilClass(this.utilClass);
 
 		// Look up the agent's variables
@@ -842,7 +846,7 @@ public class Problem < V extends Addable<V>, U extends Addable<U> > implements D
 			if (! missingAgents.isEmpty()) {
 				Random rand = new Random ();
 				for (String missing : missingAgents) 
-					out.addVariable("foo_agent_" + missing + "_" + rand.nextInt(Integer.MAX_VALUE), missing, (V[]) new AddableInteger [0]);
+					out.addVariable("foo_agent_" + missing + "_" + rand.nextInt(Integer.MAX_VALUE), missing, (V[]) Array.newInstance(this.domClass, 0));
 			}
 		}
 		
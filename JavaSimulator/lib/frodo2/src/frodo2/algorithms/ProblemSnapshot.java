@@ -0,0 +1,720 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.AddableInteger;
+import frodo2.solutionSpaces.AddableReal;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+import frodo2.solutionSpaces.hypercube.Hypercube;
+import frodo2.solutionSpaces.hypercube.ScalarHypercube;
+
+/** A compact binary snapshot of a parsed DCOP, which can be reloaded without parsing any XCSP text
+ * 
+ * The snapshot contains the agents, the variables with their owners and integer domains, the relations as packed arrays of utilities 
+ * (shared by all constraints that have the same utilities, and stored on 1, 2 or 4 bytes each when they are integers), the constraints, and a precomputed index of the neighbors and 
+ * of the constraints of each variable. The file is read through a memory-mapped buffer, and the constraints are only decoded 
+ * when a Problem is requested, either for the whole DCOP or for a single agent. Any DCOP solver can then solve this Problem 
+ * instead of the XCSP Document. 
+ * 
+ * @note Only DCOPs with AddableInteger variable values and AddableInteger or AddableReal utilities are supported. 
+ * Probability spaces are not part of the snapshot. 
+ */
+public class ProblemSnapshot {
+	
+	/** The first bytes of a snapshot file */
+	private static final int MAGIC = 0x46524f44;
+	
+	/** The version of the snapshot format */
+	private static final int VERSION = 1;
+	
+	/** The charset used to encode names */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	/** The memory-mapped contents of the snapshot file */
+	private final ByteBuffer buf;
+	
+	/** Whether the DCOP is a maximization problem */
+	private final boolean maximize;
+	
+	/** Whether utilities are stored as doubles rather than ints */
+	private final boolean realUtils;
+	
+	/** The names of the agents */
+	private final String[] agents;
+	
+	/** The domains, shared by all variables and constraints that use them */
+	private final AddableInteger[][] domains;
+	
+	/** The names of the variables, including the ones that are not owned by any agent */
+	private final String[] varNames;
+	
+	/** The index of each variable */
+	private final HashMap<String, Integer> varIDs;
+	
+	/** For each variable, the index of its owner agent, or -1 if it has none */
+	private final int[] owners;
+	
+	/** For each variable, the index of its domain */
+	private final int[] varDoms;
+	
+	/** The neighbors of variable \c i are <tt>neighbors[neighborStarts[i] .. neighborStarts[i+1]-1]</tt> */
+	private final int[] neighborStarts;
+	
+	/** The neighbors of all variables */
+	private final int[] neighbors;
+	
+	/** The constraints of variable \c i are <tt>constraints[constraintStarts[i] .. constraintStarts[i+1]-1]</tt> */
+	private final int[] constraintStarts;
+	
+	/** The constraints of all variables, in increasing order for each variable */
+	private final int[] constraints;
+	
+	/** The position of each relation's utilities in the buffer */
+	private final int[] relPositions;
+	
+	/** The number of utilities in each relation */
+	private final int[] relSizes;
+	
+	/** The number of bytes used to store each utility of each relation */
+	private final byte[] relWidths;
+	
+	/** The position of each constraint in the buffer */
+	private final int[] constPositions;
+	
+	/** Constructor 
+	 * @param buf 			the contents of the snapshot file
+	 * @throws IOException 	if the contents are not a snapshot
+	 */
+	private ProblemSnapshot (ByteBuffer buf) throws IOException {
+		
+		this.buf = buf;
+		if (buf.remaining() < 10 || buf.getInt() != MAGIC) 
+			throw new IOException ("Not a problem snapshot");
+		int version = buf.getInt();
+		if (version != VERSION) 
+			throw new IOException ("Unsupported problem snapshot version: " + version);
+		this.maximize = buf.get() != 0;
+		this.realUtils = buf.get() != 0;
+		
+		// Read the agents
+		this.agents = new String [buf.getInt()];
+		for (int i = 0; i < this.agents.length; i++) 
+			this.agents[i] = readString(buf);
+		
+		// Read the domains
+		this.domains = new AddableInteger [buf.getInt()][];
+		for (int i = 0; i < this.domains.length; i++) {
+			int[] values = readInts(buf, buf.getInt());
+			AddableInteger[] dom = this.domains[i] = new AddableInteger [values.length];
+			for (int j = 0; j < values.length; j++) 
+				dom[j] = new AddableInteger (values[j]);
+		}
+		
+		// Read the variables
+		final int nbrVars = buf.getInt();
+		this.varNames = new String [nbrVars];
+		this.varIDs = new HashMap<String, Integer> (2 * nbrVars);
+		this.owners = new int [nbrVars];
+		this.varDoms = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) {
+			this.varIDs.put(this.varNames[i] = readString(buf), i);
+			this.owners[i] = buf.getInt();
+			this.varDoms[i] = buf.getInt();
+		}
+		
+		// Read the indexes
+		this.neighborStarts = readInts(buf, nbrVars + 1);
+		this.neighbors = readInts(buf, this.neighborStarts[nbrVars]);
+		this.constraintStarts = readInts(buf, nbrVars + 1);
+		this.constraints = readInts(buf, this.constraintStarts[nbrVars]);
+		
+		// Record the positions of the relations and the constraints, which are decoded lazily
+		this.relPositions = new int [buf.getInt()];
+		this.relSizes = new int [this.relPositions.length];
+		this.relWidths = new byte [this.relPositions.length];
+		for (int i = 0; i < this.relPositions.length; i++) {
+			this.relSizes[i] = buf.getInt();
+			this.relWidths[i] = buf.get();
+			this.relPositions[i] = buf.position();
+			buf.position(buf.position() + this.relWidths[i] * this.relSizes[i]);
+		}
+		this.constPositions = new int [buf.getInt()];
+		for (int i = 0; i < this.constPositions.length; i++) {
+			this.constPositions[i] = buf.position();
+			skipString(buf);
+			skipString(buf);
+			final int arity = buf.getInt();
+			buf.position(buf.position() + 8 * arity + 4);
+		}
+	}
+	
+	/** Opens a snapshot file
+	 * @param file 			the snapshot file
+	 * @return the snapshot
+	 * @throws IOException 	if an I/O error occurs, or if the file is not a snapshot
+	 */
+	public static ProblemSnapshot open (File file) throws IOException {
+		
+		RandomAccessFile raf = new RandomAccessFile (file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			return new ProblemSnapshot (channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close(); // the mapping remains valid
+		}
+	}
+	
+	/** Writes a snapshot of a DCOP
+	 * @param <U> 			the type used for utility values
+	 * @param problem 		the DCOP, typically an XCSPparser or a JaCoPxcspParser
+	 * @param file 			the output file
+	 * @throws IOException 	if an I/O error occurs
+	 */
+	public static < U extends Addable<U> > void write (DCOPProblemInterface<AddableInteger, U> problem, File file) throws IOException {
+		
+		U zero = problem.getZeroUtility();
+		final boolean realUtils = zero instanceof AddableReal;
+		if (! realUtils && ! (zero instanceof AddableInteger)) 
+			throw new IllegalArgumentException ("Unsupported utility class: " + zero.getClass());
+		
+		List< ? extends UtilitySolutionSpace<AddableInteger, U> > spaces = problem.getSolutionSpaces(true);
+		
+		// Index the agents
+		String[] agents = new TreeSet<String> (problem.getAgents()).toArray(new String [0]);
+		HashMap<String, Integer> agentIDs = new HashMap<String, Integer> ();
+		for (int i = 0; i < agents.length; i++) 
+			agentIDs.put(agents[i], i);
+		
+		// Index the variables, starting with the ones owned by agents
+		ArrayList<String> varNames = new ArrayList<String> (new TreeSet<String> (problem.getVariables()));
+		ArrayList<AddableInteger[]> varDomains = new ArrayList<AddableInteger[]> (varNames.size());
+		HashMap<String, Integer> varIDs = new HashMap<String, Integer> ();
+		for (String var : varNames) {
+			varIDs.put(var, varIDs.size());
+			varDomains.add(problem.getDomain(var));
+		}
+		for (UtilitySolutionSpace<AddableInteger, U> space : spaces) {
+			String[] vars = space.getVariables();
+			for (int i = 0; i < vars.length; i++) {
+				if (! varIDs.containsKey(vars[i])) {
+					varIDs.put(vars[i], varIDs.size());
+					varNames.add(vars[i]);
+					varDomains.add(space.getDomain(i));
+				}
+			}
+		}
+		final int nbrVars = varNames.size();
+		
+		// Index the domains
+		ArrayList<AddableInteger[]> domains = new ArrayList<AddableInteger[]> ();
+		HashMap< List<AddableInteger>, Integer > domIDs = new HashMap< List<AddableInteger>, Integer > ();
+		
+		// Pack the constraints and index the relations
+		ArrayList<Object> relations = new ArrayList<Object> ();
+		HashMap<Object, Integer> relIDs = new HashMap<Object, Integer> ();
+		int[][] scopes = new int [spaces.size()][];
+		int[][] scopeDoms = new int [spaces.size()][];
+		int[] constRels = new int [spaces.size()];
+		for (int s = 0; s < spaces.size(); s++) {
+			UtilitySolutionSpace<AddableInteger, U> space = spaces.get(s);
+			String[] vars = space.getVariables();
+			AddableInteger[][] doms = space.getDomains();
+			
+			scopes[s] = new int [vars.length];
+			scopeDoms[s] = new int [vars.length];
+			int nbrUtils = 1;
+			for (int i = 0; i < vars.length; i++) {
+				scopes[s][i] = varIDs.get(vars[i]);
+				scopeDoms[s][i] = domainID(doms[i], domains, domIDs);
+				nbrUtils *= doms[i].length;
+			}
+			
+			UtilitySolutionSpace.Iterator<AddableInteger, U> iter = space.iterator(vars, doms);
+			Object utils;
+			if (realUtils) {
+				double[] reals = new double [nbrUtils];
+				for (int i = 0; i < nbrUtils; i++) 
+					reals[i] = iter.nextUtility().doubleValue();
+				utils = DoubleBuffer.wrap(reals);
+			} else {
+				int[] ints = new int [nbrUtils];
+				for (int i = 0; i < nbrUtils; i++) 
+					ints[i] = ((AddableInteger) iter.nextUtility()).intValue(); // infinities are Integer.MAX_VALUE and MIN_VALUE
+				utils = IntBuffer.wrap(ints);
+			}
+			
+			Integer relID = relIDs.get(utils);
+			if (relID == null) {
+				relIDs.put(utils, relID = relations.size());
+				relations.add(utils);
+			}
+			constRels[s] = relID;
+		}
+		
+		// Compute the neighbors and the constraints of each variable
+		ArrayList< TreeSet<Integer> > neighbors = new ArrayList< TreeSet<Integer> > (nbrVars);
+		ArrayList< TreeSet<Integer> > constraints = new ArrayList< TreeSet<Integer> > (nbrVars);
+		for (int i = 0; i < nbrVars; i++) {
+			neighbors.add(new TreeSet<Integer> ());
+			constraints.add(new TreeSet<Integer> ());
+		}
+		for (int s = 0; s < scopes.length; s++) {
+			for (int var : scopes[s]) {
+				constraints.get(var).add(s);
+				for (int neigh : scopes[s]) 
+					if (neigh != var) 
+						neighbors.get(var).add(neigh);
+			}
+		}
+		
+		DataOutputStream out = new DataOutputStream (new BufferedOutputStream (new FileOutputStream (file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeBoolean(problem.maximize());
+			out.writeBoolean(realUtils);
+			
+			out.writeInt(agents.length);
+			for (String agent : agents) 
+				writeString(out, agent);
+			
+			// Make sure all variable domains are indexed before writing the domains
+			int[] varDoms = new int [nbrVars];
+			for (int i = 0; i < nbrVars; i++) 
+				varDoms[i] = domainID(varDomains.get(i), domains, domIDs);
+			out.writeInt(domains.size());
+			for (AddableInteger[] dom : domains) {
+				out.writeInt(dom.length);
+				for (AddableInteger val : dom) 
+					out.writeInt(val.intValue());
+			}
+			
+			out.writeInt(nbrVars);
+			for (int i = 0; i < nbrVars; i++) {
+				String var = varNames.get(i);
+				writeString(out, var);
+				String owner = problem.getOwner(var);
+				out.writeInt(owner == null ? -1 : agentIDs.get(owner));
+				out.writeInt(varDoms[i]);
+			}
+			
+			writeIndex(out, neighbors);
+			writeIndex(out, constraints);
+			
+			out.writeInt(relations.size());
+			for (Object utils : relations) {
+				if (realUtils) {
+					double[] reals = ((DoubleBuffer) utils).array();
+					out.writeInt(reals.length);
+					out.writeByte(8);
+					for (double util : reals) 
+						out.writeDouble(util);
+				} else {
+					int[] ints = ((IntBuffer) utils).array();
+					out.writeInt(ints.length);
+					
+					// Use the smallest width such that all finite utilities lie strictly between the representations of the infinities
+					int width = 1;
+					for (int util : ints) {
+						if (util == Integer.MAX_VALUE || util == Integer.MIN_VALUE) 
+							continue;
+						else if (util <= Short.MIN_VALUE || util >= Short.MAX_VALUE) {
+							width = 4;
+							break;
+						} else if (util <= Byte.MIN_VALUE || util >= Byte.MAX_VALUE) 
+							width = 2;
+					}
+					out.writeByte(width);
+					
+					for (int util : ints) {
+						if (width == 1) 
+							out.writeByte(util == Integer.MAX_VALUE ? Byte.MAX_VALUE : util == Integer.MIN_VALUE ? Byte.MIN_VALUE : util);
+						else if (width == 2) 
+							out.writeShort(util == Integer.MAX_VALUE ? Short.MAX_VALUE : util == Integer.MIN_VALUE ? Short.MIN_VALUE : util);
+						else 
+							out.writeInt(util);
+					}
+				}
+			}
+			
+			out.writeInt(spaces.size());
+			for (int s = 0; s < scopes.length; s++) {
+				UtilitySolutionSpace<AddableInteger, U> space = spaces.get(s);
+				writeString(out, space.getName());
+				writeString(out, space.getRelationName());
+				out.writeInt(scopes[s].length);
+				for (int var : scopes[s]) 
+					out.writeInt(var);
+				for (int dom : scopeDoms[s]) 
+					out.writeInt(dom);
+				out.writeInt(constRels[s]);
+			}
+			
+		} finally {
+			out.close();
+		}
+	}
+	
+	/** Looks up or adds a domain in the table of domains
+	 * @param dom 		the domain
+	 * @param domains 	the table of domains
+	 * @param domIDs 	the index of each domain in the table
+	 * @return the index of the domain
+	 */
+	private static int domainID (AddableInteger[] dom, ArrayList<AddableInteger[]> domains, HashMap< List<AddableInteger>, Integer > domIDs) {
+		
+		List<AddableInteger> key = Arrays.asList(dom);
+		Integer id = domIDs.get(key);
+		if (id == null) {
+			domIDs.put(key, id = domains.size());
+			domains.add(dom);
+		}
+		return id;
+	}
+	
+	/** Writes a list of sets of indexes, as an array of start positions followed by the concatenation of the sets
+	 * @param out 			the output stream
+	 * @param sets 			the sets
+	 * @throws IOException 	if an I/O error occurs
+	 */
+	private static void writeIndex (DataOutputStream out, ArrayList< TreeSet<Integer> > sets) throws IOException {
+		
+		int start = 0;
+		out.writeInt(start);
+		for (TreeSet<Integer> set : sets) 
+			out.writeInt(start += set.size());
+		for (TreeSet<Integer> set : sets) 
+			for (Integer i : set) 
+				out.writeInt(i);
+	}
+	
+	/** Writes a string that may be \c null
+	 * @param out 			the output stream
+	 * @param str 			the string
+	 * @throws IOException 	if an I/O error occurs
+	 */
+	private static void writeString (DataOutputStream out, String str) throws IOException {
+		
+		if (str == null) 
+			out.writeInt(-1);
+		else {
+			byte[] bytes = str.getBytes(UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+	
+	/** Reads a string that may be \c null
+	 * @param buf 	the buffer
+	 * @return the string
+	 */
+	private static String readString (ByteBuffer buf) {
+		
+		final int length = buf.getInt();
+		if (length < 0) 
+			return null;
+		byte[] bytes = new byte [length];
+		buf.get(bytes);
+		return new String (bytes, UTF8);
+	}
+	
+	/** Skips a string
+	 * @param buf 	the buffer
+	 */
+	private static void skipString (ByteBuffer buf) {
+		
+		final int length = buf.getInt();
+		if (length > 0) 
+			buf.position(buf.position() + length);
+	}
+	
+	/** Reads an array of ints
+	 * @param buf 	the buffer
+	 * @param size 	the number of ints
+	 * @return the array
+	 */
+	private static int[] readInts (ByteBuffer buf, int size) {
+		
+		int[] out = new int [size];
+		buf.asIntBuffer().get(out);
+		buf.position(buf.position() + 4 * size);
+		return out;
+	}
+	
+	/** @return whether the DCOP is a maximization problem */
+	public boolean maximize () {
+		return this.maximize;
+	}
+	
+	/** @return the names of the agents */
+	public Set<String> getAgents () {
+		return new HashSet<String> (Arrays.asList(this.agents));
+	}
+	
+	/** @return the variables owned by agents */
+	public Set<String> getVariables () {
+		
+		HashSet<String> out = new HashSet<String> ();
+		for (int i = 0; i < this.varNames.length; i++) 
+			if (this.owners[i] >= 0) 
+				out.add(this.varNames[i]);
+		return out;
+	}
+	
+	/** @param var 	the name of a variable
+	 * @return the owner of the variable, or \c null if it is unknown
+	 */
+	public String getOwner (String var) {
+		
+		Integer id = this.varIDs.get(var);
+		return (id == null || this.owners[id] < 0 ? null : this.agents[this.owners[id]]);
+	}
+	
+	/** @param var 	the name of a variable
+	 * @return the domain of the variable, or \c null if the variable is unknown
+	 */
+	public AddableInteger[] getDomain (String var) {
+		
+		Integer id = this.varIDs.get(var);
+		return (id == null ? null : this.domains[this.varDoms[id]]);
+	}
+	
+	/** @param var 	the name of a variable
+	 * @return the variables that share at least one constraint with the input variable
+	 */
+	public Collection<String> getNeighborVars (String var) {
+		
+		HashSet<String> out = new HashSet<String> ();
+		Integer id = this.varIDs.get(var);
+		if (id != null) 
+			for (int i = this.neighborStarts[id]; i < this.neighborStarts[id + 1]; i++) 
+				out.add(this.varNames[this.neighbors[i]]);
+		return out;
+	}
+	
+	/** Decodes the whole DCOP
+	 * @param <U> 			the type used for utility values
+	 * @param utilClass 	the class used for utility values, either AddableInteger or AddableReal
+	 * @return the DCOP
+	 */
+	public < U extends Addable<U> > Problem<AddableInteger, U> getProblem (Class<U> utilClass) {
+		return this.decode(null, utilClass);
+	}
+	
+	/** Decodes the subproblem of a given agent, as returned by Problem#getSubProblem(String), without decoding the rest of the DCOP
+	 * @param <U> 			the type used for utility values
+	 * @param agent 		the name of the agent
+	 * @param utilClass 	the class used for utility values, either AddableInteger or AddableReal
+	 * @return the subproblem, containing all constraints involving the agent's variables
+	 */
+	public < U extends Addable<U> > Problem<AddableInteger, U> getSubProblem (String agent, Class<U> utilClass) {
+		return this.decode(agent, utilClass);
+	}
+	
+	/** Decodes the DCOP
+	 * @param <U> 			the type used for utility values
+	 * @param agent 		the name of the agent whose subproblem should be decoded, or \c null for the whole DCOP
+	 * @param utilClass 	the class used for utility values
+	 * @return the DCOP or subproblem
+	 */
+	private < U extends Addable<U> > Problem<AddableInteger, U> decode (String agent, Class<U> utilClass) {
+		
+		if (utilClass != AddableInteger.class && utilClass != AddableReal.class) 
+			throw new IllegalArgumentException ("Unsupported utility class: " + utilClass);
+		
+		Problem<AddableInteger, U> out = new Problem<AddableInteger, U> (this.maximize);
+		out.setDomClass(AddableInteger.class);
+		out.setUtilClass(utilClass);
+		U infeasibleUtil = (this.maximize ? out.getMinInfUtility() : out.getPlusInfUtility());
+		
+		// Look up the variables and the constraints
+		boolean[] vars = new boolean [this.varNames.length];
+		boolean[] consts = new boolean [this.constPositions.length];
+		if (agent == null) {
+			for (int i = 0; i < vars.length; i++) 
+				vars[i] = this.owners[i] >= 0;
+			Arrays.fill(consts, true);
+			
+		} else {
+			out.setAgent(agent);
+			int agentID = Arrays.asList(this.agents).indexOf(agent);
+			for (int var = 0; var < vars.length; var++) {
+				if (agentID >= 0 && this.owners[var] == agentID) {
+					for (int i = this.constraintStarts[var]; i < this.constraintStarts[var + 1]; i++) {
+						int s = this.constraints[i];
+						consts[s] = true;
+					}
+					vars[var] = true;
+					for (int i = this.neighborStarts[var]; i < this.neighborStarts[var + 1]; i++) 
+						vars[this.neighbors[i]] = true;
+				}
+			}
+		}
+		
+		for (int var = 0; var < vars.length; var++) 
+			if (vars[var]) 
+				out.addVariable(this.varNames[var], (this.owners[var] < 0 ? null : this.agents[this.owners[var]]), this.domains[this.varDoms[var]]);
+		
+		// Decode the constraints, in their original order
+		ByteBuffer buf = this.buf.duplicate();
+		for (int s = 0; s < consts.length; s++) {
+			if (! consts[s]) 
+				continue;
+			
+			buf.position(this.constPositions[s]);
+			String name = readString(buf);
+			String relName = readString(buf);
+			final int arity = buf.getInt();
+			String[] scope = new String [arity];
+			for (int i = 0; i < arity; i++) 
+				scope[i] = this.varNames[buf.getInt()];
+			AddableInteger[][] doms = new AddableInteger [arity][];
+			for (int i = 0; i < arity; i++) 
+				doms[i] = this.domains[buf.getInt()];
+			U[] utils = this.decodeUtils(buf.getInt(), utilClass);
+			
+			UtilitySolutionSpace<AddableInteger, U> space;
+			if (arity == 0) 
+				space = new ScalarHypercube<AddableInteger, U> (utils[0], infeasibleUtil, AddableInteger[].class);
+			else 
+				space = new Hypercube<AddableInteger, U> (scope, doms, utils, infeasibleUtil, (agent == null ? null : out));
+			space.setName(name);
+			space.setRelationName(relName);
+			out.addSolutionSpace(space);
+		}
+		
+		return out;
+	}
+	
+	/** Decodes the utilities of a relation
+	 * @param <U> 			the type used for utility values
+	 * @param rel 			the index of the relation
+	 * @param utilClass 	the class used for utility values, either AddableInteger or AddableReal
+	 * @return the utilities
+	 */
+	@SuppressWarnings("unchecked")
+	private < U extends Addable<U> > U[] decodeUtils (int rel, Class<U> utilClass) {
+		
+		final int size = this.relSizes[rel];
+		U[] out = (U[]) Array.newInstance(utilClass, size);
+		ByteBuffer buf = this.buf.duplicate();
+		buf.position(this.relPositions[rel]);
+		
+		if (utilClass == AddableInteger.class) {
+			for (int i = 0; i < size; i++) {
+				int util = (this.realUtils ? toInt(buf.getDouble()) : readInt(buf, this.relWidths[rel]));
+				out[i] = (U) (util == Integer.MAX_VALUE ? AddableInteger.PlusInfinity.PLUS_INF : 
+					util == Integer.MIN_VALUE ? AddableInteger.MinInfinity.MIN_INF : new AddableInteger (util));
+			}
+		} else {
+			for (int i = 0; i < size; i++) {
+				double util = (this.realUtils ? buf.getDouble() : toDouble(readInt(buf, this.relWidths[rel])));
+				out[i] = (U) (util == Double.POSITIVE_INFINITY ? AddableReal.PlusInfinity.PLUS_INF : 
+					util == Double.NEGATIVE_INFINITY ? AddableReal.MinInfinity.MIN_INF : new AddableReal (util));
+			}
+		}
+		
+		return out;
+	}
+	
+	/** Reads an int utility stored on fewer bytes
+	 * @param buf 		the buffer
+	 * @param width 	the number of bytes used to store the utility
+	 * @return the utility, with infinities represented by Integer.MAX_VALUE and Integer.MIN_VALUE
+	 */
+	private static int readInt (ByteBuffer buf, byte width) {
+		
+		switch (width) {
+		case 1: 
+			byte b = buf.get();
+			return (b == Byte.MAX_VALUE ? Integer.MAX_VALUE : b == Byte.MIN_VALUE ? Integer.MIN_VALUE : b);
+		case 2: 
+			short s = buf.getShort();
+			return (s == Short.MAX_VALUE ? Integer.MAX_VALUE : s == Short.MIN_VALUE ? Integer.MIN_VALUE : s);
+		default: 
+			return buf.getInt();
+		}
+	}
+	
+	/** @param util 	a real utility
+	 * @return the utility as an int, with infinities mapped to Integer.MAX_VALUE and Integer.MIN_VALUE
+	 */
+	private static int toInt (double util) {
+		return (util == Double.POSITIVE_INFINITY ? Integer.MAX_VALUE : util == Double.NEGATIVE_INFINITY ? Integer.MIN_VALUE : (int) util);
+	}
+	
+	/** @param util 	an int utility, with infinities represented by Integer.MAX_VALUE and Integer.MIN_VALUE
+	 * @return the utility as a double
+	 */
+	private static double toDouble (int util) {
+		return (util == Integer.MAX_VALUE ? Double.POSITIVE_INFINITY : util == Integer.MIN_VALUE ? Double.NEGATIVE_INFINITY : util);
+	}
+	
+	/** Converts an XCSP file into a snapshot file
+	 * @param args 	the XCSP file, the output snapshot file, and optionally the class used for utility values (AddableInteger by default)
+	 * @throws Exception 	if an error occurs
+	 */
+	@SuppressWarnings("unchecked")
+	public static void main (String[] args) throws Exception {
+		
+		// The GNU GPL copyright notice
+		System.out.println("FRODO  Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek");
+		System.out.println("This program comes with ABSOLUTELY NO WARRANTY.");
+		System.out.println("This is free software, and you are welcome to redistribute it");
+		System.out.println("under certain conditions. \n");
+		
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: ProblemSnapshot problem.xml output.snapshot [utilClass]. Eg: ProblemSnapshot graphColoring.xml graphColoring.snapshot frodo2.solutionSpaces.AddableReal");
+			System.exit(1);
+		}
+		
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger> (XCSPparser.parseStreaming(new File (args[0]), false));
+		if (args.length == 3) 
+			parser.setUtilClass((Class<AddableInteger>) Class.forName(args[2]));
+		write(parser, new File (args[1]));
+	}
+	
+}
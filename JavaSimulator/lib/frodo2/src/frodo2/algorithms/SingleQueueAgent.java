@@ -23,17 +23,14 @@ How to contact the authors:
 package frodo2.algorithms;
 
 import java.io.IOException;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.jdom2.Document;
-import org.jdom2.Element;
 import org.jdom2.JDOMException;
 
 import frodo2.communication.IncomingMsgPolicyInterface;
@@ -52,8 +49,6 @@ import frodo2.daemon.Daemon;
 import frodo2.daemon.LocalAgentReport;
 import frodo2.daemon.LocalWhitePages;
 import frodo2.solutionSpaces.Addable;
-import frodo2.solutionSpaces.DCOPProblemInterface;
-import frodo2.solutionSpaces.MASProblemInterface;
 import frodo2.solutionSpaces.ProblemInterface;
 
 /** An agent that uses a single queue. 
@@ -112,53 +107,29 @@ public class SingleQueueAgent < Val extends Addable<Val> > implements AgentInter
 	 * @throws InstantiationException if a module class provided in the description is an abstract class
 	 * @throws IllegalArgumentException if the constructor of an IncomingMsgPolicyInterface does not take the proper arguments
 	 */
-	@SuppressWarnings("unchecked")
 	public SingleQueueAgent(ProblemInterface<Val, ?> probDesc, Document agentDesc, CentralMailer mailman) 
 	throws JDOMException, ClassNotFoundException, NoSuchMethodException, 
 	IllegalArgumentException, InstantiationException, IllegalAccessException, InvocationTargetException {
+		this (probDesc, AgentBlueprint.compile(agentDesc), mailman);
+	}
+	
+	/** Constructor
+	 * @param probDesc 			the description of the problem
+	 * @param blueprint 		the compiled agent description
+	 * @param mailman 			the CentralMailer; ignored if not measuring Simulated Time
+	 * @throws InvocationTargetException if a module constructor throws an exception
+	 */
+	@SuppressWarnings("unchecked")
+	public SingleQueueAgent(ProblemInterface<Val, ?> probDesc, AgentBlueprint blueprint, CentralMailer mailman) throws InvocationTargetException {
 
 		this.problem = probDesc;
 		this.agentID = problem.getAgent();
-
-		String measureTimeString = agentDesc.getRootElement().getAttributeValue("measureTime");
-		boolean useCentralMailer = true;
-		if(measureTimeString != null)
-			useCentralMailer = Boolean.parseBoolean(measureTimeString);
+		this.measureMsgs = blueprint.measureMsgs;
 		
-		// Check whether we should count messages
-		String measureMsgs = agentDesc.getRootElement().getAttributeValue("measureMsgs");
-		if (measureMsgs != null) 
-			this.measureMsgs = Boolean.parseBoolean(measureMsgs);
-		else 
-			this.measureMsgs = false;
-		
-		// Read the problem description class name from the agent description, the standard value is DCOPProblemInterface
-		Element parserDesc = agentDesc.getRootElement().getChild("parser");
-		Class<? extends ProblemInterface<Val, ?>> probDescClass = (Class<? extends ProblemInterface<Val, ?>>)DCOPProblemInterface.class;
-		if(parserDesc != null) {
-			String probDescClassName = parserDesc.getAttributeValue("probDescClass");
-			if(probDescClassName != null)
-				probDescClass = (Class<? extends ProblemInterface<Val, ?>>) Class.forName(probDescClassName);
- 		}
-		
-		List<Element> types = agentDesc.getRootElement().getChildren("modules");
-		Element modsElmt = null;
-		if(types.size() == 1) {
-			modsElmt = agentDesc.getRootElement().getChild("modules");
-		} else {
-			String type = ((MASProblemInterface<Val, ?>)probDesc).getType();
-			for(Element t : types) {
-				if(t.getAttributeValue("agentType").equals(type)) {
-					modsElmt = t;
-					break;
-				}
-			}
-		}
-		
-		String solutionMonitorName = (modsElmt != null ? modsElmt.getAttributeValue("solutionMonitor") : null);
+		AgentBlueprint.ModuleSet modules = blueprint.getModules(probDesc);
 		
 		// Create the queue
-		if (useCentralMailer) 
+		if (blueprint.useCentralMailer) 
 			this.queue = mailman.newQueue(agentID);
 		else 
 			this.queue = new Queue(this.measureMsgs);
@@ -177,50 +148,13 @@ public class SingleQueueAgent < Val extends Addable<Val> > implements AgentInter
 		this.queue.addIncomingMessagePolicy(this);
 		
 		// Set up the listeners/modules
-		if (modsElmt != null) {
-			for (Element moduleElmt : (List<Element>) modsElmt.getChildren()) {
-
-				// Change the module's message types if required
-				String className = moduleElmt.getAttributeValue("className");
-				Class< MessageListener<String> > moduleClass = (Class< MessageListener<String> >) Class.forName(className);
-				Element allMsgsElmt = moduleElmt.getChild("messages");
-				if (allMsgsElmt != null) {
-					for (Element msgElmt : (List<Element>) allMsgsElmt.getChildren()) {
+		if (modules != null) {
+			for (AgentBlueprint.ModuleBlueprint moduleBlueprint : modules.modules) {
 
-						// Look up the new value for the message type
-						String newType = msgElmt.getAttributeValue("value");
-						String ownerClassName = msgElmt.getAttributeValue("ownerClass");
-						if (ownerClassName != null) { // the attribute "value" actually refers to a field in a class
-							Class<?> ownerClass = Class.forName(ownerClassName);
-							try {
-								Field field = ownerClass.getDeclaredField(newType);
-								newType = (String) field.get(newType);
-							} catch (NoSuchFieldException e) {
-								System.err.println("Unable to read the value of the field " + ownerClass.getName() + "." + newType);
-								e.printStackTrace();
-							}
-						}
-
-						// Set the message type to its new value
-						try {
-							setMsgType(moduleClass, msgElmt.getAttributeValue("name"), newType);
-						} catch (NoSuchFieldException e) {
-							System.err.println("Unable to find the field " + moduleClass.getName() + "." + msgElmt.getAttributeValue("name"));
-							e.printStackTrace();
-						}
-					}
-				}
-				
-				// Instantiate the listener using reflection
-				Class<?> parTypes[] = new Class[2];
-				parTypes[0] = probDescClass;
-				parTypes[1] = Element.class;
-				Constructor< MessageListener<String> > constructor = moduleClass.getConstructor(parTypes);
-				Object[] args = new Object[2];
-				args[0] = probDesc;
-				args[1] = moduleElmt;
-				MessageListener<String> module = constructor.newInstance(args);
-				if(className.equals(solutionMonitorName)) // every solutionMonitor must be of the type StatsReporterWithConvergence!
+				// Change the module's message types if required, and instantiate it
+				moduleBlueprint.setMsgTypes();
+				MessageListener<String> module = moduleBlueprint.newInstance(probDesc);
+				if(moduleBlueprint.className.equals(modules.solutionMonitor)) // every solutionMonitor must be of the type StatsReporterWithConvergence!
 					solutionMonitor = (StatsReporterWithConvergence<Val>)module;
 				
 				// Register the module with the queue
@@ -49,6 +49,9 @@ public class Solution<V, U> {
 	/** The time needed to solve the problem*/
 	protected long timeNeeded;
 	
+	/** The wall clock time (in ms) spent creating and connecting the agents before the algorithm started, or -1 if unknown */
+	protected long startupTime = -1;
+	
 	/** The cumulative time needed for all agents to find a solution */
 	protected long cumulativeTime;
 
@@ -82,6 +85,15 @@ public class Solution<V, U> {
 	/** The tree width of the tree on which the algorithm has run */
 	protected int treeWidth = -1;
 	
+	/** The time (in ms) at which the first variable assignment was reported, or -1 if unknown */
+	protected long firstAssignmentTime = -1;
+	
+	/** The time (in ms) at which the last variable assignment was reported, or -1 if unknown */
+	protected long lastAssignmentTime = -1;
+	
+	/** An upper bound on the distance between the utility of the solution and the optimal utility, or \c null if the solution is not approximate */
+	protected U errorBound;
+	
 	/** Constructor 
 	 * @param reportedUtil 		the reported optimal utility
 	 * @param trueUtil 			the true optimal utility
@@ -368,6 +380,49 @@ public class Solution<V, U> {
 	public int getNbrVariables() {
 		return this.numberOfVariables;
 	}
+	
+	/** @return the time (in ms) at which the first variable assignment was reported, or -1 if unknown */
+	public long getFirstAssignmentTime() {
+		return this.firstAssignmentTime;
+	}
+	
+	/** @return the time (in ms) at which the last variable assignment was reported, or -1 if unknown */
+	public long getLastAssignmentTime() {
+		return this.lastAssignmentTime;
+	}
+	
+	/** Sets the times at which the first and the last variable assignments were reported
+	 * @param firstAssignmentTime 	the time (in ms) of the first assignment
+	 * @param lastAssignmentTime 	the time (in ms) of the last assignment
+	 */
+	public void setAssignmentTimes(long firstAssignmentTime, long lastAssignmentTime) {
+		this.firstAssignmentTime = firstAssignmentTime;
+		this.lastAssignmentTime = lastAssignmentTime;
+	}
+
+	/** @return the wall clock time (in ms) spent creating and connecting the agents before the algorithm started, or -1 if unknown */
+	public long getStartupTime() {
+		return this.startupTime;
+	}
+	
+	/** Sets the startup time
+	 * @param startupTime 	the wall clock time (in ms) spent creating and connecting the agents before the algorithm started
+	 */
+	public void setStartupTime(long startupTime) {
+		this.startupTime = startupTime;
+	}
+
+	/** @return an upper bound on the distance between the utility of the solution and the optimal utility, or \c null if the solution is not approximate */
+	public U getErrorBound() {
+		return this.errorBound;
+	}
+	
+	/** Sets the error bound
+	 * @param errorBound 	an upper bound on the distance between the utility of the solution and the optimal utility
+	 */
+	public void setErrorBound(U errorBound) {
+		this.errorBound = errorBound;
+	}
 
 	/** @see java.lang.Object#toString() */
 	@Override
@@ -379,6 +434,8 @@ public class Solution<V, U> {
 		builder.append("\n\t- assignments: " + this.assignments);
 		builder.append("\n\t- reported utility: \t" + this.reportedUtil);
 		builder.append("\n\t- true utility: \t" + this.trueUtil);
+		if (this.errorBound != null) 
+			builder.append("\n\t- error bound: \t" + this.errorBound);
 		builder.append("\n");
 		
 		if (this.nbrMsgs > 0) {
@@ -397,11 +454,22 @@ public class Solution<V, U> {
 			builder.append("\n\t- ncccCount: \t" + formatter.format(this.ncccCount));
 		}
 		
+		if (this.startupTime >= 0) {
+			builder.append("\n");
+			builder.append("\n\t- startupTime: \t" + formatter.format(this.startupTime));
+		}
+		
 		if (this.timeNeeded > 0) {
 			builder.append("\n");
 			builder.append("\n\t- timeNeeded: \t" + formatter.format(this.timeNeeded));
 		}
 		
+		if (this.lastAssignmentTime >= 0) {
+			builder.append("\n");
+			builder.append("\n\t- firstAssignmentTime: \t" + formatter.format(this.firstAssignmentTime));
+			builder.append("\n\t- lastAssignmentTime: \t" + formatter.format(this.lastAssignmentTime));
+		}
+		
 		if (this.cumulativeTime > 0) {
 			builder.append("\n");
 			builder.append("\n\t- cumulative time: \t" + this.cumulativeTime);
@@ -22,7 +22,9 @@ How to contact the authors:
 
 package frodo2.algorithms;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Array;
@@ -39,6 +41,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import org.jdom2.Document;
@@ -144,6 +147,49 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		return builder.build(stream);
 	}
 
+	/** Creates a JDOM Document out of the input XML file (not necessarily in XCSP format), using a streaming StAX parser
+	 * 
+	 * This is meant for large problem files, and is faster and uses less memory than parse(File, boolean), especially when validating the file. 
+	 * The resulting Document contains no comments and no whitespace-only text, and the whitespace in the tuples of relations and probabilities is collapsed. 
+	 * @param file 				the XML file
+	 * @param checkXCSP 		if \c true, checks that the input XCSP file is properly formatted
+	 * @return 					a JDOM Document resulting from the parsing of the input file
+	 * @throws JDOMException 	if a parsing error occurs while reading the file
+	 * @throws IOException 		if an I/O error occurs while accessing the file
+	 * @see XCSPstreamBuilder
+	 */
+	public static Document parseStreaming (File file, boolean checkXCSP) throws JDOMException, IOException {
+		InputStream stream = new BufferedInputStream (new FileInputStream (file), 1 << 16);
+		try {
+			return XCSPstreamBuilder.build(stream, file.toURI().toString(), checkXCSP);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/** Creates a JDOM Document out of the input XML file path (not necessarily in XCSP format), using a streaming StAX parser
+	 * @param path 				the XML file path
+	 * @param checkXCSP 		if \c true, checks that the input XCSP file is properly formatted
+	 * @return 					a JDOM Document resulting from the parsing of the input file
+	 * @throws Exception 	if an error occurs
+	 * @see XCSPparser#parseStreaming(File, boolean)
+	 */
+	public static Document parseStreaming (String path, boolean checkXCSP) throws Exception {
+		return parseStreaming(new File (path), checkXCSP);
+	}
+
+	/** Creates a JDOM Document out of the input XML stream (not necessarily in XCSP format), using a streaming StAX parser
+	 * @param stream 			the XML stream
+	 * @param checkXCSP 		if \c true, checks that the input XCSP file is properly formatted
+	 * @return 					a JDOM Document resulting from the parsing of the input file
+	 * @throws JDOMException 	if a parsing error occurs while reading the file
+	 * @throws IOException 		if an I/O error occurs while accessing the file
+	 * @see XCSPparser#parseStreaming(File, boolean)
+	 */
+	public static Document parseStreaming (InputStream stream, boolean checkXCSP) throws JDOMException, IOException {
+		return XCSPstreamBuilder.build(stream, null, checkXCSP);
+	}
+
 	/** Returns a human-friendly String representation of the input JDOM Document 
 	 * @param doc 	the JDOM Document
 	 * @return 		a String representation of the input Document
@@ -283,6 +329,9 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	
 	/** The NCCC count */
 	private long ncccCount;
+	
+	/** The index of the problem, or \c null if it must be (re)built */
+	private volatile Index index;
 
 	/** Constructor from a JDOM root Element in XCSP format
 	 * @param root 	the JDOM root Element in XCSP format
@@ -697,6 +746,268 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		public U defaultUtil;
 	}
 
+	/** An immutable index of the agents, domains, variables and constraints in an XCSP description, built in a single pass over the JDOM tree
+	 * @note The index is rebuilt whenever the parser modifies the problem, or whenever the numbers of children of the XCSP elements 
+	 * it indexes have changed since it was built. 
+	 * @warning Modifications to the attributes of existing Elements that are not made through the parser are not detected. 
+	 */
+	private static class Index {
+		
+		/** The names of the children of the root Element that are indexed */
+		private static final String[] INDEXED = { "agents", "domains", "variables", "relations", "probabilities", "constraints" };
+		
+		/** The root Element from which this index was built */
+		private final Element root;
+		
+		/** For each indexed child of the root Element, its number of children when this index was built, or -1 if it was absent */
+		private final int[] sizes;
+		
+		/** The agent Elements, in the order in which they appear in the problem */
+		private final Element[] agentElmts;
+		
+		/** For each agent, the index of its Element in \a agentElmts */
+		private final HashMap<String, Integer> agentIDs = new HashMap<String, Integer> ();
+		
+		/** For each domain name, its Element */
+		private final HashMap<String, Element> domElmts = new HashMap<String, Element> ();
+		
+		/** For each variable, its ID; this includes the variables that appear in constraint scopes without being declared */
+		private final HashMap<String, Integer> varIDs = new HashMap<String, Integer> ();
+		
+		/** The names of the variables, indexed by ID */
+		private final String[] varNames;
+		
+		/** The variable Elements, indexed by ID; \c null for variables that are not declared */
+		private final Element[] varElmts;
+		
+		/** The owner of each variable, indexed by ID; \c null for variables with no specified owner */
+		private final String[] owners;
+		
+		/** Whether each variable is random, indexed by ID */
+		private final boolean[] random;
+		
+		/** For each owner (including the \c null owner), the IDs of its variables, in the order in which they appear in the problem */
+		private final HashMap< String, ArrayList<Integer> > varsOfOwner = new HashMap< String, ArrayList<Integer> > ();
+		
+		/** The constraint Elements, in the order in which they appear in the problem */
+		private final Element[] constElmts;
+		
+		/** For each constraint, the IDs of the variables in its scope */
+		private final int[][] scopes;
+		
+		/** For each constraint, the value of its \c agent attribute */
+		private final String[] constOwners;
+		
+		/** For each constraint, whether it refers to a probability law */
+		private final boolean[] probs;
+		
+		/** For each value of the \c agent attribute of the constraints, the constraints with this value, in increasing order */
+		private final HashMap< String, ArrayList<Integer> > constsOfOwner = new HashMap< String, ArrayList<Integer> > ();
+		
+		/** For each variable ID, the constraints whose scopes involve this variable, in increasing order */
+		private final int[][] constsOfVar;
+		
+		/** The relation Elements, in the order in which they appear in the problem */
+		private final Element[] relElmts;
+		
+		/** For each relation name, the index of its Element in \a relElmts */
+		private final HashMap<String, Integer> relIDs = new HashMap<String, Integer> ();
+		
+		/** The probability Elements, in the order in which they appear in the problem */
+		private final Element[] probElmts;
+		
+		/** For each probability name, the index of its Element in \a probElmts */
+		private final HashMap<String, Integer> probIDs = new HashMap<String, Integer> ();
+		
+		/** Constructor
+		 * @param root 	the JDOM root Element in XCSP format
+		 */
+		private Index (Element root) {
+			
+			this.root = root;
+			this.sizes = sizes(root);
+			
+			this.agentElmts = index(children(root, "agents"), this.agentIDs);
+			this.relElmts = index(children(root, "relations"), this.relIDs);
+			this.probElmts = index(children(root, "probabilities"), this.probIDs);
+			
+			for (Element domElmt : children(root, "domains")) {
+				String name = domElmt.getAttributeValue("name");
+				if (! this.domElmts.containsKey(name)) 
+					this.domElmts.put(name, domElmt);
+			}
+			
+			// Index the declared variables
+			ArrayList<String> varNames = new ArrayList<String> ();
+			ArrayList<Element> varElmts = new ArrayList<Element> ();
+			for (Element varElmt : children(root, "variables")) {
+				String name = varElmt.getAttributeValue("name");
+				if (this.varIDs.containsKey(name)) // only the first declaration of each variable is taken into account
+					continue;
+				
+				Integer id = varNames.size();
+				this.varIDs.put(name, id);
+				varNames.add(name);
+				varElmts.add(varElmt);
+				
+				String owner = varElmt.getAttributeValue("agent");
+				ArrayList<Integer> vars = this.varsOfOwner.get(owner);
+				if (vars == null) {
+					vars = new ArrayList<Integer> ();
+					this.varsOfOwner.put(owner, vars);
+				}
+				vars.add(id);
+			}
+			final int nbrDeclaredVars = varNames.size();
+			
+			// Index the constraints, adding any undeclared variable in their scopes
+			List<Element> constElmts = children(root, "constraints");
+			final int nbrConsts = constElmts.size();
+			this.constElmts = constElmts.toArray(new Element [nbrConsts]);
+			this.scopes = new int [nbrConsts][];
+			this.constOwners = new String [nbrConsts];
+			this.probs = new boolean [nbrConsts];
+			for (int i = 0; i < nbrConsts; i++) {
+				Element constElmt = this.constElmts[i];
+				
+				String[] scope = constElmt.getAttributeValue("scope").trim().split("\\s+");
+				int[] scopeIDs = this.scopes[i] = new int [scope.length];
+				for (int j = 0; j < scope.length; j++) {
+					Integer id = this.varIDs.get(scope[j]);
+					if (id == null) {
+						id = varNames.size();
+						this.varIDs.put(scope[j], id);
+						varNames.add(scope[j]);
+						varElmts.add(null);
+					}
+					scopeIDs[j] = id;
+				}
+				
+				String owner = this.constOwners[i] = constElmt.getAttributeValue("agent");
+				ArrayList<Integer> consts = this.constsOfOwner.get(owner);
+				if (consts == null) {
+					consts = new ArrayList<Integer> ();
+					this.constsOfOwner.put(owner, consts);
+				}
+				consts.add(i);
+				
+				this.probs[i] = this.probIDs.containsKey(constElmt.getAttributeValue("reference"));
+			}
+			
+			final int nbrVars = varNames.size();
+			this.varNames = varNames.toArray(new String [nbrVars]);
+			this.varElmts = varElmts.toArray(new Element [nbrVars]);
+			this.owners = new String [nbrVars];
+			this.random = new boolean [nbrVars];
+			for (int i = 0; i < nbrDeclaredVars; i++) {
+				this.owners[i] = this.varElmts[i].getAttributeValue("agent");
+				this.random[i] = "random".equals(this.varElmts[i].getAttributeValue("type"));
+			}
+			
+			// For each variable, list the constraints whose scopes involve it
+			int[] nbrConstsOfVar = new int [nbrVars];
+			for (int i = 0; i < nbrConsts; i++) 
+				for (int var : this.scopes[i]) 
+					nbrConstsOfVar[var]++;
+			this.constsOfVar = new int [nbrVars][];
+			for (int var = 0; var < nbrVars; var++) 
+				this.constsOfVar[var] = new int [nbrConstsOfVar[var]];
+			Arrays.fill(nbrConstsOfVar, 0);
+			for (int i = 0; i < nbrConsts; i++) {
+				for (int var : this.scopes[i]) {
+					int[] consts = this.constsOfVar[var];
+					int nbr = nbrConstsOfVar[var];
+					if (nbr == 0 || consts[nbr - 1] != i) // skip variables that appear several times in the same scope
+						consts[nbrConstsOfVar[var]++] = i;
+				}
+			}
+			for (int var = 0; var < nbrVars; var++) 
+				if (nbrConstsOfVar[var] < this.constsOfVar[var].length) 
+					this.constsOfVar[var] = Arrays.copyOf(this.constsOfVar[var], nbrConstsOfVar[var]);
+		}
+		
+		/** Returns the children of a given child of the root Element
+		 * @param root 	the JDOM root Element in XCSP format
+		 * @param name 	the name of the child of the root Element
+		 * @return the children of the child called \a name, or an empty list if there is no such child
+		 */
+		private static List<Element> children (Element root, String name) {
+			Element elmt = root.getChild(name);
+			if (elmt == null) 
+				return Collections.emptyList();
+			return elmt.getChildren();
+		}
+		
+		/** Indexes a list of Elements by their names
+		 * @param elmts 	the Elements
+		 * @param ids 		the map to be filled with the index of the first Element with each name
+		 * @return the Elements as an array
+		 */
+		private static Element[] index (List<Element> elmts, HashMap<String, Integer> ids) {
+			Element[] out = elmts.toArray(new Element [elmts.size()]);
+			for (int i = 0; i < out.length; i++) {
+				String name = out[i].getAttributeValue("name");
+				if (! ids.containsKey(name)) 
+					ids.put(name, i);
+			}
+			return out;
+		}
+		
+		/** Computes the numbers of children of the indexed children of the root Element
+		 * @param root 	the JDOM root Element in XCSP format
+		 * @return for each indexed child of the root Element, its number of children, or -1 if it is absent
+		 */
+		private static int[] sizes (Element root) {
+			int[] sizes = new int [INDEXED.length];
+			for (int i = 0; i < INDEXED.length; i++) {
+				Element elmt = root.getChild(INDEXED[i]);
+				sizes[i] = (elmt == null ? -1 : elmt.getContentSize());
+			}
+			return sizes;
+		}
+		
+		/** Checks whether this index is still up to date
+		 * @param root 	the current JDOM root Element of the parser
+		 * @return \c false if the root Element has changed, or if elements have been added or removed since this index was built
+		 */
+		private boolean isUpToDate (Element root) {
+			return root == this.root && Arrays.equals(this.sizes, sizes(root));
+		}
+		
+		/** Returns the ID of a variable
+		 * @param var 	the name of the variable
+		 * @return the ID of the variable, or -1 if it is not declared
+		 */
+		private int declaredID (String var) {
+			Integer id = this.varIDs.get(var);
+			if (id == null || this.varElmts[id] == null) 
+				return -1;
+			return id;
+		}
+		
+		/** Returns the variables owned by a given owner
+		 * @param owner 	the owner, or \c null for the variables with no specified owner
+		 * @return the names of the variables
+		 */
+		private HashSet<String> varsOf (String owner) {
+			ArrayList<Integer> ids = this.varsOfOwner.get(owner);
+			if (ids == null) 
+				return new HashSet<String> ();
+			HashSet<String> out = new HashSet<String> (ids.size());
+			for (int id : ids) 
+				out.add(this.varNames[id]);
+			return out;
+		}
+	}
+	
+	/** @return the index of the problem, rebuilt if it is not up to date */
+	private Index index () {
+		Index index = this.index;
+		if (index == null || ! index.isUpToDate(this.root)) 
+			this.index = index = new Index (this.root);
+		return index;
+	}
+
 	/** @return -INF if we are maximizing, +INF if we are minimizing */
 	protected U getInfeasibleUtil () {
 
@@ -971,6 +1282,7 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 			if (iter.next().getAttributeValue("name").equals(name)) {
 				iter.remove();
 				consElmt.setAttribute("nbConstraints", Integer.toString(consElmt.getContentSize()));
+				this.index = null;
 				return true;
 			}
 		}
@@ -1014,27 +1326,23 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		elmt2 = this.root.getChild("constraints");
 		elmt2.addContent(elmt);
 		elmt2.setAttribute("nbConstraints", Integer.toString(elmt2.getContentSize()));
+		this.index = null;
 		
 		return true;
 	}
 
 	/** @see DCOPProblemInterface#getAgents() */
 	public Set<String> getAgents () {
-
-		HashSet<String> agents = new HashSet<String> ();
-		
-		for (Element var : (List<Element>) root.getChild("agents").getChildren()) 
-			agents.add(var.getAttributeValue("name"));
-
-		return agents;
+		return new HashSet<String> (this.index().agentIDs.keySet());
 	}
 
 	/** @see DCOPProblemInterface#getOwner(java.lang.String) */
 	public String getOwner (String var) {
 
-		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) 
-			if (varElmt.getAttributeValue("name").equals(var)) 
-				return varElmt.getAttributeValue("agent");
+		Index index = this.index();
+		int id = index.declaredID(var);
+		if (id >= 0) 
+			return index.owners[id];
 
 		// The variable was not found
 		assert false : "Unknown variable '" + var + "'";
@@ -1047,6 +1355,7 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) {
 			if (varElmt.getAttributeValue("name").equals(var)) {
 				varElmt.setAttribute("agent", owner);
+				this.index = null;
 				assert this.getAgents().contains(owner) : "Unknown agent " + owner;
 				return true;
 			}
@@ -1060,10 +1369,11 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 
 		Map<String, String> out = new HashMap<String, String> (this.getNbrVars());
 
-		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) {
-			String owner = varElmt.getAttributeValue("agent");
+		Index index = this.index();
+		for (int id = 0; id < index.varNames.length; id++) {
+			String owner = index.owners[id];
 			if (owner != null) 
-				out.put(varElmt.getAttributeValue("name"), owner);
+				out.put(index.varNames[id], owner);
 		}
 
 		return out;
@@ -1083,11 +1393,8 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	 */
 	public int getNbrVars (String owner) {
 
-		int nbrVars = 0;
-		for (Element var : (List<Element>) root.getChild("variables").getChildren()) 
-			if (owner.equals(var.getAttributeValue("agent"))) 
-				nbrVars++;
-		return nbrVars;
+		ArrayList<Integer> vars = this.index().varsOfOwner.get(owner);
+		return (vars == null ? 0 : vars.size());
 	}
 
 	/** @see DCOPProblemInterface#getNbrIntVars() */
@@ -1109,29 +1416,17 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 
 		Set<String> out = new HashSet<String> ();
 
-		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) 
-			if (! "random".equals(varElmt.getAttributeValue("type"))) // ignore random variables
-				out.add(varElmt.getAttributeValue("name"));
+		Index index = this.index();
+		for (int id = 0; id < index.varNames.length; id++) 
+			if (index.varElmts[id] != null && ! index.random[id]) // ignore random variables
+				out.add(index.varNames[id]);
 
 		return out;
 	}
 
 	/** @see DCOPProblemInterface#getVariables(java.lang.String) */
 	public Set<String> getVariables (String owner) {
-
-		Set<String> out = new HashSet<String> ();
-
-		if (owner != null) {
-			for (Element var : (List<Element>) root.getChild("variables").getChildren()) 
-				if (owner.equals(var.getAttributeValue("agent"))) 
-					out.add(var.getAttributeValue("name"));
-
-		} else 
-			for (Element var : (List<Element>) root.getChild("variables").getChildren()) 
-				if (var.getAttributeValue("agent") == null) 
-					out.add(var.getAttributeValue("name"));
-
-		return out;
+		return this.index().varsOf(owner);
 	}
 
 	/** @see DCOPProblemInterface#getMyVars() */
@@ -1150,10 +1445,11 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		if (this.agentName == null) 
 			return out;
 
-		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) {
-			String owner = varElmt.getAttributeValue("agent");
+		Index index = this.index();
+		for (int id = 0; id < index.varNames.length; id++) {
+			String owner = index.owners[id];
 			if (owner != null && !owner.equals(agentName)) 
-				out.add(varElmt.getAttributeValue("name"));
+				out.add(index.varNames[id]);
 		}
 
 		return out;
@@ -1191,6 +1487,7 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 				Element varsElmt = this.root.getChild("variables");
 				varsElmt.addContent(varElmt);
 				varsElmt.setAttribute("nbVariables", Integer.toString(varsElmt.getContentSize()));
+				this.index = null;
 				
 				return true;
 			}
@@ -1234,12 +1531,15 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	 * @return 				the subproblem corresponding to \a agent, or \c null if \a agent owns no variable
 	 */
 	public XCSPparser<V, U> getSubProblem (String agent) {
+		
+		Index index = this.index();
 
 		// Extract the set of variables owned by the agent
 		HashSet<Element> varElmts = new HashSet<Element> ();
-		for (Element var : (List<Element>) root.getChild("variables").getChildren()) 
-			if (agent.equals(var.getAttributeValue("agent"))) 
-				varElmts.add(var);
+		ArrayList<Integer> myVars = index.varsOfOwner.get(agent);
+		if (myVars != null) 
+			for (int var : myVars) 
+				varElmts.add(index.varElmts[var]);
 
 		// Create the XCSP instance element
 		Element instance = new Element ("instance");
@@ -1257,7 +1557,7 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		HashSet<String> knownAgents = new HashSet<String> ();
 		knownAgents.add(agent);
 		if (this.mpc || this.publicAgents) // the agent is supposed to know all the agents
-			knownAgents.addAll(this.getAgents());
+			knownAgents.addAll(index.agentIDs.keySet());
 
 		// Create the domains
 		Element domains = new Element ("domains");
@@ -1273,127 +1573,109 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		
 		// In MPC mode, all variables are public
 		if (this.mpc) 
-			varElmts.addAll((List<Element>) root.getChild("variables").getChildren());
+			for (Element varElmt : index.varElmts) 
+				if (varElmt != null) 
+					varElmts.add(varElmt);
 
 		// Create the constraints
 		Element constraints = new Element ("constraints");
 		HashSet<String> relationNames = new HashSet<String> ();
 		HashSet<String> probNames = new HashSet<String> ();
-		HashSet<String> constNames = new HashSet<String> ();
-
-		// Go through the list of constraints several times until we are sure we have identified all variables that should be known to this agent
-		HashMap< String, HashSet<String> > varScopes = new HashMap< String, HashSet<String> > ();
-		int nbrVars;
-		do {
-			nbrVars = varNames.size();
-
-			// Go through the list of all constraints in the overall problem
-			for (Element constraint : (List<Element>) root.getChild("constraints").getChildren()) {
-
-				// Skip this constraint if it has already been added
-				String constName = constraint.getAttributeValue("name");
-				if (constNames.contains(constName)) 
-					continue;
-
-				// Get the list of variables in the scope of the constraint
-				HashSet<String> scope = new HashSet<String> (Arrays.asList(constraint.getAttributeValue("scope").split("\\s+")));
-
-				// Check if this constraint is a probability space
-				String refName = constraint.getAttributeValue("reference");
-				Element probElmt = null;
-				Element probsElmt = root.getChild("probabilities");
-				if (probsElmt != null) {
-					for (Element prob : (List<Element>) probsElmt.getChildren()) {
-						if (prob.getAttributeValue("name").equals(refName)) {
-							probElmt = prob;
-							break;
-						}
-					}
-				}
-				
-				// Check if the agent is not supposed to know the constraint
-				String constOwner = constraint.getAttributeValue("agent");
-				if (! "PUBLIC".equals(constOwner) && constOwner != null && ! constOwner.equals(agent)) {
+		HashSet<Integer> constIDs = new HashSet<Integer> ();
+		
+		// The constraints that might be known to the agent: the ones it or PUBLIC owns, and the ones involving the variables it knows
+		TreeSet<Integer> candidates = new TreeSet<Integer> ();
+		for (String owner : new String[] { agent, "PUBLIC" }) {
+			ArrayList<Integer> consts = index.constsOfOwner.get(owner);
+			if (consts != null) 
+				candidates.addAll(consts);
+		}
+		if (myVars != null) 
+			for (int var : myVars) 
+				for (int constID : index.constsOfVar[var]) 
+					candidates.add(constID);
+
+		// Go through the candidate constraints in the order in which they appear in the problem, starting over from the first one 
+		// as long as new variables are discovered, until we are sure we have identified all variables that should be known to this agent
+		int constID = -1;
+		while (! candidates.isEmpty()) {
+			
+			// Retrieve the next candidate constraint, starting over from the first one if we have reached the end of the list
+			Integer next = candidates.higher(constID);
+			if (next == null) 
+				next = candidates.first();
+			constID = next;
+			candidates.remove(next);
+			
+			// Skip this constraint if it has already been added
+			if (constIDs.contains(next)) 
+				continue;
+			
+			// Skip the constraint if the agent is not supposed to know it
+			String constOwner = index.constOwners[constID];
+			if (! "PUBLIC".equals(constOwner) && constOwner != null && ! constOwner.equals(agent)) 
+				continue;
+			
+			// If any of the variables in the scope is known to this agent or the constraint is a probability law that must be known to the agent, 
+			// add the constraint to the list of constraints
+			Element constraint = index.constElmts[constID];
+			String refName = constraint.getAttributeValue("reference");
+			final boolean isProb = index.probs[constID];
+			final boolean knownConst = "PUBLIC".equals(constOwner) || agent.equals(constOwner);
+			for (int var : index.scopes[constID]) {
+				if (knownConst || varNames.contains(index.varNames[var])) {
 					
-					if (! this.mpc) { // record the variable scopes
-						for (String var : scope) {
-							HashSet<String> varScope = varScopes.get(var);
-							if (varScope == null) {
-								varScope = new HashSet<String> ();
-								varScopes.put(var, varScope);
-							}
-							varScope.add(constOwner);
-						}
+					// Skip this variable if it is apparently not necessary for the agent to know this constraint
+					if (isProb) { // probability space
+						if (! index.random[var]) 
+							continue;
+						probNames.add(refName);
+					}
+					else { // solution space
+						if (!this.extendedRandNeighborhoods && index.random[var])
+							continue;
+						relationNames.add(refName);
 					}
 					
-					continue;
-				}
-
-				// If any of the variables in the scope is owned by this agent or the constraint is a probability law that must be known to the agent, 
-				// add the constraint to the list of constraints
-				final boolean knownConst = "PUBLIC".equals(constOwner) || agent.equals(constOwner);
-				for (String var : scope) {
-					if (knownConst || varNames.contains(var)) {
-
-						// Skip this variable if it is apparently not necessary for the agent to know this constraint
-						if (probElmt != null) { // probability space
-							if (! this.isRandom(var)) 
-								continue;
-							probNames.add(refName);
-						}
-						else { // solution space
-							if (!this.extendedRandNeighborhoods && this.isRandom(var))
-								continue;
-							relationNames.add(refName);
-						}
-
-						constraints.addContent((Element) constraint.clone());
-						constNames.add(constName);
-
-						// Add all variables in the scope to the list of variables known to this agent
-						for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) {
-							String varName = varElmt.getAttributeValue("name");
-							if (scope.contains(varName)) {
-								varElmts.add(varElmt);
-								if (varElmt.getAttributeValue("agent") == null) 
-									varNames.add(varName);
-							}
+					constraints.addContent((Element) constraint.clone());
+					constIDs.add(constID);
+					
+					// Add all variables in the scope to the list of variables known to this agent
+					for (int var2 : index.scopes[constID]) {
+						Element varElmt = index.varElmts[var2];
+						if (varElmt != null) {
+							varElmts.add(varElmt);
+							if (index.owners[var2] == null && varNames.add(index.varNames[var2])) // newly discovered variable
+								for (int constID2 : index.constsOfVar[var2]) 
+									candidates.add(constID2);
 						}
-
-						break;
 					}
+					
+					break;
 				}
 			}
-		} while (nbrVars != varNames.size()); // loop as long as another variable has been added to the list of known variables
+		}
 
 		// Set the number of constraints
 		constraints.setAttribute("nbConstraints", Integer.toString(constraints.getContentSize()));
 		
 		// Add the agents that own constraints over shared variables and my own variables
-		constLoop: for (Element constraint : (List<Element>) root.getChild("constraints").getChildren()) {
-			
-			// Get the list of variables in the scope of the constraint
-			HashSet<String> scope = new HashSet<String> (Arrays.asList(constraint.getAttributeValue("scope").split("\\s+")));
-			
-			// Skip this constraint if it is a probability space
-			String refName = constraint.getAttributeValue("reference");
-			Element probsElmt = root.getChild("probabilities");
-			if (probsElmt != null) 
-				for (Element prob : (List<Element>) probsElmt.getChildren()) 
-					if (prob.getAttributeValue("name").equals(refName)) 
-						continue constLoop;
-			
-			// Check whether the constraint owner should be known to the agent because the constraint scope involves a variable they share
-			String constOwner = constraint.getAttributeValue("agent");
-			if (! "PUBLIC".equals(constOwner) && constOwner != null && ! constOwner.equals(agent)) {
-				for (String var : scope) {
-					if (! this.isRandom(var) && varNames.contains(var)) { // skip random variables and unknown variables
-						String varOwner = this.getOwner(var);
-						if (varOwner == null || varOwner.equals(agent)) { // the variable is shared or owned by this agent
-							knownAgents.add(constOwner);
-							break;
-						}
-					}
+		for (String varName : varNames) {
+			int var = index.declaredID(varName);
+			if (var < 0 || index.random[var]) // skip random variables
+				continue;
+			String varOwner = index.owners[var];
+			if (varOwner == null || varOwner.equals(agent)) { // the variable is shared or owned by this agent
+				for (int constID2 : index.constsOfVar[var]) {
+					
+					// Skip this constraint if it is a probability space
+					if (index.probs[constID2]) 
+						continue;
+					
+					// The constraint owner should be known to the agent because the constraint scope involves a variable they share
+					String constOwner = index.constOwners[constID2];
+					if (! "PUBLIC".equals(constOwner) && constOwner != null && ! constOwner.equals(agent)) 
+						knownAgents.add(constOwner);
 				}
 			}
 		}
@@ -1405,12 +1687,9 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 			String domName = varElmt.getAttributeValue("domain");
 			if (! domNames.add(domName)) // domain already added to the list of domains
 				continue;
-			for (Element domain : (List<Element>) root.getChild("domains").getChildren()) {
-				if (domName.equals(domain.getAttributeValue("name"))) {
-					domains.addContent((Element) domain.clone());
-					break;
-				}
-			}
+			Element domain = index.domElmts.get(domName);
+			if (domain != null) 
+				domains.addContent((Element) domain.clone());
 		}
 
 		// Set the number of domains
@@ -1426,9 +1705,16 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 			String owner = varElmt.getAttributeValue("agent");
 			if (owner != null) 
 				knownAgents.add(owner);
-			else if (! "random".equals(varElmt.getAttributeValue("type"))) { // shared variable; set its agent scope
-				HashSet<String> varScope = varScopes.get(varElmt.getAttributeValue("name"));
-				if (varScope != null) {
+			else if (! this.mpc && ! "random".equals(varElmt.getAttributeValue("type"))) { // shared variable; set its agent scope
+				
+				// The agent scope consists of the owners of the constraints over the variable that are not known to this agent
+				HashSet<String> varScope = new HashSet<String> ();
+				for (int constID2 : index.constsOfVar[index.declaredID(varElmt.getAttributeValue("name"))]) {
+					String constOwner = index.constOwners[constID2];
+					if (! "PUBLIC".equals(constOwner) && constOwner != null && ! constOwner.equals(agent)) 
+						varScope.add(constOwner);
+				}
+				if (! varScope.isEmpty()) {
 					String scope = "";
 					for (String neigh : varScope) 
 						scope += neigh + " ";
@@ -1437,11 +1723,10 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 			}
 		}
 		
-		// Fill in the list of agents
+		// Fill in the list of agents, in the order in which they appear in the problem
 		agents.setAttribute("nbAgents", Integer.toString(knownAgents.size()));
-		for (Element agentElmt : (List<Element>) this.root.getChild("agents").getChildren()) 
-			if (knownAgents.contains(agentElmt.getAttributeValue("name"))) 
-				agents.addContent((Element) agentElmt.clone());
+		for (int agentID : sortedIDs(knownAgents, index.agentIDs)) 
+			agents.addContent((Element) index.agentElmts[agentID].clone());
 
 		// Create the relations (if the original problem contained any)
 		int maxConstraintArity = 0;
@@ -1449,14 +1734,11 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 			Element elmt = new Element ("relations");
 			instance.addContent(elmt);
 			
-			// Go through the list of all relations in the overall problem
-			for (Element relation : (List<Element>) root.getChild("relations").getChildren()) {
-				
-				// Add the relation to the list of relations if it is referred to by any of this agent's constraints
-				if (relationNames.remove(relation.getAttributeValue("name"))) {
-					elmt.addContent((Element) relation.clone());
-					maxConstraintArity = Math.max(maxConstraintArity, Integer.parseInt(relation.getAttributeValue("arity")));
-				}
+			// Add the relations referred to by any of this agent's constraints, in the order in which they appear in the problem
+			for (int relID : sortedIDs(relationNames, index.relIDs)) {
+				Element relation = index.relElmts[relID];
+				elmt.addContent((Element) relation.clone());
+				maxConstraintArity = Math.max(maxConstraintArity, Integer.parseInt(relation.getAttributeValue("arity")));
 			}
 			elmt.setAttribute("nbRelations", Integer.toString(elmt.getContentSize()));
 		}
@@ -1470,14 +1752,11 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 			instance.addContent(elmt);
 			elmt.setAttribute("nbProbabilities", Integer.toString(probNames.size()));
 
-			// Go through the list of all probabilities in the overall problem
-			for (Element probability : (List<Element>) root.getChild("probabilities").getChildren()) {
-
-				// Add the probability to the list of probabilities if it is referred to by any of this agent's constraints
-				if (probNames.remove(probability.getAttributeValue("name"))) {
-					elmt.addContent((Element) probability.clone());
-					maxConstraintArity = Math.max(maxConstraintArity, Integer.parseInt(probability.getAttributeValue("arity")));
-				}
+			// Add the probabilities referred to by any of this agent's constraints, in the order in which they appear in the problem
+			for (int probID : sortedIDs(probNames, index.probIDs)) {
+				Element probability = index.probElmts[probID];
+				elmt.addContent((Element) probability.clone());
+				maxConstraintArity = Math.max(maxConstraintArity, Integer.parseInt(probability.getAttributeValue("arity")));
 			}
 		}
 
@@ -1495,6 +1774,28 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		out.setDomClass(domClass);
 		return out;
 	}
+	
+	/** Looks up the indexes of named Elements
+	 * @param names 	the names of the Elements; the names that are found are removed from this set
+	 * @param ids 		for each name, the index of the corresponding Element
+	 * @return the indexes of the Elements with the input names, in increasing order
+	 */
+	private static int[] sortedIDs (Set<String> names, HashMap<String, Integer> ids) {
+		
+		int[] out = new int [names.size()];
+		int nbrFound = 0;
+		for (Iterator<String> iter = names.iterator(); iter.hasNext(); ) {
+			Integer id = ids.get(iter.next());
+			if (id != null) {
+				out[nbrFound++] = id;
+				iter.remove();
+			}
+		}
+		
+		out = Arrays.copyOf(out, nbrFound);
+		Arrays.sort(out);
+		return out;
+	}
 
 	/** Prints out an error message
 	 * @param relationNames 	names of the undefined relations
@@ -1521,40 +1822,39 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 
 		HashSet<String> out = new HashSet<String> ();
 
-		LinkedList<String> pending = new LinkedList<String> (); // variable(s) whose direct neighbors will be returned
-		pending.add(var);
-		HashSet<String> done = new HashSet<String> ();
+		Index index = this.index();
+		Integer varID = index.varIDs.get(var);
+		if (varID == null) // the variable is not involved in any constraint
+			return out;
+		
+		LinkedList<Integer> pending = new LinkedList<Integer> (); // variable(s) whose direct neighbors will be returned
+		pending.add(varID);
+		HashSet<Integer> done = new HashSet<Integer> ();
 		do {
 			// Retrieve the next pending variable
-			String var2 = pending.poll();
+			Integer var2 = pending.poll();
 			if (! done.add(var2)) // we have already processed this variable
 				continue;
 
-			// Go through the list of constraint scopes
-			for (Element constraint : (List<Element>) root.getChild("constraints").getChildren()) {
+			// Go through the list of scopes of the constraints involving var2
+			for (int constID : index.constsOfVar[var2]) {
 
-				// Check if var2 is in the scope
-				String[] scope = constraint.getAttributeValue("scope").trim().split("\\s+");
-				Arrays.sort(scope);
-				if (Arrays.binarySearch(scope, var2) >= 0) {
+				// Go through the list of variables in the scope
+				for (int neighbor : index.scopes[constID]) {
 
-					// Go through the list of variables in the scope
-					for (String neighbor : scope) {
+					// Check if the neighbor is random
+					if (! index.random[neighbor]) // not random
+						out.add(index.varNames[neighbor]);
 
-						// Check if the neighbor is random
-						if (! this.isRandom(neighbor)) // not random
-							out.add(neighbor);
+					else { // the neighbor is random
 
-						else { // the neighbor is random
+						// Add it to the list of neighbors if we are interested in random neighbors
+						if (withAnonymVars) 
+							out.add(index.varNames[neighbor]);
 
-							// Add it to the list of neighbors if we are interested in random neighbors
-							if (withAnonymVars) 
-								out.add(neighbor);
-
-							// Later look for its own neighbors if we want extended neighborhoods
-							if (this.extendedRandNeighborhoods) 
-								pending.add(neighbor);
-						}
+						// Later look for its own neighbors if we want extended neighborhoods
+						if (this.extendedRandNeighborhoods) 
+							pending.add(neighbor);
 					}
 				}
 			}
@@ -1612,8 +1912,6 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	 * @param withAnonymVars 	if \c false, ignores variables with no specified owner
 	 * @param onlyAnonymVars 	if \c true, only considers variables with no specified owner (in which case this superseeds \a withAnonymVars)
 	 * @return 					for each of the agent's variables, its collection of neighbors
-	 * 
-	 * @todo Improve the performance by avoiding to call getNeighborVars on each variable, which requires parsing the constraints multiple times. 
 	 */
 	public Map< String, HashSet<String> > getNeighborhoods (String agent, final boolean withAnonymVars, final boolean onlyAnonymVars) {
 
@@ -1666,44 +1964,42 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 		
 		HashSet<String> out = new HashSet<String> ();
 
-		LinkedList<String> pending = new LinkedList<String> (); // variable(s) whose direct agent neighbors will be returned
-		pending.add(var);
-		HashSet<String> done = new HashSet<String> ();
-		do {
+		Index index = this.index();
+		LinkedList<Integer> pending = new LinkedList<Integer> (); // variable(s) whose direct agent neighbors will be returned
+		Integer varID = index.varIDs.get(var);
+		if (varID != null) 
+			pending.add(varID);
+		HashSet<Integer> done = new HashSet<Integer> ();
+		while (! pending.isEmpty()) {
+			
 			// Retrieve the next pending variable
-			String var2 = pending.poll();
+			Integer var2 = pending.poll();
 			if (! done.add(var2)) // we have already processed this variable
 				continue;
 			
-			// Go through the list of constraint scopes
-			for (Element constraint : (List<Element>) root.getChild("constraints").getChildren()) {
-
-				// Check if var2 is in the scope
-				String[] scope = constraint.getAttributeValue("scope").trim().split("\\s+");
-				Arrays.sort(scope);
-				if (Arrays.binarySearch(scope, var2) >= 0) {
-
-					// If the constraint has a specific owner, add it to the set of agents
-					String consOwner = constraint.getAttributeValue("agent");
-					if ("PUBLIC".equals(consOwner)) 
-						consOwner = null;
-					if (consOwner != null) 
-						out.add(consOwner);
-					
-					// Go through the list of variables in the scope
-					for (String neighbor : scope) {
-
-						// Check if the neighbor is random
-						if (! this.isRandom(neighbor)) { // not random
-							String varOwner = this.getOwner(neighbor);
-							if (varOwner != null) 
-								out.add(varOwner);
-						} else if (this.extendedRandNeighborhoods)
-							pending.add(neighbor); // later look for this random neighbor's own neighbors
-					}
+			// Go through the list of scopes of the constraints involving var2
+			for (int constID : index.constsOfVar[var2]) {
+
+				// If the constraint has a specific owner, add it to the set of agents
+				String consOwner = index.constOwners[constID];
+				if ("PUBLIC".equals(consOwner)) 
+					consOwner = null;
+				if (consOwner != null) 
+					out.add(consOwner);
+
+				// Go through the list of variables in the scope
+				for (int neighbor : index.scopes[constID]) {
+
+					// Check if the neighbor is random
+					if (! index.random[neighbor]) { // not random
+						String varOwner = index.owners[neighbor];
+						if (varOwner != null) 
+							out.add(varOwner);
+					} else if (this.extendedRandNeighborhoods)
+						pending.add(neighbor); // later look for this random neighbor's own neighbors
 				}
 			}
-		} while (! pending.isEmpty());
+		}
 		
 		// Add the variable's scope if present
 		HashSet<String> scope = this.getScope(var);
@@ -1722,16 +2018,25 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	 */
 	private HashSet<String> getScope(String var) {
 		
-		for (Element varElmt : (List<Element>) this.root.getChild("variables").getChildren()) {
-			if (varElmt.getAttributeValue("name").equals(var)) {
-				String scope = varElmt.getAttributeValue("scope");
-				if (scope == null) 
-					return null;
-				return new HashSet<String> (Arrays.asList(scope.split("\\s+")));
-			}
-		}
+		Element varElmt = this.getVarElmt(var);
+		if (varElmt == null) 
+			return null;
 		
-		return null;
+		String scope = varElmt.getAttributeValue("scope");
+		if (scope == null) 
+			return null;
+		return new HashSet<String> (Arrays.asList(scope.split("\\s+")));
+	}
+	
+	/** Looks up the Element declaring a variable
+	 * @param var 	the name of the variable
+	 * @return the variable's Element, or \c null if the variable is not declared
+	 */
+	private Element getVarElmt (String var) {
+		
+		Index index = this.index();
+		int id = index.declaredID(var);
+		return (id < 0 ? null : index.varElmts[id]);
 	}
 
 	/** @see DCOPProblemInterface#getAgentNeighborhoods(java.lang.String) */
@@ -1768,20 +2073,15 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	public int getDomainSize (String var) {
 
 		// Parse the name of the domain
-		String domName = null;
-		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) {
-			if (varElmt.getAttributeValue("name").equals(var)) {
-				domName = varElmt.getAttributeValue("domain");
-				break;
-			}
-		}
+		Element varElmt = this.getVarElmt(var);
+		String domName = (varElmt == null ? null : varElmt.getAttributeValue("domain"));
 		if (domName == null) 
 			return -1;
 
 		// Parse the domain size
-		for (Element domElmt : (List<Element>) root.getChild("domains").getChildren()) 
-			if (domElmt.getAttributeValue("name").equals(domName)) 
-				return Integer.parseInt(domElmt.getAttributeValue("nbValues"));
+		Element domElmt = this.index().domElmts.get(domName);
+		if (domElmt != null) 
+			return Integer.parseInt(domElmt.getAttributeValue("nbValues"));
 
 		// The domain is not defined
 		System.err.println("The domain " + domName + " for variable " + var + " is not defined");
@@ -1795,20 +2095,15 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	public V[] getDomain (String var) {
 
 		// Parse the name of the domain
-		String domName = null;
-		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) {
-			if (varElmt.getAttributeValue("name").equals(var)) {
-				domName = varElmt.getAttributeValue("domain");
-				break;
-			}
-		}
+		Element varElmt = this.getVarElmt(var);
+		String domName = (varElmt == null ? null : varElmt.getAttributeValue("domain"));
 		if (domName == null) 
 			return null;
 
 		// Parse the domain
-		for (Element domElmt : (List<Element>) root.getChild("domains").getChildren()) 
-			if (domElmt.getAttributeValue("name").equals(domName)) 
-				return this.getDomain(domElmt, false);
+		Element domElmt = this.index().domElmts.get(domName);
+		if (domElmt != null) 
+			return this.getDomain(domElmt, false);
 
 		// The domain is not defined
 		System.err.println("The domain " + domName + " for variable " + var + " is not defined");
@@ -2024,6 +2319,8 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 				break;
 			}
 		}
+		
+		this.index = null;
 
 	}
 
@@ -2043,12 +2340,9 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	 */
 	public boolean isRandom (String var) {
 
-		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) 
-			if (var.equals(varElmt.getAttributeValue("name"))) 
-				return new String ("random").equals(varElmt.getAttributeValue("type"));
-
-		// Variable not found
-		return false;
+		Index index = this.index();
+		int id = index.declaredID(var);
+		return (id >= 0 && index.random[id]);
 	}
 
 	/** Transforms the problem into one where some variables' values have been fixed
@@ -2472,6 +2766,7 @@ public class XCSPparser < V extends Addable<V>, U extends Addable<U> > implement
 	XCSPparser<V, U> prob = (XCSPparser<V, U>) newProblem;
 	this.agentName = prob.agentName;
 	this.root = prob.root;
+	this.index = prob.index;
 	this.utilClass = prob.utilClass;
 	this.valInstance = prob.valInstance;
 	}
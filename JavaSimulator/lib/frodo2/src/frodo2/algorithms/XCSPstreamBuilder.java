@@ -0,0 +1,481 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.JDOMFactory;
+import org.jdom2.Namespace;
+import org.jdom2.UncheckedJDOMFactory;
+import org.jdom2.input.JDOMParseException;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/** A StAX-based builder that creates the same JDOM Document as the SAX-based XCSPparser#parse methods, in a single streaming pass
+ * 
+ * Compared to the SAX-based builder, it drops comments and whitespace-only text nodes, shares the String instances of repeated attribute values, 
+ * and collapses the whitespace in the contents of \c relation and \c probability elements, as the XCSP schema does. 
+ * 
+ * When the input is validated, the schema validator is driven by the same pass that builds the Document. 
+ * The tuples in \c relation and \c probability elements are checked by a linear scan, and only their first tuple is passed on to the 
+ * validator, because the regular expression that the schema uses for tuples is very expensive to match against long lists of tuples. 
+ * The scan only accepts tuples that are no more general than the first tuple (weighted or not, integer or decimal), so that 
+ * validity against the schema is preserved; any text it rejects is passed on unchanged to the validator, which then reports the error. 
+ * @see XCSPparser#parseStreaming(java.io.File, boolean)
+ */
+final class XCSPstreamBuilder extends StreamReaderDelegate {
+
+	/** The factory used to create the JDOM content; the input is already checked for well-formedness by the StAX parser */
+	private final JDOMFactory factory = new UncheckedJDOMFactory ();
+
+	/** The Document being built */
+	private Document doc;
+
+	/** The element currently open, or \c null if the root element has not been reached yet or has been closed */
+	private Element current;
+
+	/** Whether the text of the element currently open consists of tuples */
+	private boolean tuples;
+
+	/** Shared instances of the attribute values */
+	private final HashMap<String, String> values = new HashMap<String, String> ();
+
+	/** Whether the text passed to the validator for tuples should be shortened to the first tuple */
+	private final boolean shorten;
+
+	/** Whether the reader has already been moved to the event following the current text event */
+	private boolean pending;
+
+	/** Whether the current event is a (merged) text event */
+	private boolean inText;
+
+	/** The text reported for the current text event */
+	private char[] text;
+
+	/** The length of the text reported for the current text event */
+	private int textLength;
+
+	/** Constructor
+	 * @param reader 	the underlying reader
+	 * @param shorten 	whether the text of tuples passed to the validator should be shortened to the first tuple
+	 */
+	private XCSPstreamBuilder (XMLStreamReader reader, boolean shorten) {
+		super (reader);
+		this.shorten = shorten;
+	}
+
+	/** Creates a JDOM Document out of the input XML stream
+	 * @param stream 			the XML stream
+	 * @param systemId 			the system ID of the stream, used to resolve the schema location; may be \c null
+	 * @param checkXCSP 		if \c true, validates the input against the schema referred to in the document
+	 * @return 					a JDOM Document resulting from the parsing of the input stream
+	 * @throws JDOMException 	if a parsing or validation error occurs
+	 * @throws IOException 		if an I/O error occurs while accessing the stream
+	 */
+	static Document build (InputStream stream, String systemId, boolean checkXCSP) throws JDOMException, IOException {
+
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+		XCSPstreamBuilder builder = null;
+		try {
+			builder = new XCSPstreamBuilder (inputFactory.createXMLStreamReader(systemId, stream), checkXCSP);
+
+			if (checkXCSP) { // the validator pulls the events, which builds the Document as a side effect
+				Validator validator = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema().newValidator();
+				validator.validate(new StAXSource (builder));
+			} else 
+				while (builder.hasNext()) 
+					builder.next();
+
+		} catch (XMLStreamException e) {
+			throw new JDOMException ("Error while parsing " + (systemId == null ? "the input stream" : systemId) + ": " + e.getMessage(), e);
+		} catch (SAXException e) {
+			throw validationError (e, systemId);
+		} finally {
+			if (builder != null) {
+				try {
+					builder.close();
+				} catch (XMLStreamException e) { }
+			}
+		}
+
+		if (builder.doc == null) 
+			throw new JDOMException ("No root element found in " + (systemId == null ? "the input stream" : systemId));
+		return builder.doc;
+	}
+
+	/** Creates an exception reporting a validation error
+	 * @param e 		the exception thrown by the validator
+	 * @param systemId 	the system ID of the input stream, possibly \c null
+	 * @return a JDOMParseException carrying the location of the error, if it is known
+	 */
+	private static JDOMException validationError (SAXException e, String systemId) {
+
+		// The validator wraps the parse exception, which is the one that carries the location of the error
+		for (Throwable cause = e; cause != null; cause = (cause instanceof TransformerException ? ((TransformerException) cause).getException() : 
+			cause instanceof XMLStreamException ? ((XMLStreamException) cause).getNestedException() : cause.getCause())) {
+			if (cause instanceof SAXParseException) {
+				SAXParseException parseExcep = (SAXParseException) cause;
+				return new JDOMParseException ("Error on line " + parseExcep.getLineNumber() + " of document " + 
+						(systemId == null ? "the input stream" : systemId) + ": " + parseExcep.getMessage(), parseExcep);
+			}
+		}
+		return new JDOMException ("Error while validating " + (systemId == null ? "the input stream" : systemId) + ": " + e.getMessage(), e);
+	}
+
+	/** @see StreamReaderDelegate#next() */
+	@Override
+	public int next () throws XMLStreamException {
+
+		int event;
+		if (this.pending) {
+			this.pending = false;
+			event = super.getEventType();
+		} else 
+			event = super.next();
+		this.inText = false;
+
+		// Skip comments and processing instructions, and merge all adjacent text
+		while (event == XMLStreamConstants.COMMENT || event == XMLStreamConstants.PROCESSING_INSTRUCTION) 
+			event = super.next();
+		if (isText(event)) {
+			this.textLength = 0;
+			do {
+				if (isText(event)) 
+					this.append(super.getTextCharacters(), super.getTextStart(), super.getTextLength());
+				event = super.next();
+			} while (isText(event) || event == XMLStreamConstants.COMMENT || event == XMLStreamConstants.PROCESSING_INSTRUCTION);
+			this.pending = true;
+			this.text();
+			this.inText = true;
+			return XMLStreamConstants.CHARACTERS;
+		}
+
+		if (event == XMLStreamConstants.START_ELEMENT) 
+			this.startElement();
+		else if (event == XMLStreamConstants.END_ELEMENT) {
+			this.current = this.current.getParentElement();
+			this.tuples = false;
+		}
+
+		return event;
+	}
+
+	/** @param event 	a StAX event type
+	 * @return whether the event carries text content
+	 */
+	private static boolean isText (int event) {
+		return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE;
+	}
+
+	/** Adds a new element to the Document */
+	private void startElement () {
+
+		Element elmt = this.factory.element(super.getLocalName(), namespace(super.getPrefix(), super.getNamespaceURI()));
+
+		for (int i = super.getNamespaceCount() - 1; i >= 0; i--) {
+			Namespace ns = namespace(super.getNamespacePrefix(i), super.getNamespaceURI(i));
+			if (! ns.getPrefix().equals(elmt.getNamespacePrefix())) 
+				elmt.addNamespaceDeclaration(ns);
+		}
+
+		for (int i = super.getAttributeCount() - 1; i >= 0; i--) {
+			String value = super.getAttributeValue(i);
+			String shared = this.values.get(value);
+			if (shared == null) 
+				this.values.put(value, shared = value);
+			this.factory.setAttribute(elmt, this.factory.attribute(super.getAttributeLocalName(i), shared, 
+					namespace(super.getAttributePrefix(i), super.getAttributeNamespace(i))));
+		}
+
+		if (this.current == null) 
+			this.doc = this.factory.document(elmt);
+		else 
+			this.factory.addContent(this.current, elmt);
+		this.current = elmt;
+		this.tuples = elmt.getName().equals("relation") || elmt.getName().equals("probability");
+	}
+
+	/** @param prefix 	the namespace prefix, possibly \c null
+	 * @param uri 		the namespace URI, possibly \c null
+	 * @return the corresponding JDOM Namespace
+	 */
+	private static Namespace namespace (String prefix, String uri) {
+		if (uri == null || uri.isEmpty()) 
+			return Namespace.NO_NAMESPACE;
+		return Namespace.getNamespace(prefix == null ? "" : prefix, uri);
+	}
+
+	/** Appends to the text of the current text event
+	 * @param chars 	the characters
+	 * @param start 	the index of the first character to append
+	 * @param length 	the number of characters to append
+	 */
+	private void append (char[] chars, int start, int length) {
+		if (this.text == null || this.text.length < this.textLength + length) 
+			this.text = Arrays.copyOf(this.text == null ? new char [0] : this.text, Math.max(2 * (this.textLength + length), 1024));
+		System.arraycopy(chars, start, this.text, this.textLength, length);
+		this.textLength += length;
+	}
+
+	/** Adds the text of the current text event to the current element, and sets the text reported to the validator */
+	private void text () {
+
+		final char[] chars = this.text;
+		final int length = this.textLength;
+
+		// Whitespace-only text is not added to the Document
+		int first = 0;
+		while (first < length && isSpace(chars[first])) 
+			first++;
+		if (first == length || this.current == null) 
+			return;
+
+		if (! this.tuples) {
+			this.factory.addContent(this.current, this.factory.text(new String (chars, 0, length)));
+			return;
+		}
+
+		// Collapse the whitespace in the tuples, which the schema does anyway before matching them against its pattern
+		int collapsed = 0;
+		int bar = -1;
+		boolean space = false;
+		for (int i = 0; i < length; i++) {
+			char c = chars[i];
+			if (isSpace(c)) {
+				if (! space) 
+					chars[collapsed++] = ' ';
+				space = true;
+			} else {
+				if (c == '|' && bar < 0) 
+					bar = collapsed;
+				chars[collapsed++] = c;
+				space = false;
+			}
+		}
+		this.textLength = collapsed;
+		String tuples = new String (chars, 0, collapsed);
+		this.factory.addContent(this.current, this.factory.text(tuples));
+
+		// Only pass the first tuple to the validator if the following ones have been checked
+		if (this.shorten && bar >= 0) {
+			boolean weighted = false;
+			boolean integers = true;
+			for (int i = 0; i < bar; i++) {
+				if (chars[i] == ':') 
+					weighted = true;
+				else if (chars[i] == '.' || chars[i] == 'i') 
+					integers = false;
+			}
+			if (checkTuples (tuples, bar, weighted, integers)) 
+				this.textLength = bar;
+		}
+	}
+
+	/** @param c 	a character
+	 * @return whether the character is whitespace according to XML Schema
+	 */
+	private static boolean isSpace (char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	/** Checks the tuples following the first one
+	 * @param tuples 	the list of tuples, with collapsed whitespace
+	 * @param pos 		the position of the separator following the first tuple
+	 * @param weighted 	whether the tuples may be weighted
+	 * @param integers 	whether all numbers must be integers
+	 * @return \c true if the tuples are well-formed
+	 */
+	private static boolean checkTuples (String tuples, int pos, final boolean weighted, final boolean integers) {
+
+		final int end = tuples.length();
+		while (true) { // pos is at a '|' separator
+
+			// Parse the first number, which might be a weight
+			if ((pos = number (tuples, skipSpace (tuples, pos + 1), integers)) < 0) 
+				return false;
+			int next = skipSpace (tuples, pos);
+			if (next < end && tuples.charAt(next) == ':') {
+				if (! weighted) 
+					return false;
+				if ((pos = number (tuples, skipSpace (tuples, next + 1), integers)) < 0) 
+					return false;
+			}
+
+			// Parse the remaining values
+			while (true) {
+				if (pos == end) 
+					return true;
+				if (tuples.charAt(pos) == '|') 
+					break;
+				if (tuples.charAt(pos) != ' ') 
+					return false;
+				if (++pos == end) 
+					return true;
+				if (tuples.charAt(pos) == '|') 
+					break;
+				if ((pos = number (tuples, pos, integers)) < 0) 
+					return false;
+			}
+		}
+	}
+
+	/** @param str 	a string
+	 * @param pos 	a position in the string
+	 * @return the position following the (optional) space at the input position
+	 */
+	private static int skipSpace (String str, int pos) {
+		return (pos < str.length() && str.charAt(pos) == ' ' ? pos + 1 : pos);
+	}
+
+	/** Parses a number of the form <tt>(\+|-)?(infinity|\d+(\.\d*)?)</tt>
+	 * @param str 		a string
+	 * @param pos 		the position where the number should start
+	 * @param integers 	whether the number must be an integer
+	 * @return the position following the number, or -1 if there is no such number at the input position
+	 */
+	private static int number (String str, int pos, boolean integers) {
+
+		final int end = str.length();
+		if (pos < end && (str.charAt(pos) == '+' || str.charAt(pos) == '-')) 
+			pos++;
+
+		if (str.startsWith("infinity", pos)) 
+			return (integers ? -1 : pos + 8);
+
+		final int start = pos;
+		while (pos < end && str.charAt(pos) >= '0' && str.charAt(pos) <= '9') 
+			pos++;
+		if (pos == start) 
+			return -1;
+
+		if (pos < end && str.charAt(pos) == '.') {
+			if (integers) 
+				return -1;
+			pos++;
+			while (pos < end && str.charAt(pos) >= '0' && str.charAt(pos) <= '9') 
+				pos++;
+		}
+		return pos;
+	}
+
+	/** @see StreamReaderDelegate#hasNext() */
+	@Override
+	public boolean hasNext () throws XMLStreamException {
+		return this.pending || super.hasNext();
+	}
+
+	/** @see StreamReaderDelegate#getEventType() */
+	@Override
+	public int getEventType () {
+		return (this.inText ? XMLStreamConstants.CHARACTERS : super.getEventType());
+	}
+
+	/** @see StreamReaderDelegate#isStartElement() */
+	@Override
+	public boolean isStartElement () {
+		return ! this.inText && super.isStartElement();
+	}
+
+	/** @see StreamReaderDelegate#isEndElement() */
+	@Override
+	public boolean isEndElement () {
+		return ! this.inText && super.isEndElement();
+	}
+
+	/** @see StreamReaderDelegate#isCharacters() */
+	@Override
+	public boolean isCharacters () {
+		return this.inText;
+	}
+
+	/** @see StreamReaderDelegate#hasText() */
+	@Override
+	public boolean hasText () {
+		return this.inText || (! this.pending && super.hasText());
+	}
+
+	/** @see StreamReaderDelegate#isWhiteSpace() */
+	@Override
+	public boolean isWhiteSpace () {
+		if (! this.inText) 
+			return false;
+		for (int i = 0; i < this.textLength; i++) 
+			if (! isSpace(this.text[i])) 
+				return false;
+		return true;
+	}
+
+	/** @see StreamReaderDelegate#getText() */
+	@Override
+	public String getText () {
+		return (this.inText ? new String (this.text, 0, this.textLength) : super.getText());
+	}
+
+	/** @see StreamReaderDelegate#getTextCharacters() */
+	@Override
+	public char[] getTextCharacters () {
+		return (this.inText ? this.text : super.getTextCharacters());
+	}
+
+	/** @see StreamReaderDelegate#getTextStart() */
+	@Override
+	public int getTextStart () {
+		return (this.inText ? 0 : super.getTextStart());
+	}
+
+	/** @see StreamReaderDelegate#getTextLength() */
+	@Override
+	public int getTextLength () {
+		return (this.inText ? this.textLength : super.getTextLength());
+	}
+
+	/** @see StreamReaderDelegate#getTextCharacters(int, char[], int, int) */
+	@Override
+	public int getTextCharacters (int sourceStart, char[] target, int targetStart, int length) throws XMLStreamException {
+		if (! this.inText) 
+			return super.getTextCharacters(sourceStart, target, targetStart, length);
+		int count = Math.max(0, Math.min(length, this.textLength - sourceStart));
+		System.arraycopy(this.text, sourceStart, target, targetStart, count);
+		return count;
+	}
+
+}
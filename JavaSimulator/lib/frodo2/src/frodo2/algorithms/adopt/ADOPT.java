@@ -135,6 +135,12 @@ implements StatsReporterWithConvergence<Val> {
 	
 	/** The time at which the ADOPT module is finished*/
 	private long finalTime = Long.MIN_VALUE;
+	
+	/** Whether COST messages that cannot tell the parent anything new should not be sent */
+	private boolean suppressCOST = false;
+	
+	/** Whether COST messages should only carry the changes in the context since the last COST message to the same parent */
+	private boolean deltaContexts = false;
 
 	/** Constructor for the stats gatherer mode
 	 * @param problem 		the overall problem
@@ -171,6 +177,9 @@ implements StatsReporterWithConvergence<Val> {
 			this.convergence = Boolean.parseBoolean(convergence);
 		else
 			this.convergence = false;
+		
+		this.suppressCOST = Boolean.parseBoolean(parameters.getAttributeValue("suppressCOST"));
+		this.deltaContexts = Boolean.parseBoolean(parameters.getAttributeValue("deltaContexts"));
 	}
 
 	/**
@@ -594,10 +603,7 @@ implements StatsReporterWithConvergence<Val> {
 			// This variable has already received VALUE messages from its
 			// neighbours, so it needs to answer them
 			if (variable.currentContext.size() > 0) {
-				long messageSize = variable.variableID.length() + variable.separator[0].length() + 8;
-
 				for (String var : variable.currentContext.keySet()) {
-					messageSize += var.length() + 4;
 					if (variable.neighbours.containsKey(var))
 						variable.full_info_counter++;
 				}
@@ -606,12 +612,7 @@ implements StatsReporterWithConvergence<Val> {
 				}
 
 				maintainThresholdInvariant(variable);
-				COSTmsg<Val, U> msg = new COSTmsg<Val, U>(
-						variable.variableID, variable.separator[0],
-						variable.currentContext, variable.LB, variable.UB);
-
-				adopt.sendMessageToVariable(variable.separator[0], msg,
-						messageSize);
+				sendCOST(variable);
 			}
 
 			if (!variable.isSingleton()) {
@@ -1001,21 +1002,50 @@ implements StatsReporterWithConvergence<Val> {
 
 			if (!variable.execution_terminated) {
 				// the root node does not need to send any COST messages
-				String parent = variable.separator[0];
-				if (parent != null) {
-					COSTmsg<Val, U> msg = new COSTmsg<Val, U>( variable.variableID, parent, variable.currentContext, variable.LB, variable.UB);
-					long messageSize = variable.variableID.length() + parent.length() + 8;
-					for (String var : variable.currentContext.keySet()) {
-						messageSize += var.length() + 4;
-					}
+				if (variable.separator[0] != null) 
+					sendCOST(variable);
+			}
 
-					adopt.sendMessageToVariable(parent, msg, messageSize);
-					// adopt.log(variable, "Sending a COST message to variable "
-					// + parent + " : {" + msg.getLB() + ", " + msg.getUB() +
-					// ", " + msg.getContext() + "}");
-				}
+		}
+
+		/**
+		 * Sends a COST message to the variable's parent
+		 * 
+		 * When COST suppression is enabled, the message is not sent if its context is the same as in the last COST message sent 
+		 * to the parent, and its bounds are not tighter. The parent only resets the bounds it stored for this child when its own 
+		 * context becomes incompatible with the child's, in which case the child's context eventually changes too, so such a 
+		 * message cannot tell the parent anything new. When delta encoding is enabled, the message only carries the changes 
+		 * in the context since the last COST message sent to the parent. 
+		 * 
+		 * @param variable the variable info
+		 */
+		private void sendCOST(VariableInfo<Val, U> variable) {
+			String parent = variable.separator[0];
+			
+			if (adopt.suppressCOST && variable.currentContext.equals(variable.lastCOSTcontext) 
+					&& variable.LB.compareTo(variable.lastCOSTlb) <= 0 && variable.UB.compareTo(variable.lastCOSTub) >= 0) 
+				return;
+			
+			COSTmsg<Val, U> msg;
+			if (adopt.deltaContexts) 
+				msg = new COSTmsg<Val, U>(variable.variableID, parent, variable.currentContext, variable.lastCOSTcontext, variable.LB, variable.UB);
+			else 
+				msg = new COSTmsg<Val, U>(variable.variableID, parent, variable.currentContext, variable.LB, variable.UB);
+			long messageSize = variable.variableID.length() + parent.length() + 8;
+			for (String var : msg.getContext().keySet()) {
+				messageSize += var.length() + 4;
 			}
 
+			adopt.sendMessageToVariable(parent, msg, messageSize);
+			// adopt.log(variable, "Sending a COST message to variable "
+			// + parent + " : {" + msg.getLB() + ", " + msg.getUB() +
+			// ", " + msg.getContext() + "}");
+			
+			if (adopt.suppressCOST || adopt.deltaContexts) {
+				variable.lastCOSTcontext = new HashMap<String, Val>(variable.currentContext);
+				variable.lastCOSTlb = variable.LB;
+				variable.lastCOSTub = variable.UB;
+			}
 		}
 
 		/**
@@ -1073,6 +1103,11 @@ implements StatsReporterWithConvergence<Val> {
 				COSTmsg<Val, U> msgCast = (COSTmsg<Val, U>) msg;
 				String var = msgCast.receiver;
 				VariableInfo<Val, U> variable = adopt.infos.get(var);
+				
+				// Decode the context even if the message is going to be dropped, because the next one is encoded relative to it
+				if (msgCast.isDelta()) 
+					variable.lastCOSTcontexts.put(msgCast.getSender(), msgCast.decodeContext(variable.lastCOSTcontexts.get(msgCast.getSender())));
+				
 				if(LOG)
 					log(variable, "Received a COST message(" + msgCast.getContext() + ", " + msgCast.getLB() + ", " + msgCast.getUB() + ")\n" + variable.toString());
 				
@@ -1169,6 +1204,18 @@ implements StatsReporterWithConvergence<Val> {
 		 * and only generate more messages
 		 */
 		public Message lastMessageReceived = null;
+		
+		/** The context of the last COST message sent to the parent; only maintained when COST messages are suppressed or delta-encoded */
+		public HashMap<String, Val> lastCOSTcontext;
+		
+		/** The lower bound in the last COST message sent to the parent */
+		public U lastCOSTlb;
+		
+		/** The upper bound in the last COST message sent to the parent */
+		public U lastCOSTub;
+		
+		/** For each child, the full context of the last delta-encoded COST message received from it */
+		public HashMap< String, HashMap<String, Val> > lastCOSTcontexts = new HashMap< String, HashMap<String, Val> > ();
 
 		/** This variable's ID */
 		public String variableID;
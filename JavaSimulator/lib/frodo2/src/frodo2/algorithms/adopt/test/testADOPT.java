@@ -121,6 +121,9 @@ public class testADOPT extends TestCase implements IncomingMsgPolicyInterface<St
 	/** Whether to use the XML-based constructor */
 	private boolean useXML;
 	
+	/** Whether to suppress redundant COST messages and delta-encode their contexts */
+	private boolean compactCOST;
+	
 	/** Constructor that instantiates a test only for the input method
 	 * @param utilClass 	the class of utility values
 	 * @param version 		the version of ADOPT
@@ -128,11 +131,23 @@ public class testADOPT extends TestCase implements IncomingMsgPolicyInterface<St
 	 * @param useXML 		whether to use the XML-based constructor
 	 */
 	public testADOPT(Class< ? extends Addable<?> > utilClass, String version, boolean useTCP, boolean useXML) {
+		this (utilClass, version, useTCP, useXML, false);
+	}
+
+	/** Constructor that instantiates a test only for the input method
+	 * @param utilClass 	the class of utility values
+	 * @param version 		the version of ADOPT
+	 * @param useTCP 		whether to use TCP pipes or shared memory pipes
+	 * @param useXML 		whether to use the XML-based constructor
+	 * @param compactCOST 	whether to suppress redundant COST messages and delta-encode their contexts
+	 */
+	public testADOPT(Class< ? extends Addable<?> > utilClass, String version, boolean useTCP, boolean useXML, boolean compactCOST) {
 		super ("test");
 		this.utilClass = utilClass;
 		this.version = version;
 		this.useTCP = useTCP;
 		this.useXML = useXML;
+		this.compactCOST = compactCOST;
 	}
 	
 	/** 
@@ -183,6 +198,14 @@ public class testADOPT extends TestCase implements IncomingMsgPolicyInterface<St
 		testTmp.addTest(new RepeatedTest (new testADOPT (AddableInteger.class, ADOPT.Original.class.getName(), true, true), 50));
 		testSuite.addTest(testTmp);
 		
+		testTmp = new TestSuite ("Tests for the ADOPT propagation protocol using shared memory pipes and integer utilities with COST suppression and delta-encoded contexts");
+		testTmp.addTest(new RepeatedTest (new testADOPT (AddableInteger.class, ADOPT.Original.class.getName(), false, true, true), 2000));
+		testSuite.addTest(testTmp);
+		
+		testTmp = new TestSuite ("Tests for the ADOPT propagation protocol using TCP pipes and integer utilities with COST suppression and delta-encoded contexts");
+		testTmp.addTest(new RepeatedTest (new testADOPT (AddableInteger.class, ADOPT.Original.class.getName(), true, true, true), 50));
+		testSuite.addTest(testTmp);
+		
 		testTmp = new TestSuite ("Tests for the ADOPT propagation protocol using shared memory pipes and integer utilities and the alternative constructor");
 		testTmp.addTest(new RepeatedTest (new testADOPT (AddableInteger.class, ADOPT.Original.class.getName(), false, false), 100));
 		testSuite.addTest(testTmp);
@@ -239,6 +262,8 @@ public class testADOPT extends TestCase implements IncomingMsgPolicyInterface<St
 				// Create the description of the parameters
 				parameters = new Element ("module");
 				parameters.setAttribute("version", version);
+				parameters.setAttribute("suppressCOST", Boolean.toString(this.compactCOST));
+				parameters.setAttribute("deltaContexts", Boolean.toString(this.compactCOST));
 
 				// Instantiate the listener using reflection
 				parTypes = new Class[2];
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -174,6 +175,9 @@ public class AFB < V extends Addable<V>, U extends Addable<U> > implements Stats
 			/** Variable assignment counter for the timestamp mechanism.*/
 			private int assignmentCounter = 0;
 			
+			/** The tables used to compute the estimates of this cluster's future cost, or \c null if they are computed from the spaces */
+			private MinCostTables tables;
+			
 			/** Constructor 
 			 * @param vars 	list of variables in the cluster
 			 */
@@ -190,6 +194,95 @@ public class AFB < V extends Addable<V>, U extends Addable<U> > implements Stats
 		/** \c true when the convergence history is to be stored */
 		private final boolean convergence;
 		
+		/** Whether the estimates sent in response to FB_CPA messages should be computed from precomputed minimum-cost tables */
+		private final boolean minCostTables;
+		
+		/** The tables used to compute the estimates of a cluster's future cost by lookups and sums
+		 * 
+		 * The tables are only built for clusters consisting of a single variable, all of whose constraints are unary or binary. 
+		 * The resulting estimates are exactly the ones computed by f() followed by a projection, but without any join or slice. 
+		 */
+		private class MinCostTables {
+			
+			/** For each previous neighbor, the index of its cluster in the ordering */
+			private final int[] clusters;
+			
+			/** For each previous neighbor, its position within its cluster */
+			private final int[] positions;
+			
+			/** For each previous neighbor, the index of each of its values */
+			private final ArrayList< HashMap<V, Integer> > valIndexes;
+			
+			/** For each previous neighbor, the sum of the costs of the constraints with it, indexed by [neighbor value index * domain size + own value index] */
+			private final ArrayList<U[]> costs;
+			
+			/** For each previous neighbor and each own value, the minimum over the neighbor's values of the corresponding entry in \a costs */
+			private final ArrayList<U[]> minCosts;
+			
+			/** For each own value, h plus the costs of all unary constraints */
+			private final U[] base;
+			
+			/** Constructor
+			 * @param base 			for each own value, h plus the costs of all unary constraints
+			 * @param clusters 		for each previous neighbor, the index of its cluster in the ordering
+			 * @param positions 	for each previous neighbor, its position within its cluster
+			 * @param valIndexes 	for each previous neighbor, the index of each of its values
+			 * @param costs 		for each previous neighbor, the sum of the costs of the constraints with it
+			 * @param minCosts 		for each previous neighbor and each own value, the minimum cost over the neighbor's values
+			 */
+			private MinCostTables (U[] base, int[] clusters, int[] positions, ArrayList< HashMap<V, Integer> > valIndexes, ArrayList<U[]> costs, ArrayList<U[]> minCosts) {
+				this.base = base;
+				this.clusters = clusters;
+				this.positions = positions;
+				this.valIndexes = valIndexes;
+				this.costs = costs;
+				this.minCosts = minCosts;
+			}
+			
+			/** Computes the estimate of the future cost
+			 * @param pa 	the partial assignment received in a FB_CPA message
+			 * @return the minimum over all own values of h plus the costs of the constraints with previous variables
+			 * @note Like getLocalSpace(), the variables in the cluster at index \a pa.index are not grounded, and are optimized instead. 
+			 */
+			private U estimate (PA<V, U> pa) {
+				
+				final int domSize = this.base.length;
+				final int nbrNeighbors = this.clusters.length;
+				
+				// Look up the index of each grounded neighbor's value
+				int[] offsets = new int [nbrNeighbors];
+				int nbrLookups = 0;
+				for (int k = 0; k < nbrNeighbors; k++) {
+					int cluster = this.clusters[k];
+					if (cluster < pa.index) {
+						offsets[k] = this.valIndexes.get(k).get(pa.assignments[cluster][this.positions[k]]) * domSize;
+						nbrLookups++;
+					} else if (cluster == pa.index) {
+						offsets[k] = -1;
+						nbrLookups++;
+					} else 
+						offsets[k] = -2;
+				}
+				
+				U min = null;
+				for (int v = 0; v < domSize; v++) {
+					U sum = this.base[v];
+					for (int k = 0; k < nbrNeighbors; k++) {
+						int offset = offsets[k];
+						if (offset >= 0) 
+							sum = sum.add(this.costs.get(k)[offset + v]);
+						else if (offset == -1) 
+							sum = sum.add(this.minCosts.get(k)[v]);
+					}
+					if (min == null || sum.compareTo(min) < 0) 
+						min = sum;
+				}
+				problem.incrNCCCs(domSize * (nbrLookups + 1));
+				
+				return min;
+			}
+		}
+		
 		/** For each variable, its assignment history */
 		private HashMap< String, ArrayList< CurrentAssignment<V> > > assignmentHistoriesMap;
 
@@ -308,6 +401,7 @@ public class AFB < V extends Addable<V>, U extends Addable<U> > implements Stats
 			this.problem = problem;
 			this.compInfos = new HashMap<Comparable<?>, ComponentInfo> ();
 			this.convergence = false;
+			this.minCostTables = false;
 			this.assignmentHistoriesMap = new HashMap< String, ArrayList< CurrentAssignment<V> > > ();
 			this.solution = new HashMap<String, V> ();
 			this.pendingSolMsgs = new LinkedList< SolutionMsg<V, U> > ();
@@ -327,6 +421,8 @@ public class AFB < V extends Addable<V>, U extends Addable<U> > implements Stats
 			else
 				this.convergence = false;
 			
+			this.minCostTables = Boolean.parseBoolean(parameters.getAttributeValue("minCostTables"));
+			
 			this.pendingSolMsgs = new LinkedList< SolutionMsg<V, U> > ();
 			this.pendingFbCpaMsgs = new LinkedList< FbCpaMsg<V, U> > ();
 			this.pendingCPAmsgs = new HashMap< String, CPAmsg<V, U> > ();
@@ -752,7 +848,7 @@ public class AFB < V extends Addable<V>, U extends Addable<U> > implements Stats
 			// compute lower bound estimation based on the received assignment
 			if (verbose) System.out.println("Received FB_CPA from "+msgCast.sender+" to " +msgCast.dest+" with PA: "+msgCast.pa.toString());
 			
-			U f = f(clusterIndex, compInfo, msgCast.pa).blindProjectAll(false);
+			U f = (info.tables != null ? info.tables.estimate(msgCast.pa) : f(clusterIndex, compInfo, msgCast.pa).blindProjectAll(false));
 			
 			// send FB_ESTIMATE response message
 			int destVarIndex = compInfo.varIndexes.get(msgCast.sender);
@@ -844,6 +940,10 @@ public class AFB < V extends Addable<V>, U extends Addable<U> > implements Stats
 				
 				// compute h for this variable
 				compInfo.h[i] = this.h(i, compInfo);
+				
+				// Precompute the tables used to estimate this cluster's future cost, if requested
+				if (this.minCostTables) 
+					info.tables = this.minCostTables(compInfo, i, info);
 			} // for all variables
 			
 			if(this.valArrayClass == null){
@@ -962,6 +1062,106 @@ public class AFB < V extends Addable<V>, U extends Addable<U> > implements Stats
 		}
 
 		
+		/** Builds the tables used to estimate the future cost of a cluster
+		 * @param compInfo		the ComponentInfo of the component this cluster belongs to
+		 * @param clusterIndex 	the index of the cluster in the ordering
+		 * @param info 			the ClusterInfo of the cluster
+		 * @return the tables, or \c null if the cluster contains several variables or is responsible for a constraint of arity more than 2
+		 */
+		@SuppressWarnings("unchecked")
+		private MinCostTables minCostTables (ComponentInfo compInfo, final int clusterIndex, ClusterInfo info) {
+			
+			if (info.vars.length != 1) 
+				return null;
+			for (UtilitySolutionSpace<V, U> space : info.spaces) 
+				if (space.getNumberOfVariables() > 2) 
+					return null;
+			
+			if(this.valArrayClass == null){
+				valArrayClass = (Class<V[]>) problem.getDomain(this.problem.getVariables().iterator().next()).getClass();
+				valClass = (Class<V>) this.valArrayClass.getComponentType();
+			}
+			
+			final String var = info.vars[0];
+			final V[] dom = info.domains[0];
+			final int domSize = dom.length;
+			final Class<?> utilClass = this.zero.getClass();
+			
+			// Initialize the base costs with h
+			U[] base = (U[]) Array.newInstance(utilClass, domSize);
+			V[] val = (V[]) Array.newInstance(this.valClass, 1);
+			for (int v = 0; v < domSize; v++) {
+				val[0] = dom[v];
+				base[v] = compInfo.h[clusterIndex].getUtility(info.vars, val);
+			}
+			
+			// Go through all spaces, adding unary ones to the base costs and grouping binary ones by neighbor
+			LinkedHashMap< String, ArrayList< UtilitySolutionSpace<V, U> > > spacesPerNeighbor = new LinkedHashMap< String, ArrayList< UtilitySolutionSpace<V, U> > > ();
+			for (UtilitySolutionSpace<V, U> space : info.spaces) {
+				String[] spaceVars = space.getVariables();
+				
+				if (spaceVars.length == 1) {
+					for (int v = 0; v < domSize; v++) {
+						val[0] = dom[v];
+						base[v] = base[v].add(space.getUtility(info.vars, val));
+					}
+					problem.incrNCCCs(domSize);
+					
+				} else {
+					String neighbor = (spaceVars[0].equals(var) ? spaceVars[1] : spaceVars[0]);
+					ArrayList< UtilitySolutionSpace<V, U> > spaces = spacesPerNeighbor.get(neighbor);
+					if (spaces == null) {
+						spaces = new ArrayList< UtilitySolutionSpace<V, U> > ();
+						spacesPerNeighbor.put(neighbor, spaces);
+					}
+					spaces.add(space);
+				}
+			}
+			
+			// Build the tables for each neighbor
+			final int nbrNeighbors = spacesPerNeighbor.size();
+			int[] clusters = new int [nbrNeighbors];
+			int[] positions = new int [nbrNeighbors];
+			ArrayList< HashMap<V, Integer> > valIndexes = new ArrayList< HashMap<V, Integer> > (nbrNeighbors);
+			ArrayList<U[]> costs = new ArrayList<U[]> (nbrNeighbors);
+			ArrayList<U[]> minCosts = new ArrayList<U[]> (nbrNeighbors);
+			String[] pair = new String[] { null, var };
+			V[] vals = (V[]) Array.newInstance(this.valClass, 2);
+			int k = 0;
+			for (Map.Entry< String, ArrayList< UtilitySolutionSpace<V, U> > > entry : spacesPerNeighbor.entrySet()) {
+				String neighbor = entry.getKey();
+				pair[0] = neighbor;
+				clusters[k] = compInfo.varIndexes.get(neighbor);
+				positions[k] = Arrays.asList(compInfo.order[clusters[k]]).indexOf(neighbor);
+				
+				V[] neighborDom = entry.getValue().get(0).getDomain(neighbor);
+				HashMap<V, Integer> indexes = new HashMap<V, Integer> (neighborDom.length);
+				U[] table = (U[]) Array.newInstance(utilClass, neighborDom.length * domSize);
+				U[] mins = (U[]) Array.newInstance(utilClass, domSize);
+				for (int x = 0; x < neighborDom.length; x++) {
+					indexes.put(neighborDom[x], x);
+					vals[0] = neighborDom[x];
+					for (int v = 0; v < domSize; v++) {
+						vals[1] = dom[v];
+						U cost = this.zero;
+						for (UtilitySolutionSpace<V, U> space : entry.getValue()) 
+							cost = cost.add(space.getUtility(pair, vals));
+						table[x * domSize + v] = cost;
+						if (mins[v] == null || cost.compareTo(mins[v]) < 0) 
+							mins[v] = cost;
+					}
+				}
+				problem.incrNCCCs(neighborDom.length * domSize * entry.getValue().size());
+				
+				valIndexes.add(indexes);
+				costs.add(table);
+				minCosts.add(mins);
+				k++;
+			}
+			
+			return new MinCostTables (base, clusters, positions, valIndexes, costs, minCosts);
+		}
+		
 		/** Method to compute the value f for a given cluster and some assigned value.
 		 * @param clusterIndex 	Index of the cluster for which we want to compute f
 		 * @param compInfo		The ComponentInfo of the component the variable belongs to
@@ -28,7 +28,9 @@ import org.jdom2.Document;
 
 import frodo2.algorithms.AbstractDCOPsolver;
 import frodo2.algorithms.StatsReporter;
+import frodo2.algorithms.varOrdering.linear.LinearOrderCache;
 import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
 
 /** A DCOP solver using AFB
  * @param <V> type used for variable values
@@ -40,6 +42,9 @@ public class AFBsolver< V extends Addable<V>, U extends Addable<U> > extends Abs
 	/** The AFB module */
 	protected AFB<V, U> module;
 
+	/** Whether the linear variable order should be computed once per constraint graph and reused across solves */
+	private boolean orderCaching = false;
+
 	/** Default constructor 
 	 * @param filename the name of the file containing the description of the algorithm*/
 	public AFBsolver (String filename) {
@@ -89,6 +94,39 @@ public class AFBsolver< V extends Addable<V>, U extends Addable<U> > extends Abs
 		super(agentDesc, useTCP);
 	}
 	
+	/** Sets whether the linear variable order should be computed once per constraint graph and reused across solves
+	 * 
+	 * Before each call to solve(), the LinearOrderCache is then looked up for the current constraint graph, and computes 
+	 * a max-cardinality order if it is not yet known. The variable election and linear ordering modules are skipped, 
+	 * and this order is used instead. This requires the whole constraint graph to be known to this JVM. 
+	 * @param caching 	whether to use the LinearOrderCache
+	 * @note Ignored when using TCP pipes, and when the agent factory is kept alive between solves. 
+	 */
+	public void setOrderCaching (boolean caching) {
+		this.orderCaching = caching;
+	}
+	
+	/** @see AbstractDCOPsolver#solve(DCOPProblemInterface, boolean, Long) */
+	@Override
+	public AFBsolution<V, U> solve (DCOPProblemInterface<V, U> problem, boolean cleanAfterwards, Long timeout) {
+		
+		if (! this.orderCaching || this.useTCP || this.factory != null) 
+			return super.solve(problem, cleanAfterwards, timeout);
+		
+		// Solve using a copy of the agent description that follows the cached order
+		Document agentDesc = this.agentDesc;
+		this.agentDesc = (Document) agentDesc.clone();
+		String fingerprint = LinearOrderCache.lookup(problem);
+		boolean cached = LinearOrderCache.setCachedOrder(this.agentDesc, fingerprint);
+		try {
+			return super.solve(problem, cleanAfterwards, timeout);
+		} finally {
+			this.agentDesc = agentDesc;
+			if (cached) 
+				LinearOrderCache.release(fingerprint);
+		}
+	}
+	
 	/** @see AbstractDCOPsolver#getSolGatherers() */
 	@Override
 	public ArrayList<StatsReporter> getSolGatherers() {
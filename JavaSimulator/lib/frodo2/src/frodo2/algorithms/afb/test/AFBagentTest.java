@@ -108,6 +108,18 @@ public class AFBagentTest <V extends Addable<V>, U extends Addable<U> > extends
 		tmp.addTest(new RepeatedTest (new AFBagentTest<AddableInteger, AddableInteger> ("AFBagent.xml", false, false, false, true, AddableInteger.class, AddableInteger.class, false, +1), 1000));
 		suite.addTest(tmp);
 	
+		tmp = new TestSuite ("Tests using QueueIOPipes with min-cost tables");
+		tmp.addTest(new RepeatedTest (new AFBagentTest<AddableInteger, AddableInteger> ("AFBagent.xml", true, false, false, false, AddableInteger.class, AddableInteger.class, false, +1, true), 5000));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests using QueueIOPipes and real-valued variables with min-cost tables");
+		tmp.addTest(new RepeatedTest (new AFBagentTest<AddableReal, AddableInteger> ("AFBagent.xml", true, false, false, false, AddableReal.class, AddableInteger.class, false, +1, true), 5000));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests using QueueIOPipes counting NCCCs with min-cost tables");
+		tmp.addTest(new RepeatedTest (new AFBagentTest<AddableInteger, AddableInteger> ("AFBagent.xml", true, false, false, true, AddableInteger.class, AddableInteger.class, false, +1, true), 1000));
+		suite.addTest(tmp);
+		
 		tmp = new TestSuite ("Tests using TCP pipes");
 		tmp.addTest(new RepeatedTest (new AFBagentTest<AddableInteger, AddableInteger> ("AFBagent.xml", true, true, false, false, AddableInteger.class, AddableInteger.class, false, +1), 1000));
 		suite.addTest(tmp);
@@ -124,6 +136,9 @@ public class AFBagentTest <V extends Addable<V>, U extends Addable<U> > extends
 	/** The restriction on the sign of the costs/utilities */
 	private final int sign;
 	
+	/** Whether AFB should compute its estimates from precomputed minimum-cost tables */
+	private final boolean minCostTables;
+	
 	/** Constructor
 	 * @param agentFile 		the name of the agent configuration file
 	 * @param useXCSP 			whether to use XCSP
@@ -135,14 +150,31 @@ public class AFBagentTest <V extends Addable<V>, U extends Addable<U> > extends
 	 * @param maximize 			Whether we should maximize or minimize
 	 * @param sign 				The restriction on the sign of the costs/utilities
 	 */
-	@SuppressWarnings("unchecked")
 	public AFBagentTest (String agentFile, boolean useXCSP, boolean useTCP, boolean useCentralMailer, boolean countNCCCs, Class<V> domClass, Class<U> utilClass, boolean maximize, int sign) {
+		this (agentFile, useXCSP, useTCP, useCentralMailer, countNCCCs, domClass, utilClass, maximize, sign, false);
+	}
+	
+	/** Constructor
+	 * @param agentFile 		the name of the agent configuration file
+	 * @param useXCSP 			whether to use XCSP
+	 * @param useTCP 			whether TCP pipes should be used for communication between agents
+	 * @param useCentralMailer	\c true when the central mailer should be tested
+	 * @param countNCCCs 		whether to count NCCCs
+	 * @param domClass 			class used for variable values
+	 * @param utilClass 		class used for utility values
+	 * @param maximize 			Whether we should maximize or minimize
+	 * @param sign 				The restriction on the sign of the costs/utilities
+	 * @param minCostTables 	whether AFB should compute its estimates from precomputed minimum-cost tables
+	 */
+	@SuppressWarnings("unchecked")
+	public AFBagentTest (String agentFile, boolean useXCSP, boolean useTCP, boolean useCentralMailer, boolean countNCCCs, Class<V> domClass, Class<U> utilClass, boolean maximize, int sign, boolean minCostTables) {
 		super (useXCSP, useTCP, useCentralMailer, false, domClass, utilClass, null, 
 				(Class<? extends XCSPparser<V, U>>) XCSPparser.class, false, false, countNCCCs, false, false);
 		
 		super.maximize = maximize;
 		this.sign = sign;
 		this.agentFile = agentFile;
+		this.minCostTables = minCostTables;
 	}
 	
 	/** @see DPOPagentTest#setUp() */
@@ -173,6 +205,7 @@ public class AFBagentTest <V extends Addable<V>, U extends Addable<U> > extends
 			
 			else if (className.equals(AFB.class.getName())) {
 				module.setAttribute("convergence", "true");
+				module.setAttribute("minCostTables", Boolean.toString(this.minCostTables));
 				
 				// Override the message types
 				for (Element msgElmt : module.getChild("messages").getChildren()) {
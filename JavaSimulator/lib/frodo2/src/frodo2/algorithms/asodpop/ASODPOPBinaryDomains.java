@@ -235,6 +235,9 @@ implements StatsReporterWithConvergence<Val> {
 	/** \c true when statistics should be collected in the tree, and \c false otherwise */
 	private boolean collectStats;
 	
+	/** Whether the inner nodes of the DFS store the received goods in CompactGoodsMaps rather than in HashMaps */
+	private boolean compactGoods;
+	
 	
 	/** Constructor for the stats gatherer mode
 	 * @param parameters 	the parameters of the module
@@ -268,6 +271,8 @@ implements StatsReporterWithConvergence<Val> {
 		else
 			collectStats = Boolean.parseBoolean(collectStatsString);
 		
+		this.compactGoods = Boolean.parseBoolean(parameters.getAttributeValue("compactGoods"));
+		
 		setCombinationMethod(parameters.getAttributeValue("combination"));
 	}
 
@@ -711,6 +716,9 @@ implements StatsReporterWithConvergence<Val> {
 				else
 					variable = new VariableInfo(root, var, null, children.toArray(new String[0]), pseudoChildren.toArray(new String[0]), pseudoParents, pseudoParents.size(), new LeafNodeTree<Val, U, LeafNode<U>>(var, ownVariableDomain, usedSpaces, problem.getZeroUtility(), infeasibleUtil, maximize, collectStats));
 			}
+			
+			if(compactGoods && variable.tree instanceof InnerNodeTree)
+				((InnerNodeTree<Val, U>)variable.tree).setCompactGoodsStorage(true);
 
 			variable.currentContextMap.put(var, currentValues[varIndex]);
 			assert infos[varIndex] == null;
@@ -136,6 +136,9 @@ public class ASODPOPagentTest < V extends Addable<V>, U extends Addable<U> > ext
 	/** The type used for utility values */
 	private Class<U> utilClass;
 	
+	/** Whether the received goods should be stored in CompactGoodsMaps */
+	private boolean compactGoods;
+	
 	/** Maximize of minimize */
 	private final boolean maximize;
 	
@@ -165,6 +168,22 @@ public class ASODPOPagentTest < V extends Addable<V>, U extends Addable<U> > ext
 		this.maximize = maximize;
 		this.sign = sign;
 	}
+	
+	/** Creates a JUnit test case corresponding to the input method
+	 * @param string 			name of the method
+	 * @param useXCSP 			whether to use XCSP
+	 * @param useCentralMailer 	\c true when the central mailer should be used and tested
+	 * @param useDelay 			\c true when the algorithm should be tested with the use of delay
+	 * @param domClass 			The type used for variable values
+	 * @param utilClass 		the type used for utility values
+	 * @param maximize 			Maximize of minimize
+	 * @param sign 				The sign of costs/utilities
+	 * @param compactGoods 		whether the received goods should be stored in CompactGoodsMaps
+	 */
+	public ASODPOPagentTest(String string, boolean useXCSP, boolean useCentralMailer, boolean useDelay, Class<V> domClass, Class<U> utilClass, boolean maximize, int sign, boolean compactGoods) {
+		this (string, useXCSP, useCentralMailer, useDelay, domClass, utilClass, maximize, sign);
+		this.compactGoods = compactGoods;
+	}
 
 	/** @return the test suite */
 	public static TestSuite suite () {
@@ -219,6 +238,14 @@ public class ASODPOPagentTest < V extends Addable<V>, U extends Addable<U> > ext
 		tmp.addTest(new RepeatedTest (new ASODPOPagentTest<AddableInteger, AddableInteger> ("testRandomTCP", true, false, false, AddableInteger.class, AddableInteger.class, true, +1), 500));
 		suite.addTest(tmp);
 		
+		tmp = new TestSuite ("Tests using QueueIOPipes and compact goods storage with integer utilities");
+		tmp.addTest(new RepeatedTest (new ASODPOPagentTest<AddableInteger, AddableInteger> ("testRandomSharedMemory", true, false, false, AddableInteger.class, AddableInteger.class, true, +1, true), 500));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests using QueueIOPipes and compact goods storage with real utilities without XCSP");
+		tmp.addTest(new RepeatedTest (new ASODPOPagentTest<AddableInteger, AddableReal> ("testRandomSharedMemory", false, false, false, AddableInteger.class, AddableReal.class, false, 0, true), 500));
+		suite.addTest(tmp);
+		
 		return suite;
 	}
 	
@@ -238,6 +265,14 @@ public class ASODPOPagentTest < V extends Addable<V>, U extends Addable<U> > ext
 		pipes = new HashMap<Object, QueueOutputPipeInterface> ();
 		
 		agentDesc = XCSPparser.parse("src/frodo2/algorithms/asodpop/ASODPOPagent.xml", false);
+		if (this.compactGoods) {
+			for (Element module : (List<Element>) this.agentDesc.getRootElement().getChild("modules").getChildren()) {
+				if (module.getAttributeValue("className").equals(ASODPOP.class.getName())) {
+					module.setAttribute("compactGoods", "true");
+					break;
+				}
+			}
+		}
 		
 		// Fix the ProblemRescaler's shift if the problem is not a minimization problem with non-negative costs
 		if (this.maximize || this.sign <= 0) {
@@ -26,6 +26,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -59,6 +60,12 @@ public class COSTmsg<Val extends Addable<Val>, U extends Addable<U>>
 	/** The lower bound */
 	private U ub;
 	
+	/** Whether \a context only contains the changes since the previous COST message from the same sender */
+	private boolean delta = false;
+	
+	/** For a delta-encoded context, the variables that have been removed from the context, or \c null if none */
+	private String[] removed;
+	
 	/** Empty constructor */
 	public COSTmsg () {
 		super (BNBADOPT.Original.COST_MSG_TYPE);
@@ -83,6 +90,40 @@ public class COSTmsg<Val extends Addable<Val>, U extends Addable<U>>
 		this.ub = ub;
 	}
 
+	/**
+	 * Constructor for a message with a delta-encoded context
+	 * 
+	 * @param sender the sender variable
+	 * @param receiver the recipient variable
+	 * @param currentContext the context
+	 * @param previous the context of the previous COST message sent to \a receiver, or \c null if none
+	 * @param lb  the lower bound
+	 * @param ub  the upper bound
+	 */
+	public COSTmsg(String sender, String receiver,
+			HashMap<String, assignval<Val>> currentContext, HashMap<String, assignval<Val>> previous, U lb, U ub) {
+		super(BNBADOPT.Original.COST_MSG_TYPE);
+		this.sender = sender;
+		this.receiver = receiver;
+		this.lb = lb;
+		this.ub = ub;
+		this.delta = true;
+		
+		this.context = new HashMap<String, assignval<Val>> ();
+		for (Map.Entry<String, assignval<Val>> entry : currentContext.entrySet()) 
+			if (previous == null || ! sameAssignment(entry.getValue(), previous.get(entry.getKey()))) 
+				this.context.put(entry.getKey(), entry.getValue());
+		
+		if (previous != null) {
+			ArrayList<String> removed = new ArrayList<String> ();
+			for (String var : previous.keySet()) 
+				if (! currentContext.containsKey(var)) 
+					removed.add(var);
+			if (! removed.isEmpty()) 
+				this.removed = removed.toArray(new String [removed.size()]);
+		}
+	}
+
 	/** @see java.io.Externalizable#writeExternal(java.io.ObjectOutput) */
 	public void writeExternal(ObjectOutput out) throws IOException {
 		out.writeObject(this.sender);
@@ -114,6 +155,15 @@ public class COSTmsg<Val extends Addable<Val>, U extends Addable<U>>
 			
 		}
 		
+		// Write the variables removed from a delta-encoded context
+		out.writeBoolean(this.delta);
+		if (this.delta) {
+			out.writeShort(this.removed == null ? 0 : this.removed.length);
+			if (this.removed != null) 
+				for (String var : this.removed) 
+					out.writeObject(var);
+		}
+		
 		// Write the bounds
 		out.writeObject(this.lb);
 		if (this.lb.externalize()) 
@@ -153,6 +203,17 @@ public class COSTmsg<Val extends Addable<Val>, U extends Addable<U>>
 			}
 		}
 		
+		// Read the variables removed from a delta-encoded context
+		this.delta = in.readBoolean();
+		if (this.delta) {
+			short nbrRemoved = in.readShort();
+			if (nbrRemoved > 0) {
+				this.removed = new String [nbrRemoved];
+				for (short i = 0; i < nbrRemoved; i++) 
+					this.removed[i] = (String) in.readObject();
+			}
+		}
+		
 		// Read the bounds
 		this.lb = (U) in.readObject();
 		if (this.lb.externalize()) {
@@ -223,4 +284,43 @@ public class COSTmsg<Val extends Addable<Val>, U extends Addable<U>>
 		return ub;
 	}
 
-}
\ No newline at end of file
+	/** @return whether the context is delta-encoded and must first be decoded using decodeContext() */
+	public boolean isDelta() {
+		return delta;
+	}
+	
+	/**
+	 * Replaces a delta-encoded context with the full context
+	 * 
+	 * @param previous the full context of the previous COST message received from the sender, or \c null if none
+	 * @return the full context
+	 */
+	public HashMap<String, assignval<Val>> decodeContext(HashMap<String, assignval<Val>> previous) {
+		if (this.delta) {
+			if (previous != null) {
+				HashMap<String, assignval<Val>> full = new HashMap<String, assignval<Val>> (previous);
+				full.putAll(this.context);
+				this.context = full;
+			}
+			if (this.removed != null) 
+				for (String var : this.removed) 
+					this.context.remove(var);
+			this.removed = null;
+			this.delta = false;
+		}
+		return this.context;
+	}
+	
+	/**
+	 * Compares two assignments
+	 * 
+	 * @param ass1 the first assignment
+	 * @param ass2 the second assignment, or \c null
+	 * @param <Val> the type used for variable values
+	 * @return \c true if both assignments have the same value and the same ID
+	 */
+	private static <Val> boolean sameAssignment(assignval<Val> ass1, assignval<Val> ass2) {
+		return ass2 != null && ass1.ID == ass2.ID && ass1.val.equals(ass2.val);
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+*/
+
+package frodo2.algorithms.dpop;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+
+/** A UTIL message whose space is an approximation, in which some of the separator variables might have been projected out
+ * @param <Val> the type used for variable values
+ * @param <U> the type used for utility values
+ */
+public class ApproxUTILmsg < Val extends Addable<Val>, U extends Addable<U> > extends UTILmsg<Val, U> {
+
+	/** Used for serialization */
+	private static final long serialVersionUID = 4592706127419362071L;
+
+	/** The separator of the sender variable */
+	private String[] separator;
+	
+	/** An upper bound on the utility lost in the sender's subtree because of approximations */
+	private U errorBound;
+	
+	/** Empty constructor used for externalization */
+	public ApproxUTILmsg () { }
+
+	/** Constructor
+	 * @param senderVar 	the sender variable
+	 * @param senderAgent 	the sender agent
+	 * @param dest 			the destination variable
+	 * @param space		 	the (approximate) space
+	 * @param separator 	the separator of the sender variable
+	 * @param errorBound 	an upper bound on the utility lost in the sender's subtree because of approximations
+	 */
+	public ApproxUTILmsg(String senderVar, String senderAgent, String dest, UtilitySolutionSpace<Val, U> space, String[] separator, U errorBound) {
+		super(senderVar, senderAgent, dest, space);
+		this.separator = separator;
+		this.errorBound = errorBound;
+	}
+
+	/** @see UTILmsg#writeExternal(java.io.ObjectOutput) */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		super.writeExternal(out);
+		out.writeObject(this.separator);
+		out.writeObject(this.errorBound);
+	}
+	
+	/** @see UTILmsg#readExternal(java.io.ObjectInput) */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		super.readExternal(in);
+		this.separator = (String[]) in.readObject();
+		this.errorBound = (U) in.readObject();
+	}
+
+	/** @see UTILmsg#getSeparator() */
+	@Override
+	public String[] getSeparator () {
+		return this.separator;
+	}
+	
+	/** @see UTILmsg#getErrorBound() */
+	@Override
+	public U getErrorBound () {
+		return this.errorBound;
+	}
+	
+	/** @see UTILmsg#toString() */
+	@Override
+	public String toString () {
+		return super.toString() + "\n\tseparator: " + Arrays.toString(this.separator) + "\n\terrorBound: " + this.errorBound;
+	}
+}
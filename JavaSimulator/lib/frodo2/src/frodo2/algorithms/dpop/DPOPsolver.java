@@ -24,21 +24,36 @@ How to contact the authors:
 package frodo2.algorithms.dpop;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.jdom2.Document;
 import org.jdom2.Element;
+import org.jdom2.filter.Filters;
 
 import frodo2.algorithms.AbstractDCOPsolver;
+import frodo2.algorithms.AssignmentListener;
+import frodo2.algorithms.Problem;
 import frodo2.algorithms.Solution;
 import frodo2.algorithms.StatsReporter;
 import frodo2.algorithms.XCSPparser;
 import frodo2.algorithms.varOrdering.dfs.DFSgeneration;
 import frodo2.algorithms.varOrdering.dfs.DFSgeneration.DFSview;
+import frodo2.algorithms.varOrdering.dfs.PseudoTreeCache;
+import frodo2.algorithms.varOrdering.dfs.PseudoTreeOptimizer;
 import frodo2.gui.DOTrenderer;
 import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
 
 /** A DCOP solver using DPOP
  * @author Thomas Leaute
@@ -56,6 +71,21 @@ public class DPOPsolver< V extends Addable<V>, U extends Addable<U> > extends Ab
 	/** The DFSgeneration module */
 	protected DFSgeneration<V, U> dfsModule;
 	
+	/** Whether the independent components of the constraint graph should be solved in parallel */
+	private boolean parallelComponents = false;
+	
+	/** The time limit in ms for the offline pseudo-tree optimization, or \c null if it is disabled */
+	private Long pseudoTreeTimeLimit;
+	
+	/** Whether pseudo-trees should be looked up in and recorded to the PseudoTreeCache */
+	private boolean pseudoTreeCaching = false;
+	
+	/** The DFS computed by the component solvers, when solving components in parallel */
+	private HashMap< String, DFSview<V, U> > componentsDFS;
+	
+	/** The component solvers of the previous solve, kept until the next solve or the next call to clear() if it was not cleaned afterwards */
+	private ArrayList< DPOPsolver<V, U> > componentSolvers;
+	
 	/** Default constructor */
 	public DPOPsolver () {
 		super ("/frodo2/algorithms/dpop/DPOPagent.xml");
@@ -201,6 +231,9 @@ public class DPOPsolver< V extends Addable<V>, U extends Addable<U> > extends Ab
 		
 		valueModule = new VALUEpropagation<V> (null, problem);
 		valueModule.setSilent(true);
+		valueModule.setTimeOrigin(this.timeOrigin);
+		for (AssignmentListener<V> listener : this.assignmentListeners) 
+			valueModule.addAssignmentListener(listener);
 		solGatherers.add(valueModule);
 		
 		Element params = new Element ("module");
@@ -238,22 +271,479 @@ public class DPOPsolver< V extends Addable<V>, U extends Addable<U> > extends Ab
 		timesNeeded.put(valueModule.getClass().getName(), valueModule.getFinalTime());
 		long totalTime = factory.getTime();
 		
-		return new Solution<V, U> (nbrVariables, optUtil, super.problem.getUtility(solution, true).getUtility(0), solution, nbrMsgs, msgNbrs, 
+		Solution<V, U> sol = new Solution<V, U> (nbrVariables, optUtil, super.problem.getUtility(solution, true).getUtility(0), solution, nbrMsgs, msgNbrs, 
 				totalMsgSize, msgSizes, maxMsgSize, maxMsgSizes, ncccs, totalTime, timesNeeded, maxMsgDim, numberOfCoordinationConstraints);
+		sol.setAssignmentTimes(valueModule.getFirstAssignmentTime(), valueModule.getLastAssignmentTime());
+		sol.setErrorBound(utilModule.getErrorBound());
+		return sol;
+	}
+	
+	/** Sets whether the independent components of the constraint graph should be solved in parallel
+	 * 
+	 * Each connected component of the constraint graph is then solved as a separate subproblem by its own solver instance, 
+	 * with its own agent factory and mailer, in a thread pool with at most one thread per available processor. 
+	 * The solutions and statistics are merged into a single Solution. 
+	 * @param parallelComponents 	whether to solve the components in parallel
+	 * @warning Ignored when using TCP pipes. 
+	 * @warning AssignmentListeners may then be called concurrently by several threads. 
+	 */
+	public void setParallelComponents (boolean parallelComponents) {
+		this.parallelComponents = parallelComponents;
+	}
+	
+	/** Sets whether the DFS pseudo-tree should be optimized offline before solving
+	 * 
+	 * Before each call to solve(), a PseudoTreeOptimizer then looks for an elimination order that minimizes 
+	 * the maximum separator size, which the DFS modules in the agent description are configured to follow. 
+	 * This requires the whole constraint graph to be known to this JVM. 
+	 * @param timeLimit 	the time limit in ms for the optimization (at least one elimination order is always computed), 
+	 * 						or \c null to disable the optimization
+	 */
+	public void setPseudoTreeOptimization (Long timeLimit) {
+		this.pseudoTreeTimeLimit = timeLimit;
+	}
+	
+	/** Sets whether the DFS pseudo-tree should be reused across solves of problems with the same constraint graph
+	 * 
+	 * Before each call to solve(), the PseudoTreeCache is then looked up for the current constraint graph. 
+	 * On a hit, the root election and DFS generation modules are skipped, and the cached pseudo-tree is used instead; 
+	 * otherwise, the pseudo-tree computed by the agents is recorded in the cache. 
+	 * This requires the whole constraint graph to be known to this JVM. 
+	 * @param caching 	whether to use the PseudoTreeCache
+	 * @note Ignored when using TCP pipes, and when the agent factory is kept alive between solves. 
+	 */
+	public void setPseudoTreeCaching (boolean caching) {
+		this.pseudoTreeCaching = caching;
+	}
+	
+	/** @see AbstractDCOPsolver#solve(DCOPProblemInterface, boolean, Long) */
+	@Override
+	public Solution<V, U> solve (DCOPProblemInterface<V, U> problem, boolean cleanAfterwards, final Long timeout) {
+		
+		if (this.useTCP || this.factory != null) 
+			return this.solveWithOptimizedDFS(problem, cleanAfterwards, timeout);
+		
+		Element balancingParams = this.getBalancingParams();
+		if (! this.pseudoTreeCaching && balancingParams == null) 
+			return this.solveWithOptimizedDFS(problem, cleanAfterwards, timeout);
+		
+		// Look up the cached pseudo-tree of the required kind, or compute a balanced one if required
+		String kind = (balancingParams == null ? null : getBalancingKind(balancingParams));
+		String fingerprint = (this.pseudoTreeCaching ? PseudoTreeCache.lookup(problem, kind) : null);
+		boolean uncached = false;
+		if (fingerprint == null && balancingParams != null) {
+			fingerprint = this.balancePseudoTree(problem, balancingParams, kind);
+			uncached = (fingerprint != null && ! this.pseudoTreeCaching);
+		}
+		
+		// Try to solve using this pseudo-tree
+		if (fingerprint != null) {
+			Document agentDesc = this.agentDesc;
+			this.agentDesc = (Document) agentDesc.clone();
+			boolean cached = PseudoTreeCache.setCachedDFS(this.agentDesc, fingerprint);
+			try {
+				if (cached)
+					return this.solveComponents(problem, cleanAfterwards, timeout);
+			} finally {
+				this.agentDesc = agentDesc;
+				if (cached)
+					PseudoTreeCache.release(fingerprint);
+				if (uncached) // unpin the balanced pseudo-tree, which was not recorded in the cache
+					PseudoTreeCache.release(fingerprint);
+			}
+		}
+		
+		// Only DFS trees computed by the agents are recorded under the plain fingerprint
+		if (! this.pseudoTreeCaching || balancingParams != null) 
+			return this.solveWithOptimizedDFS(problem, cleanAfterwards, timeout);
+		
+		// Compute the pseudo-tree and record it
+		Solution<V, U> sol = this.solveWithOptimizedDFS(problem, false, timeout);
+		if (sol != null) {
+			Long dfsTime = (sol.getTimesNeeded() == null ? null : sol.getTimesNeeded().get(DFSgeneration.class.getName()));
+			PseudoTreeCache.record(problem, this.getDFS(), sol.getMsgNbrs(), 
+					(dfsTime == null || dfsTime < this.timeOrigin ? 0 : (dfsTime - this.timeOrigin) / 1000000));
+		}
+		if (cleanAfterwards) 
+			this.clear();
+		return sol;
+	}
+	
+	/** @return the parameters of the first module in the agent description that requires a balanced pseudo-tree, or \c null if there is none */
+	private Element getBalancingParams () {
+		
+		for (Element elmt : this.agentDesc.getRootElement().getDescendants(Filters.element())) 
+			if (Boolean.parseBoolean(elmt.getAttributeValue("balanced"))) 
+				return elmt;
+		return null;
+	}
+	
+	/** @return the maximum increase in separator size allowed when balancing the pseudo-tree
+	 * @param params 	the parameters of the DFS module, with the optional attribute \c maxSepIncrease
+	 */
+	private static int getMaxSepIncrease (Element params) {
+		String maxSepIncrease = params.getAttributeValue("maxSepIncrease");
+		return (maxSepIncrease == null ? 1 : Integer.parseInt(maxSepIncrease));
+	}
+	
+	/** @return the time limit (in ms) for balancing the pseudo-tree
+	 * @param params 	the parameters of the DFS module, with the optional attribute \c balancingTime
+	 */
+	private static long getBalancingTime (Element params) {
+		String balancingTime = params.getAttributeValue("balancingTime");
+		return (balancingTime == null ? 100 : Long.parseLong(balancingTime));
+	}
+	
+	/** @return the kind under which balanced pseudo-trees computed with the input parameters are recorded in the PseudoTreeCache
+	 * @param params 	the parameters of the DFS module, with the optional attributes \c maxSepIncrease and \c balancingTime
+	 */
+	private static String getBalancingKind (Element params) {
+		return "balanced/maxSepIncrease=" + getMaxSepIncrease(params) + "/balancingTime=" + getBalancingTime(params);
+	}
+	
+	/** Computes offline a pseudo-tree of small depth, and makes it available to setCachedDFS()
+	 * 
+	 * If pseudo-tree caching is enabled, the pseudo-tree is recorded in the PseudoTreeCache under the input kind; 
+	 * otherwise, it is only pinned, and must be released once the solve is over. 
+	 * @param problem 	the problem
+	 * @param params 	the parameters of the DFS module, with the optional attributes \c maxSepIncrease and \c balancingTime
+	 * @param kind 		the kind of pseudo-tree
+	 * @return the key of the pseudo-tree in the PseudoTreeCache, or \c null if the pseudo-tree could not be recorded
+	 * @see PseudoTreeOptimizer#balance(long, int)
+	 */
+	private String balancePseudoTree (DCOPProblemInterface<V, U> problem, Element params, String kind) {
+		
+		long start = System.currentTimeMillis();
+		Map< String, ? extends Collection<String> > neighborhoods = problem.getNeighborhoods();
+		PseudoTreeOptimizer optimizer = new PseudoTreeOptimizer (neighborhoods);
+		List<String> order = optimizer.balance(getBalancingTime(params), getMaxSepIncrease(params));
+		HashMap< String, DFSview<V, U> > dfs = PseudoTreeOptimizer.getPseudoTree(neighborhoods, order, problem.getOwners());
+		
+		if (this.pseudoTreeCaching) 
+			return PseudoTreeCache.record(problem, kind, dfs, null, System.currentTimeMillis() - start);
+		else 
+			return PseudoTreeCache.pinUncached(problem, dfs, System.currentTimeMillis() - start);
+	}
+	
+	/** Solves the problem, optimizing the DFS pseudo-tree offline if required
+	 * @param problem 			the problem
+	 * @param cleanAfterwards 	if \c true, cleans all the agents and the queue when they're done
+	 * @param timeout 			timeout in ms, if \c null, no timeout is used
+	 * @return 					an optimal solution
+	 */
+	private Solution<V, U> solveWithOptimizedDFS (DCOPProblemInterface<V, U> problem, boolean cleanAfterwards, final Long timeout) {
+		
+		if (this.pseudoTreeTimeLimit == null) 
+			return this.solveComponents(problem, cleanAfterwards, timeout);
+		
+		// Solve using a copy of the agent description that follows the optimized elimination order
+		PseudoTreeOptimizer optimizer = new PseudoTreeOptimizer (problem.getNeighborhoods());
+		Document agentDesc = this.agentDesc;
+		this.agentDesc = (Document) agentDesc.clone();
+		PseudoTreeOptimizer.setOrder(this.agentDesc, optimizer.optimize(this.pseudoTreeTimeLimit));
+		try {
+			return this.solveComponents(problem, cleanAfterwards, timeout);
+		} finally {
+			this.agentDesc = agentDesc;
+		}
+	}
+	
+	/** Solves the problem, solving its independent components in parallel if required
+	 * @param problem 			the problem
+	 * @param cleanAfterwards 	if \c true, cleans all the agents and the queue when they're done
+	 * @param timeout 			timeout in ms, if \c null, no timeout is used
+	 * @return 					an optimal solution
+	 */
+	private Solution<V, U> solveComponents (DCOPProblemInterface<V, U> problem, boolean cleanAfterwards, final Long timeout) {
+		
+		// Forget about the components of the previous solve, if any
+		this.clearComponents();
+		
+		if (! this.parallelComponents || this.useTCP) 
+			return super.solve(problem, cleanAfterwards, timeout);
+		
+		List< Problem<V, U> > components = this.splitComponents(problem);
+		if (components.size() <= 1) 
+			return super.solve(problem, cleanAfterwards, timeout);
+		
+		// The agents of the previous solve, if still alive, cannot be restarted on the components
+		if (this.factory != null) 
+			this.clear();
+		this.utilModule = null;
+		this.valueModule = null;
+		this.dfsModule = null;
+		
+		this.problem = problem;
+		this.timedOut = false;
+		this.outOfMem = false;
+		this.componentsDFS = new HashMap< String, DFSview<V, U> > ();
+		this.componentSolvers = new ArrayList< DPOPsolver<V, U> > (components.size());
+		
+		// Solve each component with its own solver
+		final int nbrThreads = Math.min(components.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(nbrThreads);
+		ArrayList< Future< Solution<V, U> > > futures = new ArrayList< Future< Solution<V, U> > > (components.size());
+		final ArrayList< DPOPsolver<V, U> > solvers = this.componentSolvers;
+		for (final Problem<V, U> component : components) {
+			final DPOPsolver<V, U> solver = this.newComponentSolver((Document) this.agentDesc.clone());
+			for (AssignmentListener<V> listener : this.assignmentListeners) 
+				solver.addAssignmentListener(listener);
+			solvers.add(solver);
+			futures.add(executor.submit(new Callable< Solution<V, U> > () {
+				public Solution<V, U> call() {
+					return solver.solve(component, false, timeout);
+				}
+			}));
+		}
+		
+		// Collect the solutions
+		ArrayList< Solution<V, U> > solutions = new ArrayList< Solution<V, U> > (components.size());
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				DPOPsolver<V, U> solver = solvers.get(i);
+				Solution<V, U> sol = futures.get(i).get();
+				this.timedOut |= solver.timedOut();
+				this.outOfMem |= solver.outOfMem();
+				if (sol != null) 
+					solutions.add(sol);
+				if (solver.dfsModule != null) 
+					this.componentsDFS.putAll(solver.getDFS());
+			}
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			return null;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof OutOfMemoryError) 
+				throw (OutOfMemoryError) e.getCause();
+			e.printStackTrace();
+			return null;
+		} finally {
+			executor.shutdownNow();
+			if (cleanAfterwards) 
+				this.clearComponents();
+		}
+		
+		if (this.timedOut || this.outOfMem) 
+			return null;
+		
+		return this.mergeSolutions(solutions);
+	}
+	
+	/** Cleans the component solvers of the previous solve and forgets their DFS */
+	private void clearComponents () {
+		
+		if (this.componentSolvers != null) 
+			for (DPOPsolver<V, U> solver : this.componentSolvers) 
+				if (solver.factory != null) 
+					solver.clear();
+		this.componentSolvers = null;
+		this.componentsDFS = null;
+	}
+	
+	/** Creates the solver used to solve one independent component of the problem
+	 * @param agentDesc 	a copy of the agent description
+	 * @return a new solver, whose solution gatherers match the modules in \a agentDesc
+	 */
+	protected DPOPsolver<V, U> newComponentSolver (Document agentDesc) {
+		return new DPOPsolver<V, U> (agentDesc, this.parserClass);
+	}
+	
+	/** Splits the input problem into the connected components of its constraint graph
+	 * 
+	 * The components are computed from the neighborhoods of the variables; 
+	 * components that share a variable with no specified owner are merged. 
+	 * @param problem 	the problem
+	 * @return one subproblem per independent component
+	 */
+	@SuppressWarnings("unchecked")
+	protected List< Problem<V, U> > splitComponents (DCOPProblemInterface<V, U> problem) {
+		
+		// Group the variables into connected components, traversing the constraint graph breadth-first
+		Map< String, ? extends Collection<String> > neighborhoods = problem.getNeighborhoods();
+		HashMap<String, Integer> compOf = new HashMap<String, Integer> ();
+		int nbrComps = 0;
+		LinkedList<String> open = new LinkedList<String> ();
+		for (String root : neighborhoods.keySet()) {
+			if (compOf.containsKey(root)) 
+				continue;
+			
+			compOf.put(root, nbrComps);
+			open.add(root);
+			while (! open.isEmpty()) {
+				Collection<String> neighbors = neighborhoods.get(open.poll());
+				if (neighbors != null) 
+					for (String neigh : neighbors) 
+						if (compOf.put(neigh, nbrComps) == null) 
+							open.add(neigh);
+			}
+			nbrComps++;
+		}
+		if (nbrComps <= 1) 
+			return new ArrayList< Problem<V, U> > ();
+		
+		// Assign each space to a component, merging components that are linked through variables with no specified owner
+		int[] merged = new int [nbrComps];
+		for (int i = 0; i < nbrComps; i++) 
+			merged[i] = i;
+		List< ? extends UtilitySolutionSpace<V, U> > spaces = problem.getSolutionSpaces(true);
+		int[] spaceComps = new int [spaces.size()];
+		for (int i = 0; i < spaceComps.length; i++) {
+			String[] vars = spaces.get(i).getVariables();
+			int comp = -1;
+			for (String var : vars) {
+				Integer varComp = compOf.get(var);
+				if (varComp == null) 
+					continue;
+				int root = find(merged, varComp);
+				if (comp < 0) 
+					comp = root;
+				else if (root != comp) 
+					merged[root] = comp;
+			}
+			if (comp < 0) // the space only involves variables with no specified owner that have not been seen yet
+				comp = 0;
+			for (String var : vars) 
+				if (! compOf.containsKey(var)) 
+					compOf.put(var, comp);
+			spaceComps[i] = comp;
+		}
+		
+		// Build the subproblems
+		HashMap< Integer, Problem<V, U> > subProbs = new HashMap< Integer, Problem<V, U> > ();
+		Class<U> utilClass = (Class<U>) problem.getZeroUtility().getClass();
+		for (Map.Entry<String, Integer> entry : compOf.entrySet()) {
+			Integer comp = find(merged, entry.getValue());
+			Problem<V, U> subProb = subProbs.get(comp);
+			if (subProb == null) {
+				subProb = new Problem<V, U> (problem.maximize());
+				subProb.setDomClass(problem.getDomClass());
+				subProb.setUtilClass(utilClass);
+				subProbs.put(comp, subProb);
+			}
+			String var = entry.getKey();
+			subProb.addVariable(var, problem.getOwner(var), problem.getDomain(var));
+		}
+		for (int i = 0; i < spaceComps.length; i++) {
+			Problem<V, U> subProb = subProbs.get(find(merged, spaceComps[i]));
+			UtilitySolutionSpace<V, U> clone = spaces.get(i).clone();
+			clone.setProblem(subProb);
+			subProb.addSolutionSpace(clone);
+		}
+		
+		return new ArrayList< Problem<V, U> > (subProbs.values());
+	}
+	
+	/** Looks up the component a given component has been merged into
+	 * @param merged 	for each component, the component it has been merged into
+	 * @param comp 		the component
+	 * @return the representative of \a comp
+	 */
+	private static int find (int[] merged, int comp) {
+		while (merged[comp] != comp) 
+			comp = merged[comp] = merged[merged[comp]];
+		return comp;
+	}
+	
+	/** Merges the solutions to the independent components into a solution to the overall problem
+	 * 
+	 * Utilities, message counts and message sizes are summed. Since the components are solved concurrently, 
+	 * the runtime, the NCCC count and the module end times are the maxima over all components. 
+	 * @param solutions 	the solutions to the components
+	 * @return the solution to the overall problem
+	 */
+	protected Solution<V, U> mergeSolutions (List< Solution<V, U> > solutions) {
+		
+		U optUtil = super.problem.getZeroUtility();
+		HashMap<String, V> assignments = new HashMap<String, V> ();
+		int nbrMsgs = 0;
+		TreeMap<String, Integer> msgNbrs = null;
+		long totalMsgSize = 0;
+		TreeMap<String, Long> msgSizes = null;
+		long maxMsgSize = 0;
+		TreeMap<String, Long> maxMsgSizes = null;
+		long ncccs = 0;
+		long totalTime = 0;
+		long startupTime = -1;
+		HashMap<String, Long> timesNeeded = new HashMap<String, Long> ();
+		int maxMsgDim = 0;
+		long firstAssignmentTime = Long.MAX_VALUE;
+		long lastAssignmentTime = -1;
+		U errorBound = null;
+		
+		for (Solution<V, U> sol : solutions) {
+			optUtil = optUtil.add(sol.getReportedUtil());
+			assignments.putAll(sol.getAssignments());
+			nbrMsgs += sol.getNbrMsgs();
+			totalMsgSize += sol.getTotalMsgSize();
+			maxMsgSize = Math.max(maxMsgSize, sol.getMaxMsgSize());
+			ncccs = Math.max(ncccs, sol.getNcccCount());
+			totalTime = Math.max(totalTime, sol.getTimeNeeded());
+			startupTime = Math.max(startupTime, sol.getStartupTime());
+			maxMsgDim = Math.max(maxMsgDim, sol.getTreeWidth());
+			if (sol.getLastAssignmentTime() >= 0) {
+				firstAssignmentTime = Math.min(firstAssignmentTime, sol.getFirstAssignmentTime());
+				lastAssignmentTime = Math.max(lastAssignmentTime, sol.getLastAssignmentTime());
+			}
+			if (sol.getErrorBound() != null) 
+				errorBound = (errorBound == null ? sol.getErrorBound() : errorBound.add(sol.getErrorBound()));
+			
+			if (sol.getMsgNbrs() != null) {
+				if (msgNbrs == null) 
+					msgNbrs = new TreeMap<String, Integer> ();
+				for (Map.Entry<String, Integer> entry : sol.getMsgNbrs().entrySet()) {
+					Integer nbr = msgNbrs.get(entry.getKey());
+					msgNbrs.put(entry.getKey(), nbr == null ? entry.getValue() : nbr + entry.getValue());
+				}
+			}
+			if (sol.getMsgSizes() != null) {
+				if (msgSizes == null) 
+					msgSizes = new TreeMap<String, Long> ();
+				for (Map.Entry<String, Long> entry : sol.getMsgSizes().entrySet()) {
+					Long size = msgSizes.get(entry.getKey());
+					msgSizes.put(entry.getKey(), size == null ? entry.getValue() : size + entry.getValue());
+				}
+			}
+			if (sol.getMaxMsgSizes() != null) {
+				if (maxMsgSizes == null) 
+					maxMsgSizes = new TreeMap<String, Long> ();
+				for (Map.Entry<String, Long> entry : sol.getMaxMsgSizes().entrySet()) {
+					Long size = maxMsgSizes.get(entry.getKey());
+					maxMsgSizes.put(entry.getKey(), size == null ? entry.getValue() : Math.max(size, entry.getValue()));
+				}
+			}
+			if (sol.getTimesNeeded() != null) {
+				for (Map.Entry<String, Long> entry : sol.getTimesNeeded().entrySet()) {
+					Long time = timesNeeded.get(entry.getKey());
+					timesNeeded.put(entry.getKey(), time == null ? entry.getValue() : Math.max(time, entry.getValue()));
+				}
+			}
+		}
+		
+		Solution<V, U> merged = new Solution<V, U> (problem.getNbrVars(), optUtil, super.problem.getUtility(assignments, true).getUtility(0), assignments, nbrMsgs, msgNbrs, 
+				totalMsgSize, msgSizes, maxMsgSize, maxMsgSizes, ncccs, totalTime, timesNeeded, maxMsgDim, problem.getNumberOfCoordinationConstraints());
+		if (lastAssignmentTime >= 0) 
+			merged.setAssignmentTimes(firstAssignmentTime, lastAssignmentTime);
+		merged.setErrorBound(errorBound);
+		merged.setStartupTime(startupTime);
+		return merged;
 	}
 	
 	/** @see AbstractDCOPsolver#clear() */
 	@Override
 	public void clear () {
-		super.clear();
+		if (this.factory != null) 
+			super.clear();
+		this.clearComponents();
 		this.utilModule = null;
 		this.valueModule = null;
 		this.dfsModule = null;
 	}
 	
-	/** @return the DFS used by the previous call to solve() */
+	/** @return the DFS used by the previous call to solve(), or \c null if the solver has been cleaned since */
 	public HashMap< String, DFSview<V, U> > getDFS () {
-		return this.dfsModule.getDFS();
+		if (this.dfsModule != null) 
+			return this.dfsModule.getDFS();
+		return this.componentsDFS;
 	}
 	
 }
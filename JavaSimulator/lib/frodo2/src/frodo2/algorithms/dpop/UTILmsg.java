@@ -109,6 +109,16 @@ extends Message implements Externalizable {
 		return space;
 	}
 	
+	/** @return the separator of the sender variable, which is the set of variables in the space unless some have been projected out */
+	public String[] getSeparator () {
+		return this.space.getVariables();
+	}
+	
+	/** @return an upper bound on the utility lost in the sender's subtree because of approximations, or \c null if the space is exact */
+	public U getErrorBound () {
+		return null;
+	}
+	
 	/** @see Message#toString() */
 	@Override
 	public String toString () {
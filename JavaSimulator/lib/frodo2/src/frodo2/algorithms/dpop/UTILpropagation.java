@@ -22,10 +22,14 @@ How to contact the authors:
 
 package frodo2.algorithms.dpop;
 
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 
@@ -46,6 +50,7 @@ import frodo2.solutionSpaces.BasicUtilitySolutionSpace;
 import frodo2.solutionSpaces.DCOPProblemInterface;
 import frodo2.solutionSpaces.UtilitySolutionSpace;
 import frodo2.solutionSpaces.UtilitySolutionSpace.ProjOutput;
+import frodo2.solutionSpaces.hypercube.Hypercube;
 import frodo2.solutionSpaces.hypercube.ScalarBasicHypercube;
 import frodo2.solutionSpaces.hypercube.ScalarHypercube;
 
@@ -88,6 +93,9 @@ implements StatsReporter {
 	/** The type of the messages containing optimal utility values sent by roots */
 	public static final String OPT_UTIL_MSG_TYPE = "OptUtilMessage";
 	
+	/** The type of the messages containing error bounds sent by roots whose DFS trees have been solved approximately */
+	public static final String ERROR_BOUND_MSG_TYPE = "UTILerrorBound";
+	
 	/** The type of messages sent to the statistics monitor */
 	public static final String UTIL_STATS_MSG_TYPE = "UTILstatsMessage";
 
@@ -127,12 +135,19 @@ implements StatsReporter {
 	/** Whether to minimize the NCCC count, at the expense of an increase in runtime */
 	private final boolean minNCCCs;
 	
+	/** The maximum number of variables in a UTIL message, above which separator variables other than the parent are projected out */
+	private final int maxDim;
+	
+	/** The sum of the error bounds reported by the roots (in stats gatherer mode), or \c null if all UTIL messages were exact */
+	private U errorBound;
+	
 	/** Constructor
 	 * @param problem 	the problem description
 	 */
 	public UTILpropagation (DCOPProblemInterface<Val, U> problem) {
 		this.problem = problem;
 		this.minNCCCs = false;
+		this.maxDim = Integer.MAX_VALUE;
 	}
 	
 	/** Constructor from XML descriptions
@@ -148,6 +163,13 @@ implements StatsReporter {
 			this.minNCCCs = Boolean.parseBoolean(minNCCCs);
 		else 
 			this.minNCCCs = false;
+		
+		// Parse the maximum UTIL message dimension, if any
+		String maxDim = parameters.getAttributeValue("maxDim");
+		if (maxDim != null) 
+			this.maxDim = Integer.parseInt(maxDim);
+		else 
+			this.maxDim = Integer.MAX_VALUE;
 	}
 	
 	/** Parses the problem */
@@ -165,6 +187,7 @@ implements StatsReporter {
 		this.myID = null;
 		this.started = false;
 		this.maxMsgDim = 0;
+		this.errorBound = null;
 	}
 
 	/** The constructor called in "statistics gatherer" mode
@@ -173,6 +196,7 @@ implements StatsReporter {
 	 */
 	public UTILpropagation (Element parameters, DCOPProblemInterface<Val, U> problem) {
 		this.minNCCCs = false;
+		this.maxDim = Integer.MAX_VALUE;
 		this.problem = problem;
 		this.maximize = problem.maximize();
 	}
@@ -294,6 +318,33 @@ implements StatsReporter {
 		}
 	}
 	
+	/** Message sent by roots containing an upper bound on the utility lost in their DFS tree because of approximated UTIL messages 
+	 * @param <U> the type used for utility values
+	 */
+	public static class ErrorBoundMessage < U extends Addable<U> > extends MessageWith2Payloads <U, String> {
+
+		/** Empty constructor used for externalization */
+		public ErrorBoundMessage () { }
+
+		/** Constructor
+		 * @param bound 	the error bound
+		 * @param rootVar 	the name of the root variable reporting the error bound
+		 */
+		public ErrorBoundMessage(U bound, String rootVar) {
+			super(ERROR_BOUND_MSG_TYPE, bound, rootVar);
+		}
+		
+		/** @return the error bound */
+		public U getErrorBound () {
+			return this.getPayload1();
+		}
+		
+		/** @return the name of the root variable reporting the error bound */
+		public String getRoot() {
+			return this.getPayload2();
+		}
+	}
+	
 	/** Message containing statistics */
 	public static class StatsMessage extends MessageWithPayload<Integer> {
 
@@ -357,6 +408,18 @@ implements StatsReporter {
 			return;
 		}
 		
+		else if (type.equals(ERROR_BOUND_MSG_TYPE)) { // we are in stats gatherer mode
+			
+			ErrorBoundMessage<U> msgCast = (ErrorBoundMessage<U>) msg;
+			if (!silent) 
+				System.out.println("Error bound for component rooted at `" + msgCast.getRoot() + "\': " + msgCast.getErrorBound());
+			
+			U bound = this.problem.getZeroUtility().fromString(msgCast.getErrorBound().toString());
+			this.errorBound = (this.errorBound == null ? bound : this.errorBound.add(bound));
+			
+			return;
+		}
+		
 		else if (type.equals(UTIL_STATS_MSG_TYPE)) { // we are in stats gatherer mode 
 			
 			this.maxMsgDim = Math.max(this.maxMsgDim, ((StatsMessage) msg).getMsgDim());
@@ -394,6 +457,9 @@ implements StatsReporter {
 				if (info2 != null && ! vars[i].equals(clusterID)) {
 					info.spaces.addAll(info2.spaces);
 					info.nbrUTIL += info2.nbrUTIL;
+					info.addErrorBound(info2.errorBound);
+					if (info2.separator != null) 
+						info.addToSeparator(info2.separator.toArray(new String [info2.separator.size()]));
 				}
 				this.infos.put(vars[i], info);
 			}
@@ -434,24 +500,27 @@ implements StatsReporter {
 			String dest = msgCast.getDestination();
 
 			// Send the sender variable's separator to the VALUE propagation protocol
-			this.sendSeparator (sender, senderAgent, dest, space.getVariables());
+			String[] separator = msgCast.getSeparator();
+			this.sendSeparator (sender, senderAgent, dest, separator);
 
 			// Obtain the info on the destination variable
 			ClusterInfo info = infos.get(dest);
 			if (info == null) { // first message ever received concerning this variable
 				info = this.newClusterInfo();
 				infos.put(dest, info);
-				this.record(sender, space, info);
-				info.nbrUTIL += 1;
-				
-				// We cannot do any more until we receive the info about this variable's parent and children
-				return;
+			}
+			
+			// Record the error bound, and the separator variables that might have been projected out of the space
+			U bound = msgCast.getErrorBound();
+			if (bound != null) {
+				info.addErrorBound(bound);
+				info.addToSeparator(separator);
 			}
 			
 			// Record the space
 			this.record(sender, space, info);
 
-			// Check if I have already received all UTIL messages from all children
+			// Check if I have already received all UTIL messages from all children (and the info about this variable's parent and children)
 			if (++info.nbrUTIL >= info.nbrChildren && info.vars != null) 
 				projectAndSend(info);
 		}
@@ -483,6 +552,7 @@ implements StatsReporter {
 		ArrayList <String> msgTypes = new ArrayList <String> (2);
 		msgTypes.add(OPT_UTIL_MSG_TYPE);
 		msgTypes.add(UTIL_STATS_MSG_TYPE);
+		msgTypes.add(ERROR_BOUND_MSG_TYPE);
 		queue.addIncomingMessagePolicy(msgTypes, this);
 	}
 
@@ -491,6 +561,11 @@ implements StatsReporter {
 		this.silent  = silent;
 	}
 	
+	/** @return the sum of the error bounds reported by the roots, or \c null if all UTIL messages were exact (in stats gatherer mode only) */
+	public U getErrorBound () {
+		return this.errorBound;
+	}
+	
 	/** @return the maximum number of variables in a UTIL message (in stats gatherer mode only) */
 	public Integer getMaxMsgDim () {
 		return this.maxMsgDim;
@@ -520,9 +595,32 @@ implements StatsReporter {
 		/** A list of spaces received for this cluster so far */
 		public LinkedList< UtilitySolutionSpace<Val, U> > spaces = new LinkedList< UtilitySolutionSpace<Val, U> > ();
 		
+		/** The sum of the error bounds received from children whose UTIL messages were approximated, or \c null if they were all exact */
+		public U errorBound = null;
+		
+		/** The separator variables of the children whose UTIL messages were approximated, or \c null if they were all exact */
+		public HashSet<String> separator = null;
+		
 		/** Constructor */
 		public ClusterInfo () { }
 		
+		/** Adds an error bound to the cluster's error bound
+		 * @param bound 	the error bound; \c null is interpreted as exact
+		 */
+		public void addErrorBound (U bound) {
+			if (bound != null) 
+				this.errorBound = (this.errorBound == null ? bound : this.errorBound.add(bound));
+		}
+		
+		/** Adds variables to the separator that must be reported in the cluster's UTIL message
+		 * @param vars 	the variables
+		 */
+		public void addToSeparator (String[] vars) {
+			if (this.separator == null) 
+				this.separator = new HashSet<String> ();
+			this.separator.addAll(Arrays.asList(vars));
+		}
+		
 		/** @see java.lang.Object#toString() */
 		public String toString () {
 			
@@ -535,6 +633,10 @@ implements StatsReporter {
 			builder.append("\n\t nbrChildren: " + this.nbrChildren);
 			builder.append("\n\t nbrUTIL: " + this.nbrUTIL);
 			builder.append("\n\t spaces: " + this.spaces);
+			if (this.errorBound != null) {
+				builder.append("\n\t errorBound: " + this.errorBound);
+				builder.append("\n\t separator: " + this.separator);
+			}
 			
 			return builder.toString();
 		}
@@ -597,6 +699,22 @@ implements StatsReporter {
 		info.spaces = null;
 		others = null;
 		
+		// Variables whose constraints have all been projected out of approximate UTIL messages no longer appear in the join
+		if (info.errorBound != null) {
+			for (String var : info.vars) {
+				if (join.getDomain(var) == null) {
+					Val[] dom = problem.getDomain(var);
+					Val[][] doms = (Val[][]) Array.newInstance(dom.getClass(), 1);
+					doms[0] = dom;
+					U zeroUtil = problem.getZeroUtility();
+					U[] utils = (U[]) Array.newInstance(zeroUtil.getClass(), dom.length);
+					Arrays.fill(utils, zeroUtil);
+					U infeasibleUtil = (this.maximize ? problem.getMinInfUtility() : problem.getPlusInfUtility());
+					join = join.join(new Hypercube<Val, U> (new String[] { var }, doms, utils, infeasibleUtil));
+				}
+			}
+		}
+		
 		// Project out the variable
 		ProjOutput<Val, U> projOutput = this.project(join, info.vars);
 
@@ -604,10 +722,18 @@ implements StatsReporter {
 		join = null;
 		
 		// Send resulting space to parent (if any)
+		UtilitySolutionSpace<Val, U> space = projOutput.getSpace();
 		if (info.parentAgent != null) {
-			this.sendToParent (info.id, info.parent, info.parentAgent, projOutput.getSpace());
-		} else  // the variable is a root
-			this.sendOutput (projOutput.getSpace(), info.id);
+			if (info.errorBound == null && space.getNumberOfVariables() <= this.maxDim) 
+				this.sendToParent (info.id, info.parent, info.parentAgent, space);
+			else 
+				this.sendApproxToParent (info, space);
+			
+		} else { // the variable is a root
+			this.sendOutput (space, info.id);
+			if (info.errorBound != null) 
+				queue.sendMessage(AgentInterface.STATS_MONITOR, new ErrorBoundMessage<U> (info.errorBound, info.id));
+		}
 		
 		// Send optimal assignments to the VALUE propagation protocol
 		queue.sendMessageToSelf(new SolutionMessage<Val> (info.id, projOutput.varsOut, projOutput.getAssignments()));
@@ -636,6 +762,66 @@ implements StatsReporter {
 		infos.remove(var);
 	}
 
+	/** Sends an approximate UTIL message, projecting out separator variables (except the parent) if the space has more than \a maxDim variables
+	 * 
+	 * The extra variables are projected out optimistically (i.e. using max when maximizing), and the largest difference 
+	 * with the pessimistic projection is added to the error bound. The message still lists the full separator, 
+	 * so that the VALUE phase provides the sender with the values of all the variables its assignments are conditioned on. 
+	 * @param info 		information about the sender cluster
+	 * @param space 	the exact space
+	 */
+	protected void sendApproxToParent (ClusterInfo info, UtilitySolutionSpace<Val, U> space) {
+		
+		// The separator also includes the variables projected out by the descendants
+		HashSet<String> sep = new HashSet<String> (Arrays.asList(space.getVariables()));
+		if (info.separator != null) 
+			sep.addAll(info.separator);
+		sep.removeAll(Arrays.asList(info.vars));
+		String[] separator = sep.toArray(new String [sep.size()]);
+		
+		U bound = (info.errorBound == null ? this.problem.getZeroUtility() : info.errorBound);
+		
+		// The parent variable is never projected out, otherwise it might no longer appear in the join computed by the parent
+		final int nbrOut = Math.min(space.getNumberOfVariables() - this.maxDim, space.getNumberOfVariables() - 1);
+		if (nbrOut > 0) {
+			
+			// Drop the variables with the largest domains first
+			String[] vars = space.getVariables();
+			ArrayList<String> candidates = new ArrayList<String> (vars.length);
+			for (String var : vars) 
+				if (! var.equals(info.parent)) 
+					candidates.add(var);
+			final UtilitySolutionSpace<Val, U> space2 = space;
+			Collections.sort(candidates, new Comparator<String> () {
+				public int compare(String var1, String var2) {
+					return space2.getDomain(var2).length - space2.getDomain(var1).length;
+				}
+			});
+			String[] varsOut = candidates.subList(0, nbrOut).toArray(new String [nbrOut]);
+			
+			// Compute the optimistic and pessimistic projections, and the largest difference between the two
+			UtilitySolutionSpace<Val, U> optimistic = space.blindProject(varsOut, this.maximize).resolve();
+			UtilitySolutionSpace<Val, U> pessimistic = space.blindProject(varsOut, ! this.maximize).resolve();
+			U localBound = this.problem.getZeroUtility();
+			for (long i = optimistic.getNumberOfSolutions() - 1; i >= 0; i--) {
+				U opt = optimistic.getUtility(i);
+				U pess = pessimistic.getUtility(i);
+				if (! opt.equals(pess)) {
+					U diff = opt.subtract(pess).abs();
+					if (diff.compareTo(localBound) > 0) 
+						localBound = diff;
+				}
+			}
+			bound = bound.add(localBound);
+			space = optimistic;
+		}
+		
+		queue.sendMessage(info.parentAgent, new ApproxUTILmsg<Val, U> (info.id, this.myID, info.parent, space, separator, bound));
+		if (! info.parentAgent.equals(this.myID)) 
+			queue.sendMessage(AgentInterface.STATS_MONITOR, new StatsMessage (space.getNumberOfVariables()));
+		infos.remove(info.id);
+	}
+
 	/** Sends the output optimal utility to itself (i.e. the VALUEpropagation listener) and to the statistics monitor
 	 * @param space 	the final frontier
 	 * @param root 		the root of the DFS
@@ -39,6 +39,7 @@ import java.util.Map;
 import org.jdom2.Element;
 
 import frodo2.algorithms.AgentInterface;
+import frodo2.algorithms.AssignmentListener;
 import frodo2.algorithms.StatsReporter;
 import frodo2.algorithms.dpop.UTILpropagation.SolutionMessage;
 import frodo2.algorithms.varOrdering.dfs.DFSgeneration;
@@ -121,6 +122,18 @@ implements StatsReporter {
 	/** The time when the last stat message has been received */
 	private long finalTime;
 	
+	/** The time (in ms) when the first assignment has been reported, or -1 */
+	private long firstAssignmentTime = -1;
+	
+	/** The time (in ms) when the last assignment has been reported, or -1 */
+	private long lastAssignmentTime = -1;
+	
+	/** The wall clock time (in nanoseconds) at which the algorithm started, or 0 when using simulated time */
+	private long timeOrigin = 0;
+	
+	/** In stats gatherer mode, the listeners notified of each new assignment */
+	private ArrayList< AssignmentListener<Val> > listeners = new ArrayList< AssignmentListener<Val> > ();
+	
 	/** the sum of the time stamps of all stats messages that have been received */
 	private long cumulativeTime;
 
@@ -254,14 +267,25 @@ implements StatsReporter {
 			AssignmentsMessage<Val> msgCast = (AssignmentsMessage<Val>) msg;
 			String[] vars = msgCast.getVariables();
 			ArrayList<Val> vals = msgCast.getValues();
+			Long time = queue.getCurrentMessageWrapper().getTime();
+			
+			// Messages are only time-stamped when using simulated time
+			long elapsed = (this.timeOrigin == 0 ? time : System.nanoTime() - this.timeOrigin) / 1000000;
+			if (this.firstAssignmentTime < 0) 
+				this.firstAssignmentTime = elapsed;
+			this.lastAssignmentTime = Math.max(this.lastAssignmentTime, elapsed);
+			
 			for (int i = 0; i < vars.length; i++) {
 				String var = vars[i];
 				Val val = vals.get(i);
-				if (val != null && solution.put(var, val) == null && !silent) 
-					System.out.println("var `" + var + "' = " + val);
+				if (val != null && solution.put(var, val) == null) {
+					if (!silent) 
+						System.out.println("var `" + var + "' = " + val);
+					for (AssignmentListener<Val> listener : this.listeners) 
+						listener.assignmentFound(var, val, elapsed);
+				}
 			}
 			
-			Long time = queue.getCurrentMessageWrapper().getTime();
 			cumulativeTime += time;
 			
 			if(finalTime < time)
@@ -446,6 +470,20 @@ implements StatsReporter {
 		this.silent  = silent;
 	}
 	
+	/** Registers a listener to be notified of each assignment as soon as it is reported, in stats gatherer mode
+	 * @param listener 	the listener
+	 */
+	public void addAssignmentListener (AssignmentListener<Val> listener) {
+		this.listeners.add(listener);
+	}
+	
+	/** Sets the time at which the algorithm started
+	 * @param timeOrigin 	the wall clock time (in nanoseconds) at which the algorithm started, or 0 when using simulated time
+	 */
+	public void setTimeOrigin (long timeOrigin) {
+		this.timeOrigin = timeOrigin;
+	}
+	
 	/** Instantiates a VALUE message and sends it
 	 * @param child 		destination variable of the message
 	 * @param separator 	variables to be mentioned in the message
@@ -541,6 +579,16 @@ implements StatsReporter {
 		return finalTime;
 	}
 	
+	/** @return the time (in ms) at which the first assignment has been reported, or -1 if none has been reported */
+	public long getFirstAssignmentTime() {
+		return this.firstAssignmentTime;
+	}
+	
+	/** @return the time (in ms) at which the last assignment has been reported, or -1 if none has been reported */
+	public long getLastAssignmentTime() {
+		return this.lastAssignmentTime;
+	}
+	
 	/**
 	 * @author Brammert Ottens, 7 feb. 2011
 	 * @return the cumulative time used by all agents to reach the final state
@@ -0,0 +1,654 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors:
+<http://frodo2.sourceforge.net/>
+*/
+
+package frodo2.algorithms.dpop.count;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+
+/** A centralized engine that counts the optimal solutions to a DCOP, and that can also enumerate its k best distinct solutions
+ *
+ * Unlike CountSolutionsUTIL and CountSolutionsVALUE, which enumerate all optimal solutions during the VALUE phase,
+ * this engine performs bucket elimination on (optimal cost, number of optimal solutions) pairs. These pairs are stored
+ * in parallel \c long[] arrays, and a cell's count is only promoted to a BigInteger when it overflows a \c long.
+ * Costs are summed with overflow checks, so that an ArithmeticException is thrown rather than a wrong result returned.
+ *
+ * The engine is centralized: it needs all constraints in the same JVM, and is therefore exposed through SolutionCounter,
+ * rather than used by the distributed CountSolutionsUTIL module.
+ *
+ * Utilities are handled internally as costs to be minimized (utilities are negated when maximizing).
+ * Infinite utilities are interpreted as infeasible.
+ * @param <V> type used for variable values
+ * @param <U> type used for utility values
+ * @warning Only supports integer-valued utilities.
+ */
+public class CountingEngine < V extends Addable<V>, U extends Addable<U> > {
+
+	/** The internal cost used to represent infeasible cells */
+	private static final long INFEASIBLE = Long.MAX_VALUE;
+
+	/** The problem */
+	private final DCOPProblemInterface<V, U> problem;
+
+	/** \c true if we want to maximize utility, \c false if we want to minimize cost */
+	private final boolean maximize;
+
+	/** The variables, in the order used internally */
+	private final String[] vars;
+
+	/** For each variable, its domain */
+	private final V[][] doms;
+
+	/** For each variable, its index in \a vars */
+	private final HashMap<String, Integer> indexes;
+
+	/** The order in which variables are eliminated */
+	private int[] elimOrder;
+
+	/** The optimal cost, or \c INFEASIBLE if the problem is infeasible (only valid after count() has been called) */
+	private long optCost;
+
+	/** A table of (cost, count) pairs over the assignments to a set of variables
+	 *
+	 * Cells are laid out in row-major order, the last variable in the scope varying fastest.
+	 */
+	private static class Table {
+
+		/** The indexes of the variables in the scope of this table */
+		final int[] scope;
+
+		/** For each variable in the scope, the index increment corresponding to an increment of its value */
+		final int[] steps;
+
+		/** The number of cells */
+		final int size;
+
+		/** For each cell, its optimal cost */
+		long[] costs;
+
+		/** For each cell, its number of optimal solutions (ignored when the corresponding \a bigCounts cell is not \c null) */
+		long[] counts;
+
+		/** For each cell, its number of optimal solutions if it does not fit in a \c long; \c null if no cell has overflowed */
+		BigInteger[] bigCounts;
+
+		/** In top-k mode, the maximum number of entries per cell */
+		int k = 1;
+
+		/** In top-k mode, the number of entries in each cell */
+		int[] nbrEntries;
+
+		/** In top-k mode, the index of the value of the eliminated variable for each entry */
+		int[] xVals;
+
+		/** In top-k mode, for each entry and each input table, the rank of the input entry it was built from */
+		int[] ranks;
+
+		/** The variable eliminated to produce this table, or -1 if this table is an input constraint or the final root table */
+		int elimVar = -1;
+
+		/** The tables this table was computed from, or \c null if this table is an input constraint */
+		Table[] inputs;
+
+		/** Constructor
+		 * @param scope 	the indexes of the variables in the scope of this table
+		 * @param domSizes 	for each variable, its domain size
+		 */
+		Table (int[] scope, int[] domSizes) {
+			this.scope = scope;
+			this.steps = new int [scope.length];
+			long size = 1;
+			for (int i = scope.length - 1; i >= 0; i--) {
+				this.steps[i] = (int) size;
+				size *= domSizes[scope[i]];
+				assert size <= Integer.MAX_VALUE : "Table too large: " + size + " cells";
+			}
+			this.size = (int) size;
+		}
+
+		/** @param assignment 	for each variable, the index of its value
+		 * @return the index of the cell corresponding to the input assignment
+		 */
+		int index (int[] assignment) {
+			int index = 0;
+			for (int i = 0; i < scope.length; i++)
+				index += steps[i] * assignment[scope[i]];
+			return index;
+		}
+
+		/** @param cell 	the index of a cell
+		 * @return the number of optimal solutions for this cell
+		 */
+		BigInteger getBigCount (int cell) {
+			if (this.bigCounts != null && this.bigCounts[cell] != null)
+				return this.bigCounts[cell];
+			return BigInteger.valueOf(this.counts[cell]);
+		}
+
+		/** Sets the number of optimal solutions for a cell to a value that overflows a \c long
+		 * @param cell 		the index of the cell
+		 * @param count 	the number of optimal solutions
+		 */
+		void setBigCount (int cell, BigInteger count) {
+			if (this.bigCounts == null)
+				this.bigCounts = new BigInteger [this.size];
+			this.bigCounts[cell] = count;
+		}
+	}
+
+	/** A candidate entry in top-k mode */
+	private static class Candidate {
+
+		/** The cost of this candidate */
+		final long cost;
+
+		/** The index of the value of the eliminated variable */
+		final int xVal;
+
+		/** For each input table, the rank of the input entry used */
+		final int[] ranks;
+
+		/** Constructor
+		 * @param cost 		the cost of this candidate
+		 * @param xVal 		the index of the value of the eliminated variable
+		 * @param ranks 	for each input table, the rank of the input entry used
+		 */
+		Candidate (long cost, int xVal, int[] ranks) {
+			this.cost = cost;
+			this.xVal = xVal;
+			this.ranks = ranks;
+		}
+	}
+
+	/** Orders candidates by increasing cost */
+	private static final Comparator<Candidate> CANDIDATE_ORDER = new Comparator<Candidate> () {
+		public int compare(Candidate o1, Candidate o2) {
+			return Long.compare(o1.cost, o2.cost);
+		}
+	};
+
+	/** A solution returned in top-k mode
+	 * @param <V> type used for variable values
+	 * @param <U> type used for utility values
+	 */
+	public static class RankedSolution < V, U > {
+
+		/** The assignments to all variables */
+		private final Map<String, V> assignments;
+
+		/** The utility of the solution */
+		private final U utility;
+
+		/** Constructor
+		 * @param assignments 	the assignments to all variables
+		 * @param utility 		the utility of the solution
+		 */
+		RankedSolution (Map<String, V> assignments, U utility) {
+			this.assignments = assignments;
+			this.utility = utility;
+		}
+
+		/** @return the assignments to all variables */
+		public Map<String, V> getAssignments() {
+			return assignments;
+		}
+
+		/** @return the utility of the solution */
+		public U getUtility() {
+			return utility;
+		}
+
+		/** @see java.lang.Object#toString() */
+		@Override
+		public String toString () {
+			return "RankedSolution(" + this.utility + ", " + this.assignments + ")";
+		}
+	}
+
+	/** Constructor
+	 * @param problem 	the problem, which must contain all variables and all constraints
+	 */
+	@SuppressWarnings("unchecked")
+	public CountingEngine (DCOPProblemInterface<V, U> problem) {
+		this.problem = problem;
+		this.maximize = problem.maximize();
+
+		TreeSet<String> allVars = new TreeSet<String> (problem.getVariables());
+		this.vars = allVars.toArray(new String [allVars.size()]);
+		this.indexes = new HashMap<String, Integer> ();
+		this.doms = (V[][]) Array.newInstance((this.vars.length == 0 ? problem.getDomClass() : problem.getDomain(this.vars[0]).getClass().getComponentType()), 
+				this.vars.length, 0);
+		for (int i = 0; i < this.vars.length; i++) {
+			this.indexes.put(this.vars[i], i);
+			this.doms[i] = problem.getDomain(this.vars[i]);
+		}
+	}
+
+	/** @return for each variable, its domain size */
+	private int[] getDomSizes () {
+		int[] domSizes = new int [this.vars.length];
+		for (int i = 0; i < this.vars.length; i++)
+			domSizes[i] = this.doms[i].length;
+		return domSizes;
+	}
+
+	/** Converts a utility into an internal cost
+	 * @param util 	the utility
+	 * @return the corresponding cost
+	 */
+	private long toCost (U util) {
+		if (util.equals(this.problem.getPlusInfUtility()) || util.equals(this.problem.getMinInfUtility()))
+			return INFEASIBLE;
+
+		double value = util.doubleValue();
+		long cost = (long) value;
+		if (cost != value || Math.abs(cost) >= INFEASIBLE)
+			throw new IllegalArgumentException ("The CountingEngine only supports integer utilities; found " + util);
+		return (this.maximize ? -cost : cost);
+	}
+
+	/** Converts an internal cost back into a utility
+	 * @param cost 	the cost
+	 * @return the corresponding utility
+	 */
+	private U toUtil (long cost) {
+		if (cost >= INFEASIBLE)
+			return (this.maximize ? this.problem.getMinInfUtility() : this.problem.getPlusInfUtility());
+		return this.problem.getZeroUtility().fromString(Long.toString(this.maximize ? -cost : cost));
+	}
+
+	/** @return the tables corresponding to the problem's constraints */
+	@SuppressWarnings("unchecked")
+	private ArrayList<Table> initTables () {
+
+		int[] domSizes = this.getDomSizes();
+		List<? extends UtilitySolutionSpace<V, U>> spaces = this.problem.getSolutionSpaces();
+		ArrayList<Table> tables = new ArrayList<Table> (spaces.size());
+		for (UtilitySolutionSpace<V, U> space : spaces) {
+
+			String[] spaceVars = space.getVariables();
+			int[] scope = new int [spaceVars.length];
+			V[][] spaceDoms = (V[][]) Array.newInstance(this.doms.getClass().getComponentType(), spaceVars.length);
+			for (int i = 0; i < spaceVars.length; i++) {
+				scope[i] = this.indexes.get(spaceVars[i]);
+				spaceDoms[i] = this.doms[scope[i]];
+			}
+
+			Table table = new Table (scope, domSizes);
+			table.costs = new long [table.size];
+			table.counts = new long [table.size];
+			UtilitySolutionSpace.Iterator<V, U> iter = space.iterator(spaceVars, spaceDoms);
+			for (int i = 0; i < table.size; i++) {
+				table.costs[i] = this.toCost(iter.nextUtility());
+				table.counts[i] = (table.costs[i] == INFEASIBLE ? 0 : 1);
+			}
+			tables.add(table);
+		}
+
+		return tables;
+	}
+
+	/** Computes a min-degree elimination order
+	 * @param tables 	the tables
+	 */
+	private void computeElimOrder (List<Table> tables) {
+
+		final int nbrVars = this.vars.length;
+		ArrayList< HashSet<Integer> > neighbors = new ArrayList< HashSet<Integer> > (nbrVars);
+		for (int i = 0; i < nbrVars; i++)
+			neighbors.add(new HashSet<Integer> ());
+		for (Table table : tables)
+			for (int var1 : table.scope)
+				for (int var2 : table.scope)
+					if (var1 != var2)
+						neighbors.get(var1).add(var2);
+
+		this.elimOrder = new int [nbrVars];
+		boolean[] eliminated = new boolean [nbrVars];
+		for (int i = 0; i < nbrVars; i++) {
+
+			// Look for the remaining variable with the fewest remaining neighbors
+			int best = -1;
+			for (int var = 0; var < nbrVars; var++)
+				if (! eliminated[var] && (best < 0 || neighbors.get(var).size() < neighbors.get(best).size()))
+					best = var;
+
+			// Eliminate it, connecting all its neighbors together
+			this.elimOrder[i] = best;
+			eliminated[best] = true;
+			HashSet<Integer> myNeighbors = neighbors.get(best);
+			for (Integer nbr : myNeighbors) {
+				HashSet<Integer> nbrNeighbors = neighbors.get(nbr);
+				nbrNeighbors.remove(best);
+				nbrNeighbors.addAll(myNeighbors);
+				nbrNeighbors.remove(nbr);
+			}
+		}
+	}
+
+	/** Removes from the pool all tables involving the input variable
+	 * @param pool 	the pool of tables
+	 * @param var 	the variable
+	 * @return the tables removed
+	 */
+	private static Table[] extractBucket (List<Table> pool, int var) {
+
+		ArrayList<Table> bucket = new ArrayList<Table> ();
+		for (Iterator<Table> iter = pool.iterator(); iter.hasNext(); ) {
+			Table table = iter.next();
+			for (int var2 : table.scope) {
+				if (var2 == var) {
+					bucket.add(table);
+					iter.remove();
+					break;
+				}
+			}
+		}
+
+		return bucket.toArray(new Table [bucket.size()]);
+	}
+
+	/** Computes the scope of the table resulting from the elimination of a variable
+	 * @param bucket 	the tables involving the variable
+	 * @param var 		the variable to be eliminated
+	 * @return the scope of the resulting table
+	 */
+	private static int[] outputScope (Table[] bucket, int var) {
+
+		TreeSet<Integer> scope = new TreeSet<Integer> ();
+		for (Table table : bucket)
+			for (int var2 : table.scope)
+				scope.add(var2);
+		scope.remove(var);
+
+		int[] out = new int [scope.size()];
+		int i = 0;
+		for (Integer var2 : scope)
+			out[i++] = var2;
+		return out;
+	}
+
+	/** Increments an assignment to the variables in a scope, the last variable varying fastest
+	 * @param scope 		the scope
+	 * @param assignment 	for each variable, the index of its value
+	 * @param domSizes 		for each variable, its domain size
+	 */
+	private static void increment (int[] scope, int[] assignment, int[] domSizes) {
+		for (int i = scope.length - 1; i >= 0; i--) {
+			int var = scope[i];
+			if (++assignment[var] < domSizes[var])
+				return;
+			assignment[var] = 0;
+		}
+	}
+
+	/** Counts the optimal solutions
+	 * @return the number of optimal solutions (0 if the problem is infeasible)
+	 */
+	public BigInteger count () {
+
+		ArrayList<Table> pool = this.initTables();
+		this.computeElimOrder(pool);
+		int[] domSizes = this.getDomSizes();
+		int[] assignment = new int [this.vars.length];
+
+		for (int var : this.elimOrder) {
+			Table[] bucket = extractBucket(pool, var);
+			Table out = new Table (outputScope(bucket, var), domSizes);
+			out.costs = new long [out.size];
+			out.counts = new long [out.size];
+
+			Arrays.fill(assignment, 0);
+			for (int cell = 0; cell < out.size; cell++, increment(out.scope, assignment, domSizes)) {
+
+				long bestCost = INFEASIBLE;
+				long bestCount = 0;
+				BigInteger bestBigCount = null;
+
+				for (int val = 0; val < domSizes[var]; val++) {
+					assignment[var] = val;
+
+					// Join the cells of all tables in the bucket
+					long cost = 0;
+					long count = 1;
+					BigInteger bigCount = null;
+					for (Table table : bucket) {
+						int index = table.index(assignment);
+						long tableCost = table.costs[index];
+						if (tableCost == INFEASIBLE) {
+							cost = INFEASIBLE;
+							break;
+						}
+						cost = Math.addExact(cost, tableCost);
+
+						if (bigCount == null && (table.bigCounts == null || table.bigCounts[index] == null)) {
+							try {
+								count = Math.multiplyExact(count, table.counts[index]);
+							} catch (ArithmeticException e) { // overflow
+								bigCount = BigInteger.valueOf(count).multiply(BigInteger.valueOf(table.counts[index]));
+							}
+						} else if (bigCount == null)
+							bigCount = BigInteger.valueOf(count).multiply(table.bigCounts[index]);
+						else
+							bigCount = bigCount.multiply(table.getBigCount(index));
+					}
+					assignment[var] = 0;
+					if (cost >= INFEASIBLE)
+						continue;
+
+					// Project out the variable
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestCount = count;
+						bestBigCount = bigCount;
+					} else if (cost == bestCost) {
+						if (bestBigCount == null && bigCount == null) {
+							try {
+								bestCount = Math.addExact(bestCount, count);
+							} catch (ArithmeticException e) { // overflow
+								bestBigCount = BigInteger.valueOf(bestCount).add(BigInteger.valueOf(count));
+							}
+						} else
+							bestBigCount = (bestBigCount == null ? BigInteger.valueOf(bestCount) : bestBigCount)
+							.add(bigCount == null ? BigInteger.valueOf(count) : bigCount);
+					}
+				}
+
+				out.costs[cell] = bestCost;
+				if (bestBigCount != null)
+					out.setBigCount(cell, bestBigCount);
+				else
+					out.counts[cell] = bestCount;
+			}
+
+			pool.add(out);
+		}
+
+		// All remaining tables are scalar; combine them
+		long cost = 0;
+		BigInteger count = BigInteger.ONE;
+		for (Table table : pool) {
+			if (table.costs[0] == INFEASIBLE) {
+				this.optCost = INFEASIBLE;
+				return BigInteger.ZERO;
+			}
+			cost = Math.addExact(cost, table.costs[0]);
+			count = count.multiply(table.getBigCount(0));
+		}
+		assert cost < INFEASIBLE;
+		this.optCost = cost;
+
+		return count;
+	}
+
+	/** @return the optimal utility
+	 * @warning Only valid after count() has been called.
+	 */
+	public U getOptUtil () {
+		return this.toUtil(this.optCost);
+	}
+
+	/** Computes the k best distinct solutions
+	 * @param k 	the maximum number of solutions to return
+	 * @return the solutions, by decreasing quality (fewer than \a k if the problem has fewer than \a k feasible solutions)
+	 */
+	public List< RankedSolution<V, U> > topK (final int k) {
+
+		ArrayList<Table> pool = this.initTables();
+		for (Table table : pool) {
+			table.nbrEntries = new int [table.size];
+			for (int i = 0; i < table.size; i++)
+				table.nbrEntries[i] = (table.costs[i] == INFEASIBLE ? 0 : 1);
+		}
+		this.computeElimOrder(pool);
+		int[] domSizes = this.getDomSizes();
+		int[] assignment = new int [this.vars.length];
+
+		for (int var : this.elimOrder) {
+			Table[] bucket = extractBucket(pool, var);
+			Table out = new Table (outputScope(bucket, var), domSizes);
+			out.elimVar = var;
+			this.fillTopK(out, bucket, k, assignment, domSizes);
+			pool.add(out);
+		}
+
+		// Combine all remaining scalar tables into a single root table
+		Table root = new Table (new int [0], domSizes);
+		this.fillTopK(root, pool.toArray(new Table [pool.size()]), k, assignment, domSizes);
+
+		// Reconstruct the solutions
+		ArrayList< RankedSolution<V, U> > out = new ArrayList< RankedSolution<V, U> > (root.nbrEntries[0]);
+		for (int rank = 0; rank < root.nbrEntries[0]; rank++) {
+			Arrays.fill(assignment, 0);
+			decode(root, 0, rank, assignment);
+
+			HashMap<String, V> sol = new HashMap<String, V> (this.vars.length);
+			for (int i = 0; i < this.vars.length; i++)
+				sol.put(this.vars[i], this.doms[i][assignment[i]]);
+			out.add(new RankedSolution<V, U> (sol, this.toUtil(root.costs[rank])));
+		}
+
+		return out;
+	}
+
+	/** Fills in a table in top-k mode
+	 * @param out 			the table to be filled in
+	 * @param inputs 		the tables to be joined
+	 * @param k 			the maximum number of entries per cell
+	 * @param assignment 	a work array
+	 * @param domSizes 		for each variable, its domain size
+	 */
+	private void fillTopK (Table out, Table[] inputs, final int k, int[] assignment, int[] domSizes) {
+
+		final int nbrInputs = inputs.length;
+		out.k = k;
+		out.inputs = inputs;
+		out.costs = new long [out.size * k];
+		out.nbrEntries = new int [out.size];
+		out.xVals = new int [out.size * k];
+		out.ranks = new int [out.size * k * nbrInputs];
+		final int nbrVals = (out.elimVar < 0 ? 1 : domSizes[out.elimVar]);
+
+		Arrays.fill(assignment, 0);
+		ArrayList<Candidate> candidates = new ArrayList<Candidate> ();
+		for (int cell = 0; cell < out.size; cell++, increment(out.scope, assignment, domSizes)) {
+
+			candidates.clear();
+			for (int val = 0; val < nbrVals; val++) {
+				if (out.elimVar >= 0)
+					assignment[out.elimVar] = val;
+
+				// Combine the entries of all input tables, keeping only the k best partial combinations
+				ArrayList<Candidate> partial = new ArrayList<Candidate> ();
+				partial.add(new Candidate (0, val, new int [nbrInputs]));
+				for (int j = 0; j < nbrInputs && ! partial.isEmpty(); j++) {
+					Table table = inputs[j];
+					int index = table.index(assignment);
+					ArrayList<Candidate> next = new ArrayList<Candidate> ();
+					for (Candidate cand : partial) {
+						for (int rank = 0; rank < table.nbrEntries[index]; rank++) {
+							int[] ranks = cand.ranks.clone();
+							ranks[j] = rank;
+							next.add(new Candidate (Math.addExact(cand.cost, table.costs[index * table.k + rank]), val, ranks));
+						}
+					}
+					Collections.sort(next, CANDIDATE_ORDER);
+					partial = (next.size() > k ? new ArrayList<Candidate> (next.subList(0, k)) : next);
+				}
+				candidates.addAll(partial);
+
+				if (out.elimVar >= 0)
+					assignment[out.elimVar] = 0;
+			}
+
+			// Record the k best candidates
+			Collections.sort(candidates, CANDIDATE_ORDER);
+			int nbrEntries = Math.min(k, candidates.size());
+			out.nbrEntries[cell] = nbrEntries;
+			for (int rank = 0; rank < nbrEntries; rank++) {
+				Candidate cand = candidates.get(rank);
+				assert cand.cost < INFEASIBLE;
+				int entry = cell * k + rank;
+				out.costs[entry] = cand.cost;
+				out.xVals[entry] = cand.xVal;
+				System.arraycopy(cand.ranks, 0, out.ranks, entry * nbrInputs, nbrInputs);
+			}
+		}
+	}
+
+	/** Reconstructs the assignment to the variables eliminated to produce the given table entry
+	 * @param table 		the table
+	 * @param cell 			the index of the cell
+	 * @param rank 			the rank of the entry in the cell
+	 * @param assignment 	for each variable, the index of its value
+	 */
+	private static void decode (Table table, int cell, int rank, int[] assignment) {
+
+		if (table.inputs == null) // input constraint
+			return;
+
+		int entry = cell * table.k + rank;
+		if (table.elimVar >= 0)
+			assignment[table.elimVar] = table.xVals[entry];
+
+		final int nbrInputs = table.inputs.length;
+		for (int j = 0; j < nbrInputs; j++) {
+			Table input = table.inputs[j];
+			decode(input, input.index(assignment), table.ranks[entry * nbrInputs + j], assignment);
+		}
+	}
+
+}
@@ -25,8 +25,10 @@ package frodo2.algorithms.dpop.count;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.jdom2.Document;
 import org.jdom2.JDOMException;
@@ -119,6 +121,26 @@ public class SolutionCounter< V extends Addable<V>, U extends Addable<U> > {
 		return combineSolutions(0, valueModule.getReportedValues().keySet().toArray(new String[0]), new ArrayList<String>(variablesReported.size()),currentSolutions, variablesReported, valuesReported);
 	}
 	
+	/** Counts the optimal solutions using the centralized CountingEngine, without enumerating them
+	 * @param problem 	the problem
+	 * @return 			the number of optimal solutions
+	 */
+	public BigInteger countFast (Document problem) {
+		CountingEngine<V, U> engine = new CountingEngine<V, U> (new XCSPparser<V, U> (problem));
+		BigInteger count = engine.count();
+		this.optimalUtil = engine.getOptUtil();
+		return count;
+	}
+	
+	/** Computes the k best distinct solutions using the centralized CountingEngine
+	 * @param problem 	the problem
+	 * @param k 		the maximum number of solutions
+	 * @return 			the k best solutions, by decreasing quality
+	 */
+	public List< CountingEngine.RankedSolution<V, U> > topK (Document problem, int k) {
+		return new CountingEngine<V, U> (new XCSPparser<V, U> (problem)).topK(k);
+	}
+	
 	/** 
 	 * Method used to combine the different partial solutions, by recursively walking through the different leafs
 	 * @param index					the index of the current leaf in \c leafs
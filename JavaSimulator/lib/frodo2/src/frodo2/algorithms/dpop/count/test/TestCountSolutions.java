@@ -22,21 +22,29 @@ How to contact the authors:
 
 package frodo2.algorithms.dpop.count.test;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.jdom2.Document;
 
+import frodo2.algorithms.Problem;
 import frodo2.algorithms.RandGraphFactory;
 import frodo2.algorithms.XCSPparser;
 import frodo2.algorithms.RandGraphFactory.Graph;
 import frodo2.algorithms.dpop.DPOPsolver;
+import frodo2.algorithms.dpop.count.CountingEngine;
 import frodo2.algorithms.dpop.count.SolutionCounter;
 import frodo2.algorithms.test.AllTests;
 import frodo2.solutionSpaces.AddableInteger;
+import frodo2.solutionSpaces.AddableReal;
 import frodo2.solutionSpaces.UtilitySolutionSpace;
 import frodo2.solutionSpaces.BasicUtilitySolutionSpace.Iterator;
+import frodo2.solutionSpaces.hypercube.Hypercube;
 import frodo2.solutionSpaces.hypercube.ScalarHypercube;
 import junit.extensions.RepeatedTest;
 import junit.framework.TestCase;
@@ -72,7 +80,15 @@ public class TestCountSolutions extends TestCase {
 	 * @param maximize 	Whether to maximize or minimize
 	 */
 	public TestCountSolutions(boolean maximize) {
-		super("testRandom");
+		this("testRandom", maximize);
+	}
+	
+	/** Constructor
+	 * @param method 	the name of the test method
+	 * @param maximize 	Whether to maximize or minimize
+	 */
+	public TestCountSolutions(String method, boolean maximize) {
+		super(method);
 		this.maximize = maximize;
 	}
 
@@ -104,6 +120,17 @@ public class TestCountSolutions extends TestCase {
 		tmp.addTest(new RepeatedTest (new TestCountSolutions(false), 1000));
 		suite.addTest(tmp);
 	
+		tmp = new TestSuite ("Tests of the CountingEngine on maximization problems");
+		tmp.addTest(new RepeatedTest (new TestCountSolutions("testFastCount", true), 1000));
+		tmp.addTest(new RepeatedTest (new TestCountSolutions("testTopK", true), 500));
+		suite.addTest(tmp);
+	
+		tmp = new TestSuite ("Tests of the CountingEngine on minimization problems");
+		tmp.addTest(new RepeatedTest (new TestCountSolutions("testFastCount", false), 1000));
+		tmp.addTest(new RepeatedTest (new TestCountSolutions("testTopK", false), 500));
+		tmp.addTest(new TestCountSolutions("testLargeCosts", false));
+		suite.addTest(tmp);
+	
 		return suite;
 	}
 	
@@ -115,6 +142,123 @@ public class TestCountSolutions extends TestCase {
 	public void testRandom() {
 		
 		SolutionCounter<AddableInteger, AddableInteger> counter = new SolutionCounter<AddableInteger, AddableInteger>();
+		
+		assertEquals(this.bruteForceCount(), counter.count(problem));
+	}
+	
+	/** Tests the CountingEngine on a random problem */
+	public void testFastCount () {
+		
+		SolutionCounter<AddableInteger, AddableInteger> counter = new SolutionCounter<AddableInteger, AddableInteger>();
+		
+		assertEquals(BigInteger.valueOf(this.bruteForceCount()), counter.countFast(problem));
+		
+		AddableInteger optimalUtil = new DPOPsolver<AddableInteger, AddableInteger>().solve(problem).getUtility();
+		assertEquals(optimalUtil, counter.optimalUtil);
+	}
+	
+	/** Tests the top-k mode of the CountingEngine on a random problem */
+	public void testTopK () {
+		
+		final int k = 10;
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger>(problem);
+		List< CountingEngine.RankedSolution<AddableInteger, AddableInteger> > sols = 
+			new SolutionCounter<AddableInteger, AddableInteger>().topK(problem, k);
+		
+		AddableInteger optimalUtil = new DPOPsolver<AddableInteger, AddableInteger>().solve(problem).getUtility();
+		final AddableInteger infeasibleUtil = (this.maximize ? parser.getMinInfUtility() : parser.getPlusInfUtility());
+		if (optimalUtil.equals(infeasibleUtil)) {
+			assertTrue(sols.isEmpty());
+			return;
+		}
+		
+		assertEquals(optimalUtil, sols.get(0).getUtility());
+		
+		// Check that the utilities are the k best ones
+		ArrayList<AddableInteger> utils = new ArrayList<AddableInteger> (sols.size());
+		for (CountingEngine.RankedSolution<AddableInteger, AddableInteger> sol : sols) 
+			utils.add(sol.getUtility());
+		assertEquals(this.bruteForceTopK(k), utils);
+		
+		HashSet< Map<String, AddableInteger> > seen = new HashSet< Map<String, AddableInteger> > ();
+		AddableInteger previous = optimalUtil;
+		for (CountingEngine.RankedSolution<AddableInteger, AddableInteger> sol : sols) {
+			
+			// Check that the solutions are distinct and sorted by decreasing quality
+			assertTrue(seen.add(sol.getAssignments()));
+			int comp = sol.getUtility().compareTo(previous);
+			assertTrue(this.maximize ? comp <= 0 : comp >= 0);
+			previous = sol.getUtility();
+			
+			// Check the reported utility
+			assertEquals(parser.getUtility(sol.getAssignments()).getUtility(0), sol.getUtility());
+		}
+	}
+	
+	/** Tests the CountingEngine on costs whose sums overflow an \c int */
+	public void testLargeCosts () {
+		
+		Problem<AddableInteger, AddableReal> problem = new Problem<AddableInteger, AddableReal> (false);
+		problem.setDomClass(AddableInteger.class);
+		problem.setUtilClass(AddableReal.class);
+		AddableInteger[] dom = new AddableInteger[] { new AddableInteger (0), new AddableInteger (1) };
+		problem.addVariable("x", "a1", dom);
+		problem.addVariable("y", "a2", dom);
+		
+		final double big = 3.0E9;
+		problem.addSolutionSpace(new Hypercube<AddableInteger, AddableReal> (new String[] { "x" }, new AddableInteger[][] { dom }, 
+				new AddableReal[] { new AddableReal (big), new AddableReal (big) }, problem.getPlusInfUtility()));
+		problem.addSolutionSpace(new Hypercube<AddableInteger, AddableReal> (new String[] { "y" }, new AddableInteger[][] { dom }, 
+				new AddableReal[] { new AddableReal (big), new AddableReal (big + 2) }, problem.getPlusInfUtility()));
+		
+		CountingEngine<AddableInteger, AddableReal> engine = new CountingEngine<AddableInteger, AddableReal> (problem);
+		assertEquals(BigInteger.valueOf(2), engine.count());
+		assertEquals(new AddableReal (2 * big), engine.getOptUtil());
+		
+		List< CountingEngine.RankedSolution<AddableInteger, AddableReal> > sols = engine.topK(3);
+		assertEquals(3, sols.size());
+		assertEquals(new AddableReal (2 * big), sols.get(0).getUtility());
+		assertEquals(new AddableReal (2 * big), sols.get(1).getUtility());
+		assertEquals(new AddableReal (2 * big + 2), sols.get(2).getUtility());
+	}
+	
+	/** @param k 	the maximum number of utilities
+	 * @return the utilities of the k best solutions, by decreasing quality, computed by brute force
+	 */
+	private List<AddableInteger> bruteForceTopK (int k) {
+		
+		// Join all spaces together
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger>(problem);
+		final AddableInteger infeasibleUtil = (this.maximize ? parser.getMinInfUtility() : parser.getPlusInfUtility());
+		UtilitySolutionSpace<AddableInteger, AddableInteger> global = new ScalarHypercube<AddableInteger, AddableInteger> (new AddableInteger(0), infeasibleUtil, new AddableInteger [0].getClass());
+		for(UtilitySolutionSpace<AddableInteger, AddableInteger> space : parser.getSolutionSpaces()) 
+			global = global.join(space);
+		
+		// Each assignment to the constrained variables stands for one solution per assignment to the unconstrained variables
+		long nbrCopies = 1;
+		ArrayList<String> unconstrainedVars = new ArrayList<String> (parser.getVariables());
+		unconstrainedVars.removeAll(Arrays.asList(global.getVariables()));
+		for (String var : unconstrainedVars) 
+			nbrCopies = Math.min(k, nbrCopies * parser.getDomainSize(var));
+		
+		ArrayList<AddableInteger> utils = new ArrayList<AddableInteger> ();
+		Iterator<AddableInteger, AddableInteger> it = global.iterator();
+		while(it.hasNext()) {
+			AddableInteger util = it.nextUtility();
+			if (! util.equals(infeasibleUtil)) 
+				for (long i = 0; i < nbrCopies; i++) 
+					utils.add(util);
+		}
+		
+		Collections.sort(utils);
+		if (this.maximize) 
+			Collections.reverse(utils);
+		return (utils.size() > k ? utils.subList(0, k) : utils);
+	}
+	
+	/** @return the number of optimal solutions, computed by brute force */
+	private int bruteForceCount () {
+		
 		DPOPsolver<AddableInteger, AddableInteger> solver = new DPOPsolver<AddableInteger, AddableInteger>();
 		
 		AddableInteger optimalUtil = solver.solve(problem).getUtility();
@@ -142,9 +286,7 @@ public class TestCountSolutions extends TestCase {
 				count *= parser.getDomainSize(var);
 		}
 		
-		int numberOfSolutions = counter.count(problem);
-		
-		assertEquals(count, numberOfSolutions);
+		return count;
 	}
 
 }
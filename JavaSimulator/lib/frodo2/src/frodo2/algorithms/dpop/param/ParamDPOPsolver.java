@@ -159,6 +159,13 @@ public class ParamDPOPsolver< V extends Addable<V>, U extends Addable<U> > exten
 		super(agentDescription);
 	}
 	
+	/** Constructor
+	 * @param agentDesc 	Description of the Param-DPOP agent
+	 */
+	public ParamDPOPsolver(Document agentDesc) {
+		super(agentDesc);
+	}
+	
 	/** Constructor 
 	 * @param domClass 		the class to use for variable values
 	 * @param utilClass 	the class to use for utilities
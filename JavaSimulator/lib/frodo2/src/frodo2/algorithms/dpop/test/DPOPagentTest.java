@@ -46,8 +46,10 @@ import org.jdom2.JDOMException;
 
 import frodo2.algorithms.AgentFactory;
 import frodo2.algorithms.AgentInterface;
+import frodo2.algorithms.AssignmentListener;
 import frodo2.algorithms.Problem;
 import frodo2.algorithms.RandGraphFactory;
+import frodo2.algorithms.Solution;
 import frodo2.algorithms.XCSPparser;
 import frodo2.algorithms.AgentInterface.AgentFinishedMessage;
 import frodo2.algorithms.dpop.DPOPsolver;
@@ -577,7 +579,65 @@ public class DPOPagentTest< V extends Addable<V>, U extends Addable<U> > extends
 
 		// Solve the problem and compare the two utilities
 		DPOPsolver<V, U> solver = new DPOPsolver<V, U> (agentConfig, parserClass);
-		assertEquals (solver.solve(problem).getUtility(), optUtil);		
+		final HashMap<String, V> streamed = new HashMap<String, V> ();
+		final HashSet<String> duplicates = new HashSet<String> ();
+		solver.addAssignmentListener(new AssignmentListener<V> () {
+			public void assignmentFound(String var, V val, long time) {
+				synchronized (streamed) {
+					if (streamed.put(var, val) != null) 
+						duplicates.add(var);
+				}
+			}
+		});
+		Solution<V, U> sol = solver.solve(problem);
+		assertEquals (sol.getUtility(), optUtil);
+		assertNull (sol.getErrorBound());
+		
+		// Check that the assignments have all been streamed
+		assertEquals (sol.getAssignments(), streamed);
+		assertTrue ("Assignments streamed twice: " + duplicates, duplicates.isEmpty());
+		assertTrue (sol.getFirstAssignmentTime() >= 0);
+		assertTrue (sol.getFirstAssignmentTime() <= sol.getLastAssignmentTime());
+		assertTrue (sol.getStartupTime() >= 0);
+
+		// Solve the independent components of the problem in parallel and compare the utilities
+		streamed.clear();
+		solver.setParallelComponents(true);
+		sol = solver.solve(problem);
+		assertEquals (sol.getReportedUtil(), optUtil);
+		assertEquals (sol.getUtility(), optUtil);
+		assertEquals (problem.getVariables().size(), sol.getAssignments().size());
+		assertEquals (sol.getAssignments(), streamed);
+		assertTrue ("Assignments streamed twice: " + duplicates, duplicates.isEmpty());
+		
+		// Check that the DFS is released when cleaning afterwards, and otherwise is that of the last solve
+		assertNull (solver.getDFS());
+		assertNotNull (solver.solve(problem, false, null));
+		assertEquals (new HashSet<String> (problem.getVariables()), solver.getDFS().keySet());
+		solver.setParallelComponents(false);
+		assertNotNull (solver.solve(problem, true, null));
+		assertNull (solver.getDFS());
+		
+		// Create the agents with several threads and compare the utilities
+		agentConfig.getRootElement().setAttribute("setupThreads", "4");
+		solver = new DPOPsolver<V, U> (agentConfig, parserClass);
+		sol = solver.solve(problem);
+		assertEquals (sol.getUtility(), optUtil);
+		assertEquals (problem.getVariables().size(), sol.getAssignments().size());
+		assertTrue (sol.getStartupTime() >= 0);
+		
+		// Solve again with UTIL messages approximated to at most one variable, and check the error bound
+		for (Element module : (List<Element>) agentConfig.getRootElement().getChild("modules").getChildren()) 
+			if (module.getAttributeValue("className").equals(UTILpropagation.class.getName())) 
+				module.setAttribute("maxDim", "1");
+		solver = new DPOPsolver<V, U> (agentConfig, parserClass);
+		sol = solver.solve(problem);
+		assertEquals (problem.getVariables().size(), sol.getAssignments().size());
+		U bound = sol.getErrorBound();
+		if (bound == null) 
+			assertEquals (sol.getUtility(), optUtil);
+		else if (! sol.getUtility().equals(optUtil)) 
+			assertTrue (optUtil.subtract(sol.getUtility()).abs() + " > " + bound, optUtil.subtract(sol.getUtility()).abs().compareTo(bound) <= 0);
 	}
 
 	/** @see frodo2.communication.IncomingMsgPolicyInterface#getMsgTypes() */
@@ -0,0 +1,97 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.heuristics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jdom2.Element;
+
+import frodo2.solutionSpaces.DCOPProblemInterface;
+
+/** A ScoringHeuristic in which the score for a variable is its position in a precomputed elimination order
+ * 
+ * The order is given by the attribute \c order of the parameters, as a space-separated list of variable names, 
+ * starting with the first variable eliminated. The last variable eliminated gets the highest score; 
+ * variables not mentioned in the order get a score of -1. 
+ * @see frodo2.algorithms.varOrdering.dfs.PseudoTreeOptimizer
+ */
+public class EliminationOrderHeuristic implements ScoringHeuristic<Integer> {
+	
+	/** For each order already parsed, the position of each variable in that order
+	 * 
+	 * All agents instantiated from the same agent description share the same order, which is only parsed once. 
+	 */
+	private static final WeakHashMap< String, Map<String, Integer> > POSITIONS = new WeakHashMap< String, Map<String, Integer> > ();
+	
+	/** The agent's problem */
+	private DCOPProblemInterface<?, ?> problem;
+	
+	/** The position of each variable in the elimination order */
+	private Map<String, Integer> positions;
+
+	/** Constructor
+	 * @param problem 	the agent's problem
+	 * @param params 	the parameters, containing the \c order attribute
+	 */
+	public EliminationOrderHeuristic (DCOPProblemInterface<?, ?> problem, Element params) {
+		this.problem = problem;
+		this.positions = parse(params == null ? null : params.getAttributeValue("order"));
+	}
+	
+	/** Parses an elimination order
+	 * @param order 	a space-separated list of variable names
+	 * @return the position of each variable in the order
+	 */
+	private static Map<String, Integer> parse (String order) {
+		
+		if (order == null) 
+			return new HashMap<String, Integer> ();
+		
+		synchronized (POSITIONS) {
+			Map<String, Integer> positions = POSITIONS.get(order);
+			if (positions == null) {
+				String[] vars = order.trim().split("\\s+");
+				positions = new HashMap<String, Integer> (vars.length);
+				for (int i = 0; i < vars.length; i++) 
+					positions.put(vars[i], i);
+				POSITIONS.put(order, positions);
+			}
+			return positions;
+		}
+	}
+
+	/** @see ScoringHeuristic#getScores() */
+	public Map<String, Integer> getScores() {
+		
+		HashMap<String, Integer> scores = new HashMap<String, Integer> (this.problem.getNbrVars());
+		for (String var : this.problem.getVariables()) {
+			Integer pos = this.positions.get(var);
+			scores.put(var, pos == null ? -1 : pos);
+		}
+		
+		return scores;
+	}
+
+}
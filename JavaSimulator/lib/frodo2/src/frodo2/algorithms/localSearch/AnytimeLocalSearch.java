@@ -0,0 +1,592 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.localSearch;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import frodo2.algorithms.AgentInterface;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration.DFSview;
+import frodo2.communication.Message;
+import frodo2.communication.Queue;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+
+/** Anytime mechanism for synchronous local search algorithms, in the style of ALS
+ * 
+ * Local search algorithms like DSA and MGM report the last assignment they visited, which is not necessarily the best one. 
+ * This class keeps track of the best assignment visited so far, without any variable ever evaluating the global cost. 
+ * In each cycle, each variable computes the cost of the constraints it is responsible for, using its LocalUtilityCache, 
+ * and sends to its parent in the DFS tree the cost of its subtree for this cycle. When the root of the DFS tree has 
+ * received the cost of all its children for a given cycle, it knows the cost of its connected component for this cycle. 
+ * If this cost is better than the best cost so far, it propagates the number of the cycle down the DFS tree, and each 
+ * variable records the value it had in this cycle. 
+ * 
+ * Each BEST message also tells the last cycle evaluated by the root, so that each variable can forget its values in all 
+ * earlier cycles. The root sends a BEST message at least every h + 1 cycles, where h is the height of the DFS tree, such 
+ * that each variable only remembers its values over a window of cycles of the order of the height of the tree. Only 
+ * value changes are recorded. 
+ * 
+ * The cost of a cycle is compared first based on the number of violated constraints, then based on the sum of the 
+ * utilities of the other constraints. Each connected component is tracked separately by the root of its DFS tree; since 
+ * components do not share any constraint, combining the best assignment of each component gives a global assignment that 
+ * is at least as good as any of the assignments visited. 
+ * 
+ * @param <V> type used for variable values
+ * @param <U> type used for utility values
+ * @note This class is not a module on its own; it must be called by the local search module, which must also listen 
+ * to the messages of the types in getMsgTypes(). The agent must contain a module producing a DFS tree. 
+ */
+public class AnytimeLocalSearch < V extends Addable<V>, U extends Addable<U> > {
+	
+	/** The type of the messages containing the cost of a subtree in a given cycle */
+	public static final String COST_MSG_TYPE = "AnytimeCOST";
+	
+	/** The type of the messages containing the cycle with the best solution found so far */
+	public static final String BEST_MSG_TYPE = "AnytimeBEST";
+	
+	/** The type of the messages sent to the stats gatherer every time a better solution is found */
+	public static final String IMPROVEMENT_MSG_TYPE = "AnytimeImprovement";
+	
+	/** Interface for the local search module, notified when the value of a variable in the best solution is final
+	 * @param <V> type used for variable values
+	 */
+	public static interface Listener < V extends Addable<V> > {
+		
+		/** Called when the value of a variable in the best solution is final
+		 * @param var 		the variable
+		 * @param value 	its value in the best solution found
+		 */
+		public void bestValueFinal (String var, V value);
+	}
+	
+	/** A better solution found by the root of a DFS tree
+	 * @param <U> type used for utility values
+	 */
+	public static class Improvement < U > implements Serializable {
+		
+		/** Used for serialization */
+		private static final long serialVersionUID = -2093617598340129643L;
+
+		/** The root of the DFS tree that found the solution */
+		private final String root;
+		
+		/** The cycle in which the solution was visited */
+		private final int cycle;
+		
+		/** The cost of the solution, restricted to the DFS tree */
+		private final U cost;
+		
+		/** The number of constraints violated by the solution, restricted to the DFS tree */
+		private final int conflicts;
+		
+		/** The time at which the root found out about the solution */
+		private final long time;
+		
+		/** The time between the moment the root visited the solution and the moment it found out about it */
+		private final long latency;
+		
+		/** Constructor
+		 * @param root 			the root of the DFS tree that found the solution
+		 * @param cycle 		the cycle in which the solution was visited
+		 * @param cost 			the cost of the solution, restricted to the DFS tree
+		 * @param conflicts 	the number of constraints violated by the solution, restricted to the DFS tree
+		 * @param time 			the time at which the root found out about the solution
+		 * @param latency 		the time between the moment the root visited the solution and the moment it found out about it
+		 */
+		public Improvement (String root, int cycle, U cost, int conflicts, long time, long latency) {
+			this.root = root;
+			this.cycle = cycle;
+			this.cost = cost;
+			this.conflicts = conflicts;
+			this.time = time;
+			this.latency = latency;
+		}
+		
+		/** @return the root of the DFS tree that found the solution */
+		public String getRoot () {
+			return this.root;
+		}
+		
+		/** @return the cycle in which the solution was visited */
+		public int getCycle () {
+			return this.cycle;
+		}
+		
+		/** @return the cost of the solution, restricted to the DFS tree; infeasible if getConflicts() > 0 */
+		public U getCost () {
+			return this.cost;
+		}
+		
+		/** @return the number of constraints violated by the solution, restricted to the DFS tree */
+		public int getConflicts () {
+			return this.conflicts;
+		}
+		
+		/** @return the time at which the root found out about the solution, in nanoseconds */
+		public long getTime () {
+			return this.time;
+		}
+		
+		/** @return the time between the moment the root visited the solution and the moment it found out about it, in nanoseconds */
+		public long getLatency () {
+			return this.latency;
+		}
+		
+		/** @see java.lang.Object#toString() */
+		@Override
+		public String toString () {
+			return "root " + this.root + ", cycle " + this.cycle + ": cost = " + this.cost + " (" + this.conflicts + " conflicts), latency = " + this.latency + " ns";
+		}
+	}
+	
+	/** The message sent to the stats gatherer every time a better solution is found
+	 * @param <U> type used for utility values
+	 */
+	public static class ImprovementMsg < U > extends Message {
+		
+		/** The improvement */
+		private Improvement<U> improvement;
+		
+		/** Empty constructor used for externalization */
+		public ImprovementMsg () {
+			super.type = IMPROVEMENT_MSG_TYPE;
+		}
+		
+		/** Constructor
+		 * @param improvement 	the improvement
+		 */
+		public ImprovementMsg (Improvement<U> improvement) {
+			super (IMPROVEMENT_MSG_TYPE);
+			this.improvement = improvement;
+		}
+		
+		/** @see Message#writeExternal(java.io.ObjectOutput) */
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			super.writeExternal(out);
+			out.writeObject(this.improvement);
+		}
+
+		/** @see Message#readExternal(java.io.ObjectInput) */
+		@SuppressWarnings("unchecked")
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			super.readExternal(in);
+			this.improvement = (Improvement<U>) in.readObject();
+		}
+
+		/** @return the improvement */
+		public Improvement<U> getImprovement () {
+			return this.improvement;
+		}
+		
+		/** @see Message#toString() */
+		@Override
+		public String toString () {
+			return super.toString() + "\n\timprovement: " + this.improvement;
+		}
+	}
+	
+	/** The cost of a subtree in a given cycle, being aggregated
+	 * @param <U> type used for utility values
+	 */
+	private static class Pending < U extends Addable<U> > {
+		
+		/** The sum of the finite utilities received so far */
+		U cost;
+		
+		/** The number of infeasible constraints received so far */
+		int conflicts;
+		
+		/** The number of children that have reported their costs */
+		int nbrReports;
+		
+		/** Whether the variable has reported its own cost */
+		boolean own;
+		
+		/** Whether this is the last cycle */
+		boolean last;
+		
+		/** The height of the subtree */
+		int height;
+		
+		/** The time at which the variable reported its own cost */
+		long time;
+		
+		/** Constructor 
+		 * @param zero 	the zero utility
+		 */
+		Pending (U zero) {
+			this.cost = zero;
+		}
+	}
+	
+	/** Everything this class needs to know about a variable
+	 * @param <V> type used for variable values
+	 * @param <U> type used for utility values
+	 */
+	private static class VarInfo < V extends Addable<V>, U extends Addable<U> > {
+		
+		/** The variable */
+		final String var;
+		
+		/** Whether the DFS tree is known */
+		boolean dfsKnown;
+		
+		/** The parent variable, or \c null if the variable is a root */
+		String parent;
+		
+		/** The agent owning the parent variable */
+		String parentAgent;
+		
+		/** The children variables */
+		String[] children;
+		
+		/** For each cycle not yet reported, the cost of the subtree received so far */
+		final TreeMap< Integer, Pending<U> > pending = new TreeMap< Integer, Pending<U> > ();
+		
+		/** The cycles in which the variable changed value, in increasing order */
+		int[] changeCycles = new int [8];
+		
+		/** The values taken by the variable in the corresponding cycles of changeCycles */
+		V[] changeValues;
+		
+		/** The number of entries in changeCycles and changeValues */
+		int nbrChanges;
+		
+		/** The last cycle for which the variable has reported its own cost */
+		int lastCycle = -1;
+		
+		/** The last cycle evaluated by the root, as far as this variable knows */
+		int completed = -1;
+		
+		/** The cycle with the best solution found so far, or -1 if none */
+		int bestCycle = -1;
+		
+		/** The value of the variable in the best solution found so far */
+		V bestValue;
+		
+		/** If this variable is the root, the cost of the best solution found so far */
+		U bestCost;
+		
+		/** If this variable is the root, the number of constraints violated by the best solution found so far */
+		int bestConflicts;
+		
+		/** Whether the best solution is final */
+		boolean finished;
+		
+		/** Constructor 
+		 * @param var 	the variable
+		 */
+		VarInfo (String var) {
+			this.var = var;
+		}
+		
+		/** Records the value of the variable in a given cycle
+		 * @param cycle 	the cycle
+		 * @param value 	the value
+		 */
+		@SuppressWarnings("unchecked")
+		void recordValue (int cycle, V value) {
+			
+			assert cycle > this.lastCycle : "Cycles must be reported in increasing order";
+			this.lastCycle = cycle;
+			
+			if (this.nbrChanges > 0 && this.changeValues[this.nbrChanges - 1].equals(value)) 
+				return;
+			
+			if (this.changeValues == null) 
+				this.changeValues = (V[]) new Addable [this.changeCycles.length];
+			else if (this.nbrChanges == this.changeCycles.length) {
+				this.changeCycles = Arrays.copyOf(this.changeCycles, 2 * this.nbrChanges);
+				this.changeValues = Arrays.copyOf(this.changeValues, 2 * this.nbrChanges);
+			}
+			this.changeCycles[this.nbrChanges] = cycle;
+			this.changeValues[this.nbrChanges++] = value;
+		}
+		
+		/** Forgets the values that can no longer be requested by the root
+		 * @param completed 	the last cycle evaluated by the root
+		 */
+		void forget (int completed) {
+			
+			this.completed = completed;
+			
+			// Keep the last change at or before the first cycle not yet evaluated
+			int first = 0;
+			while (first + 1 < this.nbrChanges && this.changeCycles[first + 1] <= completed + 1) 
+				first++;
+			if (first > 0) {
+				this.nbrChanges -= first;
+				System.arraycopy(this.changeCycles, first, this.changeCycles, 0, this.nbrChanges);
+				System.arraycopy(this.changeValues, first, this.changeValues, 0, this.nbrChanges);
+				Arrays.fill(this.changeValues, this.nbrChanges, this.nbrChanges + first, null);
+			}
+		}
+		
+		/** Returns the value of the variable in a given cycle
+		 * @param cycle 	the cycle
+		 * @return the value of the variable in this cycle
+		 */
+		V valueAt (int cycle) {
+			assert this.nbrChanges > 0 && this.changeCycles[0] <= cycle : "The value of " + this.var + " in cycle " + cycle + " has already been forgotten";
+			int i = this.nbrChanges - 1;
+			while (i > 0 && this.changeCycles[i] > cycle) 
+				i--;
+			return this.changeValues[i];
+		}
+		
+		/** Returns the pending cost for a given cycle
+		 * @param cycle 	the cycle
+		 * @param zero 		the zero utility
+		 * @return the pending cost, created if necessary
+		 */
+		Pending<U> getPending (int cycle, U zero) {
+			Pending<U> out = this.pending.get(cycle);
+			if (out == null) {
+				out = new Pending<U> (zero);
+				this.pending.put(cycle, out);
+			}
+			return out;
+		}
+	}
+	
+	/** The queue */
+	private Queue queue;
+	
+	/** The local problem */
+	private final DCOPProblemInterface<V, U> problem;
+	
+	/** The module to be notified when the best values are final */
+	private final Listener<V> listener;
+	
+	/** The type of the messages containing the DFS tree */
+	private final String dfsMsgType;
+	
+	/** The owner of each variable */
+	private Map<String, String> owners;
+	
+	/** Whether the problem is a maximization problem */
+	private final boolean maximize;
+	
+	/** The zero utility */
+	private final U zero;
+	
+	/** The information about each variable */
+	private final HashMap< String, VarInfo<V, U> > infos = new HashMap< String, VarInfo<V, U> > ();
+	
+	/** Constructor
+	 * @param problem 		the local problem
+	 * @param dfsMsgType 	the type of the messages containing the DFS tree
+	 * @param listener 		the module to be notified when the best values are final
+	 */
+	public AnytimeLocalSearch (DCOPProblemInterface<V, U> problem, String dfsMsgType, Listener<V> listener) {
+		this.problem = problem;
+		this.dfsMsgType = dfsMsgType;
+		this.listener = listener;
+		this.maximize = problem.maximize();
+		this.zero = problem.getZeroUtility();
+	}
+	
+	/** Sets the queue
+	 * @param queue 	the queue
+	 */
+	public void setQueue (Queue queue) {
+		this.queue = queue;
+	}
+	
+	/** @return the types of the messages the local search module must pass to notifyIn() */
+	public Collection<String> getMsgTypes () {
+		return Arrays.asList(this.dfsMsgType, COST_MSG_TYPE, BEST_MSG_TYPE);
+	}
+	
+	/** Returns the VarInfo for a given variable
+	 * @param var 	the variable
+	 * @return the VarInfo, created if necessary
+	 */
+	private VarInfo<V, U> getInfo (String var) {
+		VarInfo<V, U> info = this.infos.get(var);
+		if (info == null) {
+			info = new VarInfo<V, U> (var);
+			this.infos.put(var, info);
+		}
+		return info;
+	}
+	
+	/** Processes a message
+	 * @param msg 	the message, of one of the types in getMsgTypes()
+	 */
+	@SuppressWarnings("unchecked")
+	public void notifyIn (Message msg) {
+		
+		if (this.owners == null) 
+			this.owners = this.problem.getOwners();
+		
+		String type = msg.getType();
+		
+		if (type.equals(this.dfsMsgType)) {
+			DFSgeneration.MessageDFSoutput<V, U> msgCast = (DFSgeneration.MessageDFSoutput<V, U>) msg;
+			DFSview<V, U> view = msgCast.getNeighbors();
+			for (String var : msgCast.getVars()) {
+				VarInfo<V, U> info = this.getInfo(var);
+				info.parent = view.getParent();
+				info.parentAgent = view.getParentAgent();
+				info.children = view.getChildren().toArray(new String [0]);
+				info.dfsKnown = true;
+				this.processPending(info);
+			}
+		}
+		
+		else if (type.equals(COST_MSG_TYPE)) {
+			COSTmsg<U> msgCast = (COSTmsg<U>) msg;
+			VarInfo<V, U> info = this.getInfo(msgCast.getReceiver());
+			Pending<U> pending = info.getPending(msgCast.getCycle(), this.zero);
+			pending.cost = pending.cost.add(msgCast.getCost());
+			pending.conflicts += msgCast.getConflicts();
+			pending.height = Math.max(pending.height, msgCast.getHeight() + 1);
+			pending.nbrReports++;
+			this.processPending(info);
+		}
+		
+		else if (type.equals(BEST_MSG_TYPE)) {
+			BESTmsg msgCast = (BESTmsg) msg;
+			this.setBest(this.getInfo(msgCast.getReceiver()), msgCast.getCycle(), msgCast.getCompleted(), msgCast.isLast());
+		}
+	}
+	
+	/** Records the value of a variable in a given cycle, and the cost of the constraints it is responsible for
+	 * @param var 			the variable
+	 * @param cycle 		the cycle
+	 * @param value 		the value of the variable in this cycle
+	 * @param cost 			the sum of the finite utilities of the constraints the variable is responsible for
+	 * @param conflicts 	the number of infeasible constraints the variable is responsible for
+	 * @param last 			whether this is the last cycle
+	 * @see LocalUtilityCache#getOwnUtility(int)
+	 */
+	public void recordCost (String var, int cycle, V value, U cost, int conflicts, boolean last) {
+		
+		if (this.owners == null) 
+			this.owners = this.problem.getOwners();
+		
+		VarInfo<V, U> info = this.getInfo(var);
+		info.recordValue(cycle, value);
+		
+		Pending<U> pending = info.getPending(cycle, this.zero);
+		pending.cost = pending.cost.add(cost);
+		pending.conflicts += conflicts;
+		pending.own = true;
+		pending.last = last;
+		pending.time = this.queue.getCurrentTime();
+		this.processPending(info);
+	}
+	
+	/** Returns the value of a variable in the best solution found so far
+	 * @param var 	the variable
+	 * @return the value of the variable, or \c null if no solution has been evaluated yet
+	 * @note If the best solution is not final, the variables may not all agree yet on which one it is. 
+	 */
+	public V getBestValue (String var) {
+		VarInfo<V, U> info = this.infos.get(var);
+		return info == null ? null : info.bestValue;
+	}
+	
+	/** Sends up the DFS tree the costs of the cycles for which all children have reported
+	 * @param info 	the variable
+	 */
+	private void processPending (VarInfo<V, U> info) {
+		
+		if (! info.dfsKnown) 
+			return;
+		
+		// The cycles are completed in increasing order
+		while (! info.pending.isEmpty()) {
+			Map.Entry< Integer, Pending<U> > entry = info.pending.firstEntry();
+			Pending<U> pending = entry.getValue();
+			if (! pending.own || pending.nbrReports < info.children.length) 
+				return;
+			info.pending.pollFirstEntry();
+			final int cycle = entry.getKey();
+			
+			if (info.parent != null) { // send the cost to the parent
+				this.queue.sendMessage(info.parentAgent, new COSTmsg<U> (info.var, info.parent, cycle, pending.cost, pending.conflicts, pending.height));
+				continue;
+			}
+			
+			// I am the root; check whether this cycle is better than the best cycle so far
+			boolean better = (info.bestCycle < 0 || pending.conflicts < info.bestConflicts);
+			if (! better && pending.conflicts == info.bestConflicts) {
+				int diff = pending.cost.compareTo(info.bestCost);
+				better = (this.maximize ? diff > 0 : diff < 0);
+			}
+			
+			if (better) {
+				info.bestCost = pending.cost;
+				info.bestConflicts = pending.conflicts;
+				
+				final long time = this.queue.getCurrentTime();
+				U cost = pending.conflicts == 0 ? pending.cost : (this.maximize ? this.zero.getMinInfinity() : this.zero.getPlusInfinity());
+				this.queue.sendMessage(AgentInterface.STATS_MONITOR, 
+						new ImprovementMsg<U> (new Improvement<U> (info.var, cycle, cost, pending.conflicts, time, time - pending.time)));
+			}
+			
+			// Send the best cycle down the tree if it changed, and at least every h + 1 cycles so that variables can forget old values
+			if (better || pending.last || cycle - info.completed > pending.height) 
+				this.setBest(info, better ? cycle : info.bestCycle, cycle, pending.last);
+		}
+	}
+	
+	/** Records the cycle with the best solution found so far, and propagates it down the DFS tree
+	 * @param info 		the variable
+	 * @param cycle 		the cycle with the best solution
+	 * @param completed 	the last cycle evaluated by the root
+	 * @param last 			whether the best solution is final
+	 */
+	private void setBest (VarInfo<V, U> info, int cycle, int completed, boolean last) {
+		
+		if (completed <= info.completed) // obsolete message
+			return;
+		
+		if (cycle != info.bestCycle) {
+			info.bestCycle = cycle;
+			info.bestValue = info.valueAt(cycle);
+		}
+		info.forget(completed);
+		
+		for (String child : info.children) 
+			this.queue.sendMessage(this.owners.get(child), new BESTmsg (child, cycle, completed, last));
+		
+		if (last && ! info.finished) {
+			info.finished = true;
+			this.listener.bestValueFinal(info.var, info.bestValue);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.localSearch;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import frodo2.communication.Message;
+
+/** Message propagated down the DFS tree by its root, announcing the cycle with the best solution found so far
+ * @see AnytimeLocalSearch
+ */
+public class BESTmsg extends Message {
+
+	/** The receiver variable */
+	private String receiver;
+	
+	/** The cycle with the best solution */
+	private int cycle;
+	
+	/** The last cycle evaluated by the root */
+	private int completed;
+	
+	/** Whether all cycles have been evaluated, such that the best solution is final */
+	private boolean last;
+	
+	/** Empty constructor used for externalization */
+	public BESTmsg () {
+		super.type = AnytimeLocalSearch.BEST_MSG_TYPE;
+	}
+
+	/** Constructor
+	 * @param receiver 	the receiver variable
+	 * @param cycle 		the cycle with the best solution
+	 * @param completed 	the last cycle evaluated by the root
+	 * @param last 			whether all cycles have been evaluated, such that the best solution is final
+	 */
+	public BESTmsg (String receiver, int cycle, int completed, boolean last) {
+		super (AnytimeLocalSearch.BEST_MSG_TYPE);
+		this.receiver = receiver;
+		this.cycle = cycle;
+		this.completed = completed;
+		this.last = last;
+	}
+
+	/** @see Message#writeExternal(java.io.ObjectOutput) */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		super.writeExternal(out);
+		out.writeObject(this.receiver);
+		out.writeInt(this.cycle);
+		out.writeInt(this.completed);
+		out.writeBoolean(this.last);
+	}
+
+	/** @see Message#readExternal(java.io.ObjectInput) */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		super.readExternal(in);
+		this.receiver = (String) in.readObject();
+		this.cycle = in.readInt();
+		this.completed = in.readInt();
+		this.last = in.readBoolean();
+	}
+
+	/** @return the receiver variable */
+	public String getReceiver () {
+		return this.receiver;
+	}
+	
+	/** @return the cycle with the best solution */
+	public int getCycle () {
+		return this.cycle;
+	}
+	
+	/** @return the last cycle evaluated by the root */
+	public int getCompleted () {
+		return this.completed;
+	}
+	
+	/** @return whether all cycles have been evaluated, such that the best solution is final */
+	public boolean isLast () {
+		return this.last;
+	}
+	
+	/** @see Message#toString() */
+	@Override
+	public String toString () {
+		return super.toString() + "\n\treceiver: " + this.receiver + "\n\tcycle: " + this.cycle + "\n\tcompleted: " + this.completed + "\n\tlast: " + this.last;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.localSearch;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import frodo2.communication.Message;
+import frodo2.solutionSpaces.Addable;
+
+/** Message sent by a variable to its parent in the DFS tree, containing the cost of its subtree in a given cycle
+ * @param <U> type used for utility values
+ * @see AnytimeLocalSearch
+ */
+public class COSTmsg < U extends Addable<U> > extends Message {
+
+	/** The sender variable */
+	private String sender;
+	
+	/** The receiver variable */
+	private String receiver;
+	
+	/** The cycle */
+	private int cycle;
+	
+	/** The sum of the finite utilities of the constraints in the sender's subtree */
+	private U cost;
+	
+	/** The number of infeasible constraints in the sender's subtree */
+	private int conflicts;
+	
+	/** The height of the sender's subtree */
+	private int height;
+	
+	/** Empty constructor used for externalization */
+	public COSTmsg () {
+		super.type = AnytimeLocalSearch.COST_MSG_TYPE;
+	}
+
+	/** Constructor
+	 * @param sender 		the sender variable
+	 * @param receiver 		the receiver variable
+	 * @param cycle 		the cycle
+	 * @param cost 			the sum of the finite utilities of the constraints in the sender's subtree
+	 * @param conflicts 	the number of infeasible constraints in the sender's subtree
+	 * @param height 		the height of the sender's subtree
+	 */
+	public COSTmsg (String sender, String receiver, int cycle, U cost, int conflicts, int height) {
+		super (AnytimeLocalSearch.COST_MSG_TYPE);
+		this.sender = sender;
+		this.receiver = receiver;
+		this.cycle = cycle;
+		this.cost = cost;
+		this.conflicts = conflicts;
+		this.height = height;
+	}
+
+	/** @see Message#writeExternal(java.io.ObjectOutput) */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		super.writeExternal(out);
+		out.writeObject(this.sender);
+		out.writeObject(this.receiver);
+		out.writeInt(this.cycle);
+		out.writeObject(this.cost);
+		out.writeInt(this.conflicts);
+		out.writeInt(this.height);
+	}
+
+	/** @see Message#readExternal(java.io.ObjectInput) */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		super.readExternal(in);
+		this.sender = (String) in.readObject();
+		this.receiver = (String) in.readObject();
+		this.cycle = in.readInt();
+		this.cost = (U) in.readObject();
+		this.conflicts = in.readInt();
+		this.height = in.readInt();
+	}
+
+	/** @return the sender variable */
+	public String getSender () {
+		return this.sender;
+	}
+	
+	/** @return the receiver variable */
+	public String getReceiver () {
+		return this.receiver;
+	}
+	
+	/** @return the cycle */
+	public int getCycle () {
+		return this.cycle;
+	}
+	
+	/** @return the sum of the finite utilities of the constraints in the sender's subtree */
+	public U getCost () {
+		return this.cost;
+	}
+	
+	/** @return the number of infeasible constraints in the sender's subtree */
+	public int getConflicts () {
+		return this.conflicts;
+	}
+	
+	/** @return the height of the sender's subtree */
+	public int getHeight () {
+		return this.height;
+	}
+	
+	/** @see Message#toString() */
+	@Override
+	public String toString () {
+		return super.toString() + "\n\tsender: " + this.sender + "\n\treceiver: " + this.receiver + "\n\tcycle: " + this.cycle + 
+				"\n\tcost: " + this.cost + "\n\tconflicts: " + this.conflicts + "\n\theight: " + this.height;
+	}
+}
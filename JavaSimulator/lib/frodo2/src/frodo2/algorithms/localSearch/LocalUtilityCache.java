@@ -0,0 +1,380 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+/** Local search algorithms */
+package frodo2.algorithms.localSearch;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.AddableConflicts;
+import frodo2.solutionSpaces.AddableReal;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+
+/** For each value of a variable, caches the local utility of the variable given the values of its neighbors
+ * 
+ * Local search algorithms repeatedly evaluate all values of a variable against the current values of its neighbors. 
+ * Re-evaluating all constraints for all values costs O(domain x constraints) every time a neighbor changes value. 
+ * This cache stores, for each value, the sum of the utilities of all constraints, and for each constraint, its 
+ * utility for each value. When a neighbor changes value, only the constraints shared with this neighbor are 
+ * re-evaluated, and the sums are updated by difference. Looking up the best value then only costs O(domain). 
+ * 
+ * Infinite utilities are not included in the sums, but counted separately, such that they can be removed again. 
+ * Floating-point sums accumulate rounding errors when updated by difference; for AddableReal utilities, the sums are 
+ * therefore recomputed from the cached utilities of the constraints every RECOMPUTE_PERIOD updates. 
+ * 
+ * @param <V> type used for variable values
+ * @param <U> type used for utility values
+ * @note The cache must be updated by calling update() after the neighbors' values have been set and before the utilities are read. 
+ */
+public class LocalUtilityCache < V extends Addable<V>, U extends Addable<U> > {
+	
+	/** The number of updates after which sums of floating-point utilities are recomputed from scratch */
+	public static final int RECOMPUTE_PERIOD = 64;
+	
+	/** The variable's domain */
+	private final V[] domain;
+	
+	/** The constraints involving the variable */
+	private final UtilitySolutionSpace<V, U>[] spaces;
+	
+	/** For each constraint, the values of its variables used to query it */
+	private final V[][] assignments;
+	
+	/** For each constraint, the position of the variable in its scope */
+	private final int[] positions;
+	
+	/** The constraints for which the variable has the lexicographically smallest name in the scope */
+	private final int[] ownSpaces;
+	
+	/** For each neighbor, the pairs (constraint, position of the neighbor in the constraint's scope) */
+	private final HashMap<String, int[]> neighborPositions;
+	
+	/** For each neighbor, the value used in the cached utilities */
+	private final HashMap<String, V> neighborValues;
+	
+	/** For each constraint and each value of the variable, the utility of the constraint */
+	private final U[][] spaceUtils;
+	
+	/** For each value, the sum of the finite utilities of all constraints */
+	private final U[] sums;
+	
+	/** For each value, the number of constraints with infeasible utility */
+	private final int[] conflicts;
+	
+	/** For each value, the number of constraints with infinite utility of the opposite sign */
+	private final int[] infinites;
+	
+	/** Whether each constraint must be re-evaluated */
+	private final boolean[] dirty;
+	
+	/** The constraints that must be re-evaluated */
+	private final int[] dirtyList;
+	
+	/** The number of constraints that must be re-evaluated */
+	private int nbrDirty;
+	
+	/** The zero utility */
+	private final U zero;
+	
+	/** The utility of infeasible assignments */
+	private final U infeasible;
+	
+	/** The infinite utility of the opposite sign */
+	private final U otherInfinity;
+	
+	/** Whether the utilities are floating-point numbers, whose sums drift when updated by difference */
+	private final boolean inexact;
+	
+	/** The number of updates since the sums were last recomputed from scratch */
+	private int nbrUpdates;
+	
+	/** Constructor
+	 * @param var 			the variable
+	 * @param domain 		the variable's domain
+	 * @param spaces 		the constraints; the ones that do not involve \a var are ignored
+	 * @param zero 			the zero utility
+	 * @param maximize 		whether the problem is a maximization problem
+	 */
+	@SuppressWarnings("unchecked")
+	public LocalUtilityCache (String var, V[] domain, List< ? extends UtilitySolutionSpace<V, U> > spaces, U zero, boolean maximize) {
+		
+		this.domain = domain;
+		this.zero = zero;
+		this.infeasible = maximize ? zero.getMinInfinity() : zero.getPlusInfinity();
+		this.otherInfinity = maximize ? zero.getPlusInfinity() : zero.getMinInfinity();
+		this.inexact = zero instanceof AddableReal;
+		
+		// Only keep the constraints involving the variable
+		ArrayList< UtilitySolutionSpace<V, U> > mySpaces = new ArrayList< UtilitySolutionSpace<V, U> > (spaces.size());
+		ArrayList<Integer> positions = new ArrayList<Integer> (spaces.size());
+		for (UtilitySolutionSpace<V, U> space : spaces) {
+			String[] vars = space.getVariables();
+			for (int i = 0; i < vars.length; i++) {
+				if (vars[i].equals(var)) {
+					mySpaces.add(space);
+					positions.add(i);
+					break;
+				}
+			}
+		}
+		
+		final int nbrSpaces = mySpaces.size();
+		this.spaces = mySpaces.toArray((UtilitySolutionSpace<V, U>[]) new UtilitySolutionSpace [nbrSpaces]);
+		this.positions = new int [nbrSpaces];
+		this.assignments = (V[][]) Array.newInstance(domain.getClass(), nbrSpaces);
+		this.neighborPositions = new HashMap<String, int[]> ();
+		this.neighborValues = new HashMap<String, V> ();
+		int[] ownSpaces = new int [nbrSpaces];
+		int nbrOwnSpaces = 0;
+		for (int s = 0; s < nbrSpaces; s++) {
+			this.positions[s] = positions.get(s);
+			String[] vars = this.spaces[s].getVariables();
+			this.assignments[s] = (V[]) Array.newInstance(domain.getClass().getComponentType(), vars.length);
+			
+			boolean own = true;
+			for (int i = 0; i < vars.length; i++) {
+				if (i == this.positions[s]) 
+					continue;
+				if (vars[i].compareTo(var) < 0) 
+					own = false;
+				int[] pos = this.neighborPositions.get(vars[i]);
+				if (pos == null) 
+					pos = new int [2];
+				else {
+					int[] tmp = new int [pos.length + 2];
+					System.arraycopy(pos, 0, tmp, 0, pos.length);
+					pos = tmp;
+				}
+				pos[pos.length - 2] = s;
+				pos[pos.length - 1] = i;
+				this.neighborPositions.put(vars[i], pos);
+			}
+			
+			if (own) 
+				ownSpaces[nbrOwnSpaces++] = s;
+		}
+		this.ownSpaces = new int [nbrOwnSpaces];
+		System.arraycopy(ownSpaces, 0, this.ownSpaces, 0, nbrOwnSpaces);
+		
+		this.spaceUtils = (U[][]) new Addable [nbrSpaces][0];
+		this.sums = (U[]) new Addable [domain.length];
+		for (int i = 0; i < domain.length; i++) 
+			this.sums[i] = zero;
+		this.conflicts = new int [domain.length];
+		this.infinites = new int [domain.length];
+		
+		// All constraints are initially dirty
+		this.dirty = new boolean [nbrSpaces];
+		this.dirtyList = new int [nbrSpaces];
+		for (int s = 0; s < nbrSpaces; s++) {
+			this.dirty[s] = true;
+			this.dirtyList[s] = s;
+		}
+		this.nbrDirty = nbrSpaces;
+	}
+	
+	/** Records the value of a neighbor
+	 * @param neighbor 	the neighbor
+	 * @param value 	its value
+	 */
+	public void setNeighborValue (String neighbor, V value) {
+		
+		int[] pos = this.neighborPositions.get(neighbor);
+		if (pos == null) // no shared constraint
+			return;
+		
+		V old = this.neighborValues.put(neighbor, value);
+		if (value.equals(old)) 
+			return;
+		
+		for (int i = 0; i < pos.length; i += 2) {
+			final int s = pos[i];
+			this.assignments[s][pos[i + 1]] = value;
+			if (! this.dirty[s]) {
+				this.dirty[s] = true;
+				this.dirtyList[this.nbrDirty++] = s;
+			}
+		}
+	}
+	
+	/** Re-evaluates the constraints whose neighbors have changed values since the last update */
+	@SuppressWarnings("unchecked")
+	public void update () {
+		
+		for (int d = 0; d < this.nbrDirty; d++) {
+			final int s = this.dirtyList[d];
+			this.dirty[s] = false;
+			
+			final UtilitySolutionSpace<V, U> space = this.spaces[s];
+			final V[] assignment = this.assignments[s];
+			final int pos = this.positions[s];
+			U[] utils = this.spaceUtils[s];
+			final boolean first = (utils.length == 0);
+			if (first) 
+				utils = this.spaceUtils[s] = (U[]) new Addable [this.domain.length];
+			
+			for (int i = 0; i < this.domain.length; i++) {
+				assignment[pos] = this.domain[i];
+				U util = space.getUtility(assignment);
+				
+				if (! first) 
+					this.remove(i, utils[i]);
+				utils[i] = util;
+				this.add(i, util);
+			}
+		}
+		
+		if (this.inexact && this.nbrDirty > 0 && ++this.nbrUpdates >= RECOMPUTE_PERIOD) 
+			this.recompute();
+		
+		this.nbrDirty = 0;
+	}
+	
+	/** Recomputes the sums from the cached utilities of the constraints, discarding the accumulated rounding errors */
+	private void recompute () {
+		
+		for (int i = 0; i < this.domain.length; i++) {
+			this.sums[i] = this.zero;
+			this.conflicts[i] = 0;
+			this.infinites[i] = 0;
+			for (U[] utils : this.spaceUtils) 
+				if (utils.length > 0) 
+					this.add(i, utils[i]);
+		}
+		
+		this.nbrUpdates = 0;
+	}
+	
+	/** Adds the utility of a constraint to the cached utility of a value
+	 * @param i 	the index of the value
+	 * @param util 	the utility of the constraint
+	 */
+	private void add (int i, U util) {
+		if (util.equals(this.infeasible)) 
+			this.conflicts[i]++;
+		else if (util.equals(this.otherInfinity)) 
+			this.infinites[i]++;
+		else 
+			this.sums[i] = this.sums[i].add(util);
+	}
+	
+	/** Removes the utility of a constraint from the cached utility of a value
+	 * @param i 	the index of the value
+	 * @param util 	the utility of the constraint
+	 */
+	private void remove (int i, U util) {
+		if (util.equals(this.infeasible)) 
+			this.conflicts[i]--;
+		else if (util.equals(this.otherInfinity)) 
+			this.infinites[i]--;
+		else 
+			this.sums[i] = this.sums[i].subtract(util);
+	}
+	
+	/** @return the size of the domain */
+	public int getDomainSize () {
+		return this.domain.length;
+	}
+	
+	/** Returns the index of a value in the domain
+	 * @param value 	the value
+	 * @return the index of the value, or -1 if it is not in the domain
+	 */
+	public int indexOf (V value) {
+		for (int i = 0; i < this.domain.length; i++) 
+			if (this.domain[i].equals(value)) 
+				return i;
+		return -1;
+	}
+	
+	/** Returns the local utility of a value
+	 * @param i 	the index of the value
+	 * @return the sum of the utilities of all constraints involving the variable
+	 */
+	public U getUtility (int i) {
+		assert this.nbrDirty == 0 : "The cache has not been updated";
+		if (this.conflicts[i] > 0) 
+			return this.infeasible;
+		else if (this.infinites[i] > 0) 
+			return this.otherInfinity;
+		else 
+			return this.sums[i];
+	}
+	
+	/** Returns the number of constraints violated by a value
+	 * @param i 	the index of the value
+	 * @return the number of constraints with infeasible utility
+	 */
+	public int getConflicts (int i) {
+		assert this.nbrDirty == 0 : "The cache has not been updated";
+		return this.conflicts[i];
+	}
+	
+	/** Returns the local utility of a value, together with its number of violated constraints
+	 * @param i 	the index of the value
+	 * @return the local utility of the value
+	 */
+	public AddableConflicts<U> getUtilityWithConflicts (int i) {
+		return new AddableConflicts<U> (this.getUtility(i), this.getConflicts(i));
+	}
+	
+	/** Returns the utility of a value, only summed over the constraints this variable is responsible for
+	 * 
+	 * Each constraint is assigned to the variable with the lexicographically smallest name in its scope, 
+	 * such that summing these utilities over all variables counts each constraint exactly once. 
+	 * @param i 	the index of the value
+	 * @return the sum of the finite utilities of the constraints this variable is responsible for, 
+	 * or the infinite utility of the opposite sign to the infeasible utility if one of them has it
+	 * @note Infeasible utilities are not included in the sum, but are counted by getOwnConflicts(). 
+	 */
+	public U getOwnUtility (int i) {
+		assert this.nbrDirty == 0 : "The cache has not been updated";
+		U sum = this.zero;
+		for (int s : this.ownSpaces) {
+			U util = this.spaceUtils[s][i];
+			if (util.equals(this.otherInfinity)) 
+				return this.otherInfinity;
+			else if (! util.equals(this.infeasible)) 
+				sum = sum.add(util);
+		}
+		return sum;
+	}
+	
+	/** Returns the number of constraints violated by a value, among the constraints this variable is responsible for
+	 * @param i 	the index of the value
+	 * @return the number of constraints with infeasible utility
+	 * @see #getOwnUtility(int)
+	 */
+	public int getOwnConflicts (int i) {
+		assert this.nbrDirty == 0 : "The cache has not been updated";
+		int out = 0;
+		for (int s : this.ownSpaces) 
+			if (this.spaceUtils[s][i].equals(this.infeasible)) 
+				out++;
+		return out;
+	}
+	
+}
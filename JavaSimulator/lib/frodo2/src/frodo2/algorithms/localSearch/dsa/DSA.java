@@ -25,14 +25,12 @@ package frodo2.algorithms.localSearch.dsa;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
@@ -41,12 +39,14 @@ import org.jdom2.Element;
 
 import frodo2.algorithms.AgentInterface;
 import frodo2.algorithms.StatsReporterWithConvergence;
+import frodo2.algorithms.localSearch.AnytimeLocalSearch;
+import frodo2.algorithms.localSearch.LocalUtilityCache;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration;
 import frodo2.communication.Message;
 import frodo2.communication.MessageWith3Payloads;
 import frodo2.communication.Queue;
 import frodo2.solutionSpaces.Addable;
 import frodo2.solutionSpaces.AddableConflicts;
-import frodo2.solutionSpaces.AddableDelayed;
 import frodo2.solutionSpaces.DCOPProblemInterface;
 import frodo2.solutionSpaces.UtilitySolutionSpace;
 
@@ -76,7 +76,7 @@ import frodo2.solutionSpaces.UtilitySolutionSpace;
  * @todo Implement strategies B and D. 
  */
 public class DSA < Val extends Addable<Val>, U extends Addable<U> >
-implements StatsReporterWithConvergence<Val> {
+implements StatsReporterWithConvergence<Val>, AnytimeLocalSearch.Listener<Val> {
 
 	// The message types
 
@@ -92,6 +92,9 @@ implements StatsReporterWithConvergence<Val> {
 	/** The type of the output messages containing the optimal assignment to a variable */
 	public static final String OUTPUT_MSG_TYPE = "OutputMessageDSA";
 
+	/** The type of the messages containing the DFS tree, used by the anytime mechanism */
+	public static String DFS_MSG_TYPE = DFSgeneration.OUTPUT_MSG_TYPE;
+
 	/** When \c true, every variable writes log information to a log file */
 	protected final boolean LOG = false;
 	
@@ -113,6 +116,12 @@ implements StatsReporterWithConvergence<Val> {
 	/** The global utility of the final variable assignment */
 	protected U finalUtility; 
 
+	/** The anytime mechanism, or \c null if the last assignment should be reported instead of the best one */
+	protected AnytimeLocalSearch<Val, U> anytime;
+
+	/** In stats gatherer mode, the better solutions found by the anytime mechanism */
+	protected ArrayList< AnytimeLocalSearch.Improvement<U> > improvements;
+
 	// Information on the problem
 
 	/** The agent's problem */
@@ -160,6 +169,7 @@ implements StatsReporterWithConvergence<Val> {
 		this.problem = problem;
 		numberOfVariables = problem.getNbrVars();
 		convergence = false;
+		improvements = new ArrayList< AnytimeLocalSearch.Improvement<U> > ();
 	}
 
 	/**
@@ -192,6 +202,9 @@ implements StatsReporterWithConvergence<Val> {
 			this.nbrCycles = Integer.parseInt(nbrCycles) - 1;
 
 		setDecisionStrategy(decisionStrategy);
+		
+		if (Boolean.parseBoolean(parameters.getAttributeValue("anytime")))
+			this.anytime = new AnytimeLocalSearch<Val, U> (problem, DFS_MSG_TYPE, this);
 
 	}
 	
@@ -221,6 +234,9 @@ implements StatsReporterWithConvergence<Val> {
 		this.nbrCycles = nbrCycles;
 		
 		setDecisionStrategy(decisionStrategy);
+		
+		if (Boolean.parseBoolean(parameters.getAttributeValue("anytime")))
+			this.anytime = new AnytimeLocalSearch<Val, U> (problem, DFS_MSG_TYPE, this);
 	}
 	
 	/**
@@ -253,7 +269,8 @@ implements StatsReporterWithConvergence<Val> {
 		owners = problem.getOwners();
 		numberOfVariables = myVars.length;
 		if (this.numberOfVariables == 0) { // empty agent
-			this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			if (this.anytime == null) // else, the DFS generation module already reports that the agent is finished
+				this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
 			return;
 		}
 		infos = new HashMap<String, VariableInfo<Val,U>>();
@@ -329,6 +346,7 @@ implements StatsReporterWithConvergence<Val> {
 	public void getStatsFromQueue(Queue queue) {
 		queue.addIncomingMessagePolicy(OUTPUT_MSG_TYPE, this);
 		queue.addIncomingMessagePolicy(CONV_STATS_MSG_TYPE, this);
+		queue.addIncomingMessagePolicy(AnytimeLocalSearch.IMPROVEMENT_MSG_TYPE, this);
 	}
 
 	/**
@@ -369,6 +387,14 @@ implements StatsReporterWithConvergence<Val> {
 		return finalUtility;
 	}
 
+	/**
+	 * Getter method
+	 * @return the better solutions found by the anytime mechanism, in the order in which they were reported
+	 */
+	public ArrayList< AnytimeLocalSearch.Improvement<U> > getImprovements() {
+		return improvements;
+	}
+
 	/** 
 	 * @see frodo2.algorithms.StatsReporter#setSilent(boolean)
 	 */
@@ -385,6 +411,8 @@ implements StatsReporterWithConvergence<Val> {
 		msgTypes.add(VALUE_MSG_TYPE);
 		msgTypes.add(AgentInterface.AGENT_FINISHED);
 		msgTypes.add(AgentInterface.STOP_AGENT);
+		if(anytime != null)
+			msgTypes.addAll(anytime.getMsgTypes());
 		return msgTypes;
 	}
 
@@ -403,7 +431,7 @@ implements StatsReporterWithConvergence<Val> {
 			U utility = msgCast.getUtility();
 			assignment.put(variable, value);
 			if (!silent) 
-				System.out.println("var `" + variable + "' = " + value + ", \t local utility = " + utility);
+				System.out.println("var `" + variable + "' = " + value + (utility == null ? "" : ", \t local utility = " + utility));
 
 			if(assignment.size() == numberOfVariables) {
 				UtilitySolutionSpace<Val, U> sol = problem.getUtility(assignment); 
@@ -427,6 +455,15 @@ implements StatsReporterWithConvergence<Val> {
 			return;
 		}
 
+		else if (type.equals(AnytimeLocalSearch.IMPROVEMENT_MSG_TYPE)) { // in stats gatherer mode, a better solution found by the anytime mechanism
+			AnytimeLocalSearch.ImprovementMsg<U> msgCast = (AnytimeLocalSearch.ImprovementMsg<U>)msg;
+			improvements.add(msgCast.getImprovement());
+			if (!silent)
+				System.out.println("Better solution found by " + msgCast.getImprovement());
+
+			return;
+		}
+
 		else if (type.equals(AgentInterface.AGENT_FINISHED)) {
 			this.reset();
 			return;
@@ -435,12 +472,20 @@ implements StatsReporterWithConvergence<Val> {
 		if(!this.started)
 			init();
 
-		if (type.equals(VALUE_MSG_TYPE)) {
+		if (type.equals(AnytimeLocalSearch.COST_MSG_TYPE) || type.equals(AnytimeLocalSearch.BEST_MSG_TYPE) || type.equals(DFS_MSG_TYPE)) {
+			if(anytime != null)
+				anytime.notifyIn(msg);
+		}
+
+		else if (type.equals(VALUE_MSG_TYPE)) {
 			VALUEmsg<Val> msgCast = (VALUEmsg<Val>)msg;
 			String var = msgCast.getReceiver();
 			VariableInfo<Val, U> varInfo = infos.get(var);
 			if(varInfo.setContext(msgCast)) {
 				varInfo.resetReportedNeighbours();
+				if(anytime != null)
+					anytime.recordCost(var, varInfo.cycleCounter, varInfo.currentValue, varInfo.cache.getOwnUtility(varInfo.currentIndex), 
+							varInfo.cache.getOwnConflicts(varInfo.currentIndex), varInfo.cycleCounter + 1 == nbrCycles);
 				if(++varInfo.cycleCounter != nbrCycles) {
 					Val newValue = null;
 					if(decisionStrategy.determineAssignment(var)) {
@@ -473,10 +518,12 @@ implements StatsReporterWithConvergence<Val> {
 						queue.sendMessage(AgentInterface.STATS_MONITOR, new StatsReporterWithConvergence.ConvStatMessage<Val>(CONV_STATS_MSG_TYPE, var, history));
 					}
 
-					queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<Val, U>(var, varInfo.currentValue, varInfo.currentUtility));
-					if(++variableFinishedCounter == numberOfVariables) {
-						queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
-					}
+					if(anytime == null) {
+						queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<Val, U>(var, varInfo.currentValue, varInfo.currentUtility));
+						if(++variableFinishedCounter == numberOfVariables) {
+							queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+						}
+					} // else, wait until the value in the best solution is final
 				}
 			}
 		} else if(type.equals(AgentInterface.STOP_AGENT)) {
@@ -493,7 +540,11 @@ implements StatsReporterWithConvergence<Val> {
 						queue.sendMessage(AgentInterface.STATS_MONITOR, new StatsReporterWithConvergence.ConvStatMessage<Val>(CONV_STATS_MSG_TYPE, var, history));
 					}
 
-					queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<Val, U>(var, varInfo.currentValue, varInfo.currentUtility));
+					Val best = (anytime == null ? null : anytime.getBestValue(var));
+					if(best == null)
+						queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<Val, U>(var, varInfo.currentValue, varInfo.currentUtility));
+					else
+						queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<Val, U>(var, best, null));
 				}
 
 				queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
@@ -507,6 +558,18 @@ implements StatsReporterWithConvergence<Val> {
 	 */
 	public void setQueue(Queue queue) {
 		this.queue = queue;
+		if(anytime != null)
+			anytime.setQueue(queue);
+	}
+
+	/** 
+	 * @see AnytimeLocalSearch.Listener#bestValueFinal(java.lang.String, frodo2.solutionSpaces.Addable)
+	 */
+	public void bestValueFinal(String var, Val value) {
+		queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<Val, U>(var, value, null));
+		if(++variableFinishedCounter == numberOfVariables) {
+			queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+		}
 	}
 	
 	/**
@@ -561,9 +624,6 @@ implements StatsReporterWithConvergence<Val> {
 		/** Its current utility */
 		protected U currentUtility;
 
-		/** The variable's local problem */
-		private List< ? extends UtilitySolutionSpace<Val, U> > spaces;
-
 		/** The set of neighbours that have reported a value */
 		protected Set<String> reportedNeighbours;
 
@@ -587,6 +647,12 @@ implements StatsReporterWithConvergence<Val> {
 
 		/** pointer to the listener that owns this object */
 		protected DSA<Val, U> listener;
+		
+		/** For each value, the local utility given the current context */
+		protected LocalUtilityCache<Val, U> cache;
+		
+		/** The index of the current value in the domain */
+		protected int currentIndex;
 
 		/**
 		 * Constructor
@@ -623,14 +689,17 @@ implements StatsReporterWithConvergence<Val> {
 			}
 
 			/// @todo All spaces should be joined to make use of the power of the local solver, but then we can't count constraint violations anymore... 
-			spaces = problem.getSolutionSpaces(variableID, false);
+			cache = new LocalUtilityCache<Val, U> (variableID, domain, problem.getSolutionSpaces(variableID, false), zero, maximize);
 
 			if(numberOfNeighbours == 0) {
+				cache.update();
 				VarAssignment<Val, U> ass = bestAssignment();
 				currentValue = ass.value;
+				currentIndex = cache.indexOf(currentValue);
 				currentUtility = ass.util;
 			} else {
-				currentValue = domain[(int)(Math.random()*domainSize)];
+				currentIndex = (int)(Math.random()*domainSize);
+				currentValue = domain[currentIndex];
 				if(maximize)
 					currentUtility = zero.getMinInfinity();
 				else
@@ -651,17 +720,14 @@ implements StatsReporterWithConvergence<Val> {
 			Val value = domain[0];
 
 			for(int i = 0; i < domainSize; i++) {
-				Val v = domain[i];
-				context.put(variableID, v);
-				AddableConflicts<U> util = calculateUtility();
+				AddableConflicts<U> util = cache.getUtilityWithConflicts(i);
 
 				if(maximize ? max.compareTo(util) < 0 : max.compareTo(util) > 0) {
 					max = util;
-					value = v;
+					value = domain[i];
 				}
 			}
 
-			context.put(variableID, currentValue);
 			return new VarAssignment<Val, U> (value, max.getUtility());
 		}
 
@@ -677,6 +743,7 @@ implements StatsReporterWithConvergence<Val> {
 				return false;
 
 			currentValue = ass.value;
+			currentIndex = cache.indexOf(currentValue);
 			context.put(variableID, currentValue);
 			return true;
 		}
@@ -692,8 +759,10 @@ implements StatsReporterWithConvergence<Val> {
 			Val value = msg.getValue();
 			if(reportedNeighbours.add(neighbour)) {
 				context.put(neighbour, value);
+				cache.setNeighborValue(neighbour, value);
 				if(reportedNeighbours.size() == numberOfNeighbours) {
-					currentUtility = calculateUtility().getUtility();
+					cache.update();
+					currentUtility = cache.getUtility(currentIndex);
 					return true;
 				}
 
@@ -705,35 +774,6 @@ implements StatsReporterWithConvergence<Val> {
 			}
 		}
 
-		/**
-		 * Given the current context and variable assignment,
-		 * this method calculates the utility for the local
-		 * problem
-		 * @author Brammert Ottens, 19 aug 2009
-		 * @return	the current local utility
-		 */
-		@SuppressWarnings("unchecked")
-		protected AddableConflicts<U> calculateUtility() {
-			
-			int conflicts = 0;
-			AddableDelayed<U> util = zero.addDelayed();
-			for(int j = 0; j < spaces.size(); j++) {
-				UtilitySolutionSpace<Val, U> space = spaces.get(j);
-				String[] vars = space.getVariables();
-				int nbrVars = vars.length;
-				Val[] values = (Val[]) Array.newInstance(this.domain.getClass().getComponentType(), nbrVars);
-				for(int k = 0; k < nbrVars; k++) {
-					values[k] = context.get(vars[k]);
-				}
-				U u = space.getUtility(vars, values);
-				if(u == this.infeasibleUtil)
-					conflicts++;
-				util.addDelayed(u);
-			}
-
-			return new AddableConflicts<U> (util.resolve(), conflicts);
-		}
-
 		/**
 		 * Resets the reported neighbours counter
 		 * @author Brammert Ottens, 14 aug 2009
@@ -169,7 +169,8 @@ public class DSAsolver < V extends Addable<V>, U extends Addable<U> > extends Ab
 	public DSAsolution<V, U> buildSolution() {
 		
 		return new DSAsolution<V, U> (0, dsaModule.getFinalUtility(), super.problem.getUtility(this.dsaModule.getFinalAssignments()).getUtility(0), 
-				dsaModule.getFinalAssignments(), factory.getNbrMsgs(), factory.getTotalMsgSize(), factory.getOverallMaxMsgSize(), factory.getNcccs(), factory.getTime(), null, dsaModule.getAssignmentHistories());
+				dsaModule.getFinalAssignments(), factory.getNbrMsgs(), factory.getTotalMsgSize(), factory.getOverallMaxMsgSize(), factory.getNcccs(), factory.getTime(), null, dsaModule.getAssignmentHistories(), 
+				dsaModule.getImprovements().isEmpty() ? null : dsaModule.getImprovements());
 	}
 
 	/** @see AbstractDCOPsolver#clear() */
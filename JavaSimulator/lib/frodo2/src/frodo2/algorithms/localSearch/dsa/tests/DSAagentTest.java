@@ -27,6 +27,8 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +44,7 @@ import frodo2.algorithms.AgentFactory;
 import frodo2.algorithms.AgentInterface;
 import frodo2.algorithms.Problem;
 import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.localSearch.AnytimeLocalSearch;
 import frodo2.algorithms.localSearch.dsa.DSA;
 import frodo2.algorithms.localSearch.dsa.DSA.AssignmentMessage;
 import frodo2.algorithms.test.AllTests;
@@ -60,6 +63,7 @@ import frodo2.solutionSpaces.Addable;
 import frodo2.solutionSpaces.AddableInteger;
 import frodo2.solutionSpaces.AddableReal;
 import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
 import junit.extensions.RepeatedTest;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -145,6 +149,9 @@ public class DSAagentTest < V extends Addable<V>, U extends Addable<U> > extends
 	/** The decision strategy used */
 	protected String strategy;
 	
+	/** Whether to test the anytime mechanism */
+	protected boolean anytime;
+	
 	/** Creates a JUnit test case corresponding to the input method
 	 * @param useXCSP 			Whether to use XCSP
 	 * @param useTCP 			whether TCP pipes should be used for communication between agents
@@ -165,6 +172,22 @@ public class DSAagentTest < V extends Addable<V>, U extends Addable<U> > extends
 		this.utilClass = utilClass;
 		this.strategy = strategy;
 	}
+	
+	/** Creates a JUnit test case corresponding to the input method
+	 * @param useXCSP 			Whether to use XCSP
+	 * @param useTCP 			whether TCP pipes should be used for communication between agents
+	 * @param countNCCCs 		whether we should tell the agent to count NCCCs
+	 * @param useCentralMailer 	\c true when the central mailer should be used and tested
+	 * @param startMsgType 		the type of the start message
+	 * @param strategy			the decision strategy used
+	 * @param domClass 			The class used for variable values
+	 * @param utilClass 		the class used for utility values
+	 * @param anytime 			whether to test the anytime mechanism
+	 */
+	public DSAagentTest(boolean useXCSP, boolean useTCP, boolean countNCCCs, boolean useCentralMailer, String startMsgType, String strategy, Class<V> domClass, Class<U> utilClass, boolean anytime) {
+		this (useXCSP, useTCP, countNCCCs, useCentralMailer, startMsgType, strategy, domClass, utilClass);
+		this.anytime = anytime;
+	}
 
 	/** Sets the type of the start message for all modules
 	 * @param startMsgType 		the new type for the start message
@@ -337,13 +360,29 @@ public class DSAagentTest < V extends Addable<V>, U extends Addable<U> > extends
 		tmp.addTest(new RepeatedTest (new DSAagentTest<AddableInteger, AddableReal> (true, false, false, false, "START NOW!", DSA.A.class.getName(), AddableInteger.class, AddableReal.class), 50));
 		suite.addTest(tmp);
 		
+		tmp = new TestSuite ("Tests DSA A using QueueIOPipes and the anytime mechanism");
+		tmp.addTest(new RepeatedTest (new DSAagentTest<AddableInteger, AddableInteger> (true, false, false, false, null, DSA.A.class.getName(), AddableInteger.class, AddableInteger.class, true), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests DSA C using QueueIOPipes and the anytime mechanism without XCSP");
+		tmp.addTest(new RepeatedTest (new DSAagentTest<AddableInteger, AddableInteger> (false, false, false, false, null, DSA.C.class.getName(), AddableInteger.class, AddableInteger.class, true), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests DSA E using QueueIOPipes and the central mailer and the anytime mechanism");
+		tmp.addTest(new RepeatedTest (new DSAagentTest<AddableInteger, AddableInteger> (true, false, false, true, null, DSA.E.class.getName(), AddableInteger.class, AddableInteger.class, true), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests DSA A using TCP pipes and the anytime mechanism");
+		tmp.addTest(new RepeatedTest (new DSAagentTest<AddableInteger, AddableInteger> (true, true, false, false, null, DSA.A.class.getName(), AddableInteger.class, AddableInteger.class, true), 50));
+		suite.addTest(tmp);
+		
 		return suite;
 	}
 	
 	/** @see junit.framework.TestCase#setUp() */
 	public void setUp () throws Exception {
 
-		agentDesc = XCSPparser.parse("src/frodo2/algorithms/localSearch/dsa/DSAagent.xml", false);
+		agentDesc = XCSPparser.parse(this.anytime ? "src/frodo2/algorithms/localSearch/dsa/DSAagentAnytime.xml" : "src/frodo2/algorithms/localSearch/dsa/DSAagent.xml", false);
 		for (Element module2 : (List<Element>) this.agentDesc.getRootElement().getChild("modules").getChildren()) {
 			if(module2.getAttributeValue("className").equals(DSA.class.getName())) {
 				module2.setAttribute("strategy", strategy);
@@ -454,6 +493,69 @@ public class DSAagentTest < V extends Addable<V>, U extends Addable<U> > extends
 				this.finished_lock.unlock();
 			}
 		}
+		
+		if (this.anytime) 
+			checkImprovements(problem, statsGatherer.getFinalAssignments(), statsGatherer.getImprovements());
+	}
+	
+	/** Checks the better solutions found by the anytime mechanism against the final assignment
+	 * @param <V> 			the type used for variable values
+	 * @param <U> 			the type used for utility values
+	 * @param problem 		the overall problem
+	 * @param assignment 	the final assignment
+	 * @param improvements 	the better solutions found by the anytime mechanism, in the order in which they were reported
+	 */
+	public static < V extends Addable<V>, U extends Addable<U> > void checkImprovements (DCOPProblemInterface<V, U> problem, Map<String, V> assignment, 
+			List< AnytimeLocalSearch.Improvement<U> > improvements) {
+		
+		assertEquals (problem.getNbrVars(), assignment.size());
+		
+		// Each DFS root must report strictly better solutions over time
+		HashMap< String, AnytimeLocalSearch.Improvement<U> > lastImprovements = new HashMap< String, AnytimeLocalSearch.Improvement<U> > ();
+		for (AnytimeLocalSearch.Improvement<U> improvement : improvements) {
+			assertTrue (improvement.getLatency() >= 0);
+			AnytimeLocalSearch.Improvement<U> previous = lastImprovements.put(improvement.getRoot(), improvement);
+			if (previous != null) {
+				assertTrue (improvement.getCycle() > previous.getCycle());
+				assertTrue (improvement.getConflicts() <= previous.getConflicts());
+				if (improvement.getConflicts() == 0 && previous.getConflicts() == 0) {
+					int diff = improvement.getCost().compareTo(previous.getCost());
+					assertTrue (problem.maximize() ? diff > 0 : diff < 0);
+				}
+			}
+		}
+		
+		// Within each connected component, the final assignment must be the last solution found
+		U infeasible = problem.maximize() ? problem.getMinInfUtility() : problem.getPlusInfUtility();
+		for (AnytimeLocalSearch.Improvement<U> improvement : lastImprovements.values()) {
+			
+			// Compute the connected component of the root
+			HashSet<String> component = new HashSet<String> ();
+			LinkedList<String> open = new LinkedList<String> ();
+			open.add(improvement.getRoot());
+			component.add(improvement.getRoot());
+			while (! open.isEmpty()) 
+				for (String neighbor : problem.getNeighborVars(open.poll())) 
+					if (component.add(neighbor)) 
+						open.add(neighbor);
+			
+			U cost = problem.getZeroUtility();
+			int conflicts = 0;
+			for (UtilitySolutionSpace<V, U> space : problem.getSolutionSpaces()) {
+				String[] vars = space.getVariables();
+				if (vars.length == 0 || ! component.contains(vars[0])) 
+					continue;
+				U util = space.getUtility(assignment);
+				if (util.equals(infeasible)) 
+					conflicts++;
+				else 
+					cost = cost.add(util);
+			}
+			
+			assertEquals (improvement.getConflicts(), conflicts);
+			if (conflicts == 0) 
+				assertEquals (improvement.getCost(), cost);
+		}
 	}
 
 	/** @see frodo2.communication.IncomingMsgPolicyInterface#getMsgTypes() */
@@ -38,11 +38,13 @@ import org.jdom2.Element;
 
 import frodo2.algorithms.AgentInterface;
 import frodo2.algorithms.StatsReporterWithConvergence;
+import frodo2.algorithms.localSearch.AnytimeLocalSearch;
+import frodo2.algorithms.localSearch.LocalUtilityCache;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration;
 import frodo2.communication.Message;
 import frodo2.communication.Queue;
 import frodo2.solutionSpaces.Addable;
 import frodo2.solutionSpaces.AddableConflicts;
-import frodo2.solutionSpaces.AddableDelayed;
 import frodo2.solutionSpaces.DCOPProblemInterface;
 import frodo2.solutionSpaces.UtilitySolutionSpace;
 
@@ -53,7 +55,7 @@ import frodo2.solutionSpaces.UtilitySolutionSpace;
  * @param <U> type used for utility values
  * 
  */
-public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsReporterWithConvergence<V> {
+public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsReporterWithConvergence<V>, AnytimeLocalSearch.Listener<V> {
 	
 	/** The type of the START message */
 	public static String START_MSG_TYPE = AgentInterface.START_AGENT;
@@ -69,6 +71,9 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 
 	/** The type of the message containing the assignment history */
 	public static final String CONV_STATS_MSG_TYPE = "MGMConvStatsMsg";
+	
+	/** The type of the messages containing the DFS tree, used by the anytime mechanism */
+	public static String DFS_MSG_TYPE = DFSgeneration.OUTPUT_MSG_TYPE;
 
 	/** The queue to which this listener is registered*/
 	protected Queue queue;
@@ -118,6 +123,12 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 	/** The global utility of the final variable assignment */
 	protected U finalUtility;
 	
+	/** The anytime mechanism, or \c null if the last assignment should be reported instead of the best one */
+	protected AnytimeLocalSearch<V, U> anytime;
+	
+	/** In stats gatherer mode, the better solutions found by the anytime mechanism */
+	protected ArrayList< AnytimeLocalSearch.Improvement<U> > improvements;
+	
 	/** \c true when this agent has sent the agent finished message */
 	private boolean terminated;
 	
@@ -142,6 +153,7 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 		assignmentHistoriesMap = new HashMap<String, ArrayList<CurrentAssignment<V>>>();
 		assignment = new HashMap<String, V>();
 		this.finalUtility = this.problem.getZeroUtility();
+		improvements = new ArrayList< AnytimeLocalSearch.Improvement<U> > ();
 	}
 
 	/**
@@ -165,6 +177,9 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 			this.max_distance = 200;
 		else
 			this.max_distance = Integer.parseInt(nbrCycles);
+		
+		if (Boolean.parseBoolean(parameters.getAttributeValue("anytime")))
+			this.anytime = new AnytimeLocalSearch<V, U> (problem, DFS_MSG_TYPE, this);
 	}
 
 	/** 
@@ -172,6 +187,7 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 	 */
 	public void getStatsFromQueue(Queue queue) {
 		queue.addIncomingMessagePolicy(OUTPUT_MSG_TYPE, this);
+		queue.addIncomingMessagePolicy(AnytimeLocalSearch.IMPROVEMENT_MSG_TYPE, this);
 	}
 
 	/** 
@@ -189,6 +205,7 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 		assignmentHistoriesMap = new HashMap<String, ArrayList<CurrentAssignment<V>>>();
 		assignment = new HashMap<String, V>();
 		this.finalUtility = this.problem.getZeroUtility();
+		improvements = new ArrayList< AnytimeLocalSearch.Improvement<U> > ();
 	}
 
 	/** 
@@ -228,11 +245,24 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 			return;
 		}
 
+		else if (type.equals(AnytimeLocalSearch.IMPROVEMENT_MSG_TYPE)) { // in stats gatherer mode, a better solution found by the anytime mechanism
+			AnytimeLocalSearch.ImprovementMsg<U> msgCast = (AnytimeLocalSearch.ImprovementMsg<U>)msg;
+			improvements.add(msgCast.getImprovement());
+			if (! this.silent)
+				System.out.println("Better solution found by " + msgCast.getImprovement());
+
+			return;
+		}
 
 		if(!started)
 			init();
 
-		if(type.equals(IMPROVE_MSG_TYPE)) {
+		if(type.equals(AnytimeLocalSearch.COST_MSG_TYPE) || type.equals(AnytimeLocalSearch.BEST_MSG_TYPE) || type.equals(DFS_MSG_TYPE)) {
+			if(anytime != null)
+				anytime.notifyIn(msg);
+		}
+
+		else if(type.equals(IMPROVE_MSG_TYPE)) {
 			IMPROVE<U> msgCast = (IMPROVE<U>)msg;
 			VariableInfo<V, U> varInfo = infos.get(msgCast.getReceiver());
 			if(varInfo.processIMPROVE(msgCast)) {
@@ -260,7 +290,8 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 			if(!terminated) {
 				for(VariableInfo<V,U> varInfo : infos.values()) {
 					varInfo.terminated = true;
-					queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<V>(varInfo.variableID, varInfo.currentValue));
+					V best = (anytime == null ? null : anytime.getBestValue(varInfo.variableID));
+					queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<V>(varInfo.variableID, best == null ? varInfo.currentValue : best));
 				}
 			
 				queue.sendMessageToSelf(new Message(AgentInterface.AGENT_FINISHED));
@@ -281,7 +312,8 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 		Set<String> variables = problem.getVariables(problem.getAgent());
 		infos = new HashMap<String, VariableInfo<V, U>>(variables.size());
 		if (variables.isEmpty()) { // empty agent
-			this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			if (this.anytime == null) // else, the DFS generation module already reports that the agent is finished
+				this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
 			terminated = true;
 			return;
 		}
@@ -316,6 +348,8 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 	 */
 	public void setQueue(Queue queue) {
 		this.queue = queue;
+		if(anytime != null)
+			anytime.setQueue(queue);
 	}
 
 	/** 
@@ -327,6 +361,8 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 		msgTypes.add(IMPROVE_MSG_TYPE);
 		msgTypes.add(OK_MSG_TYPE);
 		msgTypes.add(AgentInterface.STOP_AGENT);
+		if(anytime != null)
+			msgTypes.addAll(anytime.getMsgTypes());
 		return msgTypes;
 	}
 
@@ -353,6 +389,24 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 		return this.finalUtility;
 	}
 	
+	/**
+	 * Getter method
+	 * @return the better solutions found by the anytime mechanism, in the order in which they were reported
+	 */
+	public ArrayList< AnytimeLocalSearch.Improvement<U> > getImprovements() {
+		return this.improvements;
+	}
+	
+	/** 
+	 * @see AnytimeLocalSearch.Listener#bestValueFinal(java.lang.String, frodo2.solutionSpaces.Addable)
+	 */
+	public void bestValueFinal(String var, V value) {
+		queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<V>(var, value));
+		
+		if(++variables_finished == infos.size())
+			queue.sendMessageToSelf(new Message(AgentInterface.AGENT_FINISHED));
+	}
+	
 	/**
 	 * Sending an OK message to all neighbors
 	 * 
@@ -364,10 +418,13 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 		
 		if(varInfo.termination_counter == max_distance) {
 			varInfo.terminated = true;
-			queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<V>(varInfo.variableID, varInfo.currentValue));
+			
+			if(anytime == null) {
+				queue.sendMessage(AgentInterface.STATS_MONITOR, new AssignmentMessage<V>(varInfo.variableID, varInfo.currentValue));
 
-			if(++variables_finished == infos.size())
-				queue.sendMessageToSelf(new Message(AgentInterface.AGENT_FINISHED));
+				if(++variables_finished == infos.size())
+					queue.sendMessageToSelf(new Message(AgentInterface.AGENT_FINISHED));
+			} // else, wait until the value in the best solution is final
 
 			return;
 		}
@@ -396,6 +453,10 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 	 * @param varInfo	the variable that is sending the messages
 	 */
 	protected void sendIMPROVE(VariableInfo<V, U> varInfo) {
+		if(anytime != null)
+			anytime.recordCost(varInfo.variableID, varInfo.termination_counter, varInfo.currentValue, varInfo.cache.getOwnUtility(varInfo.currentValueIndex), 
+					varInfo.cache.getOwnConflicts(varInfo.currentValueIndex), varInfo.termination_counter + 1 == max_distance);
+		
 		varInfo.determinePossibleImprovement();
 		
 		for(int i = 1; i < varInfo.neighbors.length; i++) {
@@ -510,6 +571,9 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 
 		/** \c true when this variable has terminated */
 		protected boolean terminated;
+		
+		/** For each value, the local utility given the current context */
+		protected LocalUtilityCache<V, U> cache;
 
 		/**
 		 * Constructor
@@ -554,6 +618,7 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 			for(int i = 1; i < this.number_of_neighbors + 1; i++)
 				neighborPointer.put(neighbors[i], i);
 			agent_view[0] = this.currentValue;
+			cache = new LocalUtilityCache<V, U> (variableID, domain, this.spaces, zeroUtility, maximize);
 		}
 
 		/**
@@ -565,6 +630,7 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 		 */
 		public void setNeighborValue(String neighbor, V value) {
 			agent_view[neighborPointer.get(neighbor)] = value;
+			cache.setNeighborValue(neighbor, value);
 		}
 		
 		/**
@@ -572,42 +638,10 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 		 * @author Brammert Ottens, 1 apr. 2011
 		 */
 		public void calculateCurrentUtility() {
-			int conflicts = 0;
-			AddableDelayed<U> util = zeroUtility.addDelayed();
-			for(int j = 0; j < spaces.size(); j++) {
-				UtilitySolutionSpace<V, U> space = spaces.get(j);
-				
-				U u = space.getUtility(this.neighbors, this.agent_view);
-				if(u == this.infeasibleUtility.getUtility())
-					conflicts++;
-				util.addDelayed(u);
-			}
-
-			currentUtility =  new AddableConflicts<U> (util.resolve(), conflicts);
+			cache.update();
+			currentUtility = cache.getUtilityWithConflicts(currentValueIndex);
 		}
 		
-		/**
-		 * Given the current context and variable assignment,
-		 * this method calculates the utility for the local
-		 * problem
-		 * @author Brammert Ottens, 19 aug 2009
-		 * @return	the current local utility
-		 */
-		protected AddableConflicts<U> calculateUtility() {
-			int conflicts = 0;
-			AddableDelayed<U> util = zeroUtility.addDelayed();
-			for(int j = 0; j < spaces.size(); j++) {
-				UtilitySolutionSpace<V, U> space = spaces.get(j);
-				
-				U u = space.getUtility(this.neighbors, this.agent_view);
-				if(u == this.infeasibleUtility.getUtility())
-					conflicts++;
-				util.addDelayed(u);
-			}
-
-			return new AddableConflicts<U> (util.resolve(), conflicts);
-		}
-
 		/**
 		 * Given the current context (agent_view), this method
 		 * determines the maximal improvement that can be made
@@ -619,8 +653,7 @@ public class MGM <V extends Addable<V>, U extends Addable<U>> implements StatsRe
 
 			for(int i = 0; i < domain.length; i++) {
 				if(i != this.currentValueIndex) {
-					agent_view[0] = domain[i];
-					AddableConflicts<U> util = calculateUtility();
+					AddableConflicts<U> util = cache.getUtilityWithConflicts(i);
 
 					int diff = maximize ? improve.compareTo(util) : -improve.compareTo(util);
 
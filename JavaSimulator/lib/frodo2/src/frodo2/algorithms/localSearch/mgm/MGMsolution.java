@@ -24,11 +24,13 @@ package frodo2.algorithms.localSearch.mgm;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import frodo2.algorithms.ConvergenceInterface;
 import frodo2.algorithms.Solution;
 import frodo2.algorithms.StatsReporterWithConvergence.CurrentAssignment;
+import frodo2.algorithms.localSearch.AnytimeLocalSearch;
 import frodo2.solutionSpaces.Addable;
 
 /** An optimal solution to the problem
@@ -41,6 +43,9 @@ public class MGMsolution<V extends Addable<V>, U> extends Solution <V, U> implem
 	/** The assignment history for all the agents */
 	private HashMap<String, ArrayList<CurrentAssignment<V>>> assignmentHistories;
 	
+	/** The better solutions found by the anytime mechanism, if enabled */
+	private List< AnytimeLocalSearch.Improvement<U> > improvements;
+	
 	/** Constructor 
 	 * @param nbrVariables		the total number of variables occurring in the problem
 	 * @param reportedUtil 		the reported optimal utility
@@ -61,8 +66,34 @@ public class MGMsolution<V extends Addable<V>, U> extends Solution <V, U> implem
 		this.assignmentHistories = assignmentHistories;
 	}
 
+	/** Constructor 
+	 * @param nbrVariables		the total number of variables occurring in the problem
+	 * @param reportedUtil 		the reported optimal utility
+	 * @param trueUtil 			the true optimal utility
+	 * @param assignments 					the optimal assignments
+	 * @param nbrMsgs						the total number of messages that have been sent
+	 * @param totalMsgSize					the total amount of information that has been exchanged (in bytes)
+	 * @param maxMsgSize 		the size (in bytes) of the largest message
+	 * @param ncccCount 					the ncccs used
+	 * @param timeNeeded 					the time needed to solve the problem
+	 * @param moduleEndTimes 				each module's end time
+	 * @param assignmentHistories 			the history of variable assignments
+	 * @param improvements 					the better solutions found by the anytime mechanism
+	 */
+	public MGMsolution (int nbrVariables, U reportedUtil, U trueUtil, Map<String, V> assignments, int nbrMsgs, long totalMsgSize, long maxMsgSize, 
+			long ncccCount, long timeNeeded, HashMap<String, Long> moduleEndTimes, 
+			HashMap< String, ArrayList< CurrentAssignment<V> > > assignmentHistories, List< AnytimeLocalSearch.Improvement<U> > improvements) {
+		this(nbrVariables, reportedUtil, trueUtil, assignments, nbrMsgs, totalMsgSize, maxMsgSize, ncccCount, timeNeeded, moduleEndTimes, assignmentHistories);
+		this.improvements = improvements;
+	}
+
 	/** @return the history of variable assignments */
 	public HashMap<String, ArrayList<CurrentAssignment<V>>> getAssignmentHistories() {
 		return assignmentHistories;
 	}
-}
\ No newline at end of file
+
+	/** @return the better solutions found by the anytime mechanism, or \c null if it was not enabled */
+	public List< AnytimeLocalSearch.Improvement<U> > getImprovements() {
+		return improvements;
+	}
+}
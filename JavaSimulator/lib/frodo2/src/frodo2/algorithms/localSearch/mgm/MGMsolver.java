@@ -171,7 +171,8 @@ public class MGMsolver < V extends Addable<V>, U extends Addable<U> > extends Ab
 		HashMap<String, Long> timesNeeded = new HashMap<String, Long> ();
 		
 		return new MGMsolution<V, U> (super.problem.getNbrVars(), this.mgmModule.getFinalSolution(), this.mgmModule.getFinalSolution(), 
-				mgmModule.getCurrentSolution(), factory.getNbrMsgs(), factory.getTotalMsgSize(), factory.getOverallMaxMsgSize(), factory.getNcccs(), factory.getTime(), timesNeeded, mgmModule.getAssignmentHistories());
+				mgmModule.getCurrentSolution(), factory.getNbrMsgs(), factory.getTotalMsgSize(), factory.getOverallMaxMsgSize(), factory.getNcccs(), factory.getTime(), timesNeeded, mgmModule.getAssignmentHistories(), 
+				mgmModule.getImprovements().isEmpty() ? null : mgmModule.getImprovements());
 	}
 
 	/** @see AbstractDCOPsolver#clear() */
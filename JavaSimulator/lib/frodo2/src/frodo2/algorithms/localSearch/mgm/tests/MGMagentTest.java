@@ -43,6 +43,7 @@ import frodo2.algorithms.AgentFactory;
 import frodo2.algorithms.AgentInterface;
 import frodo2.algorithms.Problem;
 import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.localSearch.dsa.tests.DSAagentTest;
 import frodo2.algorithms.localSearch.mgm.AssignmentMessage;
 import frodo2.algorithms.localSearch.mgm.MGM;
 import frodo2.algorithms.test.AllTests;
@@ -142,6 +143,9 @@ public class MGMagentTest < V extends Addable<V>, U extends Addable<U> > extends
 
 	/** The class used for utility values */
 	private Class<U> utilClass;
+	
+	/** Whether to test the anytime mechanism */
+	private boolean anytime;
 
 	/** Creates a JUnit test case corresponding to the input method
 	 * @param useXCSP 			Whether to use XCSP
@@ -162,6 +166,21 @@ public class MGMagentTest < V extends Addable<V>, U extends Addable<U> > extends
 		this.domClass = domClass;
 		this.utilClass = utilClass;
 	}
+	
+	/** Creates a JUnit test case corresponding to the input method
+	 * @param useXCSP 			Whether to use XCSP
+	 * @param useTCP 			whether TCP pipes should be used for communication between agents
+	 * @param countNCCCs 		whether we should tell the agent to count NCCCs
+	 * @param useCentralMailer 	\c true when the central mailer should be used and tested
+	 * @param startMsgType 		the type of the start message
+	 * @param domClass 			The class used for variable values
+	 * @param utilClass 		the class used for utility values
+	 * @param anytime 			whether to test the anytime mechanism
+	 */
+	public MGMagentTest(boolean useXCSP, boolean useTCP, boolean countNCCCs, boolean useCentralMailer, String startMsgType, Class<V> domClass, Class<U> utilClass, boolean anytime) {
+		this (useXCSP, useTCP, countNCCCs, useCentralMailer, startMsgType, domClass, utilClass);
+		this.anytime = anytime;
+	}
 
 	/** Sets the type of the start message for all modules
 	 * @param startMsgType 		the new type for the start message
@@ -254,13 +273,29 @@ public class MGMagentTest < V extends Addable<V>, U extends Addable<U> > extends
 		tmp.addTest(new RepeatedTest (new MGMagentTest<AddableInteger, AddableReal> (true, false, false, false, "START NOW!", AddableInteger.class, AddableReal.class), 50));
 		suite.addTest(tmp);
 		
+		tmp = new TestSuite ("Tests MGM using QueueIOPipes and the anytime mechanism AddableInteger utilities");
+		tmp.addTest(new RepeatedTest (new MGMagentTest<AddableInteger, AddableInteger> (true, false, false, false, null, AddableInteger.class, AddableInteger.class, true), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests MGM using QueueIOPipes and the anytime mechanism AddableReal utilities without XCSP");
+		tmp.addTest(new RepeatedTest (new MGMagentTest<AddableInteger, AddableReal> (false, false, false, false, null, AddableInteger.class, AddableReal.class, true), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests MGM using QueueIOPipes and the central mailer and the anytime mechanism AddableInteger utilities");
+		tmp.addTest(new RepeatedTest (new MGMagentTest<AddableInteger, AddableInteger> (true, false, false, true, null, AddableInteger.class, AddableInteger.class, true), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests MGM using TCP pipes and the anytime mechanism AddableInteger utilities");
+		tmp.addTest(new RepeatedTest (new MGMagentTest<AddableInteger, AddableInteger> (true, true, false, false, null, AddableInteger.class, AddableInteger.class, true), 50));
+		suite.addTest(tmp);
+		
 		return suite;
 	}
 	
 	/** @see junit.framework.TestCase#setUp() */
 	public void setUp () throws Exception {
 
-		agentDesc = XCSPparser.parse("src/frodo2/algorithms/localSearch/mgm/MGMagent.xml", false);
+		agentDesc = XCSPparser.parse(this.anytime ? "src/frodo2/algorithms/localSearch/mgm/MGMagentAnytime.xml" : "src/frodo2/algorithms/localSearch/mgm/MGMagent.xml", false);
 		this.setStartMsgType(startMsgType);
 	
 		nbrMsgsReceived = 0;
@@ -366,6 +401,9 @@ public class MGMagentTest < V extends Addable<V>, U extends Addable<U> > extends
 				this.finished_lock.unlock();
 			}
 		}
+		
+		if (this.anytime) 
+			DSAagentTest.checkImprovements(problem, statsGatherer.getCurrentSolution(), statsGatherer.getImprovements());
 	}
 
 	/** @see frodo2.communication.IncomingMsgPolicyInterface#getMsgTypes() */
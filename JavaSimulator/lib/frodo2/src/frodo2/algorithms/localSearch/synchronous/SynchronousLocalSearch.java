@@ -0,0 +1,1060 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+/** A synchronous-cycle engine for the local search algorithms DSA, MGM and MGM2 */
+package frodo2.algorithms.localSearch.synchronous;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.AgentFactory;
+import frodo2.algorithms.Solution;
+import frodo2.algorithms.StatsReporterWithConvergence.CurrentAssignment;
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.localSearch.dsa.DSA;
+import frodo2.algorithms.localSearch.dsa.DSAsolution;
+import frodo2.algorithms.localSearch.mgm.MGM;
+import frodo2.algorithms.localSearch.mgm.MGMsolution;
+import frodo2.algorithms.localSearch.mgm.mgm2.MGM2;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+
+/** Runs DSA, MGM or MGM2 in bulk-synchronous cycles inside a single JVM
+ * 
+ * The message-based modules DSA, MGM and MGM2 exchange one message per neighbor per phase of each cycle. 
+ * This engine runs the same decision rules without any message: the constraint graph is compiled into 
+ * a compressed sparse row (CSR) adjacency array over integer variable indexes, each constraint into a flat 
+ * table of doubles, and each phase of a cycle is a pass over all variables, which is split among the 
+ * threads of a ForkJoinPool. A phase only reads the state written by the previous phases, such that 
+ * all variables can be updated in parallel. 
+ * 
+ * The algorithm and its parameters are read from the same agent configuration files as the message-based 
+ * modules (DSAagent.xml, MGMagent.xml and MGM2agent.xml). The solutions returned are DSAsolution 
+ * or MGMsolution objects; since no message is exchanged, all message statistics are 0. 
+ * 
+ * As in the message-based modules, the local utility of a value is compared first on its number of 
+ * violated constraints (i.e. constraints with infinite cost or utility), and then on the sum of the 
+ * other constraints. 
+ * 
+ * @param <V> type used for variable values
+ * @param <U> type used for utility values
+ * Each variable draws its random numbers from its own generator, derived from the optional \c seed attribute 
+ * of the module in the agent configuration file. Two runs with the same seed therefore return the same 
+ * solution, regardless of the number of threads and of the order in which the threads process the variables. 
+ * 
+ * @note Isolated variables are set to their optimal values at the start, for all three algorithms. 
+ * @note In MGM2, two committed partners do not compete against each other for the right to move, 
+ * but only against their other neighbors, as in the original algorithm by Maheswaran et al. (2004). 
+ */
+public class SynchronousLocalSearch < V extends Addable<V>, U extends Addable<U> > {
+	
+	/** The algorithms supported */
+	protected enum Algorithm { 
+		/** DSA */ 		DSA, 
+		/** MGM */ 		MGM, 
+		/** MGM2 */ 	MGM2
+	};
+	
+	/** The conflict gain of a variable that has no other value to move to */
+	private static final int NO_MOVE = Integer.MIN_VALUE / 2;
+	
+	/** The algorithm to run */
+	protected final Algorithm algorithm;
+	
+	/** The DSA strategy (A, C or E) */
+	protected char strategy;
+	
+	/** The probability used by DSA to change value */
+	protected double p;
+	
+	/** The probability used by MGM2 for a variable to be an offerer */
+	protected double q = 0.5;
+	
+	/** The number of synchronous cycles */
+	protected int nbrCycles = 200;
+	
+	/** Whether the assignment history should be recorded */
+	protected boolean convergence;
+	
+	/** The number of threads used to update the variables */
+	protected int nbrThreads;
+	
+	/** The seed of the random number generators, or \c null if a different seed should be used at each solve */
+	protected Long seed;
+	
+	/** The parser element in the agent configuration file */
+	protected Element parserElmt;
+	
+	/** The pool of threads used to run the phases, or \c null if the engine is single-threaded */
+	private ForkJoinPool pool;
+	
+	/** The number of variables processed sequentially by a single task */
+	private int grain;
+	
+	// The compiled problem
+	
+	/** The problem being solved */
+	protected DCOPProblemInterface<V, U> problem;
+	
+	/** Whether the problem is a maximization problem */
+	private boolean maximize;
+	
+	/** The names of the variables, in lexicographical order (the index of a variable is therefore also its rank) */
+	private String[] varNames;
+	
+	/** The domain of each variable */
+	private V[][] domains;
+	
+	/** For each variable, the position of its first neighbor in \a neighbors; the last entry is the total number of neighbors */
+	private int[] neighborsStart;
+	
+	/** The neighbors of all variables, stored contiguously */
+	private int[] neighbors;
+	
+	/** For each variable, the position of its first constraint in \a constraints; the last entry is the total number of entries */
+	private int[] constraintsStart;
+	
+	/** The constraints of all variables, stored contiguously */
+	private int[] constraints;
+	
+	/** For each constraint, the indexes of its variables */
+	private int[][] conVars;
+	
+	/** For each constraint and each of its variables, the step in the table corresponding to an increment of the variable's value */
+	private int[][] conSteps;
+	
+	/** For each constraint, its utility for each assignment, with infeasible utilities represented by infinite doubles */
+	private double[][] tables;
+	
+	/** The non-isolated variables, which are the only ones processed in each cycle */
+	private int[] active;
+	
+	// The state of the algorithm
+	
+	/** The index of the current value of each variable */
+	private int[] values;
+	
+	/** The index of the value each variable wants to move to */
+	private int[] newValues;
+	
+	/** The sum of the finite utilities of each variable's constraints, for the current assignment */
+	private double[] currentUtils;
+	
+	/** The number of violated constraints of each variable, for the current assignment */
+	private int[] currentConflicts;
+	
+	/** For each variable, the utility part of its gain (always positive when the gain is an improvement) */
+	private double[] gainUtils;
+	
+	/** For each variable, the decrease in number of violated constraints achieved by its gain */
+	private int[] gainConflicts;
+	
+	/** For each variable, whether it wants to move */
+	private boolean[] move;
+	
+	/** For each variable, whether it has won the right to move */
+	private boolean[] go;
+	
+	/** For each variable, the number of violated constraints found by its last call to localUtil() */
+	private int[] lastConflicts;
+	
+	/** For each variable, the state of its random number generator */
+	private long[] randStates;
+	
+	// The state specific to MGM2
+	
+	/** For each variable, whether it is making an offer */
+	private boolean[] offerer;
+	
+	/** For each variable, the neighbor it made an offer to, or the neighbor whose offer it accepted; -1 if none */
+	private int[] partner;
+	
+	/** For each variable, whether it is committed to a joint move with its partner */
+	private boolean[] committed;
+	
+	/** For each offerer, the number of joint assignments offered */
+	private int[] nbrOffers;
+	
+	/** For each receiver that accepted an offer, the index of the accepted joint assignment */
+	private int[] acceptedOffer;
+	
+	/** For each offerer, the index of its own value in each joint assignment offered */
+	private int[][] offerOwnValues;
+	
+	/** For each offerer, the index of the receiver's value in each joint assignment offered */
+	private int[][] offerNeighborValues;
+	
+	/** For each offerer, the utility gain of each offer */
+	private double[][] offerGainUtils;
+	
+	/** For each offerer, the conflict gain of each offer */
+	private int[][] offerGainConflicts;
+	
+	// Statistics
+	
+	/** For each variable, its assignment history */
+	private HashMap< String, ArrayList< CurrentAssignment<V> > > assignmentHistories;
+	
+	/** The time spent running the cycles, in nanoseconds */
+	private long cyclesTime;
+	
+	/** Constructor
+	 * @param agentDescFile 	the path to the agent configuration file of DSA, MGM or MGM2
+	 * @throws Exception 		if the file could not be parsed
+	 */
+	public SynchronousLocalSearch (String agentDescFile) throws Exception {
+		this (XCSPparser.parse(AgentFactory.class.getResourceAsStream(agentDescFile), false));
+	}
+	
+	/** Constructor
+	 * @param agentDesc 	the agent configuration file of DSA, MGM or MGM2
+	 */
+	public SynchronousLocalSearch (Document agentDesc) {
+		this (agentDesc, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/** Constructor
+	 * @param agentDesc 	the agent configuration file of DSA, MGM or MGM2
+	 * @param nbrThreads 	the number of threads used to update the variables
+	 */
+	public SynchronousLocalSearch (Document agentDesc, int nbrThreads) {
+		
+		assert nbrThreads > 0 : "The number of threads must be positive";
+		this.nbrThreads = nbrThreads;
+		this.parserElmt = agentDesc.getRootElement().getChild("parser");
+		
+		// Look up the local search module
+		Element module = null;
+		Algorithm algorithm = null;
+		for (Element elmt : (List<Element>) agentDesc.getRootElement().getChild("modules").getChildren()) {
+			String className = elmt.getAttributeValue("className");
+			if (className.equals(DSA.class.getName())) 
+				algorithm = Algorithm.DSA;
+			else if (className.equals(MGM.class.getName())) 
+				algorithm = Algorithm.MGM;
+			else if (className.equals(MGM2.class.getName())) 
+				algorithm = Algorithm.MGM2;
+			else 
+				continue;
+			module = elmt;
+			break;
+		}
+		if (module == null) 
+			throw new IllegalArgumentException ("The agent configuration file does not contain a DSA, MGM or MGM2 module");
+		this.algorithm = algorithm;
+		
+		this.convergence = Boolean.parseBoolean(module.getAttributeValue("convergence"));
+		
+		String seed = module.getAttributeValue("seed");
+		if (seed != null) 
+			this.seed = Long.parseLong(seed);
+		
+		// Parse the parameters, with the same defaults as the message-based modules
+		String cycles = module.getAttributeValue(algorithm == Algorithm.MGM2 ? "cycles" : "nbrCycles");
+		if (cycles != null) 
+			this.nbrCycles = Integer.parseInt(cycles);
+		
+		if (algorithm == Algorithm.DSA) {
+			String p = module.getAttributeValue("probability");
+			if (p != null) 
+				this.p = Double.parseDouble(p);
+			
+			String strategy = module.getAttributeValue("strategy");
+			this.strategy = (strategy == null ? 'A' : strategy.charAt(strategy.length() - 1));
+			if (this.strategy != 'A' && this.strategy != 'C' && this.strategy != 'E') 
+				throw new IllegalArgumentException ("Unsupported DSA strategy: " + strategy);
+			
+		} else if (algorithm == Algorithm.MGM2) {
+			String q = module.getAttributeValue("q");
+			if (q != null) 
+				this.q = Double.parseDouble(q);
+		}
+	}
+	
+	/** @return the number of synchronous cycles */
+	public int getNbrCycles () {
+		return this.nbrCycles;
+	}
+	
+	/** @param nbrCycles 	the number of synchronous cycles */
+	public void setNbrCycles (int nbrCycles) {
+		this.nbrCycles = nbrCycles;
+	}
+	
+	/** @param seed 	the seed of the random number generators, or \c null if a different seed should be used at each solve */
+	public void setSeed (Long seed) {
+		this.seed = seed;
+	}
+	
+	/** @return the time spent running the cycles during the last call to solve(), in milliseconds */
+	public long getCyclesTime () {
+		return this.cyclesTime / 1000000;
+	}
+	
+	/** @return the number of cycles per second achieved during the last call to solve() */
+	public double getCyclesPerSecond () {
+		return this.nbrCycles * 1E9 / Math.max(1, this.cyclesTime);
+	}
+	
+	/** Solves the input problem
+	 * @param problemDoc 	the problem, in XCSP format
+	 * @return a DSAsolution for DSA, or a MGMsolution for MGM and MGM2
+	 */
+	@SuppressWarnings("unchecked")
+	public Solution<V, U> solve (Document problemDoc) {
+		
+		// Instantiate the parser specified in the agent configuration file
+		if (this.parserElmt == null) 
+			return this.solve(new XCSPparser<V, U> (problemDoc));
+		this.parserElmt.setAttribute("displayGraph", "false");
+		String parserClassName = this.parserElmt.getAttributeValue("parserClass");
+		try {
+			Class< ? extends XCSPparser<V, U> > parserClass = (Class< ? extends XCSPparser<V, U> >) 
+					(parserClassName == null ? XCSPparser.class : Class.forName(parserClassName));
+			return this.solve(parserClass.getConstructor(Document.class, Element.class).newInstance(problemDoc, this.parserElmt));
+		} catch (ClassNotFoundException e) {
+			System.err.println("The parser class " + parserClassName + " could not be found");
+			e.printStackTrace();
+		} catch (InstantiationException e) {
+			System.err.println("The parser class " + parserClassName + " is abstract");
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			System.err.println("The constructor for " + parserClassName + " is inaccessible");
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			System.err.println("The constructor for " + parserClassName + " threw an exception");
+			e.printStackTrace();
+		} catch (NoSuchMethodException e) {
+			System.err.println("The parser class " + parserClassName + " does not have a constructor that takes in a Document and an Element");
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/** Solves the input problem
+	 * @param problem 	the problem
+	 * @return a DSAsolution for DSA, or a MGMsolution for MGM and MGM2
+	 */
+	public Solution<V, U> solve (DCOPProblemInterface<V, U> problem) {
+		
+		long startTime = System.currentTimeMillis();
+		this.problem = problem;
+		this.compile();
+		this.init();
+		
+		if (this.nbrThreads > 1 && this.active.length > 1) {
+			this.pool = new ForkJoinPool (this.nbrThreads);
+			this.grain = Math.max(16, this.active.length / (8 * this.nbrThreads));
+		}
+		
+		// Run the cycles
+		long cyclesStart = System.nanoTime();
+		if (this.active.length > 0) {
+			for (int cycle = 1; cycle <= this.nbrCycles; cycle++) {
+				
+				switch (this.algorithm) {
+				case DSA: 
+					this.runPhase(Phase.DSA_DECIDE);
+					int[] tmp = this.values;
+					this.values = this.newValues;
+					this.newValues = tmp;
+					break;
+					
+				case MGM: 
+					this.runPhase(Phase.MGM_GAIN);
+					this.runPhase(Phase.COMPETE);
+					this.runPhase(Phase.MOVE);
+					break;
+					
+				case MGM2: 
+					this.runPhase(Phase.MGM2_OFFER);
+					this.runPhase(Phase.MGM2_ACCEPT);
+					this.runPhase(Phase.MGM2_COMMIT);
+					this.runPhase(Phase.COMPETE);
+					this.runPhase(Phase.MOVE);
+					break;
+				}
+				
+				if (this.convergence) 
+					this.recordHistory(cycle);
+			}
+		}
+		this.cyclesTime = System.nanoTime() - cyclesStart;
+		
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		
+		// Build the solution
+		HashMap<String, V> assignments = new HashMap<String, V> (this.varNames.length);
+		for (int i = 0; i < this.varNames.length; i++) 
+			assignments.put(this.varNames[i], this.domains[i][this.values[i]]);
+		U utility = problem.getUtility(assignments).getUtility(0);
+		long time = System.currentTimeMillis() - startTime;
+		
+		if (this.algorithm == Algorithm.DSA) 
+			return new DSAsolution<V, U> (this.varNames.length, utility, utility, assignments, 0, 0, 0, 0, time, null, this.assignmentHistories);
+		else 
+			return new MGMsolution<V, U> (this.varNames.length, utility, utility, assignments, 0, 0, 0, 0, time, new HashMap<String, Long> (), this.assignmentHistories);
+	}
+	
+	/** Compiles the problem into the CSR adjacency array and the flat constraint tables */
+	@SuppressWarnings("unchecked")
+	private void compile () {
+		
+		this.maximize = this.problem.maximize();
+		
+		// Index the variables in lexicographical order
+		this.varNames = this.problem.getVariables().toArray(new String [0]);
+		Arrays.sort(this.varNames);
+		final int nbrVars = this.varNames.length;
+		HashMap<String, Integer> indexes = new HashMap<String, Integer> (nbrVars);
+		for (int i = 0; i < nbrVars; i++) 
+			indexes.put(this.varNames[i], i);
+		
+		Class<?> domClass = null;
+		for (int i = 0; i < nbrVars; i++) {
+			V[] dom = this.problem.getDomain(this.varNames[i]);
+			if (domClass == null) 
+				domClass = dom.getClass();
+			if (this.domains == null) 
+				this.domains = (V[][]) Array.newInstance(domClass, nbrVars);
+			this.domains[i] = dom;
+		}
+		
+		// Compile the constraints, and count the constraints of each variable
+		U plusInf = this.problem.getPlusInfUtility();
+		U minInf = this.problem.getMinInfUtility();
+		ArrayList<int[]> conVars = new ArrayList<int[]> ();
+		ArrayList<int[]> conSteps = new ArrayList<int[]> ();
+		ArrayList<double[]> tables = new ArrayList<double[]> ();
+		int[] nbrCons = new int [nbrVars];
+		for (UtilitySolutionSpace<V, U> space : this.problem.getSolutionSpaces(false)) {
+			
+			String[] vars = space.getVariables();
+			final int arity = vars.length;
+			if (arity == 0) 
+				continue;
+			int[] varIndexes = new int [arity];
+			int[] steps = new int [arity];
+			long size = 1;
+			for (int k = arity - 1; k >= 0; k--) {
+				varIndexes[k] = indexes.get(vars[k]);
+				steps[k] = (int) size;
+				size *= this.domains[varIndexes[k]].length;
+				if (size > Integer.MAX_VALUE) 
+					throw new IllegalArgumentException ("The constraint " + space.getName() + " is too large to be compiled into a table");
+			}
+			
+			// Enumerate all assignments, with the last variable varying fastest
+			double[] table = new double [(int) size];
+			V[] assignment = (V[]) Array.newInstance(domClass.getComponentType(), arity);
+			int[] valIndexes = new int [arity];
+			for (int k = 0; k < arity; k++) 
+				assignment[k] = this.domains[varIndexes[k]][0];
+			for (int a = 0; a < size; a++) {
+				U util = space.getUtility(vars, assignment);
+				if (util.equals(plusInf)) 
+					table[a] = Double.POSITIVE_INFINITY;
+				else if (util.equals(minInf)) 
+					table[a] = Double.NEGATIVE_INFINITY;
+				else 
+					table[a] = util.doubleValue();
+				
+				for (int k = arity - 1; k >= 0; k--) {
+					V[] dom = this.domains[varIndexes[k]];
+					if (++valIndexes[k] < dom.length) {
+						assignment[k] = dom[valIndexes[k]];
+						break;
+					}
+					valIndexes[k] = 0;
+					assignment[k] = dom[0];
+				}
+			}
+			
+			conVars.add(varIndexes);
+			conSteps.add(steps);
+			tables.add(table);
+			for (int var : varIndexes) 
+				nbrCons[var]++;
+		}
+		this.conVars = conVars.toArray(new int [conVars.size()][]);
+		this.conSteps = conSteps.toArray(new int [conSteps.size()][]);
+		this.tables = tables.toArray(new double [tables.size()][]);
+		
+		// Build the CSR arrays of constraints
+		this.constraintsStart = new int [nbrVars + 1];
+		for (int i = 0; i < nbrVars; i++) 
+			this.constraintsStart[i + 1] = this.constraintsStart[i] + nbrCons[i];
+		this.constraints = new int [this.constraintsStart[nbrVars]];
+		int[] fill = Arrays.copyOf(this.constraintsStart, nbrVars);
+		for (int c = 0; c < this.conVars.length; c++) 
+			for (int var : this.conVars[c]) 
+				this.constraints[fill[var]++] = c;
+		
+		// Build the CSR arrays of neighbors, sorted and without duplicates
+		this.neighborsStart = new int [nbrVars + 1];
+		int[][] neighborhoods = new int [nbrVars][];
+		int[] mark = new int [nbrVars];
+		Arrays.fill(mark, -1);
+		int[] buffer = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) {
+			int nbrNeighbors = 0;
+			for (int s = this.constraintsStart[i]; s < this.constraintsStart[i + 1]; s++) {
+				for (int var : this.conVars[this.constraints[s]]) {
+					if (var != i && mark[var] != i) {
+						mark[var] = i;
+						buffer[nbrNeighbors++] = var;
+					}
+				}
+			}
+			neighborhoods[i] = Arrays.copyOf(buffer, nbrNeighbors);
+			Arrays.sort(neighborhoods[i]);
+			this.neighborsStart[i + 1] = this.neighborsStart[i] + nbrNeighbors;
+		}
+		this.neighbors = new int [this.neighborsStart[nbrVars]];
+		for (int i = 0; i < nbrVars; i++) 
+			System.arraycopy(neighborhoods[i], 0, this.neighbors, this.neighborsStart[i], neighborhoods[i].length);
+	}
+	
+	/** Initializes the state of the algorithm with random values, and sets isolated variables to their optimal values */
+	private void init () {
+		
+		final int nbrVars = this.varNames.length;
+		this.values = new int [nbrVars];
+		this.newValues = new int [nbrVars];
+		this.currentUtils = new double [nbrVars];
+		this.currentConflicts = new int [nbrVars];
+		this.gainUtils = new double [nbrVars];
+		this.gainConflicts = new int [nbrVars];
+		this.move = new boolean [nbrVars];
+		this.go = new boolean [nbrVars];
+		this.lastConflicts = new int [nbrVars];
+		
+		if (this.algorithm == Algorithm.MGM2) {
+			this.offerer = new boolean [nbrVars];
+			this.partner = new int [nbrVars];
+			this.committed = new boolean [nbrVars];
+			this.nbrOffers = new int [nbrVars];
+			this.acceptedOffer = new int [nbrVars];
+			this.offerOwnValues = new int [nbrVars][];
+			this.offerNeighborValues = new int [nbrVars][];
+			this.offerGainUtils = new double [nbrVars][];
+			this.offerGainConflicts = new int [nbrVars][];
+		}
+		
+		this.randStates = new long [nbrVars];
+		long seed = (this.seed == null ? System.nanoTime() : this.seed);
+		for (int i = 0; i < nbrVars; i++) {
+			this.randStates[i] = seed + i * 0x9E3779B97F4A7C15L;
+			this.values[i] = this.nextInt(i, this.domains[i].length);
+		}
+		
+		// Isolated variables are set to their optimal values once and for all
+		int nbrActive = 0;
+		int[] active = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) {
+			if (this.neighborsStart[i] == this.neighborsStart[i + 1]) 
+				this.values[i] = this.bestValue(i, -1, false);
+			else 
+				active[nbrActive++] = i;
+		}
+		this.active = Arrays.copyOf(active, nbrActive);
+		System.arraycopy(this.values, 0, this.newValues, 0, nbrVars);
+		
+		if (this.convergence) {
+			this.assignmentHistories = new HashMap< String, ArrayList< CurrentAssignment<V> > > (nbrVars);
+			long time = System.nanoTime();
+			for (int i = 0; i < nbrVars; i++) {
+				ArrayList< CurrentAssignment<V> > history = new ArrayList< CurrentAssignment<V> > ();
+				history.add(new CurrentAssignment<V> (time, 0, this.domains[i][this.values[i]]));
+				this.assignmentHistories.put(this.varNames[i], history);
+			}
+		} else 
+			this.assignmentHistories = null;
+	}
+	
+	/** Records the variables whose values have changed during the last cycle
+	 * @param cycle 	the current cycle
+	 */
+	private void recordHistory (int cycle) {
+		long time = System.nanoTime();
+		for (int i : this.active) {
+			ArrayList< CurrentAssignment<V> > history = this.assignmentHistories.get(this.varNames[i]);
+			V value = this.domains[i][this.values[i]];
+			if (! history.get(history.size() - 1).getAssignment().equals(value)) 
+				history.add(new CurrentAssignment<V> (time, cycle, value));
+		}
+	}
+	
+	/** Computes the local utility of a variable
+	 * 
+	 * The number of violated constraints is stored in \a lastConflicts. 
+	 * @param var 			the variable
+	 * @param value 		the index of the value of the variable
+	 * @param other 		another variable whose value is overridden, or -1
+	 * @param otherValue 	the index of the value of the other variable (unused if \a skipOther is \c true)
+	 * @param skipOther 	whether the constraints involving the other variable should be ignored
+	 * @return the sum of the finite utilities of all constraints involving \a var
+	 */
+	private double localUtil (final int var, final int value, final int other, final int otherValue, final boolean skipOther) {
+		
+		double util = 0.0;
+		int conflicts = 0;
+		final int[] values = this.values;
+		
+		constraints: for (int s = this.constraintsStart[var], end = this.constraintsStart[var + 1]; s < end; s++) {
+			final int con = this.constraints[s];
+			final int[] vars = this.conVars[con];
+			final int[] steps = this.conSteps[con];
+			
+			int index = 0;
+			for (int k = 0; k < vars.length; k++) {
+				final int x = vars[k];
+				if (x == var) 
+					index += value * steps[k];
+				else if (x == other) {
+					if (skipOther) 
+						continue constraints;
+					index += otherValue * steps[k];
+				} else 
+					index += values[x] * steps[k];
+			}
+			
+			final double u = this.tables[con][index];
+			if (Double.isInfinite(u)) 
+				conflicts++;
+			else 
+				util += u;
+		}
+		
+		this.lastConflicts[var] = conflicts;
+		return util;
+	}
+	
+	/** Compares two local utilities
+	 * @param conflicts1 	the number of violated constraints for the first utility
+	 * @param util1 		the sum of the finite utilities for the first utility
+	 * @param conflicts2 	the number of violated constraints for the second utility
+	 * @param util2 		the sum of the finite utilities for the second utility
+	 * @return a positive number if the first utility is better, a negative number if it is worse, and 0 otherwise
+	 */
+	private int compare (int conflicts1, double util1, int conflicts2, double util2) {
+		if (conflicts1 != conflicts2) 
+			return conflicts2 - conflicts1;
+		return this.maximize ? Double.compare(util1, util2) : Double.compare(util2, util1);
+	}
+	
+	/** Compares the gains of two variables
+	 * @param var1 	the first variable
+	 * @param var2 	the second variable
+	 * @return a positive number if the first gain is larger, a negative number if it is smaller, and 0 otherwise
+	 */
+	private int compareGains (int var1, int var2) {
+		if (this.gainConflicts[var1] != this.gainConflicts[var2]) 
+			return this.gainConflicts[var1] - this.gainConflicts[var2];
+		return Double.compare(this.gainUtils[var1], this.gainUtils[var2]);
+	}
+	
+	/** Computes the current local utility of a variable, and stores it in \a currentUtils and \a currentConflicts
+	 * @param var 	the variable
+	 */
+	private void computeCurrentUtil (int var) {
+		this.currentUtils[var] = this.localUtil(var, this.values[var], -1, 0, false);
+		this.currentConflicts[var] = this.lastConflicts[var];
+	}
+	
+	/** Looks up the best value for a variable, given the current values of its neighbors
+	 * @param var 			the variable
+	 * @param exclude 		the index of a value that must not be considered, or -1
+	 * @param breakTies 	if \c true, ties are broken randomly as in MGM; otherwise, the first best value is returned as in DSA
+	 * @return the index of the best value, whose utility is stored in \a gainUtils and \a gainConflicts; -1 if there is no value
+	 */
+	private int bestValue (int var, int exclude, boolean breakTies) {
+		
+		int best = -1;
+		double bestUtil = 0.0;
+		int bestConflicts = 0;
+		
+		for (int a = this.domains[var].length - 1; a >= 0; a--) {
+			if (a == exclude) 
+				continue;
+			
+			double util = this.localUtil(var, a, -1, 0, false);
+			int conflicts = this.lastConflicts[var];
+			int diff = (best < 0 ? 1 : this.compare(conflicts, util, bestConflicts, bestUtil));
+			
+			if (diff > 0 || (diff == 0 && (breakTies ? this.nextLong(var) < 0 : true))) { // iterating backwards, so that DSA keeps the first best value
+				best = a;
+				bestUtil = util;
+				bestConflicts = conflicts;
+			}
+		}
+		
+		this.gainUtils[var] = bestUtil;
+		this.gainConflicts[var] = bestConflicts;
+		return best;
+	}
+	
+	/** Draws a random number from the generator of a variable (SplitMix64)
+	 * @param var 	the variable
+	 * @return a uniformly distributed \c long
+	 * @note Only the task processing the variable may call this method, so that the generator needs no synchronization. 
+	 */
+	private long nextLong (int var) {
+		long z = (this.randStates[var] += 0x9E3779B97F4A7C15L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/** @param var 	the variable
+	 * @return a random number in [0, 1) drawn from the generator of the variable
+	 */
+	private double nextDouble (int var) {
+		return (this.nextLong(var) >>> 11) * 0x1.0p-53;
+	}
+	
+	/** @param var 		the variable
+	 * @param bound 	the (positive) upper bound
+	 * @return a random number in [0, bound) drawn from the generator of the variable
+	 */
+	private int nextInt (int var, int bound) {
+		return (int) (((this.nextLong(var) >>> 33) * bound) >>> 31);
+	}
+	
+	/** Sets the gain of a variable to the improvement of the utility stored in \a gainUtils and \a gainConflicts over its current utility
+	 * @param var 	the variable
+	 */
+	private void toGain (int var) {
+		this.gainConflicts[var] = this.currentConflicts[var] - this.gainConflicts[var];
+		this.gainUtils[var] = this.maximize ? this.gainUtils[var] - this.currentUtils[var] : this.currentUtils[var] - this.gainUtils[var];
+	}
+	
+	/** The phases of a cycle */
+	private enum Phase { 
+		/** DSA: each variable decides on its new value */ 												DSA_DECIDE, 
+		/** MGM: each variable computes its best unilateral gain */ 									MGM_GAIN, 
+		/** MGM2: each variable decides whether to offer, and computes its offers */ 					MGM2_OFFER, 
+		/** MGM2: each receiver accepts the best offer, and computes its best unilateral gain */ 		MGM2_ACCEPT, 
+		/** MGM2: each offerer learns whether its offer was accepted */ 								MGM2_COMMIT, 
+		/** MGM and MGM2: each variable compares its gain with its neighbors' */ 						COMPETE, 
+		/** MGM and MGM2: the winners move */ 															MOVE
+	};
+	
+	/** Runs a phase of the current cycle on all non-isolated variables
+	 * @param phase 	the phase
+	 */
+	private void runPhase (Phase phase) {
+		if (this.pool == null) 
+			this.runPhase(phase, 0, this.active.length);
+		else 
+			this.pool.invoke(new PhaseTask (phase, 0, this.active.length));
+	}
+	
+	/** A fork-join task that runs a phase on a range of variables */
+	private class PhaseTask extends RecursiveAction {
+		
+		/** Used for serialization */
+		private static final long serialVersionUID = -3914946218342424585L;
+
+		/** The phase */
+		private final Phase phase;
+		
+		/** The position in \a active of the first variable */
+		private final int from;
+		
+		/** The position in \a active after the last variable */
+		private final int to;
+		
+		/** Constructor
+		 * @param phase 	the phase
+		 * @param from 		the position in \a active of the first variable
+		 * @param to 		the position in \a active after the last variable
+		 */
+		private PhaseTask (Phase phase, int from, int to) {
+			this.phase = phase;
+			this.from = from;
+			this.to = to;
+		}
+
+		/** @see java.util.concurrent.RecursiveAction#compute() */
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= grain) 
+				runPhase(this.phase, this.from, this.to);
+			else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new PhaseTask (this.phase, this.from, middle), new PhaseTask (this.phase, middle, this.to));
+			}
+		}
+	}
+	
+	/** Runs a phase on a range of variables
+	 * @param phase 	the phase
+	 * @param from 		the position in \a active of the first variable
+	 * @param to 		the position in \a active after the last variable
+	 */
+	private void runPhase (Phase phase, int from, int to) {
+		for (int pos = from; pos < to; pos++) {
+			final int var = this.active[pos];
+			
+			switch (phase) {
+			case DSA_DECIDE: 
+				this.decideDSA(var);
+				break;
+			case MGM_GAIN: 
+				this.computeCurrentUtil(var);
+				this.unilateralGain(var, false);
+				break;
+			case MGM2_OFFER: 
+				this.offerMGM2(var);
+				break;
+			case MGM2_ACCEPT: 
+				this.acceptMGM2(var);
+				break;
+			case MGM2_COMMIT: 
+				this.commitMGM2(var);
+				break;
+			case COMPETE: 
+				this.compete(var);
+				break;
+			case MOVE: 
+				this.moveIfAllowed(var);
+				break;
+			}
+		}
+	}
+	
+	/** DSA: decides on the new value of a variable, according to the strategy
+	 * @param var 	the variable
+	 */
+	private void decideDSA (int var) {
+		
+		this.computeCurrentUtil(var);
+		int best = this.bestValue(var, -1, false);
+		int comparison = this.compare(this.gainConflicts[var], this.gainUtils[var], this.currentConflicts[var], this.currentUtils[var]);
+		
+		boolean change;
+		switch (this.strategy) {
+		case 'C': 
+			change = comparison >= 0 && this.nextDouble(var) <= this.p;
+			break;
+		case 'E': 
+			change = comparison > 0 || (comparison == 0 && this.nextDouble(var) <= this.p);
+			break;
+		default: // A
+			change = comparison > 0 && this.nextDouble(var) <= this.p;
+		}
+		
+		this.newValues[var] = (change ? best : this.values[var]);
+	}
+	
+	/** MGM and MGM2: computes the best unilateral gain of a variable
+	 * @param var 			the variable
+	 * @param allowZero 	whether a zero gain allows the variable to move (as in MGM2)
+	 */
+	private void unilateralGain (int var, boolean allowZero) {
+		
+		int best = this.bestValue(var, this.values[var], true);
+		if (best < 0) { // single-value domain
+			this.gainConflicts[var] = NO_MOVE;
+			this.gainUtils[var] = 0.0;
+			this.move[var] = false;
+			return;
+		}
+		
+		this.newValues[var] = best;
+		this.toGain(var);
+		int sign = (this.gainConflicts[var] != 0 ? this.gainConflicts[var] : Double.compare(this.gainUtils[var], 0.0));
+		this.move[var] = (allowZero ? sign >= 0 : sign > 0);
+	}
+	
+	/** MGM and MGM2: checks whether a variable's gain is larger than all its neighbors' gains
+	 * @param var 	the variable
+	 */
+	private void compete (int var) {
+		
+		boolean go = this.move[var];
+		final int mate = (this.algorithm == Algorithm.MGM2 && this.committed[var] ? this.partner[var] : -1);
+		
+		for (int s = this.neighborsStart[var], end = this.neighborsStart[var + 1]; go && s < end; s++) {
+			final int neighbor = this.neighbors[s];
+			if (neighbor == mate) 
+				continue;
+			
+			int diff = this.compareGains(neighbor, var);
+			if (diff > 0 || (diff == 0 && var < neighbor)) // ties are broken in favor of the variable with the largest name
+				go = false;
+		}
+		
+		this.go[var] = go;
+	}
+	
+	/** MGM and MGM2: moves a variable to its new value if it has won the right to move
+	 * @param var 	the variable
+	 */
+	private void moveIfAllowed (int var) {
+		if (this.go[var] && (this.algorithm != Algorithm.MGM2 || ! this.committed[var] || this.go[this.partner[var]])) 
+			this.values[var] = this.newValues[var];
+	}
+	
+	/** MGM2: decides whether a variable makes an offer, and computes all joint moves with a random neighbor that improve its local utility
+	 * @param var 	the variable
+	 */
+	private void offerMGM2 (int var) {
+		
+		this.computeCurrentUtil(var);
+		this.committed[var] = false;
+		this.partner[var] = -1;
+		this.nbrOffers[var] = 0;
+		
+		if (! (this.nextDouble(var) < this.q)) {
+			this.offerer[var] = false;
+			return;
+		}
+		
+		// Choose a random neighbor
+		final int start = this.neighborsStart[var];
+		final int neighbor = this.neighbors[start + this.nextInt(var, this.neighborsStart[var + 1] - start)];
+		this.partner[var] = neighbor;
+		
+		final int ownSize = this.domains[var].length;
+		final int neighborSize = this.domains[neighbor].length;
+		if (this.offerOwnValues[var] == null || this.offerOwnValues[var].length < ownSize * neighborSize) {
+			this.offerOwnValues[var] = new int [ownSize * neighborSize];
+			this.offerNeighborValues[var] = new int [ownSize * neighborSize];
+			this.offerGainUtils[var] = new double [ownSize * neighborSize];
+			this.offerGainConflicts[var] = new int [ownSize * neighborSize];
+		}
+		
+		// Offer all joint moves that change both values and improve the local utility
+		final int currentValue = this.values[var];
+		final int currentNeighborValue = this.values[neighbor];
+		int nbrOffers = 0;
+		for (int a = 0; a < ownSize; a++) {
+			if (a == currentValue) 
+				continue;
+			
+			for (int b = 0; b < neighborSize; b++) {
+				if (b == currentNeighborValue) 
+					continue;
+				
+				double util = this.localUtil(var, a, neighbor, b, false);
+				int gainConflicts = this.currentConflicts[var] - this.lastConflicts[var];
+				double gainUtil = this.maximize ? util - this.currentUtils[var] : this.currentUtils[var] - util;
+				if (gainConflicts > 0 || (gainConflicts == 0 && gainUtil > 0.0)) {
+					this.offerOwnValues[var][nbrOffers] = a;
+					this.offerNeighborValues[var][nbrOffers] = b;
+					this.offerGainUtils[var][nbrOffers] = gainUtil;
+					this.offerGainConflicts[var][nbrOffers] = gainConflicts;
+					nbrOffers++;
+				}
+			}
+		}
+		
+		// A variable that has nothing to offer acts as a receiver
+		this.nbrOffers[var] = nbrOffers;
+		this.offerer[var] = (nbrOffers > 0);
+	}
+	
+	/** MGM2: a receiver accepts the offer with the largest joint gain, if positive; all variables compute their unilateral gains
+	 * @param var 	the variable
+	 */
+	private void acceptMGM2 (int var) {
+		
+		// Compute the unilateral gain, which is used by offerers whose offers are rejected and by receivers that accept no offer
+		this.unilateralGain(var, true);
+		if (this.offerer[var]) 
+			return;
+		
+		int bestOfferer = -1;
+		int bestOffer = -1;
+		int bestConflicts = 0;
+		double bestUtil = 0.0;
+		
+		for (int s = this.neighborsStart[var], end = this.neighborsStart[var + 1]; s < end; s++) {
+			final int neighbor = this.neighbors[s];
+			if (! this.offerer[neighbor] || this.partner[neighbor] != var) 
+				continue;
+			
+			// The offerer's gain already accounts for the constraints shared with this variable
+			double currentUtil = this.localUtil(var, this.values[var], neighbor, 0, true);
+			int currentConflicts = this.lastConflicts[var];
+			
+			for (int k = this.nbrOffers[neighbor] - 1; k >= 0; k--) {
+				double util = this.localUtil(var, this.offerNeighborValues[neighbor][k], neighbor, 0, true);
+				int conflicts = this.offerGainConflicts[neighbor][k] + currentConflicts - this.lastConflicts[var];
+				util = this.offerGainUtils[neighbor][k] + (this.maximize ? util - currentUtil : currentUtil - util);
+				
+				if (conflicts > bestConflicts || (conflicts == bestConflicts && util > bestUtil)) {
+					bestOfferer = neighbor;
+					bestOffer = k;
+					bestConflicts = conflicts;
+					bestUtil = util;
+				}
+			}
+		}
+		
+		if (bestOfferer >= 0) {
+			this.committed[var] = true;
+			this.partner[var] = bestOfferer;
+			this.acceptedOffer[var] = bestOffer;
+			this.newValues[var] = this.offerNeighborValues[bestOfferer][bestOffer];
+			this.gainConflicts[var] = bestConflicts;
+			this.gainUtils[var] = bestUtil;
+			this.move[var] = true;
+		}
+	}
+	
+	/** MGM2: an offerer whose offer has been accepted commits to the joint move
+	 * @param var 	the variable
+	 */
+	private void commitMGM2 (int var) {
+		
+		if (! this.offerer[var]) 
+			return;
+		
+		final int receiver = this.partner[var];
+		if (this.committed[receiver] && this.partner[receiver] == var) {
+			final int offer = this.acceptedOffer[receiver];
+			this.committed[var] = true;
+			this.newValues[var] = this.offerOwnValues[var][offer];
+			this.gainConflicts[var] = this.gainConflicts[receiver];
+			this.gainUtils[var] = this.gainUtils[receiver];
+			this.move[var] = true;
+		}
+	}
+	
+}
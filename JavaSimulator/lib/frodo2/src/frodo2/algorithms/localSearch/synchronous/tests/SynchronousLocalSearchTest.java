@@ -0,0 +1,261 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+/** Tests for the synchronous-cycle local search engine */
+package frodo2.algorithms.localSearch.synchronous.tests;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.Solution;
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.StatsReporterWithConvergence.CurrentAssignment;
+import frodo2.algorithms.dpop.DPOPsolver;
+import frodo2.algorithms.localSearch.dsa.DSAsolution;
+import frodo2.algorithms.localSearch.mgm.MGMsolution;
+import frodo2.algorithms.localSearch.synchronous.SynchronousLocalSearch;
+import frodo2.algorithms.test.AllTests;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.AddableInteger;
+import frodo2.solutionSpaces.AddableReal;
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/** JUnit tests for SynchronousLocalSearch
+ * @param <U> the type used for utility values
+ */
+public class SynchronousLocalSearchTest < U extends Addable<U> > extends TestCase {
+	
+	/** Maximum number of variables in the random problems */
+	private final int maxNbrVars = 10;
+	
+	/** Maximum number of binary constraints in the random problems */
+	private final int maxNbrEdges = 25;
+	
+	/** Maximum number of agents in the random problems */
+	private final int maxNbrAgents = 5;
+	
+	/** The path to the agent configuration file */
+	private final String agentDescFile;
+	
+	/** The DSA strategy, or \c null */
+	private final String strategy;
+	
+	/** The number of threads */
+	private final int nbrThreads;
+	
+	/** The constraint tightness of the random problems */
+	private final double p2;
+	
+	/** The class used for utility values */
+	private final Class<U> utilClass;
+	
+	/** Constructor
+	 * @param agentDescFile 	the path to the agent configuration file
+	 * @param strategy 			the DSA strategy, or \c null
+	 * @param nbrThreads 		the number of threads
+	 * @param p2 				the constraint tightness of the random problems
+	 * @param utilClass 		the class used for utility values
+	 */
+	public SynchronousLocalSearchTest (String agentDescFile, String strategy, int nbrThreads, double p2, Class<U> utilClass) {
+		this ("testRandom", agentDescFile, strategy, nbrThreads, p2, utilClass);
+	}
+	
+	/** Constructor
+	 * @param method 			the name of the test method
+	 * @param agentDescFile 	the path to the agent configuration file
+	 * @param strategy 			the DSA strategy, or \c null
+	 * @param nbrThreads 		the number of threads
+	 * @param p2 				the constraint tightness of the random problems
+	 * @param utilClass 		the class used for utility values
+	 */
+	public SynchronousLocalSearchTest (String method, String agentDescFile, String strategy, int nbrThreads, double p2, Class<U> utilClass) {
+		super (method);
+		this.agentDescFile = agentDescFile;
+		this.strategy = strategy;
+		this.nbrThreads = nbrThreads;
+		this.p2 = p2;
+		this.utilClass = utilClass;
+	}
+	
+	/** @return the test suite */
+	public static TestSuite suite () {
+		TestSuite suite = new TestSuite ("Random tests for SynchronousLocalSearch");
+		
+		String dsa = "src/frodo2/algorithms/localSearch/dsa/DSAagent.xml";
+		String mgm = "src/frodo2/algorithms/localSearch/mgm/MGMagent.xml";
+		String mgm2 = "src/frodo2/algorithms/localSearch/mgm/mgm2/MGM2agent.xml";
+		
+		for (String strategy : new String[] { "A", "C", "E" }) {
+			TestSuite tmp = new TestSuite ("Tests for DSA-" + strategy);
+			tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> (dsa, strategy, 1, 0.0, AddableInteger.class), 50));
+			suite.addTest(tmp);
+			
+			tmp = new TestSuite ("Tests for DSA-" + strategy + " with 4 threads");
+			tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> (dsa, strategy, 4, 0.0, AddableInteger.class), 50));
+			suite.addTest(tmp);
+		}
+		
+		TestSuite tmp = new TestSuite ("Tests for MGM");
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> (mgm, null, 1, 0.0, AddableInteger.class), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for MGM with 4 threads");
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> (mgm, null, 4, 0.0, AddableInteger.class), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for MGM with 4 threads, infeasible assignments and real-valued utilities");
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableReal> (mgm, null, 4, 0.3, AddableReal.class), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for MGM2");
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> (mgm2, null, 1, 0.0, AddableInteger.class), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for MGM2 with 4 threads");
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> (mgm2, null, 4, 0.0, AddableInteger.class), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for MGM2 with 4 threads, infeasible assignments and real-valued utilities");
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableReal> (mgm2, null, 4, 0.3, AddableReal.class), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests that runs with the same seed are reproducible");
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> ("testSeed", dsa, "C", 4, 0.0, AddableInteger.class), 20));
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> ("testSeed", mgm, null, 4, 0.0, AddableInteger.class), 20));
+		tmp.addTest(new RepeatedTest (new SynchronousLocalSearchTest<AddableInteger> ("testSeed", mgm2, null, 4, 0.0, AddableInteger.class), 20));
+		suite.addTest(tmp);
+		
+		return suite;
+	}
+	
+	/** Solves a random problem and checks the solution against DPOP's
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testRandom () throws Exception {
+		
+		boolean maximize = (Math.random() < .5);
+		Document problemDoc = AllTests.createRandProblem(maxNbrVars, maxNbrEdges, maxNbrAgents, maximize, this.p2);
+		
+		Document agentDesc = XCSPparser.parse(this.agentDescFile, false);
+		agentDesc.getRootElement().getChild("parser").setAttribute("utilClass", this.utilClass.getName());
+		boolean mgm = false;
+		for (Element module : (List<Element>) agentDesc.getRootElement().getChild("modules").getChildren()) {
+			module.setAttribute("convergence", "true");
+			if (this.strategy != null) 
+				module.setAttribute("strategy", "frodo2.algorithms.localSearch.dsa.DSA$" + this.strategy);
+			else 
+				mgm = true;
+		}
+		
+		SynchronousLocalSearch<AddableInteger, U> engine = new SynchronousLocalSearch<AddableInteger, U> (agentDesc, this.nbrThreads);
+		engine.setNbrCycles(50);
+		Solution<AddableInteger, U> sol = engine.solve(problemDoc);
+		assertNotNull(sol);
+		if (mgm) 
+			assertTrue(sol instanceof MGMsolution);
+		else 
+			assertTrue(sol instanceof DSAsolution);
+		
+		// Check that all variables are assigned, and that the reported utility is correct
+		XCSPparser<AddableInteger, U> parser = new XCSPparser<AddableInteger, U> (problemDoc);
+		parser.setUtilClass(this.utilClass);
+		Map<String, AddableInteger> assignments = sol.getAssignments();
+		assertEquals(parser.getVariables(), assignments.keySet());
+		assertEquals(parser.getUtility(assignments).getUtility(0), sol.getUtility());
+		
+		// The solution cannot be better than the optimal solution
+		U optUtil = new DPOPsolver<AddableInteger, U> (AddableInteger.class, this.utilClass).solve(problemDoc).getUtility();
+		if (maximize) 
+			assertTrue(sol.getUtility() + " > " + optUtil, sol.getUtility().compareTo(optUtil) <= 0);
+		else 
+			assertTrue(sol.getUtility() + " < " + optUtil, sol.getUtility().compareTo(optUtil) >= 0);
+		
+		// MGM and MGM2 are monotonic: the global utility can never get worse from one cycle to the next
+		if (mgm) {
+			HashMap<String, ArrayList<CurrentAssignment<AddableInteger>>> histories = 
+					(HashMap<String, ArrayList<CurrentAssignment<AddableInteger>>>) ((MGMsolution<AddableInteger, U>) sol).getAssignmentHistories();
+			U previous = null;
+			for (int cycle = 0; cycle <= engine.getNbrCycles(); cycle++) {
+				U util = parser.getUtility(this.getAssignments(histories, cycle)).getUtility(0);
+				if (previous != null) {
+					if (maximize) 
+						assertTrue("Cycle " + cycle + ": " + util + " < " + previous, util.compareTo(previous) >= 0);
+					else 
+						assertTrue("Cycle " + cycle + ": " + util + " > " + previous, util.compareTo(previous) <= 0);
+				}
+				previous = util;
+			}
+		}
+	}
+	
+	/** Solves a random problem twice with the same seed, once with 1 thread and once with several, and checks that the solutions are the same
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testSeed () throws Exception {
+		
+		Document problemDoc = AllTests.createRandProblem(100, 250, maxNbrAgents, Math.random() < .5, this.p2);
+		
+		Document agentDesc = XCSPparser.parse(this.agentDescFile, false);
+		agentDesc.getRootElement().getChild("parser").setAttribute("utilClass", this.utilClass.getName());
+		long seed = (long) (Math.random() * Long.MAX_VALUE);
+		for (Element module : agentDesc.getRootElement().getChild("modules").getChildren()) {
+			module.setAttribute("seed", Long.toString(seed));
+			if (this.strategy != null) 
+				module.setAttribute("strategy", "frodo2.algorithms.localSearch.dsa.DSA$" + this.strategy);
+		}
+		
+		SynchronousLocalSearch<AddableInteger, U> engine = new SynchronousLocalSearch<AddableInteger, U> (agentDesc, 1);
+		engine.setNbrCycles(20);
+		Map<String, AddableInteger> expected = engine.solve(problemDoc).getAssignments();
+		
+		engine = new SynchronousLocalSearch<AddableInteger, U> (agentDesc, this.nbrThreads);
+		engine.setNbrCycles(20);
+		assertEquals(expected, engine.solve(problemDoc).getAssignments());
+	}
+	
+	/** Reconstructs the assignments at a given cycle from the assignment histories
+	 * @param histories 	the assignment histories
+	 * @param cycle 		the cycle
+	 * @return the assignments at the end of the cycle
+	 */
+	private Map<String, AddableInteger> getAssignments (HashMap<String, ArrayList<CurrentAssignment<AddableInteger>>> histories, int cycle) {
+		
+		HashMap<String, AddableInteger> assignments = new HashMap<String, AddableInteger> ();
+		for (Map.Entry<String, ArrayList<CurrentAssignment<AddableInteger>>> entry : histories.entrySet()) {
+			for (CurrentAssignment<AddableInteger> ass : entry.getValue()) {
+				if (ass.getTimeStamp(false) > cycle) 
+					break;
+				assignments.put(entry.getKey(), ass.getAssignment());
+			}
+		}
+		
+		return assignments;
+	}
+	
+}
@@ -0,0 +1,253 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+package frodo2.algorithms.localSearch.tests;
+
+import java.util.ArrayList;
+
+import frodo2.algorithms.localSearch.LocalUtilityCache;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.AddableInteger;
+import frodo2.solutionSpaces.AddableReal;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+import frodo2.solutionSpaces.hypercube.Hypercube;
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/** JUnit tests for the LocalUtilityCache
+ * @param <U> the type used for utility values
+ * @see LocalUtilityCache
+ */
+public class LocalUtilityCacheTest < U extends Addable<U> > extends TestCase {
+	
+	/** The number of times neighbors change values in each test */
+	private static final int NBR_STEPS = 5 * LocalUtilityCache.RECOMPUTE_PERIOD;
+	
+	/** The zero utility */
+	private final U zero;
+	
+	/** The variable whose local utilities are cached */
+	private final String var = "x";
+	
+	/** The domain of the variable */
+	private AddableInteger[] domain;
+	
+	/** The neighbors of the variable */
+	private String[] neighbors;
+	
+	/** The domains of the neighbors */
+	private AddableInteger[][] neighborDoms;
+	
+	/** The constraints, some of which do not involve the variable */
+	private ArrayList< UtilitySolutionSpace<AddableInteger, U> > spaces;
+	
+	/** The largest absolute value of a finite utility in the constraints */
+	private double magnitude;
+	
+	/** Constructor
+	 * @param zero 	the zero utility
+	 */
+	public LocalUtilityCacheTest(U zero) {
+		super ("test");
+		this.zero = zero;
+	}
+	
+	/** @return the test suite */
+	public static TestSuite suite () {
+		TestSuite suite = new TestSuite ("Tests for LocalUtilityCache");
+		
+		TestSuite tmp = new TestSuite ("Tests with integer utilities");
+		tmp.addTest(new RepeatedTest (new LocalUtilityCacheTest<AddableInteger> (new AddableInteger (0)), 200));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests with real utilities");
+		tmp.addTest(new RepeatedTest (new LocalUtilityCacheTest<AddableReal> (new AddableReal (0)), 200));
+		suite.addTest(tmp);
+		
+		return suite;
+	}
+	
+	/** @see junit.framework.TestCase#setUp() */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		
+		this.domain = randDomain(1);
+		this.magnitude = 0;
+		
+		final int nbrNeighbors = 1 + (int) (Math.random() * 6);
+		this.neighbors = new String [nbrNeighbors];
+		this.neighborDoms = new AddableInteger [nbrNeighbors][];
+		for (int j = 0; j < nbrNeighbors; j++) {
+			this.neighbors[j] = "y" + j;
+			this.neighborDoms[j] = randDomain(2);
+		}
+		
+		// Each neighbor shares at least one binary constraint with the variable; add a few ternary and unrelated constraints
+		this.spaces = new ArrayList< UtilitySolutionSpace<AddableInteger, U> > ();
+		for (int j = 0; j < nbrNeighbors; j++) 
+			this.spaces.add(this.randSpace(Math.random() < .5 ? new int[] {-1, j} : new int[] {j, -1}));
+		for (int n = (int) (Math.random() * 4); n > 0; n--) {
+			int j = (int) (Math.random() * nbrNeighbors);
+			int k = (int) (Math.random() * nbrNeighbors);
+			if (Math.random() < .3) 
+				this.spaces.add(this.randSpace(new int[] {j, k}));
+			else 
+				this.spaces.add(this.randSpace(new int[] {k, -1, j}));
+		}
+	}
+	
+	/** @see junit.framework.TestCase#tearDown() */
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		this.domain = null;
+		this.neighbors = null;
+		this.neighborDoms = null;
+		this.spaces = null;
+	}
+	
+	/** Generates a random domain
+	 * @param minSize 	the minimum domain size
+	 * @return a domain of size between minSize and 5
+	 */
+	private static AddableInteger[] randDomain (int minSize) {
+		AddableInteger[] dom = new AddableInteger [minSize + (int) (Math.random() * (6 - minSize))];
+		for (int i = 0; i < dom.length; i++) 
+			dom[i] = new AddableInteger (i);
+		return dom;
+	}
+	
+	/** Generates a random constraint
+	 * @param scope 	the indexes of the neighbors in the scope, -1 standing for the variable
+	 * @return a constraint with random utilities, some of which are infinite
+	 */
+	@SuppressWarnings("unchecked")
+	private UtilitySolutionSpace<AddableInteger, U> randSpace (int[] scope) {
+		
+		String[] vars = new String [scope.length];
+		AddableInteger[][] doms = new AddableInteger [scope.length][];
+		int nbrUtils = 1;
+		for (int i = 0; i < scope.length; i++) {
+			vars[i] = (scope[i] < 0 ? this.var : this.neighbors[scope[i]]);
+			doms[i] = (scope[i] < 0 ? this.domain : this.neighborDoms[scope[i]]);
+			nbrUtils *= doms[i].length;
+		}
+		if (scope.length == 2 && vars[0].equals(vars[1])) // avoid duplicate variables in the scope
+			return this.randSpace(new int[] {scope[0]});
+		if (scope.length == 3 && vars[0].equals(vars[2])) 
+			return this.randSpace(new int[] {scope[0], scope[1]});
+		
+		U[] utils = (U[]) new Addable [nbrUtils];
+		for (int i = 0; i < nbrUtils; i++) {
+			double rand = Math.random();
+			if (rand < .05) 
+				utils[i] = this.zero.getPlusInfinity();
+			else if (rand < .07) 
+				utils[i] = this.zero.getMinInfinity();
+			else if (this.zero instanceof AddableReal) // mix magnitudes to make rounding errors likely
+				utils[i] = (U) new AddableReal ((Math.random() - .5) * Math.pow(10, (int) (Math.random() * 12)));
+			else 
+				utils[i] = (U) new AddableInteger ((int) (Math.random() * 2001) - 1000);
+			
+			if (! utils[i].equals(this.zero.getPlusInfinity()) && ! utils[i].equals(this.zero.getMinInfinity())) 
+				this.magnitude = Math.max(this.magnitude, Math.abs(utils[i].doubleValue()));
+		}
+		
+		return new Hypercube<AddableInteger, U> (vars, doms, utils, this.zero.getPlusInfinity());
+	}
+	
+	/** Tests that the cached utilities are those recomputed from scratch after a sequence of neighbor changes
+	 * 
+	 * For real utilities, the cached sums may differ from the recomputed ones by rounding errors, but not 
+	 * right after the cache has recomputed them from scratch, i.e. every RECOMPUTE_PERIOD updates. 
+	 */
+	public void test () {
+		
+		LocalUtilityCache<AddableInteger, U> cache = 
+				new LocalUtilityCache<AddableInteger, U> (this.var, this.domain, this.spaces, this.zero, false);
+		
+		int[] values = new int [this.neighbors.length];
+		for (int j = 0; j < this.neighbors.length; j++) {
+			values[j] = (int) (Math.random() * this.neighborDoms[j].length);
+			cache.setNeighborValue(this.neighbors[j], this.neighborDoms[j][values[j]]);
+		}
+		
+		for (int step = 1; step <= NBR_STEPS; step++) {
+			cache.update();
+			this.check(cache, values, step % LocalUtilityCache.RECOMPUTE_PERIOD == 0);
+			
+			// Change the value of a random neighbor, which always has at least one constraint with the variable
+			int j = (int) (Math.random() * this.neighbors.length);
+			int newVal = (int) (Math.random() * (this.neighborDoms[j].length - 1));
+			values[j] = (newVal >= values[j] ? newVal + 1 : newVal);
+			cache.setNeighborValue(this.neighbors[j], this.neighborDoms[j][values[j]]);
+		}
+	}
+	
+	/** Compares the cached utilities with the ones computed from scratch
+	 * @param cache 	the cache
+	 * @param values 	for each neighbor, the index of its current value
+	 * @param exact 	whether real utilities must be equal rather than approximately equal
+	 */
+	private void check (LocalUtilityCache<AddableInteger, U> cache, int[] values, boolean exact) {
+		
+		for (int i = 0; i < this.domain.length; i++) {
+			
+			// Sum the utilities of the constraints involving the variable, in the order in which they are listed
+			U expected = this.zero;
+			boolean infeasible = false, otherInfinity = false;
+			for (UtilitySolutionSpace<AddableInteger, U> space : this.spaces) {
+				String[] vars = space.getVariables();
+				AddableInteger[] assignment = new AddableInteger [vars.length];
+				boolean involved = false;
+				for (int k = 0; k < vars.length; k++) {
+					if (vars[k].equals(this.var)) {
+						involved = true;
+						assignment[k] = this.domain[i];
+					} else 
+						assignment[k] = this.neighborDoms[Integer.parseInt(vars[k].substring(1))][values[Integer.parseInt(vars[k].substring(1))]];
+				}
+				if (! involved) 
+					continue;
+				
+				U util = space.getUtility(assignment);
+				if (util.equals(this.zero.getPlusInfinity())) 
+					infeasible = true;
+				else if (util.equals(this.zero.getMinInfinity())) 
+					otherInfinity = true;
+				else 
+					expected = expected.add(util);
+			}
+			
+			U actual = cache.getUtility(i);
+			if (infeasible) 
+				assertEquals (this.zero.getPlusInfinity(), actual);
+			else if (otherInfinity) 
+				assertEquals (this.zero.getMinInfinity(), actual);
+			else if (exact || ! (this.zero instanceof AddableReal)) 
+				assertEquals (expected, actual);
+			else 
+				assertEquals (expected.doubleValue(), actual.doubleValue(), 1e-9 * this.magnitude * LocalUtilityCache.RECOMPUTE_PERIOD);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.maxsum;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+import frodo2.communication.Message;
+
+/** A message exchanged between a function node and a variable node by PrimitiveMaxSum, containing a marginal utility as an array of doubles
+ * 
+ * The i-th entry of the marginal utility corresponds to the i-th value in the variable's domain. 
+ */
+public class ArrayMarginalMsg extends Message {
+
+	/** The type of the messages sent by function nodes */
+	public static final String FUNCTION_MSG_TYPE = "FunctionToVarArray";
+	
+	/** The type of the messages sent by variable nodes */
+	public static final String VARIABLE_MSG_TYPE = "VarToFunctionArray";
+	
+	/** The function node */
+	private String functionNode;
+	
+	/** The variable node */
+	private String var;
+	
+	/** The marginal utility */
+	private double[] marginalUtil;
+	
+	/** Whether this is the initial message sent by a variable node */
+	private boolean start;
+	
+	/** Empty constructor used for externalization */
+	public ArrayMarginalMsg () { }
+
+	/** Constructor
+	 * @param type 			the type of the message
+	 * @param functionNode 	the function node
+	 * @param var 			the variable node
+	 * @param marginalUtil 	the marginal utility
+	 * @param start 		whether this is the initial message sent by a variable node
+	 */
+	public ArrayMarginalMsg (String type, String functionNode, String var, double[] marginalUtil, boolean start) {
+		super (type);
+		this.functionNode = functionNode;
+		this.var = var;
+		this.marginalUtil = marginalUtil;
+		this.start = start;
+	}
+
+	/** @see Message#writeExternal(java.io.ObjectOutput) */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		super.writeExternal(out);
+		out.writeObject(this.functionNode);
+		out.writeObject(this.var);
+		out.writeBoolean(this.start);
+		out.writeInt(this.marginalUtil.length);
+		for (double util : this.marginalUtil) 
+			out.writeDouble(util);
+	}
+
+	/** @see Message#readExternal(java.io.ObjectInput) */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		super.readExternal(in);
+		this.functionNode = (String) in.readObject();
+		this.var = (String) in.readObject();
+		this.start = in.readBoolean();
+		this.marginalUtil = new double [in.readInt()];
+		for (int i = 0; i < this.marginalUtil.length; i++) 
+			this.marginalUtil[i] = in.readDouble();
+	}
+
+	/** @return the function node */
+	public String getFunctionNode () {
+		return this.functionNode;
+	}
+	
+	/** @return the variable node */
+	public String getVar () {
+		return this.var;
+	}
+	
+	/** @return the marginal utility */
+	public double[] getMarginalUtil () {
+		return this.marginalUtil;
+	}
+	
+	/** @return whether this is the initial message sent by a variable node */
+	public boolean isStart () {
+		return this.start;
+	}
+	
+	/** @see Message#toString() */
+	@Override
+	public String toString () {
+		return super.toString() + "\n\tfunctionNode: " + this.functionNode + "\n\tvar: " + this.var + "\n\tmarginalUtil: " + Arrays.toString(this.marginalUtil);
+	}
+}
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Random;
 
@@ -39,6 +40,8 @@ import frodo2.algorithms.varOrdering.factorgraph.FunctionNode;
 import frodo2.algorithms.varOrdering.factorgraph.VariableNode;
 import frodo2.communication.Message;
 import frodo2.communication.MessageWith2Payloads;
+import frodo2.communication.MessageWith4Payloads;
+import frodo2.communication.MessageWithPayload;
 import frodo2.communication.Queue;
 import frodo2.solutionSpaces.Addable;
 import frodo2.solutionSpaces.AddableDelayed;
@@ -68,10 +71,22 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 	public static final String VARIABLE_MSG_TYPE = VariableMsg.VARIABLE_MSG_TYPE;
 
 	/** The type of the messages containing the assignment history */
-	private static final String CONV_STATS_MSG_TYPE = "MaxSumConvStatsMsg";
+	static final String CONV_STATS_MSG_TYPE = "MaxSumConvStatsMsg";
 
 	/** The type of the messages containing the final assignment to a variable */
-	private static final String SOLUTION_MSG_TYPE = "MaxSumSolMsg";
+	static final String SOLUTION_MSG_TYPE = "MaxSumSolMsg";
+	
+	/** The type of the messages containing the message counts and convergence time of an agent */
+	static final String STATS_MSG_TYPE = "MaxSumStatsMsg";
+	
+	/** The type of the messages sent by the stats gatherer to ask agents for their message counts, as part of the quiescence detection */
+	static final String PROBE_MSG_TYPE = "MaxSumProbe";
+	
+	/** The type of the messages containing the message counts of an agent in response to a probe */
+	static final String COUNTS_MSG_TYPE = "MaxSumCounts";
+	
+	/** The type of the messages sent by the stats gatherer to all agents when it has detected that no more marginal utility messages are in transit */
+	public static final String QUIESCENT_MSG_TYPE = "MaxSumQuiescent";
 	
 	/** Information about an internal variable */
 	private class VarInfo extends VariableNode<V, U> {
@@ -79,6 +94,9 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 		/** The last marginal utility received from each function node */     
 		private HashMap< String, UtilitySolutionSpace<V, U> > lastMsgsIn = new HashMap< String, UtilitySolutionSpace<V, U> > ();
 		
+		/** The last marginal utility sent to each function node */     
+		private HashMap< String, UtilitySolutionSpace<V, U> > lastMsgsOut = new HashMap< String, UtilitySolutionSpace<V, U> > ();
+		
 		/** The remaining number of iterations for this node */
 		private int nbrIter;
 		
@@ -161,6 +179,9 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 		/** The last marginal utility received from each variable node */     
 		private HashMap< String, UtilitySolutionSpace<V, U> > lastMsgsIn = new HashMap< String, UtilitySolutionSpace<V, U> > ();
 		
+		/** The last marginal utility sent to each variable node */     
+		private HashMap< String, UtilitySolutionSpace<V, U> > lastMsgsOut = new HashMap< String, UtilitySolutionSpace<V, U> > ();
+		
 		/** The remaining number of iterations for this node */
 		private int nbrIter;
 		
@@ -194,13 +215,13 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 	private HashMap<String, FunctionInfo> functionInfos;
 
 	/** The algorithm will terminate when ALL function nodes have gone through that many iterations */
-	private final int maxNbrIter;
+	protected final int maxNbrIter;
 
 	/** This module's queue */
-	private Queue queue;
+	protected Queue queue;
 
 	/** The problem */
-	private DCOPProblemInterface<V, U> problem;
+	protected DCOPProblemInterface<V, U> problem;
 	
 	/** Whether the stats gatherer should display the solution found */
 	private boolean silent = false;
@@ -209,7 +230,7 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 	private boolean started = false;
 
 	/** The 0 cost */
-	private U zero;
+	protected U zero;
 
 	/** The solution */
 	private HashMap<String, V> solution;
@@ -218,22 +239,67 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 	private U optCost;
 	
 	/** Whether to maximize utility or minimize cost */
-	private final boolean maximize;
+	protected final boolean maximize;
 
 	/** The infeasible utility */
 	private final U infeasibleUtil;
 	
 	/** Whether to initialize the algorithm with random messages, or with messages full of zeros */
-	private final boolean randomInit;
+	protected final boolean randomInit;
 
 	/** Whether the listener should record the assignment history or not */
-	private final boolean convergence;
+	protected final boolean convergence;
 
 	/** For each variable its assignment history */
-	private final HashMap< String, ArrayList< CurrentAssignment<V> > > assignmentHistoriesMap;
+	protected final HashMap< String, ArrayList< CurrentAssignment<V> > > assignmentHistoriesMap;
 	
 	/** For each recipient (variable or function), the last message received and waiting to be processed */
 	private HashMap<String, Message> pendingMsgs = new HashMap<String, Message> ();
+	
+	/** The damping factor in [0, 1), i.e. the weight of the previous message in each new variable-to-function message */
+	protected final double damping;
+	
+	/** A message is only sent (respectively, processed) if it differs by more than this threshold from the last one sent (respectively, received) on the same edge */
+	protected final double epsilon;
+	
+	/** Whether to run the quiescence detection protocol with the stats gatherer */
+	protected final boolean quiescence;
+	
+	/** The number of marginal utility messages sent */
+	protected int nbrMsgsSent = 0;
+	
+	/** The number of marginal utility messages received */
+	protected int nbrMsgsReceived = 0;
+	
+	/** The number of marginal utility messages not sent because they had not changed by more than \a epsilon */
+	protected int nbrMsgsSuppressed = 0;
+	
+	/** The time at which the algorithm started */
+	protected long startTime;
+	
+	/** The time at which the last marginal utility message was sent */
+	protected long lastSendTime;
+	
+	/** Whether this agent has already reported that it has finished */
+	protected boolean finished = false;
+	
+	/** In stats gatherer mode, for each agent, its number of messages sent and suppressed, and its convergence time */
+	private HashMap< String, long[] > agentStats;
+	
+	/** In stats gatherer mode, the agents that control at least one variable or function node */
+	private HashSet<String> maxSumAgents;
+	
+	/** In stats gatherer mode, for each agent, its message counts for the current probe */
+	private HashMap< String, int[] > waveCounts;
+	
+	/** In stats gatherer mode, the current probe number */
+	private int wave = 0;
+	
+	/** In stats gatherer mode, the total number of messages sent in the previous probe */
+	private long lastWaveSent = -1;
+	
+	/** In stats gatherer mode, the total number of messages received in the previous probe */
+	private long lastWaveReceived = -1;
 
 	/** Constructor
 	 * @param problem       this agent's problem
@@ -264,6 +330,25 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 			this.randomInit = Boolean.parseBoolean(randomInitStr);
 		else 
 			this.randomInit = true;
+		
+		String dampingStr = parameters.getAttributeValue("damping");
+		if (dampingStr != null) 
+			this.damping = Double.parseDouble(dampingStr);
+		else 
+			this.damping = 0.0;
+		assert this.damping >= 0.0 && this.damping < 1.0 : "The damping factor must be in [0, 1): " + this.damping;
+		
+		String epsilonStr = parameters.getAttributeValue("epsilon");
+		if (epsilonStr != null) 
+			this.epsilon = Double.parseDouble(epsilonStr);
+		else 
+			this.epsilon = 0.0;
+		
+		String quiescenceStr = parameters.getAttributeValue("quiescence");
+		if (quiescenceStr != null) 
+			this.quiescence = Boolean.parseBoolean(quiescenceStr);
+		else 
+			this.quiescence = false;
 	}
 
 	/** The constructor called in "statistics gatherer" mode
@@ -280,14 +365,20 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 		this.infeasibleUtil = (this.maximize ? problem.getMinInfUtility() : problem.getPlusInfUtility());
 		this.maxNbrIter = 0;
 		this.randomInit = false;
+		this.damping = 0.0;
+		this.epsilon = 0.0;
+		this.quiescence = false;
 		this.convergence = false;
 		this.assignmentHistoriesMap = new HashMap< String, ArrayList< CurrentAssignment<V> > > ();
+		this.agentStats = new HashMap< String, long[] > ();
+		this.waveCounts = new HashMap< String, int[] > ();
 	}
 
 	/** Parses the problem */
 	private void start () {
 		
 		this.started = true;
+		this.startTime = this.lastSendTime = this.queue.getCurrentTime();
 		
 		// Start the algorithm by having each of my variable nodes send a fake message to each of its neighboring function nodes
 		for (VarInfo varInfo : this.varInfos.values()) {
@@ -317,15 +408,88 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 							this.scaledRandSpace(varInfo.getVarName(), varInfo.getDom()) : 
 								zeroSpace (varInfo.getVarName(), varInfo.getDom()));
 					space.setName("start");
-					this.queue.sendMessage(function.getAgent(), new VariableMsg<V, U> (function.getName(), space));
+					varInfo.lastMsgsOut.put(function.getName(), space);
+					this.sendMarginal(function.getAgent(), new VariableMsg<V, U> (function.getName(), space));
 				}
 			}
 		}
 		
-		// Process pending messages
+		// Process pending messages (they have already been counted as received)
+		this.nbrMsgsReceived -= this.pendingMsgs.size();
 		for (Message msg : this.pendingMsgs.values()) 
 			this.notifyIn(msg);
 		this.pendingMsgs.clear();
+		
+		this.startQuiescenceDetection();
+	}
+	
+	/** Reports the initial message counts to the stats gatherer, which will start probing the agents once all have reported */
+	protected void startQuiescenceDetection () {
+		if (this.quiescence) 
+			this.queue.sendMessage(AgentInterface.STATS_MONITOR, new MessageWith4Payloads<String, Integer, Integer, Integer> (
+					COUNTS_MSG_TYPE, this.problem.getAgent(), 0, this.nbrMsgsSent, this.nbrMsgsReceived));
+	}
+	
+	/** Sends a marginal utility message, keeping track of the number of messages sent
+	 * @param agent 	the destination agent
+	 * @param msg 		the message
+	 */
+	protected void sendMarginal (String agent, Message msg) {
+		this.nbrMsgsSent++;
+		this.lastSendTime = this.queue.getCurrentTime();
+		this.queue.sendMessage(agent, msg);
+	}
+	
+	/** Checks whether a message has not changed by more than \a epsilon since the last message on the same edge
+	 * @param newMsg 	the new message
+	 * @param lastMsg 	the last message (may be \c null)
+	 * @return \c true if the new message need not be sent or processed
+	 */
+	private boolean isStale (UtilitySolutionSpace<V, U> newMsg, UtilitySolutionSpace<V, U> lastMsg) {
+		
+		if (lastMsg == null) 
+			return false;
+		else if (this.epsilon <= 0.0) 
+			return newMsg.equivalent(lastMsg);
+		
+		for (int i = (int) newMsg.getNumberOfSolutions() - 1; i >= 0; i--) {
+			U newUtil = newMsg.getUtility(i);
+			U lastUtil = lastMsg.getUtility(i);
+			if (! newUtil.equals(lastUtil) && (this.isInfinite(newUtil) || this.isInfinite(lastUtil) 
+					|| Math.abs(newUtil.doubleValue() - lastUtil.doubleValue()) > this.epsilon)) 
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/** Damps a variable-to-function message by combining it in place with the previous message sent on the same edge
+	 * @param marginalUtil 	the new message
+	 * @param lastMsg 		the last message sent on the same edge
+	 * @note With integer utilities, the damped utilities are truncated. 
+	 */
+	private void damp (UtilitySolutionSpace<V, U> marginalUtil, UtilitySolutionSpace<V, U> lastMsg) {
+		
+		for (int i = (int) marginalUtil.getNumberOfSolutions() - 1; i >= 0; i--) {
+			U newUtil = marginalUtil.getUtility(i);
+			U lastUtil = lastMsg.getUtility(i);
+			if (! this.isInfinite(newUtil) && ! this.isInfinite(lastUtil)) 
+				marginalUtil.setUtility(i, this.zero.fromString(Double.toString(
+						this.damping * lastUtil.doubleValue() + (1.0 - this.damping) * newUtil.doubleValue())));
+		}
+	}
+	
+	/** @param util 	a utility
+	 * @return whether the utility is infinite
+	 */
+	private boolean isInfinite (U util) {
+		return util.equals(this.zero.getPlusInfinity()) || util.equals(this.zero.getMinInfinity());
+	}
+	
+	/** Reports the message counts and the convergence time of this agent to the stats gatherer */
+	protected void reportStats () {
+		this.queue.sendMessage(AgentInterface.STATS_MONITOR, new MessageWith4Payloads<String, Integer, Integer, Long> (
+				STATS_MSG_TYPE, this.problem.getAgent(), this.nbrMsgsSent, this.nbrMsgsSuppressed, this.lastSendTime - this.startTime));
 	}
 
 	/** @see StatsReporterWithConvergence#reset() */
@@ -340,13 +504,18 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 		types.add(FUNCTION_MSG_TYPE);
 		types.add(VARIABLE_MSG_TYPE);
 		types.add(AgentInterface.ALL_AGENTS_IDLE);
+		types.add(PROBE_MSG_TYPE);
+		types.add(QUIESCENT_MSG_TYPE);
 		return types;
 	}
 
 	/** @see StatsReporterWithConvergence#getStatsFromQueue(Queue) */
 	public void getStatsFromQueue(Queue queue) {
+		this.queue = queue;
 		queue.addIncomingMessagePolicy(SOLUTION_MSG_TYPE, this);
 		queue.addIncomingMessagePolicy(CONV_STATS_MSG_TYPE, this);
+		queue.addIncomingMessagePolicy(STATS_MSG_TYPE, this);
+		queue.addIncomingMessagePolicy(COUNTS_MSG_TYPE, this);
 	}
 
 	/** @see StatsReporterWithConvergence#setSilent(boolean) */
@@ -390,6 +559,46 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 					System.out.println((this.maximize ? "Utility" : "Cost") + " of solution found: " + this.optCost);
 			}
 			
+			return;
+			
+		} else if (msgType.equals(STATS_MSG_TYPE)) { // in stats gatherer mode, the message counts and convergence time of an agent
+			
+			@SuppressWarnings("unchecked")
+			MessageWith4Payloads<String, Integer, Integer, Long> msgCast = (MessageWith4Payloads<String, Integer, Integer, Long>) msg;
+			if (this.agentStats.put(msgCast.getPayload1(), new long[] { msgCast.getPayload2(), msgCast.getPayload3(), msgCast.getPayload4() }) == null 
+					&& this.agentStats.size() == this.getMaxSumAgents().size() && ! this.silent) 
+				System.out.println("Max-Sum messages sent: " + this.getNbrMsgsSent() + " (" + this.getNbrMsgsSuppressed() + " suppressed); converged after " + this.getConvergenceTime() + " ms");
+			
+			return;
+			
+		} else if (msgType.equals(COUNTS_MSG_TYPE)) { // in stats gatherer mode, the message counts of an agent in response to a probe
+			
+			@SuppressWarnings("unchecked")
+			MessageWith4Payloads<String, Integer, Integer, Integer> msgCast = (MessageWith4Payloads<String, Integer, Integer, Integer>) msg;
+			if (msgCast.getPayload2() != this.wave) // obsolete probe
+				return;
+			this.waveCounts.put(msgCast.getPayload1(), new int[] { msgCast.getPayload3(), msgCast.getPayload4() });
+			HashSet<String> agents = this.getMaxSumAgents();
+			if (this.waveCounts.size() < agents.size()) 
+				return;
+			
+			// Sum up the counts over all agents
+			long sent = 0, received = 0;
+			for (int[] counts : this.waveCounts.values()) {
+				sent += counts[0];
+				received += counts[1];
+			}
+			this.waveCounts.clear();
+			
+			// Four-counter method: no message is in transit if two consecutive probes returned the same, balanced counts
+			if (sent == received && sent == this.lastWaveSent && received == this.lastWaveReceived) 
+				this.queue.sendMessageToMulti(agents, new Message (QUIESCENT_MSG_TYPE));
+			else {
+				this.lastWaveSent = sent;
+				this.lastWaveReceived = received;
+				this.queue.sendMessageToMulti(agents, new MessageWithPayload<Integer> (PROBE_MSG_TYPE, ++this.wave));
+			}
+			
 			return;
 		}
 
@@ -417,7 +626,23 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 			
 			this.start();
 			return;
-		}
+		
+		} else if (msgType.equals(PROBE_MSG_TYPE)) { // the stats gatherer is asking for my message counts
+			
+			// Postpone the response until all messages currently in my inbox have been processed
+			if (this.queue.getInboxSize() > 0) {
+				this.queue.sendMessageToSelf(msg);
+				return;
+			}
+			
+			@SuppressWarnings("unchecked")
+			MessageWithPayload<Integer> msgCast = (MessageWithPayload<Integer>) msg;
+			this.queue.sendMessage(AgentInterface.STATS_MONITOR, new MessageWith4Payloads<String, Integer, Integer, Integer> (
+					COUNTS_MSG_TYPE, this.problem.getAgent(), msgCast.getPayload(), this.nbrMsgsSent, this.nbrMsgsReceived));
+			return;
+			
+		} else if (msgType.equals(FUNCTION_MSG_TYPE) || msgType.equals(VARIABLE_MSG_TYPE)) 
+			this.nbrMsgsReceived++;
 		
 		if (this.varInfos == null) // the agent has already terminated
 			return;
@@ -442,7 +667,7 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 			String functionNode = msgCast.getFunctionNode();
 			
 			// If this message hasn't changed since the last message received from this function node, don't respond 
-			if (marginalUtil.equivalent(varInfo.lastMsgsIn.put(functionNode, marginalUtil))) {
+			if (this.isStale(marginalUtil, varInfo.lastMsgsIn.get(functionNode))) {
 				
 				if (--varInfo.nbrIter == 0) {
 					this.queue.sendMessage(AgentInterface.STATS_MONITOR, new MessageWith2Payloads<String, V> (SOLUTION_MSG_TYPE, varInfo.getVarName(), varInfo.optVal));
@@ -454,6 +679,7 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 
 				return;
 			}
+			varInfo.lastMsgsIn.put(functionNode, marginalUtil);
 
 			// Compute the new optimal assignment to the destination variable, as the argmax of the join of the marginal utilities received from all function nodes
 			int newOptIndex = 0;
@@ -537,8 +763,18 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 						marginalUtil.setUtility(i, marginalUtil.getUtility(i).subtract(scalar));
 				}
 				
+				// Damp the message, and only send it if it has changed enough
+				UtilitySolutionSpace<V, U> lastMsg = varInfo.lastMsgsOut.get(function.getName());
+				if (this.damping > 0.0 && lastMsg != null) 
+					this.damp(marginalUtil, lastMsg);
+				if (this.epsilon > 0.0 && this.isStale(marginalUtil, lastMsg)) {
+					this.nbrMsgsSuppressed++;
+					continue;
+				}
+				varInfo.lastMsgsOut.put(function.getName(), marginalUtil);
+				
 				// Send the message
-				this.queue.sendMessage(function.getAgent(), new VariableMsg<V, U> (function.getName(), marginalUtil));
+				this.sendMarginal(function.getAgent(), new VariableMsg<V, U> (function.getName(), marginalUtil));
 			}
 			
 			
@@ -564,8 +800,9 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 				
 				// If this message hasn't changed since the last message received from this function node, don't react
 				functionInfo.nbrIter--;
-				if (marginalUtil.equivalent(functionInfo.lastMsgsIn.put(senderVar, marginalUtil))) 
+				if (this.isStale(marginalUtil, functionInfo.lastMsgsIn.get(senderVar))) 
 					return;
+				functionInfo.lastMsgsIn.put(senderVar, marginalUtil);
 			}
 			
 			// If I have exhausted all my iterations, only respond to variable nodes
@@ -596,13 +833,20 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 				for (String otherVar : marginalUtil.getVariables()) 
 					if (! otherVar.equals(var)) 
 						vars[i++] = otherVar;
-				marginalUtil = marginalUtil.blindProject(vars, this.maximize);
+				marginalUtil = marginalUtil.blindProject(vars, this.maximize).resolve();
+				
+				// Only send the message if it has changed enough
+				if (this.epsilon > 0.0 && this.isStale(marginalUtil, functionInfo.lastMsgsOut.get(var))) {
+					this.nbrMsgsSuppressed++;
+					continue;
+				}
+				functionInfo.lastMsgsOut.put(var, marginalUtil);
 
 				// Send the message
-				this.queue.sendMessage(this.varInfos.get(var).getAgent(), new FunctionMsg<V, U> (functionInfo.getName(), marginalUtil.resolve()));
+				this.sendMarginal(this.varInfos.get(var).getAgent(), new FunctionMsg<V, U> (functionInfo.getName(), marginalUtil));
 			}
 			
-		} else if (msgType.equals(AgentInterface.ALL_AGENTS_IDLE)) {
+		} else if (msgType.equals(AgentInterface.ALL_AGENTS_IDLE) || msgType.equals(QUIESCENT_MSG_TYPE)) {
 			
 			// Send the stats
 			for (VarInfo varInfo : this.varInfos.values()) {
@@ -615,18 +859,39 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 				}
 			}
 			
-			this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			if (! this.finished) {
+				this.reportStats();
+				this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			}
 			this.varInfos = null;
 		}
 	}
 
+	/** @return the agents that control at least one variable or function node, and therefore run the algorithm */
+	private HashSet<String> getMaxSumAgents () {
+		
+		if (this.maxSumAgents == null) {
+			this.maxSumAgents = new HashSet<String> ();
+			for (String owner : this.problem.getOwners().values()) 
+				if (owner != null) 
+					this.maxSumAgents.add(owner);
+			for (UtilitySolutionSpace<V, U> space : this.problem.getSolutionSpaces()) 
+				if (space.getOwner() != null) 
+					this.maxSumAgents.add(space.getOwner());
+		}
+		
+		return this.maxSumAgents;
+	}
+
 	/** Checks if all my variable nodes have finished */
 	private void checkForTermination() {
 		
 		for (VarInfo info : this.varInfos.values()) 
 			if (info.nbrIter > 0) 
 				return;
-				
+		
+		this.finished = true;
+		this.reportStats();
 		this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
 	}
 
@@ -639,6 +904,30 @@ public class MaxSum < V extends Addable<V>, U extends Addable<U> > implements St
 	public U getOptCost () {
 		return this.optCost;
 	}
+	
+	/** @return the total number of marginal utility messages sent */
+	public long getNbrMsgsSent () {
+		long out = 0;
+		for (long[] stats : this.agentStats.values()) 
+			out += stats[0];
+		return out;
+	}
+	
+	/** @return the total number of marginal utility messages not sent because they had not changed by more than the \a epsilon threshold */
+	public long getNbrMsgsSuppressed () {
+		long out = 0;
+		for (long[] stats : this.agentStats.values()) 
+			out += stats[1];
+		return out;
+	}
+	
+	/** @return the time in ms between the start of the algorithm and the last marginal utility message sent, maximized over all agents */
+	public long getConvergenceTime () {
+		long out = 0;
+		for (long[] stats : this.agentStats.values()) 
+			out = Math.max(out, stats[2]);
+		return out / 1000000;
+	}
 
 	/** @see StatsReporterWithConvergence#getAssignmentHistories() */
 	public HashMap< String, ArrayList< CurrentAssignment<V> > > getAssignmentHistories() {
@@ -0,0 +1,644 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.maxsum;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jdom2.Element;
+
+import frodo2.algorithms.AgentInterface;
+import frodo2.algorithms.StatsReporterWithConvergence;
+import frodo2.algorithms.varOrdering.factorgraph.FactorGraphGen;
+import frodo2.algorithms.varOrdering.factorgraph.FunctionNode;
+import frodo2.algorithms.varOrdering.factorgraph.VariableNode;
+import frodo2.communication.Message;
+import frodo2.communication.MessageWith2Payloads;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+
+/** The Max-Sum algorithm, with all messages stored in primitive arrays
+ * 
+ * This module follows the same protocol and termination rules as MaxSum, but each function node first compiles its constraint 
+ * into a flat array of doubles, and the last message received over each edge of the factor graph is kept in a \c double[] buffer 
+ * indexed by an integer edge ID, and updated in place. Function-to-variable marginalization and variable-to-function summation 
+ * are then plain loops over arrays, instead of joins, projections and rescalings of hypercubes. 
+ * 
+ * @param <V> the type used for variable values
+ * @param <U> the type used for utility values in stats gatherer mode
+ * @note In stats gatherer mode, this module behaves exactly like MaxSum. 
+ */
+public class PrimitiveMaxSum < V extends Addable<V>, U extends Addable<U> > extends MaxSum<V, U> {
+	
+	/** The type of the messages received from function nodes of the graph */
+	public static final String FUNCTION_MSG_TYPE = ArrayMarginalMsg.FUNCTION_MSG_TYPE;
+
+	/** The type of the messages received from variable nodes of the graph */
+	public static final String VARIABLE_MSG_TYPE = ArrayMarginalMsg.VARIABLE_MSG_TYPE;
+
+	/** Information about an internal variable node */
+	private class VarInfo {
+		
+		/** The name of the variable */
+		private final String name;
+		
+		/** The domain of the variable */
+		private final V[] dom;
+		
+		/** The neighboring function nodes */
+		private final String[] functions;
+		
+		/** For each neighboring function node, the agent simulating it */
+		private final String[] functionAgents;
+		
+		/** For each neighboring function node, its index in \a functions */
+		private final HashMap<String, Integer> indexes;
+		
+		/** The ID of the edge from the first neighboring function node; the edges from the other function nodes follow */
+		private final int firstEdge;
+		
+		/** The remaining number of iterations for this node */
+		private int nbrIter;
+		
+		/** The index of the current optimal value for this variable */
+		private int optIndex = 0;
+		
+		/** Constructor
+		 * @param varName 		the name of this variable
+		 * @param functions 	the neighboring function nodes
+		 * @param firstEdge 	the ID of the edge from the first neighboring function node
+		 */
+		private VarInfo (String varName, ArrayList< FunctionNode<V, U> > functions, int firstEdge) {
+			this.name = varName;
+			this.dom = problem.getDomain(varName);
+			this.firstEdge = firstEdge;
+			this.nbrIter = maxNbrIter;
+			
+			final int nbrFunctions = functions.size();
+			this.functions = new String [nbrFunctions];
+			this.functionAgents = new String [nbrFunctions];
+			this.indexes = new HashMap<String, Integer> (nbrFunctions);
+			for (int i = 0; i < nbrFunctions; i++) {
+				FunctionNode<V, U> function = functions.get(i);
+				this.functions[i] = function.getName();
+				this.functionAgents[i] = function.getAgent();
+				this.indexes.put(function.getName(), i);
+			}
+		}
+	}
+	
+	/** Information about a function node simulated by this agent */
+	private class FunctionInfo {
+		
+		/** The name of the function node */
+		private final String name;
+		
+		/** The variables in the scope of the function */
+		private final String[] vars;
+		
+		/** The domain size of each variable */
+		private final int[] domSizes;
+		
+		/** For each variable, its index in \a vars */
+		private final HashMap<String, Integer> indexes;
+		
+		/** The ID of the edge from the first variable; the edges from the other variables follow */
+		private final int firstEdge;
+		
+		/** The utility of each assignment to the variables, in lexicographic order with the last variable varying fastest */
+		private final double[] table;
+		
+		/** The remaining number of iterations for this node */
+		private int nbrIter;
+		
+		/** Constructor
+		 * @param name 			the name of the function node
+		 * @param space 		the constraint
+		 * @param firstEdge 	the ID of the edge from the first variable
+		 */
+		@SuppressWarnings("unchecked")
+		private FunctionInfo (String name, UtilitySolutionSpace<V, U> space, int firstEdge) {
+			this.name = name;
+			this.vars = space.getVariables();
+			this.firstEdge = firstEdge;
+			this.nbrIter = maxNbrIter;
+			
+			final int nbrVars = this.vars.length;
+			this.domSizes = new int [nbrVars];
+			this.indexes = new HashMap<String, Integer> (nbrVars);
+			V[][] doms = space.getDomains();
+			int size = 1;
+			for (int i = 0; i < nbrVars; i++) {
+				this.domSizes[i] = doms[i].length;
+				this.indexes.put(this.vars[i], i);
+				size *= doms[i].length;
+			}
+			
+			// Compile the constraint into a flat table
+			this.table = new double [size];
+			V[] assignment = (V[]) Array.newInstance(doms.getClass().getComponentType().getComponentType(), nbrVars);
+			int[] valIndexes = new int [nbrVars];
+			for (int i = 0; i < nbrVars; i++) 
+				assignment[i] = doms[i][0];
+			for (int a = 0; a < size; a++) {
+				this.table[a] = toDouble(space.getUtility(assignment));
+				for (int i = nbrVars - 1; i >= 0; i--) {
+					if (++valIndexes[i] < this.domSizes[i]) {
+						assignment[i] = doms[i][valIndexes[i]];
+						break;
+					}
+					valIndexes[i] = 0;
+					assignment[i] = doms[i][0];
+				}
+			}
+		}
+	}
+	
+	/** For each internal variable, its VarInfo */
+	private HashMap<String, VarInfo> varInfos;
+	
+	/** For each function node simulated by this agent, its FunctionInfo */
+	private HashMap<String, FunctionInfo> functionInfos;
+	
+	/** For each variable in the factor graph, the agent controlling its variable node */
+	private HashMap<String, String> varAgents;
+	
+	/** For each edge ID, the last message received by a variable node from a function node */
+	private double[][] varBuffers;
+	
+	/** For each edge ID, the last message received by a function node from a variable node */
+	private double[][] functionBuffers;
+	
+	/** For each edge ID, the last message sent by a variable node to a function node */
+	private double[][] varOutBuffers;
+	
+	/** For each edge ID, the last message sent by a function node to a variable node */
+	private double[][] functionOutBuffers;
+	
+	/** The utility of infeasible assignments */
+	private double infeasible;
+
+	/** Whether the module has already started the algorithm */
+	private boolean started = false;
+
+	/** The messages received before the factor graph */
+	private ArrayList<Message> pendingMsgs = new ArrayList<Message> ();
+
+	/** Constructor
+	 * @param problem       this agent's problem
+	 * @param parameters    the parameters for this module
+	 */
+	public PrimitiveMaxSum (DCOPProblemInterface<V, U> problem, Element parameters) {
+		super (problem, parameters);
+		this.infeasible = (this.maximize ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+	}
+
+	/** The constructor called in "statistics gatherer" mode
+	 * @param parameters    the description of what statistics should be reported (currently unused)
+	 * @param problem       the overall problem
+	 */
+	public PrimitiveMaxSum (Element parameters, DCOPProblemInterface<V, U> problem)  {
+		super (parameters, problem);
+	}
+	
+	/** Converts a utility to a double
+	 * @param util 	the utility
+	 * @return the corresponding double, with infinite utilities mapped to infinite doubles
+	 */
+	private double toDouble (U util) {
+		if (util.equals(this.zero.getPlusInfinity())) 
+			return Double.POSITIVE_INFINITY;
+		else if (util.equals(this.zero.getMinInfinity())) 
+			return Double.NEGATIVE_INFINITY;
+		else 
+			return util.doubleValue();
+	}
+
+	/** Parses the factor graph and starts the algorithm
+	 * @param varNodes 		the variable nodes
+	 * @param functionNodes the function nodes
+	 */
+	private void start (HashMap< String, VariableNode<V, U> > varNodes, HashMap< String, FunctionNode<V, U> > functionNodes) {
+		
+		// Record the variable nodes, and number the edges from their neighboring function nodes
+		final String myID = this.problem.getAgent();
+		this.startTime = this.lastSendTime = this.queue.getCurrentTime();
+		this.varInfos = new HashMap<String, VarInfo> ();
+		this.varAgents = new HashMap<String, String> (varNodes.size());
+		int nbrEdges = 0;
+		for (VariableNode<V, U> node : varNodes.values()) {
+			this.varAgents.put(node.getVarName(), node.getAgent());
+			if (node.getAgent().equals(myID)) {
+				VarInfo varInfo = new VarInfo (node.getVarName(), node.getFunctions(), nbrEdges);
+				this.varInfos.put(varInfo.name, varInfo);
+				nbrEdges += varInfo.functions.length;
+			}
+		}
+		this.varBuffers = new double [nbrEdges][];
+		this.varOutBuffers = new double [nbrEdges][];
+		for (VarInfo varInfo : this.varInfos.values()) 
+			for (int i = varInfo.functions.length - 1; i >= 0; i--) 
+				this.varBuffers[varInfo.firstEdge + i] = new double [varInfo.dom.length];
+		
+		// Record the function nodes, and number the edges from their variables
+		this.functionInfos = new HashMap<String, FunctionInfo> ();
+		nbrEdges = 0;
+		for (FunctionNode<V, U> node : functionNodes.values()) {
+			if (node.getSpace() != null) {
+				FunctionInfo functionInfo = new FunctionInfo (node.getName(), node.getSpace(), nbrEdges);
+				this.functionInfos.put(functionInfo.name, functionInfo);
+				nbrEdges += functionInfo.vars.length;
+			}
+		}
+		this.functionBuffers = new double [nbrEdges][];
+		this.functionOutBuffers = new double [nbrEdges][];
+		for (FunctionInfo functionInfo : this.functionInfos.values()) 
+			for (int i = functionInfo.vars.length - 1; i >= 0; i--) 
+				this.functionBuffers[functionInfo.firstEdge + i] = new double [functionInfo.domSizes[i]];
+		
+		this.started = true;
+		
+		// Start the algorithm by having each of my variable nodes send a fake message to each of its neighboring function nodes
+		Random rand = new Random ();
+		for (VarInfo varInfo : this.varInfos.values()) {
+			
+			// Check if this variable is unconstrained
+			if (varInfo.functions.length == 0) {
+				
+				this.queue.sendMessage(AgentInterface.STATS_MONITOR, new MessageWith2Payloads<String, V> (SOLUTION_MSG_TYPE, varInfo.name, varInfo.dom[0]));
+
+				if(convergence) {
+					ArrayList< CurrentAssignment<V> > history = new ArrayList< CurrentAssignment<V> > ();
+					history.add(new CurrentAssignment<V>(queue.getCurrentTime(), 0, varInfo.dom[0]));
+					this.assignmentHistoriesMap.put(varInfo.name, history);
+					queue.sendMessage(AgentInterface.STATS_MONITOR, new StatsReporterWithConvergence.ConvStatMessage<V>(CONV_STATS_MSG_TYPE, varInfo.name, history));
+				}
+				
+				varInfo.nbrIter = 0;
+				this.checkForTermination();
+			}
+				
+			else { // constrained variable
+				
+				if (this.convergence) 
+					this.assignmentHistoriesMap.put(varInfo.name, new ArrayList< CurrentAssignment<V> > ());
+				
+				for (int i = 0; i < varInfo.functions.length; i++) {
+					double[] marginalUtil = new double [varInfo.dom.length];
+					if (this.randomInit) {
+						for (int j = marginalUtil.length - 1; j >= 0; j--) 
+							marginalUtil[j] = rand.nextInt(100);
+						this.rescale(marginalUtil);
+					}
+					this.varOutBuffers[varInfo.firstEdge + i] = marginalUtil;
+					this.sendMarginal(varInfo.functionAgents[i], 
+							new ArrayMarginalMsg (VARIABLE_MSG_TYPE, varInfo.functions[i], varInfo.name, marginalUtil, true));
+				}
+			}
+		}
+		
+		// Process pending messages (they have already been counted as received)
+		this.nbrMsgsReceived -= this.pendingMsgs.size();
+		for (Message msg : this.pendingMsgs) 
+			this.notifyIn(msg);
+		this.pendingMsgs.clear();
+		
+		this.startQuiescenceDetection();
+	}
+
+	/** @see MaxSum#getMsgTypes() */
+	@Override
+	public Collection<String> getMsgTypes() {
+		ArrayList<String> types = new ArrayList<String> (4);
+		types.add(FactorGraphGen.OUTPUT_MSG_TYPE);
+		types.add(FUNCTION_MSG_TYPE);
+		types.add(VARIABLE_MSG_TYPE);
+		types.add(AgentInterface.ALL_AGENTS_IDLE);
+		types.add(PROBE_MSG_TYPE);
+		types.add(QUIESCENT_MSG_TYPE);
+		return types;
+	}
+
+	/** @see MaxSum#notifyIn(Message) */
+	@Override
+	public void notifyIn(Message msg) {
+
+		String msgType = msg.getType();
+
+		if (msgType.equals(FactorGraphGen.OUTPUT_MSG_TYPE)) { // the factor graph
+			
+			@SuppressWarnings("unchecked")
+			MessageWith2Payloads < HashMap< String, VariableNode<V, U> >, HashMap< String, FunctionNode<V, U> > > msgCast = 
+					(MessageWith2Payloads < HashMap< String, VariableNode<V, U> >, HashMap< String, FunctionNode<V, U> > >) msg;
+			this.start(msgCast.getPayload1(), msgCast.getPayload2());
+			return;
+		}
+		
+		else if (msgType.equals(FUNCTION_MSG_TYPE)) { // a message sent by a function node
+			
+			this.nbrMsgsReceived++;
+			
+			// Postpone message if necessary
+			if (! this.started) {
+				this.pendingMsgs.add(msg);
+				return;
+			}
+			
+			if (this.varInfos == null) // the agent has already terminated
+				return;
+			
+			ArrayMarginalMsg msgCast = (ArrayMarginalMsg) msg;
+			VarInfo varInfo = this.varInfos.get(msgCast.getVar());
+			assert varInfo != null : "Received a message for a variable node I do not control";
+			
+			// If this message hasn't changed since the last message received from this function node, don't respond 
+			double[] buffer = this.varBuffers[varInfo.firstEdge + varInfo.indexes.get(msgCast.getFunctionNode())];
+			double[] marginalUtil = msgCast.getMarginalUtil();
+			if (this.isStale(marginalUtil, buffer)) {
+				
+				if (--varInfo.nbrIter == 0) {
+					this.sendSolution(varInfo);
+					this.checkForTermination();
+				}
+
+				return;
+			}
+			System.arraycopy(marginalUtil, 0, buffer, 0, buffer.length);
+
+			// Compute the new optimal assignment to the destination variable, as the argmax of the sum of the marginal utilities received from all function nodes
+			final int domSize = varInfo.dom.length;
+			final int nbrFunctions = varInfo.functions.length;
+			final int firstEdge = varInfo.firstEdge;
+			int newOptIndex = 0;
+			double newOpt = this.infeasible;
+			for (int i = 0; i < domSize; i++) { // for each possible assignment to my variable
+				
+				double sum = 0.0;
+				for (int f = 0; f < nbrFunctions; f++) 
+					sum += this.varBuffers[firstEdge + f][i];
+				
+				if (this.maximize ? sum >= newOpt : sum <= newOpt) {
+					newOpt = sum;
+					newOptIndex = i;
+				}
+			}
+			
+			// Report the new optimal assignment if it has changed
+			if (newOptIndex != varInfo.optIndex) {
+				varInfo.optIndex = newOptIndex;
+				
+				if (this.convergence) 
+					assignmentHistoriesMap.get(varInfo.name).add(new CurrentAssignment<V>(queue.getCurrentTime(), 0, varInfo.dom[newOptIndex]));
+				
+				if (--varInfo.nbrIter <= 0) {
+					this.sendSolution(varInfo);
+					
+					if (varInfo.nbrIter == 0) 
+						this.checkForTermination();
+					
+					return;
+				}
+				
+			} else if (--varInfo.nbrIter == 0) {
+				this.sendSolution(varInfo);
+				this.checkForTermination();
+				
+				return;
+			} else if (varInfo.nbrIter < 0) 
+				return;
+			
+			// Compute and send a new message to each neighboring function node
+			for (int f = 0; f < nbrFunctions; f++) {
+				
+				// Sum all last marginal utilities received from all neighboring function nodes except the current one
+				double[] out = new double [domSize];
+				for (int g = 0; g < nbrFunctions; g++) {
+					if (g != f) {
+						double[] in = this.varBuffers[firstEdge + g];
+						for (int i = 0; i < domSize; i++) 
+							out[i] += in[i];
+					}
+				}
+				this.rescale(out);
+				
+				// Damp the message, and only send it if it has changed enough
+				final int edge = firstEdge + f;
+				double[] lastOut = this.varOutBuffers[edge];
+				if (this.damping > 0.0) 
+					for (int i = 0; i < domSize; i++) 
+						if (! Double.isInfinite(out[i]) && ! Double.isInfinite(lastOut[i])) 
+							out[i] = this.damping * lastOut[i] + (1.0 - this.damping) * out[i];
+				if (this.epsilon > 0.0 && this.isStale(out, lastOut)) {
+					this.nbrMsgsSuppressed++;
+					continue;
+				}
+				this.varOutBuffers[edge] = out;
+				
+				this.sendMarginal(varInfo.functionAgents[f], new ArrayMarginalMsg (VARIABLE_MSG_TYPE, varInfo.functions[f], varInfo.name, out, false));
+			}
+			
+		} else if (msgType.equals(VARIABLE_MSG_TYPE)) { // a message sent by a variable node
+			
+			this.nbrMsgsReceived++;
+			
+			// Postpone message if necessary
+			if (! this.started) {
+				this.pendingMsgs.add(msg);
+				return;
+			}
+			
+			if (this.varInfos == null) // the agent has already terminated
+				return;
+			
+			ArrayMarginalMsg msgCast = (ArrayMarginalMsg) msg;
+			FunctionInfo functionInfo = this.functionInfos.get(msgCast.getFunctionNode());
+			String senderVar = msgCast.getVar();
+			final int sender = functionInfo.indexes.get(senderVar);
+			
+			if (! msgCast.isStart()) { // not the foo message sent at startup
+				
+				// If this message hasn't changed since the last message received from this variable node, don't react
+				functionInfo.nbrIter--;
+				double[] buffer = this.functionBuffers[functionInfo.firstEdge + sender];
+				double[] marginalUtil = msgCast.getMarginalUtil();
+				if (this.isStale(marginalUtil, buffer)) 
+					return;
+				System.arraycopy(marginalUtil, 0, buffer, 0, buffer.length);
+			}
+			
+			// Compute and send a message to each neighboring variable node (only to the sender if I have exhausted all my iterations)
+			for (int dest = 0; dest < functionInfo.vars.length; dest++) {
+				if (functionInfo.nbrIter > 0 || dest == sender) {
+					
+					// Only send the message if it has changed enough
+					double[] out = this.marginalize(functionInfo, dest);
+					final int edge = functionInfo.firstEdge + dest;
+					if (this.epsilon > 0.0 && this.functionOutBuffers[edge] != null && this.isStale(out, this.functionOutBuffers[edge])) {
+						this.nbrMsgsSuppressed++;
+						continue;
+					}
+					this.functionOutBuffers[edge] = out;
+					
+					String var = functionInfo.vars[dest];
+					this.sendMarginal(this.varAgents.get(var), new ArrayMarginalMsg (FUNCTION_MSG_TYPE, functionInfo.name, var, out, false));
+				}
+			}
+			
+		} else if (msgType.equals(AgentInterface.ALL_AGENTS_IDLE) || msgType.equals(QUIESCENT_MSG_TYPE)) {
+			
+			if (this.varInfos == null) // the agent has already terminated
+				return;
+			
+			// Send the stats
+			for (VarInfo varInfo : this.varInfos.values()) 
+				if (varInfo.nbrIter > 0 && varInfo.functions.length > 0) // unconstrained variables and variables with exhausted iterations have already been terminated
+					this.sendSolution(varInfo);
+			
+			if (! this.finished) {
+				this.reportStats();
+				this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			}
+			this.varInfos = null;
+		}
+		
+		else // probes, and stats gatherer mode
+			super.notifyIn(msg);
+	}
+	
+	/** Computes the marginal utility sent by a function node to one of its variables
+	 * 
+	 * For each value of the destination variable, this is the optimum, over all assignments to the other variables, 
+	 * of the constraint plus the last marginal utilities received from the other variables. 
+	 * @param functionInfo 	the function node
+	 * @param dest 			the index of the destination variable in the scope of the function
+	 * @return the marginal utility
+	 */
+	private double[] marginalize (FunctionInfo functionInfo, final int dest) {
+		
+		final int nbrVars = functionInfo.vars.length;
+		final int[] domSizes = functionInfo.domSizes;
+		final double[] table = functionInfo.table;
+		final double[][] msgsIn = this.functionBuffers;
+		final int firstEdge = functionInfo.firstEdge;
+		
+		double[] out = new double [domSizes[dest]];
+		Arrays.fill(out, this.infeasible);
+		
+		int[] assignment = new int [nbrVars];
+		for (int a = 0; a < table.length; a++) {
+			
+			double util = table[a];
+			for (int i = 0; i < nbrVars; i++) 
+				if (i != dest) 
+					util += msgsIn[firstEdge + i][assignment[i]];
+			
+			final int val = assignment[dest];
+			if (this.maximize ? util > out[val] : util < out[val]) 
+				out[val] = util;
+			
+			// Move to the next assignment
+			for (int i = nbrVars - 1; i >= 0; i--) {
+				if (++assignment[i] < domSizes[i]) 
+					break;
+				assignment[i] = 0;
+			}
+		}
+		
+		return out;
+	}
+	
+	/** Checks whether a message has not changed by more than \a epsilon since the last message on the same edge
+	 * @param newMsg 	the new message
+	 * @param lastMsg 	the last message
+	 * @return \c true if the new message need not be sent or processed
+	 */
+	private boolean isStale (double[] newMsg, double[] lastMsg) {
+		
+		if (this.epsilon <= 0.0) 
+			return Arrays.equals(newMsg, lastMsg);
+		
+		for (int i = newMsg.length - 1; i >= 0; i--) 
+			if (newMsg[i] != lastMsg[i] && ! (Math.abs(newMsg[i] - lastMsg[i]) <= this.epsilon)) 
+				return false;
+		
+		return true;
+	}
+	
+	/** Rescales a marginal utility in place so that its feasible utilities sum up to zero
+	 * @param marginalUtil 	the marginal utility
+	 */
+	private void rescale (double[] marginalUtil) {
+		
+		double sum = 0.0;
+		int nbrFeasible = 0;
+		for (double util : marginalUtil) {
+			if (util != this.infeasible) {
+				sum += util;
+				nbrFeasible++;
+			}
+		}
+		
+		if (nbrFeasible > 0) {
+			final double scalar = sum / nbrFeasible;
+			for (int i = marginalUtil.length - 1; i >= 0; i--) 
+				marginalUtil[i] -= scalar;
+		}
+	}
+	
+	/** Reports the current optimal value of a variable to the stats gatherer
+	 * @param varInfo 	the variable node
+	 */
+	private void sendSolution (VarInfo varInfo) {
+		this.queue.sendMessage(AgentInterface.STATS_MONITOR, new MessageWith2Payloads<String, V> (SOLUTION_MSG_TYPE, varInfo.name, varInfo.dom[varInfo.optIndex]));
+		if(convergence)
+			queue.sendMessage(AgentInterface.STATS_MONITOR, new StatsReporterWithConvergence.ConvStatMessage<V>(CONV_STATS_MSG_TYPE, varInfo.name, assignmentHistoriesMap.get(varInfo.name)));
+	}
+
+	/** Checks if all my variable nodes have finished */
+	private void checkForTermination() {
+		
+		for (VarInfo info : this.varInfos.values()) 
+			if (info.nbrIter > 0) 
+				return;
+		
+		this.finished = true;
+		this.reportStats();
+		this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+	}
+
+	/** @see MaxSum#getCurrentSolution() */
+	@Override
+	public Map<String, V> getCurrentSolution() {
+		HashMap<String, V> solution = new HashMap<String, V> ();
+		if (this.varInfos != null) 
+			for (VarInfo varInfo : this.varInfos.values()) 
+				solution.put(varInfo.name, varInfo.dom[varInfo.optIndex]);
+		return solution;
+	}
+}
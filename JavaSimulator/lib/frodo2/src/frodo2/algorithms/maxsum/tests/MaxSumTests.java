@@ -36,6 +36,7 @@ import frodo2.algorithms.dpop.DPOPsolver;
 import frodo2.algorithms.dpop.count.SolutionCounter;
 import frodo2.algorithms.maxsum.MaxSum;
 import frodo2.algorithms.maxsum.MaxSumSolver;
+import frodo2.algorithms.maxsum.PrimitiveMaxSum;
 import frodo2.algorithms.test.AllTests;
 import frodo2.solutionSpaces.Addable;
 import frodo2.solutionSpaces.AddableInteger;
@@ -110,6 +111,42 @@ public class MaxSumTests< V extends Addable<V>, U extends Addable<U> > extends T
 		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableReal> (false, AddableReal.class, AllTests.DEFAULT_P2, false, false, true), 100));
 		suite.addTest(tmp);
 		
+		tmp = new TestSuite ("Pure acyclic maximization problems with primitive arrays");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableInteger> (true, AddableInteger.class, 0.0, false, true, true, true), 1000));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Pure acyclic minimization problems with primitive arrays and zero initialization");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableInteger> (false, AddableInteger.class, 0.0, false, true, false, true), 1000));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Maximization problems with primitive arrays");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableInteger> (true, AddableInteger.class, AllTests.DEFAULT_P2, false, false, true, true), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Minimization problems with real-valued costs and primitive arrays");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableReal> (false, AddableReal.class, AllTests.DEFAULT_P2, false, false, true, true), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Pure acyclic maximization problems with quiescence detection");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableInteger> (true, AddableInteger.class, 0.0, true, false, true, 0.0, 0.0, true), 200));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Pure acyclic maximization problems with primitive arrays and quiescence detection");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableInteger> (true, AddableInteger.class, 0.0, true, true, true, 0.0, 0.0, true), 200));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Minimization problems with real-valued costs, damping, residuals and quiescence detection");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableReal> (false, AddableReal.class, AllTests.DEFAULT_P2, false, false, true, 0.5, 0.1, true), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Minimization problems with real-valued costs, primitive arrays, damping, residuals and quiescence detection");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableReal> (false, AddableReal.class, AllTests.DEFAULT_P2, false, true, true, 0.5, 0.1, true), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Minimization problems with damping and residuals");
+		tmp.addTest(new RepeatedTest (new MaxSumTests<AddableInteger, AddableInteger> (false, AddableInteger.class, AllTests.DEFAULT_P2, false, false, true, 0.5, 1.0, false), 100));
+		suite.addTest(tmp);
+		
 		return suite;
 	}
 	
@@ -131,6 +168,18 @@ public class MaxSumTests< V extends Addable<V>, U extends Addable<U> > extends T
 	/** Whether to initialize the algorithm with random messages */
 	private final boolean randomInit;
 	
+	/** Whether to use PrimitiveMaxSum instead of MaxSum */
+	private final boolean primitive;
+	
+	/** The damping factor */
+	private final double damping;
+	
+	/** The residual threshold below which messages are not sent */
+	private final double epsilon;
+	
+	/** Whether to rely on quiescence detection rather than on the central mailer to detect termination */
+	private final boolean quiescence;
+	
 	/** Constructor
 	 * @param maximize 		Whether to maximize utility or minimize cost
 	 * @param classOfU 		The class of U
@@ -140,6 +189,51 @@ public class MaxSumTests< V extends Addable<V>, U extends Addable<U> > extends T
 	 * @param randomInit 	Whether to initialize the algorithm with random messages
 	 */
 	public MaxSumTests (boolean maximize, Class<U> classOfU, double p2, boolean useTCP, boolean acyclic, boolean randomInit) {
+		this (maximize, classOfU, p2, useTCP, acyclic, randomInit, false);
+	}
+	
+	/** Constructor
+	 * @param maximize 		Whether to maximize utility or minimize cost
+	 * @param classOfU 		The class of U
+	 * @param p2 			The constraint tightness
+	 * @param useTCP 		Whether to use TCP pipes
+	 * @param acyclic 		Whether the graph should be acyclic
+	 * @param randomInit 	Whether to initialize the algorithm with random messages
+	 * @param primitive 	Whether to use PrimitiveMaxSum instead of MaxSum
+	 */
+	public MaxSumTests (boolean maximize, Class<U> classOfU, double p2, boolean useTCP, boolean acyclic, boolean randomInit, boolean primitive) {
+		this (maximize, classOfU, p2, useTCP, acyclic, randomInit, primitive, 0.0, 0.0, false);
+	}
+	
+	/** Constructor
+	 * @param maximize 		Whether to maximize utility or minimize cost
+	 * @param classOfU 		The class of U
+	 * @param p2 			The constraint tightness
+	 * @param acyclic 		Whether the graph should be acyclic
+	 * @param primitive 	Whether to use PrimitiveMaxSum instead of MaxSum
+	 * @param randomInit 	Whether to initialize the algorithm with random messages
+	 * @param damping 		The damping factor
+	 * @param epsilon 		The residual threshold below which messages are not sent
+	 * @param quiescence 	Whether to rely on quiescence detection rather than on the central mailer to detect termination
+	 */
+	public MaxSumTests (boolean maximize, Class<U> classOfU, double p2, boolean acyclic, boolean primitive, boolean randomInit, double damping, double epsilon, boolean quiescence) {
+		this (maximize, classOfU, p2, false, acyclic, randomInit, primitive, damping, epsilon, quiescence);
+	}
+	
+	/** Constructor
+	 * @param maximize 		Whether to maximize utility or minimize cost
+	 * @param classOfU 		The class of U
+	 * @param p2 			The constraint tightness
+	 * @param useTCP 		Whether to use TCP pipes
+	 * @param acyclic 		Whether the graph should be acyclic
+	 * @param randomInit 	Whether to initialize the algorithm with random messages
+	 * @param primitive 	Whether to use PrimitiveMaxSum instead of MaxSum
+	 * @param damping 		The damping factor
+	 * @param epsilon 		The residual threshold below which messages are not sent
+	 * @param quiescence 	Whether to rely on quiescence detection rather than on the central mailer to detect termination
+	 */
+	private MaxSumTests (boolean maximize, Class<U> classOfU, double p2, boolean useTCP, boolean acyclic, boolean randomInit, boolean primitive, 
+			double damping, double epsilon, boolean quiescence) {
 		super ("test");
 		this.maximize = maximize;
 		this.classOfU = classOfU;
@@ -147,6 +241,10 @@ public class MaxSumTests< V extends Addable<V>, U extends Addable<U> > extends T
 		this.useTCP = useTCP;
 		this.acyclic = acyclic;
 		this.randomInit = randomInit;
+		this.primitive = primitive;
+		this.damping = damping;
+		this.epsilon = epsilon;
+		this.quiescence = quiescence;
 	}
 	
 	/** The test method 
@@ -171,10 +269,19 @@ public class MaxSumTests< V extends Addable<V>, U extends Addable<U> > extends T
 				if (acyclic) 
 					module.setAttribute("maxNbrIter", "50000");
 				module.setAttribute("randomInit", Boolean.toString(this.randomInit));
+				if (this.primitive) 
+					module.setAttribute("className", PrimitiveMaxSum.class.getName());
+				module.setAttribute("damping", Double.toString(this.damping));
+				module.setAttribute("epsilon", Double.toString(this.epsilon));
+				module.setAttribute("quiescence", Boolean.toString(this.quiescence));
 				
 			}
 		}
 		
+		// Without the central mailer, termination must be detected by the quiescence detection protocol
+		if (this.quiescence) 
+			agentConfig.getRootElement().setAttribute("measureTime", "false");
+		
 		// Instantiate the solver
 		MaxSumSolver<V, U> solver = new MaxSumSolver<V, U> (agentConfig, this.useTCP);
 		solver.setUtilClass(this.classOfU);
@@ -155,6 +155,9 @@ public class UTILpropagationFullDomain < Val extends Addable<Val>, U extends Add
 	
 	/** \c true when statistics should be collected in the tree, and \c false otherwise */
 	protected boolean collectStats;
+	
+	/** Whether the inner nodes of the DFS store the received goods in CompactGoodsMaps rather than in HashMaps */
+	protected boolean compactGoods;
 
 	/**
 	 * Constructor for the statsreporter
@@ -179,6 +182,7 @@ public class UTILpropagationFullDomain < Val extends Addable<Val>, U extends Add
 		else
 			collectStats = Boolean.parseBoolean(collectStatsString);
 		
+		this.compactGoods = Boolean.parseBoolean(parameters.getAttributeValue("compactGoods"));
 	}
 
 	/**
@@ -369,6 +373,9 @@ public class UTILpropagationFullDomain < Val extends Addable<Val>, U extends Add
 					variable = newVariableInfoInstanceLeafNode(var, children, null, ownVariableDomain, usedSpaces, numberOfChildren, problem.getZeroUtility());
 			}
 
+			if(compactGoods && variable.tree instanceof InnerNodeTree)
+				((InnerNodeTree<Val, U, L>)variable.tree).setCompactGoodsStorage(true);
+
 			assert infos[varIndex] == null;
 			infos[varIndex] =  variable;
 
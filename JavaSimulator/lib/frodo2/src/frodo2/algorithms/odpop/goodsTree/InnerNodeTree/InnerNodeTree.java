@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import frodo2.algorithms.odpop.Good;
@@ -75,7 +76,7 @@ public class InnerNodeTree < Val extends Addable<Val>, U extends Addable<U>, L e
 	
 	/** For each child a map that stores the utilities received from children. This is needed due to 
 	 * the assumption that both domain and variable information can be incomplete */
-	protected ArrayList<HashMap<IntArrayWrapper, U>> goodsReceived;
+	protected ArrayList<Map<IntArrayWrapper, U>> goodsReceived;
 	
 	/**
 	 * A constructor 
@@ -1871,6 +1872,18 @@ public class InnerNodeTree < Val extends Addable<Val>, U extends Addable<U>, L e
 		return getOwnVariableOptions(path, optimalPath, this.infeasibleUtil, 0, root);
 	}
 	
+	/** @see frodo2.algorithms.odpop.goodsTree.InnerNodeTreeFullDomain.InnerNodeTree#setCompactGoodsStorage(boolean) */
+	@Override
+	public void setCompactGoodsStorage(boolean compact) {
+		super.setCompactGoodsStorage(compact);
+		if(goodsReceived != null) {
+			for(int i = 0; i < goodsReceived.size(); i++) {
+				assert goodsReceived.get(i).isEmpty();
+				goodsReceived.set(i, this.<IntArrayWrapper>newGoodsMap(0));
+			}
+		}
+	}
+	
 	/**
 	 * Initialize all the variables of the tree
 	 * @param numberOfChildren 					The number of children
@@ -1904,7 +1917,7 @@ public class InnerNodeTree < Val extends Addable<Val>, U extends Addable<U>, L e
 			childrenVariables 		= new boolean[numberOfChildren][numberOfVariables];
 			childrenVariablesReportingOrder = new String[numberOfChildren][];
 			ownVariables 			= new boolean [numberOfVariables];
-			goodsReceived 			= new ArrayList<HashMap<IntArrayWrapper, U>>(numberOfChildren);
+			goodsReceived 			= new ArrayList<Map<IntArrayWrapper, U>>(numberOfChildren);
 			upperBounds 			= (U[])new Addable[numberOfChildren];
 			separatorSizePerChild 	= new int[numberOfChildren];
 			unpackedVariablesPerChild = new String[numberOfChildren][]; 
@@ -1936,7 +1949,7 @@ public class InnerNodeTree < Val extends Addable<Val>, U extends Addable<U>, L e
 			}
 			
 			for(int i = 0; i < numberOfChildren; i++) {
-				goodsReceived.add(new HashMap<IntArrayWrapper, U>());
+				goodsReceived.add(this.<IntArrayWrapper>newGoodsMap(0));
 			}
 		}
 		
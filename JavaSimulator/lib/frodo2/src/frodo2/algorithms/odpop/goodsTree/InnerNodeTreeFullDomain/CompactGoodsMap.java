@@ -0,0 +1,427 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+package frodo2.algorithms.odpop.goodsTree.InnerNodeTreeFullDomain;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import frodo2.algorithms.odpop.goodsTree.InnerNodeTreeFullDomain.InnerNodeTree.IntArrayWrapper;
+
+/** A compact map from (partial) assignments to utilities, used to store the goods received from a child
+ * 
+ * A HashMap costs one entry, one IntArrayWrapper and its two backing arrays per good. This map instead packs each 
+ * assignment into a single \c long key, stored in an open-addressing hash table with linear probing, and keeps the 
+ * utilities in a parallel array. Each value index is shifted by one, such that the index -1 used for dummy values 
+ * can be represented, and is stored on a fixed number of bits; this number is increased, and the table re-hashed, 
+ * when a larger value index is encountered. The few assignments that cannot be packed into 63 bits are stored in 
+ * a regular HashMap. Removed packed keys leave a marker in their slots, which is only cleaned up when the table is re-hashed. 
+ * 
+ * @param <K> the type of the keys
+ * @param <U> type used for utility values
+ * @note The keys returned by entrySet() and keySet() are created on the fly by the tree passed to the constructor. 
+ */
+public class CompactGoodsMap < K extends IntArrayWrapper, U > extends AbstractMap<K, U> implements Serializable {
+
+	/** Used for serialization */
+	private static final long serialVersionUID = -5468613219487637722L;
+
+	/** The marker for empty slots, which is not a valid packed key because packed keys are non-negative */
+	private static final long EMPTY = -1L;
+	
+	/** The marker for slots whose keys have been removed, which lookups must probe past */
+	private static final long REMOVED = -2L;
+	
+	/** The number of bits used to store the length of an assignment */
+	private static final int LENGTH_BITS = 6;
+	
+	/** The number of bits available in a packed key */
+	private static final int KEY_BITS = 63;
+	
+	/** The tree used to create the keys returned by the entry set, or \c null to create plain IntArrayWrappers */
+	private final InnerNodeTree<?, ?, ?> tree;
+	
+	/** The hash table of packed keys */
+	private long[] keys;
+	
+	/** For each slot in the hash table, the corresponding utility */
+	private U[] values;
+	
+	/** The number of packed keys */
+	private int nbrPacked;
+	
+	/** The number of slots marked as REMOVED */
+	private int nbrRemoved;
+	
+	/** The number of bits used to store each value index */
+	private int bits = 1;
+	
+	/** The length of the longest packed assignment */
+	private int maxPackedLength;
+	
+	/** The entries whose keys cannot be packed, or \c null if there are none */
+	private HashMap<K, U> overflow;
+	
+	/** Constructor
+	 * @param tree 			the tree used to create the keys returned by the entry set, or \c null to create plain IntArrayWrappers
+	 * @param expectedSize 	the expected number of entries
+	 */
+	public CompactGoodsMap (InnerNodeTree<?, ?, ?> tree, int expectedSize) {
+		this.tree = tree;
+		int capacity = 16;
+		while (capacity < 2 * expectedSize) 
+			capacity <<= 1;
+		this.init(capacity);
+	}
+	
+	/** Allocates an empty hash table
+	 * @param capacity 	the capacity of the table, which must be a power of 2
+	 */
+	@SuppressWarnings("unchecked")
+	private void init (int capacity) {
+		this.keys = new long [capacity];
+		Arrays.fill(this.keys, EMPTY);
+		this.values = (U[]) new Object [capacity];
+		this.nbrRemoved = 0;
+	}
+	
+	/** Computes the number of bits needed to store the value indexes of an assignment
+	 * @param array 	the assignment
+	 * @return the number of bits needed, or -1 if the assignment contains an index smaller than -1
+	 */
+	private static int bitsNeeded (int[] array) {
+		int max = 1;
+		for (int value : array) {
+			if (value < -1) 
+				return -1;
+			max |= value + 1;
+		}
+		return 32 - Integer.numberOfLeadingZeros(max);
+	}
+	
+	/** Checks whether an assignment of a given length fits into a packed key
+	 * @param length 	the length of the assignment
+	 * @param bits 		the number of bits per value index
+	 * @return \c true if the assignment fits
+	 */
+	private static boolean fits (int length, int bits) {
+		return length < (1 << LENGTH_BITS) && LENGTH_BITS + length * bits <= KEY_BITS;
+	}
+	
+	/** Checks whether an assignment is stored as a packed key
+	 * @param array 	the assignment
+	 * @return \c true if the assignment can be packed with the current number of bits per value index
+	 */
+	private boolean isPackable (int[] array) {
+		int needed = bitsNeeded(array);
+		return needed >= 0 && needed <= this.bits && fits(array.length, this.bits);
+	}
+	
+	/** Packs an assignment
+	 * @param array 	the assignment, which must be packable
+	 * @param bits 		the number of bits per value index
+	 * @return the packed key
+	 */
+	private static long encode (int[] array, int bits) {
+		long code = array.length;
+		int shift = LENGTH_BITS;
+		for (int value : array) {
+			code |= (long) (value + 1) << shift;
+			shift += bits;
+		}
+		return code;
+	}
+	
+	/** Unpacks an assignment
+	 * @param code 	the packed key
+	 * @param bits 	the number of bits per value index
+	 * @return the assignment
+	 */
+	private static int[] decode (long code, int bits) {
+		int[] array = new int [(int) (code & ((1 << LENGTH_BITS) - 1))];
+		final long mask = (1L << bits) - 1;
+		code >>>= LENGTH_BITS;
+		for (int i = 0; i < array.length; i++) {
+			array[i] = (int) (code & mask) - 1;
+			code >>>= bits;
+		}
+		return array;
+	}
+	
+	/** Looks up a packed key in the hash table
+	 * @param code 	the packed key
+	 * @return the slot containing the key, or the empty slot where it should be inserted
+	 */
+	private int slot (long code) {
+		final int mask = this.keys.length - 1;
+		long hash = code * 0x9E3779B97F4A7C15L;
+		int i = (int) (hash ^ (hash >>> 32)) & mask;
+		while (this.keys[i] != EMPTY && this.keys[i] != code) 
+			i = (i + 1) & mask;
+		return i;
+	}
+	
+	/** Re-hashes all packed keys into a new table, dropping the REMOVED markers
+	 * @param capacity 	the capacity of the new table, which must be a power of 2
+	 * @param newBits 	the new number of bits per value index
+	 */
+	private void rehash (int capacity, int newBits) {
+		
+		long[] oldKeys = this.keys;
+		U[] oldValues = this.values;
+		final int oldBits = this.bits;
+		this.bits = newBits;
+		this.init(capacity);
+		
+		for (int i = 0; i < oldKeys.length; i++) {
+			long code = oldKeys[i];
+			if (code >= 0) {
+				if (oldBits != newBits) 
+					code = encode(decode(code, oldBits), newBits);
+				int j = this.slot(code);
+				this.keys[j] = code;
+				this.values[j] = oldValues[i];
+			}
+		}
+	}
+	
+	/** Increases the number of bits per value index, and moves to the hash table the overflow keys that now fit
+	 * @param newBits 	the new number of bits per value index
+	 */
+	private void widen (int newBits) {
+		
+		this.rehash(this.keys.length, newBits);
+		
+		if (this.overflow != null) {
+			for (Iterator< Map.Entry<K, U> > iter = this.overflow.entrySet().iterator(); iter.hasNext(); ) {
+				Map.Entry<K, U> entry = iter.next();
+				int[] array = entry.getKey().array;
+				if (this.isPackable(array)) {
+					iter.remove();
+					this.putPacked(encode(array, this.bits), array.length, entry.getValue());
+				}
+			}
+			if (this.overflow.isEmpty()) 
+				this.overflow = null;
+		}
+	}
+	
+	/** Puts a packed key in the hash table
+	 * @param code 		the packed key
+	 * @param length 	the length of the assignment
+	 * @param value 	the utility
+	 * @return the previous utility associated with the key, or \c null if none
+	 */
+	private U putPacked (long code, int length, U value) {
+		
+		int i = this.slot(code);
+		if (this.keys[i] != EMPTY) {
+			U old = this.values[i];
+			this.values[i] = value;
+			return old;
+		}
+		
+		this.keys[i] = code;
+		this.values[i] = value;
+		this.maxPackedLength = Math.max(this.maxPackedLength, length);
+		if (4 * (++this.nbrPacked + this.nbrRemoved) > 3 * this.keys.length) // only grow the table if it is not mostly REMOVED markers
+			this.rehash((2 * this.nbrPacked > this.keys.length ? 2 * this.keys.length : this.keys.length), this.bits);
+		return null;
+	}
+	
+	/** Removes the packed key in a given slot of the hash table
+	 * @param i 	the slot, which must contain a packed key
+	 * @return the utility associated with the key
+	 */
+	private U removeSlot (int i) {
+		
+		U old = this.values[i];
+		this.keys[i] = REMOVED;
+		this.values[i] = null;
+		this.nbrPacked--;
+		this.nbrRemoved++;
+		return old;
+	}
+
+	/** @see java.util.AbstractMap#put(java.lang.Object, java.lang.Object) */
+	@Override
+	public U put (K key, U value) {
+		
+		int[] array = key.array;
+		
+		// Use more bits per value index if necessary and possible
+		int needed = bitsNeeded(array);
+		if (needed > this.bits && fits(array.length, needed) && fits(this.maxPackedLength, needed)) 
+			this.widen(needed);
+		
+		if (this.isPackable(array)) 
+			return this.putPacked(encode(array, this.bits), array.length, value);
+		
+		if (this.overflow == null) 
+			this.overflow = new HashMap<K, U> ();
+		return this.overflow.put(key, value);
+	}
+	
+	/** @see java.util.AbstractMap#get(java.lang.Object) */
+	@Override
+	public U get (Object key) {
+		
+		int[] array = ((IntArrayWrapper) key).array;
+		if (this.isPackable(array)) 
+			return this.values[this.slot(encode(array, this.bits))];
+		
+		return this.overflow == null ? null : this.overflow.get(key);
+	}
+	
+	/** @see java.util.AbstractMap#containsKey(java.lang.Object) */
+	@Override
+	public boolean containsKey (Object key) {
+		
+		int[] array = ((IntArrayWrapper) key).array;
+		if (this.isPackable(array)) 
+			return this.keys[this.slot(encode(array, this.bits))] != EMPTY;
+		
+		return this.overflow != null && this.overflow.containsKey(key);
+	}
+	
+	/** @see java.util.AbstractMap#remove(java.lang.Object) */
+	@Override
+	public U remove (Object key) {
+		
+		int[] array = ((IntArrayWrapper) key).array;
+		if (this.isPackable(array)) {
+			int i = this.slot(encode(array, this.bits));
+			return this.keys[i] == EMPTY ? null : this.removeSlot(i);
+		}
+		
+		return this.overflow == null ? null : this.overflow.remove(key);
+	}
+	
+	/** @see java.util.AbstractMap#size() */
+	@Override
+	public int size () {
+		return this.nbrPacked + (this.overflow == null ? 0 : this.overflow.size());
+	}
+	
+	/** @see java.util.AbstractMap#clear() */
+	@Override
+	public void clear () {
+		Arrays.fill(this.keys, EMPTY);
+		Arrays.fill(this.values, null);
+		this.nbrPacked = 0;
+		this.nbrRemoved = 0;
+		this.maxPackedLength = 0;
+		this.overflow = null;
+	}
+	
+	/** @see java.util.AbstractMap#entrySet() */
+	@Override
+	public Set< Map.Entry<K, U> > entrySet () {
+		
+		return new AbstractSet< Map.Entry<K, U> > () {
+
+			@Override
+			public Iterator< Map.Entry<K, U> > iterator () {
+				return new EntryIterator ();
+			}
+
+			@Override
+			public int size () {
+				return CompactGoodsMap.this.size();
+			}
+		};
+	}
+	
+	/** An iterator over the packed entries, followed by the overflow entries */
+	private class EntryIterator implements Iterator< Map.Entry<K, U> > {
+		
+		/** The next slot to inspect in the hash table */
+		private int next;
+		
+		/** The iterator over the overflow entries, or \c null if the hash table has not been fully inspected yet */
+		private Iterator< Map.Entry<K, U> > overflowIter;
+		
+		/** The slot of the last entry returned, -1 if it was an overflow entry, or -2 if it has been removed or there is none */
+		private int last = -2;
+		
+		/** Constructor */
+		EntryIterator () {
+			this.skipEmpty();
+		}
+		
+		/** Moves to the next non-empty slot in the hash table, or to the overflow entries */
+		private void skipEmpty () {
+			while (this.next < keys.length && keys[this.next] < 0) 
+				this.next++;
+			if (this.next == keys.length && this.overflowIter == null) 
+				this.overflowIter = (overflow == null ? new HashMap<K, U> () : overflow).entrySet().iterator();
+		}
+
+		/** @see java.util.Iterator#hasNext() */
+		@Override
+		public boolean hasNext () {
+			return this.overflowIter == null || this.overflowIter.hasNext();
+		}
+
+		/** @see java.util.Iterator#next() */
+		@SuppressWarnings("unchecked")
+		@Override
+		public Map.Entry<K, U> next () {
+			
+			if (this.overflowIter != null) {
+				Map.Entry<K, U> entry = this.overflowIter.next();
+				this.last = -1;
+				return entry;
+			}
+			if (this.next >= keys.length) 
+				throw new NoSuchElementException ();
+			
+			int[] array = decode(keys[this.next], bits);
+			K key = (K) (tree == null ? new IntArrayWrapper (array) : tree.createIntArrayWrapper(array));
+			this.last = this.next;
+			U value = values[this.next++];
+			this.skipEmpty();
+			return new AbstractMap.SimpleImmutableEntry<K, U> (key, value);
+		}
+
+		/** @see java.util.Iterator#remove() */
+		@Override
+		public void remove () {
+			
+			if (this.last == -2) 
+				throw new IllegalStateException ();
+			
+			// Removing a packed key only marks its slot, which leaves the positions of the remaining keys unchanged
+			if (this.last == -1) 
+				this.overflowIter.remove();
+			else 
+				removeSlot(this.last);
+			this.last = -2;
+		}
+	}
+}
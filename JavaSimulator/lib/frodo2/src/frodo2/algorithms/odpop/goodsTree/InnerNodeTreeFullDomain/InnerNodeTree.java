@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import frodo2.algorithms.odpop.Good;
@@ -86,7 +87,10 @@ extends GoodsTree<Val, U, L> {
 	/** For each child a map that stores the utilities received from children. This is needed due to 
 	 * the assumption that both domain and variable information can be incomplete */
 	// @todo this can be removed as soon as information is complete
-	protected ArrayList<HashMap<IntArrayWrapper, U>> goodsReceived;
+	protected ArrayList<Map<IntArrayWrapper, U>> goodsReceived;
+	
+	/** Whether the received goods are stored in CompactGoodsMaps rather than in HashMaps */
+	protected boolean compactGoods;
 
 	/** If domain or variable information is incomplete received goods must be stored, otherwise they
 	 * can be discarded after processing */
@@ -509,6 +513,33 @@ extends GoodsTree<Val, U, L> {
 		return childrenVariablesReportingOrder[child];
 	}
 
+	/**
+	 * Chooses how the goods received from the children are stored
+	 * @param compact 	if \c true, CompactGoodsMaps are used; otherwise, HashMaps are used
+	 * @warning This method must be called before any good is added to the tree. 
+	 */
+	public void setCompactGoodsStorage(boolean compact) {
+		this.compactGoods = compact;
+		if(goodsReceived != null) {
+			for(int i = 0; i < goodsReceived.size(); i++) {
+				assert goodsReceived.get(i).isEmpty();
+				goodsReceived.set(i, this.<IntArrayWrapper>newGoodsMap(0));
+			}
+		}
+	}
+	
+	/**
+	 * @param <K> 			the type of the keys
+	 * @param expectedSize 	the expected number of goods
+	 * @return a new, empty map to store the goods received from a child
+	 */
+	protected < K extends IntArrayWrapper > Map<K, U> newGoodsMap(int expectedSize) {
+		if(compactGoods)
+			return new CompactGoodsMap<K, U>(this, expectedSize);
+		else
+			return new HashMap<K, U>();
+	}
+
 	/**
 	 * @author Brammert Ottens, 8 sep 2009
 	 * @param child the child who's separator size is requested
@@ -1506,7 +1537,7 @@ extends GoodsTree<Val, U, L> {
 			childrenVariables 		= new boolean[numberOfChildren][numberOfVariables];
 			childrenVariablesReportingOrder = new String[numberOfChildren][];
 			ownVariables 			= new boolean [numberOfVariables];
-			goodsReceived 			= new ArrayList<HashMap<IntArrayWrapper, U>>(numberOfChildren);
+			goodsReceived 			= new ArrayList<Map<IntArrayWrapper, U>>(numberOfChildren);
 			upperBounds 			= (U[])new Addable[numberOfChildren];
 			separatorSizePerChild 	= new int[numberOfChildren];
 			unpackedVariablesPerChild = new String[numberOfChildren][];
@@ -1539,7 +1570,7 @@ extends GoodsTree<Val, U, L> {
 			}
 			
 			for(int i = 0; i < numberOfChildren; i++) {
-				goodsReceived.add(new HashMap<IntArrayWrapper, U>());
+				goodsReceived.add(this.<IntArrayWrapper>newGoodsMap(0));
 				// @todo remove this when done!
 				childrenVariablesReportingOrder[i] = new String[1];
 				childrenVariablesReportingOrder[i][0] = this.ownVariable;
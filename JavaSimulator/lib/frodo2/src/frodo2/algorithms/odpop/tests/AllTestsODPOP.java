@@ -34,6 +34,7 @@ public class AllTestsODPOP extends TestCase {
 	public static Test suite() {
 		TestSuite suite = new TestSuite("All tests in frodo2.algorithms.odpop.test");
 		//$JUnit-BEGIN$
+		suite.addTest(CompactGoodsMapTest.suite());
 		suite.addTest(UTILpropagationTest.suite());
 		suite.addTest(VALUEpropagationTest.suite());
 		suite.addTest(ODPOPagentTest.suite());
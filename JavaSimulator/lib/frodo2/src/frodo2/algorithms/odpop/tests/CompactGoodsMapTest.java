@@ -0,0 +1,162 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+package frodo2.algorithms.odpop.tests;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import frodo2.algorithms.odpop.goodsTree.InnerNodeTreeFullDomain.CompactGoodsMap;
+import frodo2.algorithms.odpop.goodsTree.InnerNodeTreeFullDomain.InnerNodeTree.IntArrayWrapper;
+import frodo2.solutionSpaces.AddableInteger;
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/** JUnit tests for the CompactGoodsMap
+ * @see CompactGoodsMap
+ */
+public class CompactGoodsMapTest extends TestCase {
+	
+	/** Constructor
+	 * @param method 	the test method
+	 */
+	public CompactGoodsMapTest(String method) {
+		super (method);
+	}
+
+	/** @return the test suite */
+	public static TestSuite suite () {
+		TestSuite suite = new TestSuite ("Tests for CompactGoodsMap");
+		
+		TestSuite tmp = new TestSuite ("Tests on random assignments with small value indexes");
+		tmp.addTest(new RepeatedTest (new CompactGoodsMapTest ("testRandomSmall"), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests on random assignments including long and unpackable assignments");
+		tmp.addTest(new RepeatedTest (new CompactGoodsMapTest ("testRandomLarge"), 100));
+		suite.addTest(tmp);
+		
+		return suite;
+	}
+	
+	/** Tests the map on short assignments with small value indexes, including dummy values */
+	public void testRandomSmall () {
+		this.testRandom(1 + (int) (Math.random() * 6), 1 + (int) (Math.random() * 5));
+	}
+	
+	/** Tests the map on long assignments and large value indexes, some of which cannot be packed */
+	public void testRandomLarge () {
+		this.testRandom(1 + (int) (Math.random() * 40), 1 + (int) (Math.random() * 100000));
+	}
+	
+	/** Compares a CompactGoodsMap with a HashMap on random assignments
+	 * @param maxLength 	the maximum length of an assignment
+	 * @param maxValue 		the maximum value index
+	 */
+	private void testRandom (int maxLength, int maxValue) {
+		
+		CompactGoodsMap<IntArrayWrapper, AddableInteger> compact = new CompactGoodsMap<IntArrayWrapper, AddableInteger> (null, 0);
+		HashMap<IntArrayWrapper, AddableInteger> reference = new HashMap<IntArrayWrapper, AddableInteger> ();
+		
+		final int nbrGoods = (int) (Math.random() * 2000);
+		for (int i = 0; i < nbrGoods; i++) {
+			
+			// Add a random good, sometimes overwriting an existing one
+			IntArrayWrapper key = randKey(maxLength, maxValue);
+			AddableInteger util = new AddableInteger ((int) (Math.random() * 100));
+			assertEquals (reference.put(key, util), compact.put(key, util));
+			assertEquals (reference.size(), compact.size());
+			
+			// Look up a random assignment, which is usually absent
+			key = randKey(maxLength, maxValue);
+			assertEquals (reference.containsKey(key), compact.containsKey(key));
+			assertEquals (reference.get(key), compact.get(key));
+			
+			// Sometimes remove the last good added, or a random assignment
+			if (Math.random() < .1) {
+				if (Math.random() < .5) 
+					key = randKey(maxLength, maxValue);
+				assertEquals (reference.remove(key), compact.remove(key));
+				assertEquals (reference.size(), compact.size());
+				assertFalse (compact.containsKey(key));
+			}
+		}
+		
+		// Check all entries, in both directions
+		for (Map.Entry<IntArrayWrapper, AddableInteger> entry : reference.entrySet()) {
+			assertTrue (compact.containsKey(entry.getKey()));
+			assertEquals (entry.getValue(), compact.get(entry.getKey()));
+		}
+		int nbrEntries = 0;
+		for (Map.Entry<IntArrayWrapper, AddableInteger> entry : compact.entrySet()) {
+			assertEquals (reference.get(entry.getKey()), entry.getValue());
+			nbrEntries++;
+		}
+		assertEquals (reference.size(), nbrEntries);
+		
+		// Remove about half of the entries through the iterator
+		for (Iterator< Map.Entry<IntArrayWrapper, AddableInteger> > iter = compact.entrySet().iterator(); iter.hasNext(); ) {
+			IntArrayWrapper key = iter.next().getKey();
+			if (Math.random() < .5) {
+				iter.remove();
+				assertNotNull (reference.remove(key));
+			}
+		}
+		assertEquals (reference.size(), compact.size());
+		for (Map.Entry<IntArrayWrapper, AddableInteger> entry : reference.entrySet()) 
+			assertEquals (entry.getValue(), compact.get(entry.getKey()));
+		nbrEntries = 0;
+		for (Map.Entry<IntArrayWrapper, AddableInteger> entry : compact.entrySet()) {
+			assertEquals (reference.get(entry.getKey()), entry.getValue());
+			nbrEntries++;
+		}
+		assertEquals (reference.size(), nbrEntries);
+		
+		// Add goods again, probing past the removed ones
+		for (int i = 0; i < nbrGoods; i++) {
+			IntArrayWrapper key = randKey(maxLength, maxValue);
+			AddableInteger util = new AddableInteger ((int) (Math.random() * 100));
+			assertEquals (reference.put(key, util), compact.put(key, util));
+		}
+		assertEquals (reference.size(), compact.size());
+		for (Map.Entry<IntArrayWrapper, AddableInteger> entry : reference.entrySet()) 
+			assertEquals (entry.getValue(), compact.get(entry.getKey()));
+		
+		compact.clear();
+		assertTrue (compact.isEmpty());
+		for (IntArrayWrapper key : reference.keySet()) 
+			assertFalse (compact.containsKey(key));
+	}
+	
+	/** Generates a random assignment
+	 * @param maxLength 	the maximum length of the assignment
+	 * @param maxValue 		the maximum value index
+	 * @return a random assignment, in which -1 denotes a dummy value
+	 */
+	private static IntArrayWrapper randKey (int maxLength, int maxValue) {
+		int[] array = new int [(int) (Math.random() * (maxLength + 1))];
+		for (int i = 0; i < array.length; i++) 
+			array[i] = (int) (Math.random() * (maxValue + 2)) - 1;
+		return new IntArrayWrapper (array);
+	}
+}
@@ -147,6 +147,9 @@ public class ODPOPagentTest < V extends Addable<V>, U extends Addable<U> > exten
 	/** The class used for utility values */
 	private Class<U> utilClass;
 	
+	/** Whether the received goods should be stored in CompactGoodsMaps */
+	private boolean compactGoods;
+	
 	/** Creates a JUnit test case corresponding to the input method
 	 * @param string 			name of the method
 	 * @param useCentralMailer 	\c true when the central mailer is to be tested
@@ -162,6 +165,20 @@ public class ODPOPagentTest < V extends Addable<V>, U extends Addable<U> > exten
 		this.domClass = domClass;
 		this.utilClass = utilClass;
 	}
+	
+	/** Creates a JUnit test case corresponding to the input method
+	 * @param string 			name of the method
+	 * @param useCentralMailer 	\c true when the central mailer is to be tested
+	 * @param useDelay 			whether to use message delays
+	 * @param startMsgType 		the type of the start message
+	 * @param domClass 			The class used for variable values
+	 * @param utilClass 		the class used for utility values
+	 * @param compactGoods 		whether the received goods should be stored in CompactGoodsMaps
+	 */
+	public ODPOPagentTest(String string, boolean useCentralMailer, boolean useDelay, String startMsgType, Class<V> domClass, Class<U> utilClass, boolean compactGoods) {
+		this (string, useCentralMailer, useDelay, startMsgType, domClass, utilClass);
+		this.compactGoods = compactGoods;
+	}
 
 	/** Sets the type of the start message for all modules
 	 * @param startMsgType 		the new type for the start message
@@ -215,6 +232,14 @@ public class ODPOPagentTest < V extends Addable<V>, U extends Addable<U> > exten
 		tmp.addTest(new RepeatedTest (new ODPOPagentTest<AddableInteger, AddableInteger> ("testRandomSharedMemory", false, false, "START NOW!", AddableInteger.class, AddableInteger.class), 500));
 		suite.addTest(tmp);
 		
+		tmp = new TestSuite ("Tests using QueueIOPipes and compact goods storage with integer utilities");
+		tmp.addTest(new RepeatedTest (new ODPOPagentTest<AddableInteger, AddableInteger> ("testRandomSharedMemory", false, false, null, AddableInteger.class, AddableInteger.class, true), 500));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests using QueueIOPipes and compact goods storage with real utilities");
+		tmp.addTest(new RepeatedTest (new ODPOPagentTest<AddableInteger, AddableReal> ("testRandomSharedMemory", false, false, null, AddableInteger.class, AddableReal.class, true), 500));
+		suite.addTest(tmp);
+		
 		return suite;
 	}
 	
@@ -222,6 +247,14 @@ public class ODPOPagentTest < V extends Addable<V>, U extends Addable<U> > exten
 	public void setUp () throws Exception {
 		
 		agentDesc = XCSPparser.parse("src/frodo2/algorithms/odpop/ODPOPagent.xml", false);
+		if (this.compactGoods) {
+			for (Element module : (List<Element>) this.agentDesc.getRootElement().getChild("modules").getChildren()) {
+				if (module.getAttributeValue("className").equals(UTILpropagation.class.getName())) {
+					module.setAttribute("compactGoods", "true");
+					break;
+				}
+			}
+		}
 		this.setStartMsgType(startMsgType);
 
 		nbrMsgsReceived = 0;
@@ -148,6 +148,9 @@ public class ODPOPagentTestFullDomain < V extends Addable<V>, U extends Addable<
 	/** The class used for utility values */
 	private Class<U> utilClass;
 	
+	/** Whether the received goods should be stored in CompactGoodsMaps */
+	private boolean compactGoods;
+	
 	/** Creates a JUnit test case corresponding to the input method
 	 * @param string 			name of the method
 	 * @param useCentralMailer 	\c true when the central mailer is to be tested
@@ -163,6 +166,20 @@ public class ODPOPagentTestFullDomain < V extends Addable<V>, U extends Addable<
 		this.domClass = domClass;
 		this.utilClass = utilClass;
 	}
+	
+	/** Creates a JUnit test case corresponding to the input method
+	 * @param string 			name of the method
+	 * @param useCentralMailer 	\c true when the central mailer is to be tested
+	 * @param useDelay 			whether to use message delays
+	 * @param startMsgType 		the type of the start message
+	 * @param domClass 			The class used for variable values
+	 * @param utilClass 		the class used for utility values
+	 * @param compactGoods 		whether the received goods should be stored in CompactGoodsMaps
+	 */
+	public ODPOPagentTestFullDomain(String string, boolean useCentralMailer, boolean useDelay, String startMsgType, Class<V> domClass, Class<U> utilClass, boolean compactGoods) {
+		this (string, useCentralMailer, useDelay, startMsgType, domClass, utilClass);
+		this.compactGoods = compactGoods;
+	}
 
 	/** Sets the type of the start message for all modules
 	 * @param startMsgType 		the new type for the start message
@@ -216,6 +233,10 @@ public class ODPOPagentTestFullDomain < V extends Addable<V>, U extends Addable<
 		tmp.addTest(new RepeatedTest (new ODPOPagentTestFullDomain<AddableInteger, AddableInteger> ("testRandomSharedMemory", false, false, "START NOW!", AddableInteger.class, AddableInteger.class), 500));
 		suite.addTest(tmp);
 		
+		tmp = new TestSuite ("Tests using QueueIOPipes and compact goods storage with integer utilities");
+		tmp.addTest(new RepeatedTest (new ODPOPagentTestFullDomain<AddableInteger, AddableInteger> ("testRandomSharedMemory", false, false, null, AddableInteger.class, AddableInteger.class, true), 500));
+		suite.addTest(tmp);
+		
 		return suite;
 	}
 	
@@ -223,6 +244,14 @@ public class ODPOPagentTestFullDomain < V extends Addable<V>, U extends Addable<
 	public void setUp () throws Exception {
 		
 		agentDesc = XCSPparser.parse("src/frodo2/algorithms/odpop/ODPOPagentFullDomain.xml", false);
+		if (this.compactGoods) {
+			for (Element module : (List<Element>) this.agentDesc.getRootElement().getChild("modules").getChildren()) {
+				if (module.getAttributeValue("className").equals(UTILpropagationFullDomain.class.getName())) {
+					module.setAttribute("compactGoods", "true");
+					break;
+				}
+			}
+		}
 		this.setStartMsgType(startMsgType);
 
 		nbrMsgsReceived = 0;
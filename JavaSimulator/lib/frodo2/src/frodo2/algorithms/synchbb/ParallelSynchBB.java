@@ -0,0 +1,666 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+package frodo2.algorithms.synchbb;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.AgentFactory;
+import frodo2.algorithms.StatsReporterWithConvergence.CurrentAssignment;
+import frodo2.algorithms.XCSPparser;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+
+/** A shared-memory, parallel version of SynchBB that runs inside a single JVM
+ * 
+ * The message-based SynchBB module explores a single path at a time, passing the current partial assignment 
+ * from agent to agent along a linear order. This engine performs the same depth-first branch and bound 
+ * search over the same kind of linear order (max width, ties broken by minimizing domain size), 
+ * but without any message: the problem is compiled into flat tables of doubles, and the search tree is 
+ * split at its top \a splitDepth levels into tasks that are run by the threads of a ForkJoinPool, 
+ * which steal tasks from each other when they run out of work. All tasks share the cost of the 
+ * best solution found so far through an AtomicLong, such that a bound found by one thread immediately 
+ * prunes the subtrees explored by all the others. 
+ * 
+ * The parameters are read from the same agent configuration files as the message-based module 
+ * (SynchBBagent.xml), in which the SynchBB module may additionally specify the optional attribute 
+ * \a splitDepth (default = 0, which means that the depth is chosen such that there are at least 
+ * 8 tasks per thread). The solution returned is a SynchBBsolution; since no message is exchanged, 
+ * all message statistics are 0. 
+ * 
+ * @param <V> type used for variable values
+ * @param <U> type used for utility values
+ * @note Unlike the message-based module, this engine does not need the ProblemRescaler: maximization problems 
+ * and negative costs are handled by negating and shifting each constraint internally. 
+ * @note Each connected component of the constraint graph is solved separately. 
+ */
+public class ParallelSynchBB < V extends Addable<V>, U extends Addable<U> > {
+	
+	/** The number of threads used to explore the search tree */
+	private final int nbrThreads;
+	
+	/** The number of levels of the search tree split into parallel tasks; 0 to choose it automatically */
+	private int splitDepth;
+	
+	/** Whether the assignment history should be recorded */
+	private final boolean convergence;
+	
+	/** The parser element in the agent configuration file */
+	private final Element parserElmt;
+	
+	/** The pool of threads used to explore the search tree, or \c null if the engine is single-threaded */
+	private ForkJoinPool pool;
+	
+	/** The problem being solved */
+	private DCOPProblemInterface<V, U> problem;
+	
+	/** The names of the variables, in lexicographical order */
+	private String[] varNames;
+	
+	/** The domain of each variable */
+	private V[][] domains;
+	
+	/** For each constraint, the indexes of its variables */
+	private int[][] conVars;
+	
+	/** For each constraint and each of its variables, the step in the table corresponding to an increment of the variable's value */
+	private int[][] conSteps;
+	
+	/** For each constraint, its non-negative cost for each assignment, with infeasible assignments represented by infinite costs */
+	private double[][] tables;
+	
+	/** For each variable, the position of its first neighbor in \a neighbors; the last entry is the total number of neighbors */
+	private int[] neighborsStart;
+	
+	/** The neighbors of all variables, stored contiguously */
+	private int[] neighbors;
+	
+	/** For each variable, the constraints it is involved in */
+	private int[][] varCons;
+	
+	/** The linear order on the variables of the component being solved */
+	private int[] order;
+	
+	/** For each level in \a order, the constraints whose costs are added at that level, i.e. whose last variable in the order is at that level */
+	private int[][] levelCons;
+	
+	/** The number of levels of the current component split into parallel tasks */
+	private int depth;
+	
+	/** The bits of the cost of the best solution found so far for the current component, which is a non-negative double */
+	private final AtomicLong bound = new AtomicLong ();
+	
+	/** The cost of the best solution found so far for the current component */
+	private double bestCost;
+	
+	/** The index of the value of each variable in the best solutions found */
+	private int[] best;
+	
+	/** The number of nodes of the search tree explored */
+	private final AtomicLong nbrNodes = new AtomicLong ();
+	
+	/** The time at which the current call to solve() started */
+	private long startTime;
+	
+	/** The time spent exploring the search tree, in nanoseconds */
+	private long searchTime;
+	
+	/** For each variable, its assignment history */
+	private HashMap< String, ArrayList< CurrentAssignment<V> > > assignmentHistories;
+	
+	/** Constructor
+	 * @param agentDescFile 	the path to the agent configuration file of SynchBB
+	 * @throws Exception 		if the file could not be parsed
+	 */
+	public ParallelSynchBB (String agentDescFile) throws Exception {
+		this (XCSPparser.parse(AgentFactory.class.getResourceAsStream(agentDescFile), false));
+	}
+	
+	/** Constructor
+	 * @param agentDesc 	the agent configuration file of SynchBB
+	 */
+	public ParallelSynchBB (Document agentDesc) {
+		this (agentDesc, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/** Constructor
+	 * @param agentDesc 	the agent configuration file of SynchBB
+	 * @param nbrThreads 	the number of threads used to explore the search tree
+	 */
+	public ParallelSynchBB (Document agentDesc, int nbrThreads) {
+		
+		assert nbrThreads > 0 : "The number of threads must be positive";
+		this.nbrThreads = nbrThreads;
+		this.parserElmt = agentDesc.getRootElement().getChild("parser");
+		
+		// Look up the SynchBB module
+		Element module = null;
+		for (Element elmt : agentDesc.getRootElement().getChild("modules").getChildren()) {
+			if (elmt.getAttributeValue("className").equals(SynchBB.class.getName())) {
+				module = elmt;
+				break;
+			}
+		}
+		if (module == null) 
+			throw new IllegalArgumentException ("The agent configuration file does not contain a SynchBB module");
+		
+		this.convergence = Boolean.parseBoolean(module.getAttributeValue("convergence"));
+		
+		String splitDepth = module.getAttributeValue("splitDepth");
+		if (splitDepth != null) 
+			this.splitDepth = Integer.parseInt(splitDepth);
+	}
+	
+	/** @return the number of levels of the search tree split into parallel tasks; 0 if it is chosen automatically */
+	public int getSplitDepth () {
+		return this.splitDepth;
+	}
+	
+	/** @param splitDepth 	the number of levels of the search tree split into parallel tasks; 0 to choose it automatically */
+	public void setSplitDepth (int splitDepth) {
+		assert splitDepth >= 0 : "The split depth must be non-negative";
+		this.splitDepth = splitDepth;
+	}
+	
+	/** @return the time spent exploring the search tree during the last call to solve(), in milliseconds */
+	public long getSearchTime () {
+		return this.searchTime / 1000000;
+	}
+	
+	/** @return the number of nodes of the search tree explored during the last call to solve() */
+	public long getNbrNodes () {
+		return this.nbrNodes.get();
+	}
+	
+	/** Solves the input problem
+	 * @param problemDoc 	the problem, in XCSP format
+	 * @return an optimal solution
+	 */
+	@SuppressWarnings("unchecked")
+	public SynchBBsolution<V, U> solve (Document problemDoc) {
+		
+		// Instantiate the parser specified in the agent configuration file
+		if (this.parserElmt == null) 
+			return this.solve(new XCSPparser<V, U> (problemDoc));
+		this.parserElmt.setAttribute("displayGraph", "false");
+		String parserClassName = this.parserElmt.getAttributeValue("parserClass");
+		try {
+			Class< ? extends XCSPparser<V, U> > parserClass = (Class< ? extends XCSPparser<V, U> >) 
+					(parserClassName == null ? XCSPparser.class : Class.forName(parserClassName));
+			return this.solve(parserClass.getConstructor(Document.class, Element.class).newInstance(problemDoc, this.parserElmt));
+		} catch (ClassNotFoundException e) {
+			System.err.println("The parser class " + parserClassName + " could not be found");
+			e.printStackTrace();
+		} catch (InstantiationException e) {
+			System.err.println("The parser class " + parserClassName + " is abstract");
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			System.err.println("The constructor for " + parserClassName + " is inaccessible");
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			System.err.println("The constructor for " + parserClassName + " threw an exception");
+			e.printStackTrace();
+		} catch (NoSuchMethodException e) {
+			System.err.println("The parser class " + parserClassName + " does not have a constructor that takes in a Document and an Element");
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/** Solves the input problem
+	 * @param problem 	the problem
+	 * @return an optimal solution
+	 */
+	public SynchBBsolution<V, U> solve (DCOPProblemInterface<V, U> problem) {
+		
+		this.startTime = System.currentTimeMillis();
+		this.problem = problem;
+		this.compile();
+		
+		final int nbrVars = this.varNames.length;
+		this.best = new int [nbrVars];
+		this.nbrNodes.set(0);
+		if (this.convergence) {
+			this.assignmentHistories = new HashMap< String, ArrayList< CurrentAssignment<V> > > (nbrVars);
+			for (String var : this.varNames) 
+				this.assignmentHistories.put(var, new ArrayList< CurrentAssignment<V> > ());
+		}
+		
+		if (this.nbrThreads > 1) 
+			this.pool = new ForkJoinPool (this.nbrThreads);
+		
+		// Solve each connected component separately
+		long searchStart = System.nanoTime();
+		boolean[] done = new boolean [nbrVars];
+		for (int root = 0; root < nbrVars; root++) 
+			if (! done[root]) 
+				this.solveComponent(this.order(root, done));
+		this.searchTime = System.nanoTime() - searchStart;
+		
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+		
+		// Build the solution
+		HashMap<String, V> assignments = new HashMap<String, V> (nbrVars);
+		for (int i = 0; i < nbrVars; i++) 
+			assignments.put(this.varNames[i], this.domains[i][this.best[i]]);
+		U utility = problem.getUtility(assignments).getUtility(0);
+		long time = System.currentTimeMillis() - this.startTime;
+		
+		return new SynchBBsolution<V, U> (nbrVars, utility, utility, assignments, 0, new TreeMap<String, Integer> (), 0, new TreeMap<String, Long> (), 
+				0, new TreeMap<String, Long> (), 0, time, null, this.assignmentHistories);
+	}
+	
+	/** Compiles the problem into flat tables of non-negative costs, and builds the CSR arrays of neighbors */
+	@SuppressWarnings("unchecked")
+	private void compile () {
+		
+		final boolean maximize = this.problem.maximize();
+		
+		// Index the variables in lexicographical order
+		this.varNames = this.problem.getVariables().toArray(new String [0]);
+		Arrays.sort(this.varNames);
+		final int nbrVars = this.varNames.length;
+		HashMap<String, Integer> indexes = new HashMap<String, Integer> (nbrVars);
+		for (int i = 0; i < nbrVars; i++) 
+			indexes.put(this.varNames[i], i);
+		
+		Class<?> domClass = null;
+		this.domains = null;
+		for (int i = 0; i < nbrVars; i++) {
+			V[] dom = this.problem.getDomain(this.varNames[i]);
+			if (domClass == null) {
+				domClass = dom.getClass();
+				this.domains = (V[][]) Array.newInstance(domClass, nbrVars);
+			}
+			this.domains[i] = dom;
+		}
+		
+		// Compile the constraints, and count the constraints of each variable
+		U infeasible = (maximize ? this.problem.getMinInfUtility() : this.problem.getPlusInfUtility());
+		ArrayList<int[]> conVars = new ArrayList<int[]> ();
+		ArrayList<int[]> conSteps = new ArrayList<int[]> ();
+		ArrayList<double[]> tables = new ArrayList<double[]> ();
+		int[] nbrCons = new int [nbrVars];
+		for (UtilitySolutionSpace<V, U> space : this.problem.getSolutionSpaces(false)) {
+			
+			String[] vars = space.getVariables();
+			final int arity = vars.length;
+			if (arity == 0) 
+				continue;
+			int[] varIndexes = new int [arity];
+			int[] steps = new int [arity];
+			long size = 1;
+			for (int k = arity - 1; k >= 0; k--) {
+				varIndexes[k] = indexes.get(vars[k]);
+				steps[k] = (int) size;
+				size *= this.domains[varIndexes[k]].length;
+				if (size > Integer.MAX_VALUE) 
+					throw new IllegalArgumentException ("The constraint " + space.getName() + " is too large to be compiled into a table");
+			}
+			
+			// Enumerate all assignments, with the last variable varying fastest, and turn utilities into costs
+			double[] table = new double [(int) size];
+			double min = Double.POSITIVE_INFINITY;
+			V[] assignment = (V[]) Array.newInstance(domClass.getComponentType(), arity);
+			int[] valIndexes = new int [arity];
+			for (int k = 0; k < arity; k++) 
+				assignment[k] = this.domains[varIndexes[k]][0];
+			for (int a = 0; a < size; a++) {
+				U util = space.getUtility(vars, assignment);
+				if (util.equals(infeasible)) 
+					table[a] = Double.POSITIVE_INFINITY;
+				else {
+					table[a] = (maximize ? - util.doubleValue() : util.doubleValue());
+					min = Math.min(min, table[a]);
+				}
+				
+				for (int k = arity - 1; k >= 0; k--) {
+					V[] dom = this.domains[varIndexes[k]];
+					if (++valIndexes[k] < dom.length) {
+						assignment[k] = dom[valIndexes[k]];
+						break;
+					}
+					valIndexes[k] = 0;
+					assignment[k] = dom[0];
+				}
+			}
+			
+			// Shift the costs such that they are all non-negative, which does not change the optimal solution
+			if (min != Double.POSITIVE_INFINITY) 
+				for (int a = table.length - 1; a >= 0; a--) 
+					table[a] -= min;
+			
+			conVars.add(varIndexes);
+			conSteps.add(steps);
+			tables.add(table);
+			for (int var : varIndexes) 
+				nbrCons[var]++;
+		}
+		this.conVars = conVars.toArray(new int [conVars.size()][]);
+		this.conSteps = conSteps.toArray(new int [conSteps.size()][]);
+		this.tables = tables.toArray(new double [tables.size()][]);
+		
+		// Record the constraints of each variable
+		this.varCons = new int [nbrVars][];
+		for (int i = 0; i < nbrVars; i++) 
+			this.varCons[i] = new int [nbrCons[i]];
+		int[] fill = new int [nbrVars];
+		for (int c = 0; c < this.conVars.length; c++) 
+			for (int var : this.conVars[c]) 
+				this.varCons[var][fill[var]++] = c;
+		
+		// Build the CSR arrays of neighbors, without duplicates
+		this.neighborsStart = new int [nbrVars + 1];
+		int[][] neighborhoods = new int [nbrVars][];
+		int[] mark = new int [nbrVars];
+		Arrays.fill(mark, -1);
+		int[] buffer = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) {
+			int nbrNeighbors = 0;
+			for (int c : this.varCons[i]) {
+				for (int var : this.conVars[c]) {
+					if (var != i && mark[var] != i) {
+						mark[var] = i;
+						buffer[nbrNeighbors++] = var;
+					}
+				}
+			}
+			neighborhoods[i] = Arrays.copyOf(buffer, nbrNeighbors);
+			this.neighborsStart[i + 1] = this.neighborsStart[i] + nbrNeighbors;
+		}
+		this.neighbors = new int [this.neighborsStart[nbrVars]];
+		for (int i = 0; i < nbrVars; i++) 
+			System.arraycopy(neighborhoods[i], 0, this.neighbors, this.neighborsStart[i], neighborhoods[i].length);
+	}
+	
+	/** Computes the linear order on the connected component of a given variable
+	 * 
+	 * As in the LinearOrdering module configured in SynchBBagent.xml, the first variable is the one with 
+	 * the smallest domain (ties broken by choosing the lexicographically largest name), and each next variable 
+	 * is the one with the most neighbors already in the order, ties broken by choosing the smallest domain, 
+	 * and then the lexicographically largest name. 
+	 * 
+	 * @param start 	a variable in the component
+	 * @param done 		for each variable, whether it has already been ordered; updated by this method
+	 * @return the linear order on the variables in the component
+	 */
+	private int[] order (int start, boolean[] done) {
+		
+		// Collect the variables in the component
+		ArrayList<Integer> comp = new ArrayList<Integer> ();
+		comp.add(start);
+		done[start] = true;
+		for (int k = 0; k < comp.size(); k++) {
+			int var = comp.get(k);
+			for (int n = this.neighborsStart[var]; n < this.neighborsStart[var + 1]; n++) {
+				int neighbor = this.neighbors[n];
+				if (! done[neighbor]) {
+					done[neighbor] = true;
+					comp.add(neighbor);
+				}
+			}
+		}
+		
+		// Greedily order the variables; since variables are indexed in lexicographical order, larger names have larger indexes
+		final int size = comp.size();
+		int[] open = new int [size];
+		for (int k = 0; k < size; k++) 
+			open[k] = comp.get(k);
+		int[] width = new int [this.varNames.length];
+		int[] order = new int [size];
+		for (int pos = 0; pos < size; pos++) {
+			
+			int bestK = -1;
+			for (int k = size - pos - 1; k >= 0; k--) {
+				int var = open[k];
+				if (bestK < 0) {
+					bestK = k;
+					continue;
+				}
+				int other = open[bestK];
+				int diff = (pos == 0 ? 0 : width[var] - width[other]);
+				if (diff == 0) 
+					diff = this.domains[other].length - this.domains[var].length;
+				if (diff > 0 || (diff == 0 && var > other)) 
+					bestK = k;
+			}
+			
+			int var = open[bestK];
+			order[pos] = var;
+			open[bestK] = open[size - pos - 1];
+			for (int n = this.neighborsStart[var]; n < this.neighborsStart[var + 1]; n++) 
+				width[this.neighbors[n]]++;
+		}
+		
+		return order;
+	}
+	
+	/** Finds an optimal assignment to the variables in a connected component
+	 * @param order 	the linear order on the variables in the component
+	 */
+	private void solveComponent (int[] order) {
+		
+		final int size = order.length;
+		this.order = order;
+		
+		// Each constraint is evaluated at the level of its last variable in the order
+		int[] pos = new int [this.varNames.length];
+		for (int k = 0; k < size; k++) 
+			pos[order[k]] = k;
+		int[] nbrLevelCons = new int [size];
+		int[] levelOf = new int [this.conVars.length];
+		Arrays.fill(levelOf, -1);
+		for (int var : order) {
+			for (int c : this.varCons[var]) {
+				if (levelOf[c] >= 0) 
+					continue;
+				int level = 0;
+				for (int other : this.conVars[c]) 
+					level = Math.max(level, pos[other]);
+				levelOf[c] = level;
+				nbrLevelCons[level]++;
+			}
+		}
+		this.levelCons = new int [size][];
+		for (int k = 0; k < size; k++) 
+			this.levelCons[k] = new int [nbrLevelCons[k]];
+		for (int c = 0; c < levelOf.length; c++) 
+			if (levelOf[c] >= 0) 
+				this.levelCons[levelOf[c]][--nbrLevelCons[levelOf[c]]] = c;
+		
+		// Choose the number of levels split into parallel tasks
+		this.depth = 0;
+		if (this.pool != null) {
+			if (this.splitDepth > 0) 
+				this.depth = Math.min(this.splitDepth, size);
+			else 
+				for (long nbrTasks = 1; nbrTasks < 8 * this.nbrThreads && this.depth < size - 1; this.depth++) 
+					nbrTasks *= this.domains[order[this.depth]].length;
+		}
+		
+		// Explore the search tree
+		this.bestCost = Double.POSITIVE_INFINITY;
+		this.bound.set(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+		if (this.depth == 0) {
+			Search search = new Search (new int [this.varNames.length]);
+			search.explore(0, 0.0);
+			this.nbrNodes.addAndGet(search.nbrNodes);
+		} else 
+			this.pool.invoke(new BranchTask (0, 0.0, new int [this.varNames.length]));
+	}
+	
+	/** @return the cost of the best solution found so far for the current component */
+	private double getBound () {
+		return Double.longBitsToDouble(this.bound.get());
+	}
+	
+	/** Computes the cost added by the constraints evaluated at a given level
+	 * @param level 	the level in the order
+	 * @param values 	the index of the value of each variable up to and including this level
+	 * @return the cost added at this level
+	 */
+	private double levelCost (int level, int[] values) {
+		
+		double cost = 0.0;
+		for (int c : this.levelCons[level]) {
+			int[] vars = this.conVars[c];
+			int[] steps = this.conSteps[c];
+			int index = 0;
+			for (int k = vars.length - 1; k >= 0; k--) 
+				index += values[vars[k]] * steps[k];
+			cost += this.tables[c][index];
+		}
+		return cost;
+	}
+	
+	/** Records a complete assignment to the current component, if it is better than the best one found so far
+	 * @param cost 		the cost of the assignment
+	 * @param values 	the index of the value of each variable
+	 */
+	private synchronized void record (double cost, int[] values) {
+		
+		if (cost >= this.bestCost) 
+			return;
+		
+		this.bestCost = cost;
+		for (int var : this.order) 
+			this.best[var] = values[var];
+		this.bound.set(Double.doubleToLongBits(cost));
+		
+		if (this.convergence) {
+			long time = System.currentTimeMillis() - this.startTime;
+			for (int var : this.order) 
+				this.assignmentHistories.get(this.varNames[var]).add(new CurrentAssignment<V> (time, this.domains[var][values[var]]));
+		}
+	}
+	
+	/** A sequential depth-first branch and bound search below a given node */
+	private class Search {
+		
+		/** The index of the value of each variable */
+		private final int[] values;
+		
+		/** The number of nodes explored */
+		private long nbrNodes;
+		
+		/** Constructor
+		 * @param values 	the index of the value of each variable above the root of the search
+		 */
+		private Search (int[] values) {
+			this.values = values;
+		}
+		
+		/** Explores the subtree below a given node
+		 * @param level 	the level of the next variable to assign
+		 * @param cost 		the cost of the partial assignment
+		 */
+		private void explore (final int level, final double cost) {
+			
+			this.nbrNodes++;
+			
+			if (level == order.length) {
+				record(cost, this.values);
+				return;
+			}
+			
+			final int var = order[level];
+			final int domSize = domains[var].length;
+			for (int val = 0; val < domSize; val++) {
+				this.values[var] = val;
+				double newCost = cost + levelCost(level, this.values);
+				if (newCost < getBound()) 
+					this.explore(level + 1, newCost);
+			}
+		}
+	}
+	
+	/** A fork-join task that splits the search below a given node among its children */
+	private class BranchTask extends RecursiveAction {
+		
+		/** Used for serialization */
+		private static final long serialVersionUID = 3478425925862047611L;
+		
+		/** The level of the next variable to assign */
+		private final int level;
+		
+		/** The cost of the partial assignment */
+		private final double cost;
+		
+		/** The index of the value of each variable, owned by this task */
+		private final int[] values;
+
+		/** Constructor
+		 * @param level 	the level of the next variable to assign
+		 * @param cost 		the cost of the partial assignment
+		 * @param values 	the index of the value of each variable above \a level, owned by this task
+		 */
+		private BranchTask (int level, double cost, int[] values) {
+			this.level = level;
+			this.cost = cost;
+			this.values = values;
+		}
+
+		/** @see java.util.concurrent.RecursiveAction#compute() */
+		@Override
+		protected void compute() {
+			
+			// The bound might have improved since this task was created
+			if (this.cost >= getBound()) 
+				return;
+			
+			if (this.level >= depth) {
+				Search search = new Search (this.values);
+				search.explore(this.level, this.cost);
+				nbrNodes.addAndGet(search.nbrNodes);
+				return;
+			}
+			nbrNodes.incrementAndGet();
+			
+			final int var = order[this.level];
+			final int domSize = domains[var].length;
+			ArrayList<BranchTask> children = new ArrayList<BranchTask> (domSize);
+			for (int val = 0; val < domSize; val++) {
+				this.values[var] = val;
+				double newCost = this.cost + levelCost(this.level, this.values);
+				if (newCost < getBound()) 
+					children.add(new BranchTask (this.level + 1, newCost, this.values.clone()));
+			}
+			invokeAll(children);
+		}
+	}
+	
+}
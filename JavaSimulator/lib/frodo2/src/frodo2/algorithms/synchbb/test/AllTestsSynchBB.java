@@ -35,6 +35,7 @@ public class AllTestsSynchBB {
 	public static Test suite() {
 		TestSuite suite = new TestSuite("All tests in frodo2.algorithms.synchbb.test");
 		suite.addTest(SynchBBagentTest.suite());
+		suite.addTest(ParallelSynchBBTest.suite());
 		return suite;
 	}
 }
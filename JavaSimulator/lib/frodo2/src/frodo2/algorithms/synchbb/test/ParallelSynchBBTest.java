@@ -0,0 +1,149 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+package frodo2.algorithms.synchbb.test;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.StatsReporterWithConvergence.CurrentAssignment;
+import frodo2.algorithms.dpop.DPOPsolver;
+import frodo2.algorithms.synchbb.ParallelSynchBB;
+import frodo2.algorithms.synchbb.SynchBB;
+import frodo2.algorithms.synchbb.SynchBBsolution;
+import frodo2.algorithms.test.AllTests;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.AddableInteger;
+import frodo2.solutionSpaces.AddableReal;
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/** JUnit tests for ParallelSynchBB
+ * @param <U> the type used for utility values
+ */
+public class ParallelSynchBBTest < U extends Addable<U> > extends TestCase {
+	
+	/** Maximum number of variables in the random problems */
+	private final int maxNbrVars = 10;
+	
+	/** Maximum number of binary constraints in the random problems */
+	private final int maxNbrEdges = 25;
+	
+	/** Maximum number of agents in the random problems */
+	private final int maxNbrAgents = 5;
+	
+	/** The number of threads */
+	private final int nbrThreads;
+	
+	/** The number of levels of the search tree split into parallel tasks; 0 to choose it automatically */
+	private final int splitDepth;
+	
+	/** The constraint tightness of the random problems */
+	private final double p2;
+	
+	/** The class used for utility values */
+	private final Class<U> utilClass;
+	
+	/** Constructor
+	 * @param nbrThreads 		the number of threads
+	 * @param splitDepth 		the number of levels of the search tree split into parallel tasks; 0 to choose it automatically
+	 * @param p2 				the constraint tightness of the random problems
+	 * @param utilClass 		the class used for utility values
+	 */
+	public ParallelSynchBBTest (int nbrThreads, int splitDepth, double p2, Class<U> utilClass) {
+		super ("testRandom");
+		this.nbrThreads = nbrThreads;
+		this.splitDepth = splitDepth;
+		this.p2 = p2;
+		this.utilClass = utilClass;
+	}
+	
+	/** @return the test suite */
+	public static TestSuite suite () {
+		TestSuite suite = new TestSuite ("Random tests for ParallelSynchBB");
+		
+		TestSuite tmp = new TestSuite ("Tests with 1 thread");
+		tmp.addTest(new RepeatedTest (new ParallelSynchBBTest<AddableInteger> (1, 0, 0.0, AddableInteger.class), 200));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests with 4 threads");
+		tmp.addTest(new RepeatedTest (new ParallelSynchBBTest<AddableInteger> (4, 0, 0.0, AddableInteger.class), 200));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests with 4 threads and the top 3 levels split");
+		tmp.addTest(new RepeatedTest (new ParallelSynchBBTest<AddableInteger> (4, 3, 0.0, AddableInteger.class), 200));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests with 4 threads, infeasible assignments and real-valued utilities");
+		tmp.addTest(new RepeatedTest (new ParallelSynchBBTest<AddableReal> (4, 0, 0.3, AddableReal.class), 200));
+		suite.addTest(tmp);
+		
+		return suite;
+	}
+	
+	/** Solves a random problem and checks the solution against DPOP's
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testRandom () throws Exception {
+		
+		boolean maximize = (Math.random() < .5);
+		Document problemDoc = AllTests.createRandProblem(maxNbrVars, maxNbrEdges, maxNbrAgents, maximize, this.p2);
+		
+		Document agentDesc = XCSPparser.parse("src/frodo2/algorithms/synchbb/SynchBBagent.xml", false);
+		agentDesc.getRootElement().getChild("parser").setAttribute("utilClass", this.utilClass.getName());
+		for (Element module : agentDesc.getRootElement().getChild("modules").getChildren()) {
+			if (module.getAttributeValue("className").equals(SynchBB.class.getName())) {
+				module.setAttribute("convergence", "true");
+				module.setAttribute("splitDepth", Integer.toString(this.splitDepth));
+			}
+		}
+		
+		ParallelSynchBB<AddableInteger, U> engine = new ParallelSynchBB<AddableInteger, U> (agentDesc, this.nbrThreads);
+		assertEquals(this.splitDepth, engine.getSplitDepth());
+		SynchBBsolution<AddableInteger, U> sol = engine.solve(problemDoc);
+		assertNotNull(sol);
+		assertTrue(engine.getNbrNodes() > 0);
+		
+		// Check that all variables are assigned, and that the reported utility is correct
+		XCSPparser<AddableInteger, U> parser = new XCSPparser<AddableInteger, U> (problemDoc);
+		parser.setUtilClass(this.utilClass);
+		Map<String, AddableInteger> assignments = sol.getAssignments();
+		assertEquals(parser.getVariables(), assignments.keySet());
+		assertEquals(parser.getUtility(assignments).getUtility(0), sol.getUtility());
+		
+		// The solution must be optimal
+		U optUtil = new DPOPsolver<AddableInteger, U> (AddableInteger.class, this.utilClass).solve(problemDoc).getUtility();
+		assertEquals(optUtil, sol.getUtility());
+		
+		// The last assignment in the history of each constrained variable must be its final value
+		for (Map.Entry< String, ArrayList< CurrentAssignment<AddableInteger> > > entry : sol.getAssignmentHistories().entrySet()) {
+			ArrayList< CurrentAssignment<AddableInteger> > history = entry.getValue();
+			if (! history.isEmpty()) 
+				assertEquals(assignments.get(entry.getKey()), history.get(history.size() - 1).getAssignment());
+		}
+	}
+	
+}
@@ -0,0 +1,148 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+package frodo2.algorithms.test;
+
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.AgentBlueprint;
+import frodo2.algorithms.AgentInterface;
+import frodo2.algorithms.SingleQueueAgent;
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.dpop.VALUEpropagation;
+import frodo2.communication.mailer.CentralMailer;
+import frodo2.solutionSpaces.AddableInteger;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+
+/** JUnit test case for the class AgentBlueprint */
+public class AgentBlueprintTest extends TestCase {
+	
+	/** The agent description */
+	private Document agentDesc;
+	
+	/** A random problem */
+	private XCSPparser<AddableInteger, AddableInteger> problem;
+	
+	/** @return the test suite for this test */
+	public static TestSuite suite () {
+		
+		TestSuite suite = new TestSuite ("JUnit tests for AgentBlueprint");
+		
+		TestSuite tmp = new TestSuite ("Tests for newAgent");
+		tmp.addTest(new RepeatedTest (new AgentBlueprintTest ("testNewAgent"), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for the message types");
+		tmp.addTest(new RepeatedTest (new AgentBlueprintTest ("testMsgTypes"), 50));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for unknown module classes");
+		tmp.addTest(new AgentBlueprintTest ("testUnknownModule"));
+		suite.addTest(tmp);
+		
+		return suite;
+	}
+	
+	/** Constructor
+	 * @param name 	the name of the test method
+	 */
+	public AgentBlueprintTest (String name) {
+		super (name);
+	}
+	
+	/** @see junit.framework.TestCase#setUp() */
+	protected void setUp() throws Exception {
+		this.agentDesc = XCSPparser.parse("src/frodo2/algorithms/dpop/DPOPagent.xml", false);
+		this.problem = new XCSPparser<AddableInteger, AddableInteger> (AllTests.createRandProblem(10, 20, 5, Math.random() < .5));
+	}
+	
+	/** @see junit.framework.TestCase#tearDown() */
+	protected void tearDown() throws Exception {
+		VALUEpropagation.START_MSG_TYPE = AgentInterface.START_AGENT;
+		this.agentDesc = null;
+		this.problem = null;
+	}
+	
+	/** Tests that the agents created from a blueprint are the ones described
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testNewAgent () throws Exception {
+		
+		AgentBlueprint blueprint = AgentBlueprint.compile(this.agentDesc);
+		assertSame (this.agentDesc, blueprint.getAgentDesc());
+		
+		CentralMailer mailman = new CentralMailer (false, false, null);
+		for (String agent : this.problem.getAgents()) {
+			DCOPProblemInterface<AddableInteger, AddableInteger> subProb = this.problem.getSubProblem(agent);
+			AgentInterface<AddableInteger> agentInstance = blueprint.newAgent(subProb, mailman);
+			assertTrue (agentInstance instanceof SingleQueueAgent);
+			assertEquals (agent, agentInstance.getID());
+		}
+		mailman.end();
+	}
+	
+	/** Tests that the message types in the agent description are applied when compiling and when creating each agent
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testMsgTypes () throws Exception {
+		
+		// Change the type of the start message of VALUEpropagation
+		for (Element module : this.agentDesc.getRootElement().getChild("modules").getChildren()) {
+			if (module.getAttributeValue("className").equals(VALUEpropagation.class.getName())) {
+				for (Element msgElmt : module.getChild("messages").getChildren()) {
+					if (msgElmt.getAttributeValue("name").equals("START_MSG_TYPE")) {
+						msgElmt.setAttribute("value", "START NOW!");
+						msgElmt.removeAttribute("ownerClass");
+					}
+				}
+			}
+		}
+		
+		AgentBlueprint blueprint = AgentBlueprint.compile(this.agentDesc);
+		assertEquals ("START NOW!", VALUEpropagation.START_MSG_TYPE);
+		
+		// Restore the default type, which should be overridden again when creating an agent
+		VALUEpropagation.START_MSG_TYPE = AgentInterface.START_AGENT;
+		CentralMailer mailman = new CentralMailer (false, false, null);
+		String agent = this.problem.getAgents().iterator().next();
+		blueprint.newAgent(this.problem.getSubProblem(agent), mailman);
+		assertEquals ("START NOW!", VALUEpropagation.START_MSG_TYPE);
+		mailman.end();
+	}
+	
+	/** Tests that compiling a description that refers to an unknown module class fails
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testUnknownModule () throws Exception {
+		
+		this.agentDesc.getRootElement().getChild("modules").getChildren().get(0).setAttribute("className", "frodo2.NoSuchModule");
+		try {
+			AgentBlueprint.compile(this.agentDesc);
+			fail("Compiled a blueprint with an unknown module class");
+		} catch (ClassNotFoundException e) { }
+	}
+	
+}
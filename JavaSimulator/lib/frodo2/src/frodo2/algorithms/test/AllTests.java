@@ -57,6 +57,7 @@ import frodo2.algorithms.dpop.test.AllTestsDPOP;
 import frodo2.algorithms.localSearch.dsa.tests.AllTestsDSA;
 import frodo2.algorithms.localSearch.mgm.mgm2.tests.MGM2agentTest;
 import frodo2.algorithms.localSearch.mgm.tests.MGMagentTest;
+import frodo2.algorithms.localSearch.tests.LocalUtilityCacheTest;
 import frodo2.algorithms.maxsum.tests.MaxSumTests;
 import frodo2.algorithms.mpc_discsp.tests.MPC_DisWCSP4tests;
 import frodo2.algorithms.odpop.tests.AllTestsODPOP;
@@ -64,6 +65,7 @@ import frodo2.algorithms.synchbb.test.AllTestsSynchBB;
 import frodo2.algorithms.varOrdering.dfs.tests.AllTestsDFS;
 import frodo2.algorithms.varOrdering.election.tests.AllTestsElection;
 import frodo2.algorithms.varOrdering.linear.tests.CentralLinearOrderingTest;
+import frodo2.algorithms.varOrdering.linear.tests.LinearOrderCacheTest;
 import frodo2.communication.Queue;
 import frodo2.communication.QueueOutputPipeInterface;
 import frodo2.communication.sharedMemory.QueueIOPipe;
@@ -88,11 +90,14 @@ public class AllTests {
 
 		suite.addTest(XCSPparserTest.suite());
 		suite.addTest(ProblemTest.suite());
+		suite.addTest(ProblemSnapshotTest.suite());
+		suite.addTest(AgentBlueprintTest.suite());
 		suite.addTest(MASparserTest.suite());
 		
 		suite.addTest(AllTestsElection.suite());
 		suite.addTest(AllTestsDFS.suite());
 		suite.addTest(CentralLinearOrderingTest.suite());
+		suite.addTest(LinearOrderCacheTest.suite());
 		
 		suite.addTest(AllTestsDPOP.suite());
 		suite.addTest(AllTestsParamDPOP.suite());
@@ -108,6 +113,7 @@ public class AllTests {
 		
 		suite.addTest(TestCountSolutions.suite());
 		
+		suite.addTest(LocalUtilityCacheTest.suite());
 		suite.addTest(AllTestsDSA.suite());
 		suite.addTest(MGMagentTest.suite());
 		suite.addTest(MGM2agentTest.suite());
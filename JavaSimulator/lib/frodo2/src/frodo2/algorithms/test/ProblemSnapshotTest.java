@@ -0,0 +1,192 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.jdom2.Document;
+
+import frodo2.algorithms.Problem;
+import frodo2.algorithms.ProblemSnapshot;
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.dpop.DPOPsolver;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.AddableInteger;
+import frodo2.solutionSpaces.AddableReal;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+
+/** JUnit test case for the class ProblemSnapshot
+ * @param <U> the type used for utility values
+ */
+public class ProblemSnapshotTest < U extends Addable<U> > extends TestCase {
+
+	/** The class used for utility values */
+	private Class<U> utilClass;
+	
+	/** Random XCSP problem */
+	private Document problem;
+	
+	/** The parser */
+	private XCSPparser<AddableInteger, U> parser;
+	
+	/** The snapshot file */
+	private File file;
+	
+	/** The snapshot */
+	private ProblemSnapshot snapshot;
+	
+	/** @return the test suite for this test */
+	public static TestSuite suite () {
+		
+		TestSuite suite = new TestSuite ("JUnit tests for ProblemSnapshot");
+		
+		TestSuite tmp = new TestSuite ("Tests for the indexes with integer utilities");
+		tmp.addTest(new RepeatedTest (new ProblemSnapshotTest<AddableInteger> ("testIndexes", AddableInteger.class), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for the indexes with real utilities");
+		tmp.addTest(new RepeatedTest (new ProblemSnapshotTest<AddableReal> ("testIndexes", AddableReal.class), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for getProblem with integer utilities");
+		tmp.addTest(new RepeatedTest (new ProblemSnapshotTest<AddableInteger> ("testGetProblem", AddableInteger.class), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for getProblem with real utilities");
+		tmp.addTest(new RepeatedTest (new ProblemSnapshotTest<AddableReal> ("testGetProblem", AddableReal.class), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for getSubProblem");
+		tmp.addTest(new RepeatedTest (new ProblemSnapshotTest<AddableInteger> ("testGetSubProblem", AddableInteger.class), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests solving a snapshot with DPOP");
+		tmp.addTest(new RepeatedTest (new ProblemSnapshotTest<AddableInteger> ("testSolve", AddableInteger.class), 100));
+		suite.addTest(tmp);
+		
+		return suite;
+	}
+	
+	/** Constructor
+	 * @param name 			the name of the test method
+	 * @param utilClass 	the class used for utility values
+	 */
+	public ProblemSnapshotTest (String name, Class<U> utilClass) {
+		super (name);
+		this.utilClass = utilClass;
+	}
+	
+	/** @see junit.framework.TestCase#setUp() */
+	protected void setUp() throws Exception {
+		
+		// Either infeasible tuples, or utilities that do not fit on 1 or 2 bytes
+		if (Math.random() < .5) 
+			this.problem = AllTests.createRandProblem(15, 40, 5, Math.random() < .5, 0, .2);
+		else 
+			this.problem = AllTests.createRandProblem(15, 40, 5, Math.random() < .5, 0, (Math.random() < .5 ? 1000 : 100000));
+		this.parser = new XCSPparser<AddableInteger, U> (this.problem);
+		this.parser.setUtilClass(this.utilClass);
+		
+		this.file = File.createTempFile("ProblemSnapshotTest", ".snapshot");
+		ProblemSnapshot.write(this.parser, this.file);
+		this.snapshot = ProblemSnapshot.open(this.file);
+	}
+	
+	/** @see junit.framework.TestCase#tearDown() */
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		this.problem = null;
+		this.parser = null;
+		this.snapshot = null;
+		if (! this.file.delete()) // the file might still be mapped
+			this.file.deleteOnExit();
+		this.file = null;
+	}
+	
+	/** mqtt_simulations method for the owner, domain and neighbor indexes */
+	public void testIndexes () {
+		
+		assertEquals (this.parser.maximize(), this.snapshot.maximize());
+		assertEquals (this.parser.getAgents(), this.snapshot.getAgents());
+		assertEquals (this.parser.getVariables(), this.snapshot.getVariables());
+		
+		for (String var : this.parser.getVariables()) {
+			assertEquals (this.parser.getOwner(var), this.snapshot.getOwner(var));
+			assertTrue (java.util.Arrays.equals(this.parser.getDomain(var), this.snapshot.getDomain(var)));
+			assertEquals (this.parser.getNeighborVars(var), this.snapshot.getNeighborVars(var));
+		}
+	}
+	
+	/** mqtt_simulations method for ProblemSnapshot#getProblem(Class) */
+	public void testGetProblem () {
+		
+		Problem<AddableInteger, U> prob = this.snapshot.getProblem(this.utilClass);
+		
+		assertEquals (this.parser.maximize(), prob.maximize());
+		assertEquals (this.parser.getOwners(), prob.getOwners());
+		for (String var : this.parser.getVariables()) 
+			assertTrue (java.util.Arrays.equals(this.parser.getDomain(var), prob.getDomain(var)));
+		
+		List< ? extends UtilitySolutionSpace<AddableInteger, U> > spaces = this.parser.getSolutionSpaces(true);
+		List< ? extends UtilitySolutionSpace<AddableInteger, U> > spaces2 = prob.getSolutionSpaces(true);
+		assertEquals (spaces, spaces2);
+		for (int i = 0; i < spaces.size(); i++) {
+			assertEquals (spaces.get(i).getName(), spaces2.get(i).getName());
+			assertEquals (spaces.get(i).getRelationName(), spaces2.get(i).getRelationName());
+		}
+	}
+	
+	/** mqtt_simulations method for ProblemSnapshot#getSubProblem(String, Class) */
+	public void testGetSubProblem () {
+		
+		Problem<AddableInteger, U> prob = this.snapshot.getProblem(this.utilClass);
+		
+		for (String agent : this.snapshot.getAgents()) {
+			Problem<AddableInteger, U> trueSubProb = prob.getSubProblem(agent);
+			Problem<AddableInteger, U> subProb = this.snapshot.getSubProblem(agent, this.utilClass);
+			
+			assertEquals (agent, subProb.getAgent());
+			assertEquals (new HashMap<String, String> (trueSubProb.getOwners()), new HashMap<String, String> (subProb.getOwners()));
+			for (String var : trueSubProb.getOwners().keySet()) 
+				assertTrue (java.util.Arrays.equals(trueSubProb.getDomain(var), subProb.getDomain(var)));
+			assertEquals (trueSubProb.getSolutionSpaces(true), subProb.getSolutionSpaces(true));
+		}
+	}
+	
+	/** mqtt_simulations method for solving the Problem decoded from a snapshot */
+	public void testSolve () {
+		
+		AddableInteger trueUtil = new DPOPsolver<AddableInteger, AddableInteger> ().solve(this.problem).getUtility();
+		
+		ProblemSnapshot snap = this.snapshot;
+		Problem<AddableInteger, AddableInteger> prob = snap.getProblem(AddableInteger.class);
+		assertEquals (trueUtil, new DPOPsolver<AddableInteger, AddableInteger> ().solve(prob).getUtility());
+	}
+	
+}
@@ -22,6 +22,7 @@ How to contact the authors:
 
 package frodo2.algorithms.test;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -181,6 +182,14 @@ public class XCSPparserTest extends TestCase {
 		tmp.addTest(new RepeatedTest (new XCSPparserTest ("testSetDomain"), 100));
 		suite.addTest(tmp);
 		
+		tmp = new TestSuite ("Tests for queries on a modified problem");
+		tmp.addTest(new RepeatedTest (new XCSPparserTest ("testModifications"), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests for parseStreaming");
+		tmp.addTest(new RepeatedTest (new XCSPparserTest ("testParseStreaming"), 100));
+		suite.addTest(tmp);
+		
 		tmp = new TestSuite ("Tests for getSubProblem");
 		tmp.addTest(new RepeatedTest (new XCSPparserTest ("testGetSubProblem", false, false), 100));
 		suite.addTest(tmp);
@@ -873,6 +882,72 @@ public class XCSPparserTest extends TestCase {
 		}
 	}
 	
+	/** mqtt_simulations method for queries made after the problem has been modified, either through the parser or directly in the JDOM tree */
+	public void testModifications () {
+		
+		// Add a new agent directly in the JDOM tree
+		Element root = problem.getRootElement();
+		Element agentElmt = new Element ("agent");
+		agentElmt.setAttribute("name", "newAgent");
+		root.getChild("agents").addContent(agentElmt);
+		assertTrue (parserInt.getAgents().contains("newAgent"));
+		
+		// Make the new agent own one of the variables
+		String var = graph.nodes.get(0);
+		assertTrue (parserInt.setOwner(var, "newAgent"));
+		assertEquals ("newAgent", parserInt.getOwner(var));
+		assertEquals (Collections.singleton(var), parserInt.getVariables("newAgent"));
+		
+		// Add a new variable with the same domain
+		String domain = null;
+		for (Element varElmt : (List<Element>) root.getChild("variables").getChildren()) 
+			if (varElmt.getAttributeValue("name").equals(var)) 
+				domain = varElmt.getAttributeValue("domain");
+		assertTrue (parserInt.addVariable("newVar", "newAgent", domain));
+		assertEquals (2, parserInt.getNbrVars("newAgent"));
+		assertEquals (parserInt.getDomainSize(var), parserInt.getDomainSize("newVar"));
+		assertTrue (parserInt.getNeighborVars("newVar").isEmpty());
+		
+		// Add a constraint between the two variables directly in the JDOM tree
+		Element constElmt = new Element ("constraint");
+		constElmt.setAttribute("name", "newConst");
+		constElmt.setAttribute("arity", "2");
+		constElmt.setAttribute("scope", "newVar " + var);
+		constElmt.setAttribute("reference", "newRel");
+		root.getChild("constraints").addContent(constElmt);
+		assertEquals (Collections.singleton(var), parserInt.getNeighborVars("newVar"));
+		assertTrue (parserInt.getNeighborVars(var).contains("newVar"));
+		
+		// Remove the constraint through the parser
+		assertTrue (parserInt.removeSpace("newConst"));
+		assertTrue (parserInt.getNeighborVars("newVar").isEmpty());
+		assertFalse (parserInt.getNeighborVars(var).contains("newVar"));
+	}
+	
+	/** mqtt_simulations method for XCSPparser#parseStreaming(InputStream, boolean)
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testParseStreaming () throws Exception {
+		
+		// Write the problem out, with a comment in the middle of the first list of tuples
+		String xml = XCSPparser.toString(problem);
+		int bar = xml.indexOf('|');
+		if (bar >= 0) 
+			xml = xml.substring(0, bar + 1) + "<!-- comment -->\n\t" + xml.substring(bar + 1);
+		
+		Document doc = XCSPparser.parseStreaming(new ByteArrayInputStream (xml.getBytes("UTF-8")), false);
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger> (doc, false);
+		parser.setUtilClass(AddableInteger.class);
+		
+		assertEquals (parserInt.getAgents(), parser.getAgents());
+		assertEquals (parserInt.getVariables(), parser.getVariables());
+		for (String var : parserInt.getVariables()) {
+			assertEquals (parserInt.getOwner(var), parser.getOwner(var));
+			assertTrue (Arrays.equals(parserInt.getDomain(var), parser.getDomain(var)));
+		}
+		this.testGetSolutionSpaces(parser, this.solutionSpaces, null, true);
+	}
+	
 	/** mqtt_simulations method for XCSPparser#getSubProblem(String). */
 	public void testGetSubProblem() {
 		
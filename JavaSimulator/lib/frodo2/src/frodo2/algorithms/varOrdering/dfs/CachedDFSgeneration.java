@@ -0,0 +1,122 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.varOrdering.dfs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.jdom2.Element;
+
+import frodo2.algorithms.AgentInterface;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration.DFSview;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration.MessageDFSoutput;
+import frodo2.communication.IncomingMsgPolicyInterface;
+import frodo2.communication.Message;
+import frodo2.communication.Queue;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+
+/** A module that replaces root election and DFS generation by a pseudo-tree taken from the PseudoTreeCache
+ *
+ * When the agent starts, each of its variables immediately outputs its cached DFSview,
+ * with the constraints it is responsible for enforcing recomputed from the current problem.
+ * No message is exchanged with other agents.
+ * @param <V> the type used for variable values
+ * @param <U> the type used for utility values
+ * @see PseudoTreeCache#setCachedDFS(org.jdom2.Document, String)
+ */
+public class CachedDFSgeneration < V extends Addable<V>, U extends Addable<U> > implements IncomingMsgPolicyInterface<String> {
+
+	/** The type of the message telling the module to start */
+	public static String START_MSG_TYPE = AgentInterface.START_AGENT;
+
+	/** The agent's problem */
+	private final DCOPProblemInterface<V, U> problem;
+
+	/** The fingerprint of the constraint graph in the PseudoTreeCache */
+	private final String fingerprint;
+
+	/** When parsing the constraints, whether to take into account variables with no specified owners */
+	private final boolean withSharedVars;
+
+	/** The queue on which it should call sendMessage() */
+	private Queue queue;
+
+	/** Constructor
+	 * @param problem 		this agent's problem
+	 * @param parameters 	the parameters, containing the \c fingerprint of the constraint graph
+	 */
+	public CachedDFSgeneration (DCOPProblemInterface<V, U> problem, Element parameters) {
+		this.problem = problem;
+		this.fingerprint = parameters.getAttributeValue("fingerprint");
+		this.withSharedVars = Boolean.parseBoolean(parameters.getAttributeValue("withSharedVars"));
+	}
+
+	/** @see IncomingMsgPolicyInterface#getMsgTypes() */
+	public Collection<String> getMsgTypes() {
+		ArrayList<String> types = new ArrayList<String> (1);
+		types.add(START_MSG_TYPE);
+		return types;
+	}
+
+	/** @see IncomingMsgPolicyInterface#notifyIn(Message) */
+	public void notifyIn(Message msg) {
+
+		if (! msg.getType().equals(START_MSG_TYPE))
+			return;
+
+		// Return immediately if I own no variable
+		if (this.problem.getNbrIntVars() == 0) {
+			this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			return;
+		}
+
+		HashMap< String, DFSview<V, U> > views = PseudoTreeCache.getViews(this.fingerprint, this.problem.getMyVars());
+		if (views == null) { // the pseudo-tree was not pinned; terminate rather than wait forever for the DFS
+			System.err.println("The pseudo-tree " + this.fingerprint + " has not been pinned in the PseudoTreeCache");
+			this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			return;
+		}
+
+		for (Map.Entry< String, DFSview<V, U> > entry : views.entrySet()) {
+			String var = entry.getKey();
+			DFSview<V, U> view = entry.getValue();
+
+			HashSet<String> varsBelow = new HashSet<String> (view.getChildren());
+			varsBelow.addAll(view.getAllPseudoChildren());
+			view.setSpaces(this.problem.getSolutionSpaces(var, this.withSharedVars, varsBelow));
+
+			this.queue.sendMessageToSelf(new MessageDFSoutput<V, U> (DFSgeneration.OUTPUT_MSG_TYPE, var, view));
+			this.queue.sendMessage(AgentInterface.STATS_MONITOR, new MessageDFSoutput<V, U> (DFSgeneration.STATS_MSG_TYPE, var, view));
+		}
+	}
+
+	/** @see IncomingMsgPolicyInterface#setQueue(Queue) */
+	public void setQueue(Queue queue) {
+		this.queue = queue;
+	}
+
+}
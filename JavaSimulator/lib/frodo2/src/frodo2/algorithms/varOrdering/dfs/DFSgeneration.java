@@ -124,7 +124,8 @@ public class DFSgeneration < V extends Addable<V>, U extends Addable<U> > implem
 				out.pseudoChildren.put(entry.getKey(), new ArrayList<String> (entry.getValue()));
 			for (Map.Entry< String, List<String> > entry : this.pathsToPseudoChildren.entrySet()) 
 				out.pathsToPseudoChildren.put(entry.getKey(), new ArrayList<String> (entry.getValue()));
-			out.spaces = new ArrayList< UtilitySolutionSpace<V, U> > (this.spaces); /// @bug Do a deep clone instead?
+			if (this.spaces != null) 
+				out.spaces = new ArrayList< UtilitySolutionSpace<V, U> > (this.spaces); /// @bug Do a deep clone instead?
 			return out;
 		}
 		
@@ -269,6 +269,13 @@ public class DFSgenerationParallel < S extends Comparable <S> & Serializable > i
 	
 	/** Whether the module has already been started */
 	private boolean started = false;
+	
+	/** The number of START messages expected for the current run that must be ignored because the module has already been started 
+	 * 
+	 * The module can be started by a message from a neighbor before it receives its own START message, 
+	 * which can then arrive arbitrarily late, possibly even after the agent has finished. 
+	 */
+	private int nbrLateStarts = 0;
 
 	/** The queue used to exchange messages */
 	private Queue queue;
@@ -455,6 +462,23 @@ public class DFSgenerationParallel < S extends Comparable <S> & Serializable > i
 			return;
 		}
 		
+		if (msgType.equals(START_MSG_TYPE)) {
+			if (this.nbrLateStarts > 0) { // this START message belongs to a run that has already started
+				this.nbrLateStarts--;
+				return;
+			}
+			
+		} else if (! this.started) {
+			
+			// A message for the DFS heuristic does not start the module; it will be delivered to the FakeQueues when they are created
+			if (((ParallelDFSmsg<S>) msg).getRoot() == null) {
+				this.heuristicMsgs.add(((ParallelDFSmsg<S>) msg).getMessage());
+				return;
+			}
+			
+			this.nbrLateStarts++; // started by a neighbor; my own START message will come later
+		}
+		
 		if (! this.started) 
 			this.init(null);
 		
@@ -530,8 +554,11 @@ public class DFSgenerationParallel < S extends Comparable <S> & Serializable > i
 		}
 		
 		// Tell the DFS heuristic to start exchanging messages
-		if (this.dfsHeuristic != null) 
+		if (this.dfsHeuristic != null) {
 			this.queue.sendMessageToSelf(new Message (DFSgeneration.START_MSG_TYPE));
+			if (DFSgeneration.START_MSG_TYPE.equals(START_MSG_TYPE)) // I will receive it too
+				this.nbrLateStarts++;
+		}
 		
 		this.owners = this.problem.getOwners();
 		
@@ -0,0 +1,485 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.varOrdering.dfs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration.DFSview;
+import frodo2.algorithms.varOrdering.election.LeaderElectionMaxID;
+import frodo2.algorithms.varOrdering.election.VariableElection;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+
+/** A JVM-wide cache of DFS pseudo-trees, keyed by the structure of the constraint graph
+ *
+ * When the same constraint graph is solved repeatedly with different constraints (for instance, at each tick of a
+ * simulation in which only the costs change), root election and DFS generation produce the same pseudo-tree every time.
+ * This cache records the pseudo-tree computed by a solve, and on subsequent solves with the same graph structure and
+ * the same variable owners, the election and DFS generation modules in the agent description can be replaced with a
+ * CachedDFSgeneration module that outputs the recorded DFSviews directly.
+ *
+ * Only the structure of the pseudo-tree is cached; the constraints each variable is responsible for enforcing are
+ * recomputed from the current problem by the CachedDFSgeneration module. Pseudo-trees that are not DFS trees computed
+ * by the agents (such as balanced pseudo-trees) are recorded under a kind that encodes how they were computed, so that
+ * they are never returned for lookups of another kind.
+ * @see CachedDFSgeneration
+ */
+public class PseudoTreeCache {
+
+	/** The maximum number of pseudo-trees kept in the cache; the least recently used ones are evicted first */
+	public static final int CAPACITY = 16;
+
+	/** A cached pseudo-tree */
+	private static class CachedTree {
+
+		/** For each variable, its sorted neighbors */
+		final TreeMap< String, TreeSet<String> > neighborhoods;
+
+		/** For each variable, its owner */
+		final Map<String, String> owners;
+
+		/** For each variable, its view of the pseudo-tree, without any spaces */
+		final HashMap< String, DFSview<?, ?> > dfs;
+
+		/** The number of root election and DFS generation messages needed to compute the pseudo-tree */
+		final long nbrMsgs;
+
+		/** The time (in ms) needed to compute the pseudo-tree */
+		final long time;
+
+		/** The number of ongoing solves that use this pseudo-tree */
+		int nbrPins;
+
+		/** Constructor
+		 * @param neighborhoods 	for each variable, its sorted neighbors
+		 * @param owners 			for each variable, its owner
+		 * @param dfs 				for each variable, its view of the pseudo-tree, without any spaces
+		 * @param nbrMsgs 			the number of root election and DFS generation messages needed to compute the pseudo-tree
+		 * @param time 				the time (in ms) needed to compute the pseudo-tree
+		 */
+		CachedTree (TreeMap< String, TreeSet<String> > neighborhoods, Map<String, String> owners, HashMap< String, DFSview<?, ?> > dfs, long nbrMsgs, long time) {
+			this.neighborhoods = neighborhoods;
+			this.owners = owners;
+			this.dfs = dfs;
+			this.nbrMsgs = nbrMsgs;
+			this.time = time;
+		}
+	}
+
+	/** The cached pseudo-trees, indexed by their fingerprints, in access order */
+	private static final LinkedHashMap<String, CachedTree> ENTRIES = new LinkedHashMap<String, CachedTree> (CAPACITY, .75f, true) {
+
+		/** Used for serialization */
+		private static final long serialVersionUID = 6497263380474117516L;
+
+		/** @see LinkedHashMap#removeEldestEntry(Map.Entry) */
+		@Override
+		protected boolean removeEldestEntry (Map.Entry<String, CachedTree> eldest) {
+			return this.size() > CAPACITY;
+		}
+	};
+
+	/** The pseudo-trees in use by ongoing solves, which must remain available even if they are evicted from ENTRIES */
+	private static final HashMap<String, CachedTree> PINNED = new HashMap<String, CachedTree> ();
+
+	/** The types of the messages exchanged by the root election and DFS generation modules that the cache makes unnecessary */
+	private static final String[] SAVED_MSG_TYPES = new String[] {
+		LeaderElectionMaxID.LE_MSG_TYPE,
+		DFSgeneration.CHILD_MSG_TYPE,
+		DFSgeneration.PSEUDO_MSG_TYPE,
+		DFSgeneration.ScoreBroadcastingHeuristic.SCORE_MSG_TYPE,
+		DFSgeneration.ScoreBroadcastingHeuristic.SCORE_SINGLE_VAR_MSG_TYPE,
+		DFSgenerationParallel.PARALLEL_DFS_MSG_TYPE,
+		DFSgenerationParallel.RELEASE_OUTPUT_MSG_TYPE
+	};
+
+	/** The number of lookups */
+	private static int nbrLookups;
+
+	/** The number of lookups that hit the cache */
+	private static int nbrHits;
+
+	/** The total number of messages saved by cache hits */
+	private static long savedMsgs;
+
+	/** The total time (in ms) saved by cache hits */
+	private static long savedTime;
+
+	/** The number of pseudo-trees pinned by pinUncached(), used to give them unique keys */
+	private static long nbrUncached;
+
+	/** Prevents instantiation */
+	private PseudoTreeCache () { }
+
+	/** Computes the canonical form of the structure of a problem's constraint graph
+	 * @param problem 	the problem
+	 * @return for each variable, its sorted neighbors
+	 */
+	public static TreeMap< String, TreeSet<String> > getStructure (DCOPProblemInterface<?, ?> problem) {
+
+		TreeMap< String, TreeSet<String> > structure = new TreeMap< String, TreeSet<String> > ();
+		for (Map.Entry< String, ? extends Collection<String> > entry : problem.getNeighborhoods().entrySet())
+			structure.put(entry.getKey(), new TreeSet<String> (entry.getValue()));
+
+		return structure;
+	}
+
+	/** Computes the fingerprint of a constraint graph
+	 * @param structure 	for each variable, its sorted neighbors
+	 * @param owners 		for each variable, its owner
+	 * @return a 64-bit hash of the structure and of the owners, in hexadecimal
+	 */
+	public static String getFingerprint (TreeMap< String, TreeSet<String> > structure, Map<String, String> owners) {
+
+		long hash = 1125899906842597L;
+		for (Map.Entry< String, TreeSet<String> > entry : structure.entrySet()) {
+			String var = entry.getKey();
+			hash = 31 * hash + var.hashCode();
+			hash = 31 * hash + String.valueOf(owners.get(var)).hashCode();
+			for (String neighbor : entry.getValue())
+				hash = 31 * hash + neighbor.hashCode();
+			hash = 31 * hash + entry.getValue().size();
+		}
+
+		return Long.toHexString(hash);
+	}
+
+	/** @return the fingerprint of the input problem's constraint graph
+	 * @param problem 	the problem
+	 */
+	public static String getFingerprint (DCOPProblemInterface<?, ?> problem) {
+		return getFingerprint(getStructure(problem), problem.getOwners());
+	}
+
+	/** @return the key under which pseudo-trees of a given kind are recorded for a given constraint graph
+	 * @param fingerprint 	the fingerprint of the constraint graph
+	 * @param kind 			the kind of pseudo-tree; \c null for DFS trees computed by the agents
+	 */
+	private static String getKey (String fingerprint, String kind) {
+		return (kind == null ? fingerprint : fingerprint + "/" + kind);
+	}
+
+	/** Looks up the DFS tree computed by the agents for a problem
+	 * @param problem 	the problem
+	 * @return the fingerprint of the problem's constraint graph if its pseudo-tree is in the cache, \c null otherwise
+	 */
+	public static String lookup (DCOPProblemInterface<?, ?> problem) {
+		return lookup(problem, null);
+	}
+
+	/** Looks up a pseudo-tree of a given kind for a problem
+	 * @param problem 	the problem
+	 * @param kind 		the kind of pseudo-tree; \c null for DFS trees computed by the agents
+	 * @return the key of the pseudo-tree if it is in the cache, \c null otherwise
+	 */
+	public static String lookup (DCOPProblemInterface<?, ?> problem, String kind) {
+
+		TreeMap< String, TreeSet<String> > structure = getStructure(problem);
+		Map<String, String> owners = problem.getOwners();
+		String key = getKey(getFingerprint(structure, owners), kind);
+
+		synchronized (ENTRIES) {
+			nbrLookups++;
+
+			// Guard against hash collisions by checking that the structures are indeed the same
+			CachedTree entry = ENTRIES.get(key);
+			if (entry == null || ! entry.neighborhoods.equals(structure) || ! entry.owners.equals(owners))
+				return null;
+
+			nbrHits++;
+			savedMsgs += entry.nbrMsgs;
+			savedTime += entry.time;
+			return key;
+		}
+	}
+
+	/** Records the DFS tree computed by the agents for a problem
+	 * @param <V> 		the type used for variable values
+	 * @param <U> 		the type used for utility values
+	 * @param problem 	the problem
+	 * @param dfs 		for each variable, its view of the pseudo-tree
+	 * @param msgNbrs 	for each message type, the number of messages sent during the solve; may be \c null if messages were not counted
+	 * @param time 		the time (in ms) needed to compute the pseudo-tree
+	 * @return the fingerprint of the problem's constraint graph, or \c null if the pseudo-tree was incomplete and therefore not recorded
+	 */
+	public static < V extends Addable<V>, U extends Addable<U> > String record (DCOPProblemInterface<V, U> problem,
+			Map< String, DFSview<V, U> > dfs, Map<String, Integer> msgNbrs, long time) {
+		return record(problem, null, dfs, msgNbrs, time);
+	}
+
+	/** Records a pseudo-tree of a given kind for a problem
+	 * @param <V> 		the type used for variable values
+	 * @param <U> 		the type used for utility values
+	 * @param problem 	the problem
+	 * @param kind 		the kind of pseudo-tree; \c null for DFS trees computed by the agents
+	 * @param dfs 		for each variable, its view of the pseudo-tree
+	 * @param msgNbrs 	for each message type, the number of messages sent during the solve; may be \c null if messages were not counted
+	 * @param time 		the time (in ms) needed to compute the pseudo-tree
+	 * @return the key of the pseudo-tree, or \c null if the pseudo-tree was incomplete and therefore not recorded
+	 */
+	public static < V extends Addable<V>, U extends Addable<U> > String record (DCOPProblemInterface<V, U> problem, String kind,
+			Map< String, DFSview<V, U> > dfs, Map<String, Integer> msgNbrs, long time) {
+
+		TreeMap< String, TreeSet<String> > structure = getStructure(problem);
+		CachedTree tree = newTree(problem, structure, dfs, msgNbrs, time);
+		if (tree == null)
+			return null;
+
+		String key = getKey(getFingerprint(structure, tree.owners), kind);
+		synchronized (ENTRIES) {
+			ENTRIES.put(key, tree);
+		}
+		return key;
+	}
+
+	/** Makes a pseudo-tree available to a single solve through setCachedDFS(), without recording it in the cache
+	 * @param <V> 		the type used for variable values
+	 * @param <U> 		the type used for utility values
+	 * @param problem 	the problem
+	 * @param dfs 		for each variable, its view of the pseudo-tree
+	 * @param time 		the time (in ms) needed to compute the pseudo-tree
+	 * @return the key of the pseudo-tree, which the caller must pass to release() once the solve is over;
+	 * \c null if the pseudo-tree was incomplete
+	 */
+	public static < V extends Addable<V>, U extends Addable<U> > String pinUncached (DCOPProblemInterface<V, U> problem,
+			Map< String, DFSview<V, U> > dfs, long time) {
+
+		TreeMap< String, TreeSet<String> > structure = getStructure(problem);
+		CachedTree tree = newTree(problem, structure, dfs, null, time);
+		if (tree == null)
+			return null;
+
+		tree.nbrPins = 1;
+		synchronized (ENTRIES) {
+			String key = getKey(getFingerprint(structure, tree.owners), "uncached" + (++nbrUncached));
+			PINNED.put(key, tree);
+			return key;
+		}
+	}
+
+	/** Creates a cache entry
+	 * @param <V> 			the type used for variable values
+	 * @param <U> 			the type used for utility values
+	 * @param problem 		the problem
+	 * @param structure 	the structure of the problem's constraint graph
+	 * @param dfs 			for each variable, its view of the pseudo-tree
+	 * @param msgNbrs 		for each message type, the number of messages sent during the solve; may be \c null if messages were not counted
+	 * @param time 			the time (in ms) needed to compute the pseudo-tree
+	 * @return the entry, or \c null if the pseudo-tree is incomplete
+	 */
+	private static < V extends Addable<V>, U extends Addable<U> > CachedTree newTree (DCOPProblemInterface<V, U> problem,
+			TreeMap< String, TreeSet<String> > structure, Map< String, DFSview<V, U> > dfs, Map<String, Integer> msgNbrs, long time) {
+
+		if (! dfs.keySet().containsAll(structure.keySet())) // incomplete pseudo-tree
+			return null;
+
+		// Strip the spaces from the views, which are specific to this problem instance
+		HashMap< String, DFSview<?, ?> > views = new HashMap< String, DFSview<?, ?> > (dfs.size());
+		for (Map.Entry< String, DFSview<V, U> > entry : dfs.entrySet()) {
+			DFSview<V, U> view = entry.getValue().clone();
+			view.setSpaces(null);
+			views.put(entry.getKey(), view);
+		}
+
+		long nbrMsgs = 0;
+		if (msgNbrs != null) {
+			for (String type : SAVED_MSG_TYPES) {
+				Integer nbr = msgNbrs.get(type);
+				if (nbr != null)
+					nbrMsgs += nbr;
+			}
+		}
+
+		return new CachedTree (structure, problem.getOwners(), views, nbrMsgs, time);
+	}
+
+	/** Returns the views of a pseudo-tree pinned by setCachedDFS()
+	 * @param fingerprint 	the fingerprint of the constraint graph
+	 * @param vars 			the variables whose views are requested
+	 * @return for each input variable, a copy of its view of the pseudo-tree, without any spaces; \c null if the pseudo-tree is not pinned
+	 */
+	@SuppressWarnings("unchecked")
+	static < V extends Addable<V>, U extends Addable<U> > HashMap< String, DFSview<V, U> > getViews (String fingerprint, Collection<String> vars) {
+
+		CachedTree entry;
+		synchronized (ENTRIES) {
+			entry = PINNED.get(fingerprint);
+		}
+		if (entry == null)
+			return null;
+
+		HashMap< String, DFSview<V, U> > views = new HashMap< String, DFSview<V, U> > (vars.size());
+		for (String var : vars) {
+			DFSview<V, U> view = (DFSview<V, U>) entry.dfs.get(var);
+			if (view == null)
+				return null;
+			views.put(var, view.clone());
+		}
+
+		return views;
+	}
+
+	/** Configures an agent description to use a cached pseudo-tree
+	 *
+	 * All VariableElection, LeaderElectionMaxID, DFSgeneration and DFSgenerationParallel modules are removed,
+	 * and a CachedDFSgeneration module is inserted in place of the first one. On success, the pseudo-tree is pinned
+	 * so that it cannot be evicted before the agents have read it, and the caller must call release() once the solve is over.
+	 * @param agentDesc 	the agent description
+	 * @param fingerprint 	the key of the pseudo-tree, as returned by lookup(), record() or pinUncached()
+	 * @return \c false if the agent description was left unchanged because it uses DFS or election modules that the cache cannot replace,
+	 * or because the pseudo-tree has been evicted from the cache since the lookup
+	 */
+	public static boolean setCachedDFS (Document agentDesc, String fingerprint) {
+
+		Element modsElmt = agentDesc.getRootElement().getChild("modules");
+		if (modsElmt == null)
+			return false;
+
+		// Look for the modules to be replaced
+		ArrayList<Element> replaced = new ArrayList<Element> ();
+		String withSharedVars = null;
+		for (Element module : modsElmt.getChildren()) {
+			String className = module.getAttributeValue("className");
+
+			if (className.equals(VariableElection.class.getName()) || className.equals(LeaderElectionMaxID.class.getName()))
+				replaced.add(module);
+
+			else if (className.equals(DFSgeneration.class.getName())) {
+				replaced.add(module);
+				withSharedVars = module.getAttributeValue("withSharedVars");
+			}
+
+			else if (className.equals(DFSgenerationParallel.class.getName())) {
+				Element dfsElmt = module.getChild("dfsGeneration");
+				if (dfsElmt != null && ! dfsElmt.getAttributeValue("className").equals(DFSgeneration.class.getName()))
+					return false; // the underlying DFS generation module might produce additional outputs
+				replaced.add(module);
+				if (dfsElmt != null)
+					withSharedVars = dfsElmt.getAttributeValue("withSharedVars");
+			}
+
+			else if (className.startsWith(DFSgeneration.class.getPackage().getName()))
+				return false; // other DFS generation modules produce additional outputs
+		}
+		if (replaced.isEmpty() || ! pin(fingerprint))
+			return false;
+
+		// Replace them with a CachedDFSgeneration module
+		Element cachedElmt = new Element ("module");
+		cachedElmt.setAttribute("className", CachedDFSgeneration.class.getName());
+		cachedElmt.setAttribute("fingerprint", fingerprint);
+		if (withSharedVars != null)
+			cachedElmt.setAttribute("withSharedVars", withSharedVars);
+		modsElmt.setContent(modsElmt.indexOf(replaced.get(0)), cachedElmt);
+		for (Element module : replaced.subList(1, replaced.size()))
+			modsElmt.removeContent(module);
+
+		return true;
+	}
+
+	/** Prevents a cached pseudo-tree from becoming unavailable until release() is called
+	 * @param fingerprint 	the fingerprint of the constraint graph
+	 * @return \c false if the pseudo-tree is neither in the cache nor already pinned
+	 */
+	private static boolean pin (String fingerprint) {
+
+		synchronized (ENTRIES) {
+			CachedTree entry = PINNED.get(fingerprint);
+			if (entry == null && (entry = ENTRIES.get(fingerprint)) == null)
+				return false;
+			entry.nbrPins++;
+			PINNED.put(fingerprint, entry);
+			return true;
+		}
+	}
+
+	/** Releases a pseudo-tree pinned by setCachedDFS()
+	 * @param fingerprint 	the fingerprint of the constraint graph
+	 */
+	public static void release (String fingerprint) {
+
+		synchronized (ENTRIES) {
+			CachedTree entry = PINNED.get(fingerprint);
+			if (entry != null && --entry.nbrPins == 0)
+				PINNED.remove(fingerprint);
+		}
+	}
+
+	/** @return the number of lookups since the last call to clear() */
+	public static int getNbrLookups () {
+		synchronized (ENTRIES) {
+			return nbrLookups;
+		}
+	}
+
+	/** @return the number of lookups that hit the cache since the last call to clear() */
+	public static int getNbrHits () {
+		synchronized (ENTRIES) {
+			return nbrHits;
+		}
+	}
+
+	/** @return the ratio of lookups that hit the cache since the last call to clear(), or 0 if there has been no lookup */
+	public static double getHitRate () {
+		synchronized (ENTRIES) {
+			return (nbrLookups == 0 ? 0.0 : nbrHits / (double) nbrLookups);
+		}
+	}
+
+	/** @return the total number of root election and DFS generation messages saved by cache hits
+	 * @note Only counts messages if they were measured (i.e. if \c measureMsgs was enabled) when the pseudo-trees were computed.
+	 */
+	public static long getSavedMsgs () {
+		synchronized (ENTRIES) {
+			return savedMsgs;
+		}
+	}
+
+	/** @return the total time (in ms) saved by cache hits, as measured by the solvers when the pseudo-trees were computed */
+	public static long getSavedTime () {
+		synchronized (ENTRIES) {
+			return savedTime;
+		}
+	}
+
+	/** Empties the cache and resets the statistics */
+	public static void clear () {
+		synchronized (ENTRIES) {
+			ENTRIES.clear();
+			nbrLookups = 0;
+			nbrHits = 0;
+			savedMsgs = 0;
+			savedTime = 0;
+		}
+	}
+
+}
@@ -0,0 +1,794 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.varOrdering.dfs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.filter.Filters;
+
+import frodo2.algorithms.heuristics.EliminationOrderHeuristic;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration.DFSview;
+import frodo2.solutionSpaces.Addable;
+
+/** A centralized optimizer for the DFS pseudo-trees constructed by DFSgeneration
+ * 
+ * When the whole constraint graph is known to a single JVM, a good variable elimination order can be computed 
+ * offline and passed to the agents, which then follow it when electing roots and choosing children 
+ * (via the EliminationOrderHeuristic). The optimizer computes min-fill and min-degree (i.e. min-induced-width) 
+ * elimination orders with randomized tie-breaking, restarting until a time limit is reached. Each candidate order 
+ * is evaluated by simulating the DFS traversal it induces, and the one with the smallest maximum separator size 
+ * is kept; since DPOP's UTIL messages are exponential in the separator size, this directly bounds their size. 
+ * 
+ * Alternatively, balance() looks for a pseudo-tree of small depth, in which UTIL propagation can proceed in parallel 
+ * in many branches. It additionally computes min-fill orders constrained by nested dissections of various depths, which 
+ * recursively eliminate last a separator near the centre of the graph, and keeps the order whose induced pseudo-tree has 
+ * the smallest depth, among those whose 
+ * maximum separator size exceeds the smallest one found by at most a given amount. That pseudo-tree is not necessarily 
+ * a DFS tree, and is therefore passed to the agents directly, via the PseudoTreeCache. 
+ * @see EliminationOrderHeuristic
+ * @see PseudoTreeCache
+ */
+public class PseudoTreeOptimizer {
+	
+	/** The variables */
+	private final String[] vars;
+	
+	/** For each variable, the indexes of its neighbors */
+	private final int[][] neighbors;
+	
+	/** The random number generator used to break ties */
+	private final Random rand;
+	
+	/** The best elimination order found so far, as variable indexes */
+	private int[] bestOrder;
+	
+	/** The maximum separator size of the pseudo-tree induced by the best order */
+	private int bestMaxSep = Integer.MAX_VALUE;
+	
+	/** The total separator size of the pseudo-tree induced by the best order, used to break ties */
+	private long bestTotalSep = Long.MAX_VALUE;
+	
+	/** The number of elimination orders computed */
+	private int nbrRestarts;
+	
+	/** For each maximum separator size, the elimination order found by balance() whose induced pseudo-tree has the smallest depth */
+	private TreeMap<Integer, int[]> balancedOrders = new TreeMap<Integer, int[]> ();
+	
+	/** For each maximum separator size, the depth of the pseudo-tree induced by the corresponding order in balancedOrders */
+	private TreeMap<Integer, Integer> balancedDepths = new TreeMap<Integer, Integer> ();
+	
+	/** The number of elimination orders computed by balance() */
+	private int nbrBalancingRestarts;
+	
+	/** The depth of the pseudo-tree induced by the last order returned by balance() */
+	private int balancedDepth = -1;
+	
+	/** The maximum separator size of the pseudo-tree induced by the last order returned by balance() */
+	private int balancedMaxSep = -1;
+	
+	/** Constructor
+	 * @param neighborhoods 	for each variable, its neighbors in the constraint graph
+	 */
+	public PseudoTreeOptimizer (Map< String, ? extends Collection<String> > neighborhoods) {
+		this(neighborhoods, new Random ());
+	}
+	
+	/** Constructor
+	 * @param neighborhoods 	for each variable, its neighbors in the constraint graph
+	 * @param rand 				the random number generator used to break ties
+	 */
+	public PseudoTreeOptimizer (Map< String, ? extends Collection<String> > neighborhoods, Random rand) {
+		
+		this.rand = rand;
+		
+		// Index the variables, including neighbors that have no neighborhood of their own
+		HashMap<String, Integer> indexes = new HashMap<String, Integer> ();
+		ArrayList<String> varList = new ArrayList<String> (neighborhoods.size());
+		for (Map.Entry< String, ? extends Collection<String> > entry : neighborhoods.entrySet()) {
+			index(entry.getKey(), indexes, varList);
+			for (String neighbor : entry.getValue()) 
+				index(neighbor, indexes, varList);
+		}
+		this.vars = varList.toArray(new String [varList.size()]);
+		
+		// Build the symmetric adjacency lists
+		ArrayList< HashSet<Integer> > adj = new ArrayList< HashSet<Integer> > (this.vars.length);
+		for (int i = 0; i < this.vars.length; i++) 
+			adj.add(new HashSet<Integer> ());
+		for (Map.Entry< String, ? extends Collection<String> > entry : neighborhoods.entrySet()) {
+			int var = indexes.get(entry.getKey());
+			for (String neighbor : entry.getValue()) {
+				int other = indexes.get(neighbor);
+				if (other != var) {
+					adj.get(var).add(other);
+					adj.get(other).add(var);
+				}
+			}
+		}
+		this.neighbors = new int [this.vars.length][];
+		for (int i = 0; i < this.vars.length; i++) {
+			int[] nbrs = new int [adj.get(i).size()];
+			int j = 0;
+			for (Integer other : adj.get(i)) 
+				nbrs[j++] = other;
+			this.neighbors[i] = nbrs;
+		}
+	}
+	
+	/** Adds a variable to the index if it is not already in it
+	 * @param var 		the variable
+	 * @param indexes 	the index of each variable
+	 * @param varList 	the list of variables
+	 */
+	private static void index (String var, HashMap<String, Integer> indexes, ArrayList<String> varList) {
+		if (! indexes.containsKey(var)) {
+			indexes.put(var, varList.size());
+			varList.add(var);
+		}
+	}
+	
+	/** Computes elimination orders until the time limit is reached
+	 * 
+	 * At least one order is always computed, regardless of the time limit. 
+	 * Calling this method again continues the search from the best order found so far. 
+	 * @param timeLimit 	the time limit in ms
+	 * @return the best elimination order found, starting with the first variable eliminated
+	 */
+	public List<String> optimize (long timeLimit) {
+		
+		final long deadline = System.currentTimeMillis() + timeLimit;
+		do {
+			// Alternate between the min-fill and the min-degree criteria
+			int[] order = this.eliminate(this.nbrRestarts++ % 2 == 0, null);
+			long[] sep = this.evaluate(order);
+			if (sep[0] < this.bestMaxSep || (sep[0] == this.bestMaxSep && sep[1] < this.bestTotalSep)) {
+				this.bestOrder = order;
+				this.bestMaxSep = (int) sep[0];
+				this.bestTotalSep = sep[1];
+			}
+		} while (this.bestMaxSep > 1 && System.currentTimeMillis() < deadline);
+		
+		return this.getOrder();
+	}
+	
+	/** @return the best elimination order found so far, starting with the first variable eliminated; \c null if optimize() has not been called */
+	public List<String> getOrder () {
+		
+		if (this.bestOrder == null) 
+			return null;
+		
+		ArrayList<String> order = new ArrayList<String> (this.bestOrder.length);
+		for (int var : this.bestOrder) 
+			order.add(this.vars[var]);
+		return order;
+	}
+	
+	/** @return the maximum separator size of the pseudo-tree induced by the best order found so far */
+	public int getMaxSeparatorSize () {
+		return this.bestMaxSep;
+	}
+	
+	/** @return the number of elimination orders computed so far */
+	public int getNbrRestarts () {
+		return this.nbrRestarts;
+	}
+	
+	/** Computes elimination orders until the time limit is reached, and returns the one whose induced pseudo-tree has the smallest depth
+	 * 
+	 * The pseudo-tree induced by an elimination order is the one in which the parent of each variable is its neighbor in the 
+	 * induced graph that is eliminated first after it. Only the orders whose pseudo-tree has a maximum separator size that exceeds 
+	 * the smallest one found by at most \a maxSepIncrease are considered. At least one order is always computed for each possible 
+	 * nested dissection depth, regardless of the time limit. Calling this method again continues the search. 
+	 * @param timeLimit 		the time limit in ms
+	 * @param maxSepIncrease 	the maximum allowed increase in the maximum separator size, in order to reduce the depth
+	 * @return the chosen elimination order, starting with the first variable eliminated
+	 * @see #getPseudoTree(Map, List, Map)
+	 */
+	public List<String> balance (long timeLimit, int maxSepIncrease) {
+		
+		final long deadline = System.currentTimeMillis() + timeLimit;
+		final int maxDissectionDepth = 32 - Integer.numberOfLeadingZeros(this.vars.length);
+		do {
+			// Alternate between plain min-fill, and min-fill constrained by nested dissections of increasing depths
+			int dissectionDepth = this.nbrBalancingRestarts++ % (maxDissectionDepth + 1);
+			int[] order = this.eliminate(true, dissectionDepth == 0 ? null : this.dissect(dissectionDepth));
+			int[] stats = this.evaluateTree(order, null);
+			Integer depth = this.balancedDepths.get(stats[0]);
+			if (depth == null || stats[1] < depth) {
+				this.balancedOrders.put(stats[0], order);
+				this.balancedDepths.put(stats[0], stats[1]);
+			}
+		} while (this.nbrBalancingRestarts <= maxDissectionDepth || System.currentTimeMillis() < deadline);
+		
+		// Choose the order with the smallest depth among the ones with an acceptable separator size
+		int bestMaxSep = -1;
+		int bestDepth = Integer.MAX_VALUE;
+		for (Map.Entry<Integer, Integer> entry : this.balancedDepths.headMap(this.balancedDepths.firstKey() + maxSepIncrease, true).entrySet()) {
+			if (entry.getValue() < bestDepth) {
+				bestMaxSep = entry.getKey();
+				bestDepth = entry.getValue();
+			}
+		}
+		this.balancedMaxSep = bestMaxSep;
+		this.balancedDepth = bestDepth;
+		
+		int[] order = this.balancedOrders.get(bestMaxSep);
+		ArrayList<String> out = new ArrayList<String> (order.length);
+		for (int var : order) 
+			out.add(this.vars[var]);
+		return out;
+	}
+	
+	/** @return the depth (i.e. the number of levels) of the pseudo-tree induced by the last order returned by balance(); -1 if balance() has not been called */
+	public int getBalancedDepth () {
+		return this.balancedDepth;
+	}
+	
+	/** @return the maximum separator size of the pseudo-tree induced by the last order returned by balance(); -1 if balance() has not been called */
+	public int getBalancedMaxSeparatorSize () {
+		return this.balancedMaxSep;
+	}
+	
+	/** Computes the maximum separator size of the pseudo-tree induced by a given elimination order
+	 * @param neighborhoods 	for each variable, its neighbors in the constraint graph
+	 * @param order 			the elimination order, starting with the first variable eliminated
+	 * @return the maximum separator size
+	 */
+	public static int getMaxSeparatorSize (Map< String, ? extends Collection<String> > neighborhoods, List<String> order) {
+		
+		// Variables missing from the order are eliminated first
+		PseudoTreeOptimizer optimizer = new PseudoTreeOptimizer (neighborhoods);
+		return (int) optimizer.evaluate(optimizer.toIndexes(order))[0];
+	}
+	
+	/** Computes a greedy elimination order
+	 * @param minFill 	if \c true, eliminates the variable that adds the fewest fill-in edges; otherwise, the variable with the fewest neighbors
+	 * @param ranks 	if not \c null, the variables with higher ranks are constrained to be eliminated first
+	 * @return the elimination order, as variable indexes
+	 */
+	@SuppressWarnings("unchecked")
+	private int[] eliminate (boolean minFill, int[] ranks) {
+		
+		final int nbrVars = this.vars.length;
+		HashSet<Integer>[] adj = new HashSet [nbrVars];
+		for (int i = 0; i < nbrVars; i++) {
+			adj[i] = new HashSet<Integer> (this.neighbors[i].length * 2);
+			for (int other : this.neighbors[i]) 
+				adj[i].add(other);
+		}
+		
+		int[] costs = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) 
+			costs[i] = (minFill ? fill(adj, i) : adj[i].size());
+		
+		int[] order = new int [nbrVars];
+		boolean[] eliminated = new boolean [nbrVars];
+		for (int step = 0; step < nbrVars; step++) {
+			
+			// Choose the variable with the lowest cost, breaking ties randomly
+			int next = -1;
+			int nbrTies = 0;
+			for (int i = 0; i < nbrVars; i++) {
+				if (eliminated[i]) 
+					continue;
+				if (next < 0 || (ranks != null && ranks[i] > ranks[next]) 
+						|| ((ranks == null || ranks[i] == ranks[next]) && costs[i] < costs[next])) {
+					next = i;
+					nbrTies = 1;
+				} else if ((ranks == null || ranks[i] == ranks[next]) && costs[i] == costs[next] && this.rand.nextInt(++nbrTies) == 0) 
+					next = i;
+			}
+			order[step] = next;
+			eliminated[next] = true;
+			
+			// Eliminate it, connecting all its neighbors
+			HashSet<Integer> nbrs = adj[next];
+			adj[next] = null;
+			for (Integer other : nbrs) 
+				adj[other].remove(next);
+			for (Integer other1 : nbrs) 
+				for (Integer other2 : nbrs) 
+					if (other1 < other2 && adj[other1].add(other2)) 
+						adj[other2].add(other1);
+			
+			// Update the costs of the variables affected
+			if (minFill) {
+				HashSet<Integer> affected = new HashSet<Integer> (nbrs);
+				for (Integer other : nbrs) 
+					affected.addAll(adj[other]);
+				for (Integer other : affected) 
+					costs[other] = fill(adj, other);
+			} else 
+				for (Integer other : nbrs) 
+					costs[other] = adj[other].size();
+		}
+		
+		return order;
+	}
+	
+	/** Computes a randomized nested dissection of the constraint graph
+	 * 
+	 * Each connected component is split by a separator made of one level of a breadth-first traversal 
+	 * started at a peripheral variable, choosing the smallest level close to the middle, i.e. near the centre 
+	 * of the component. The sub-components are split recursively, up to the given depth. 
+	 * @param maxDepth 	the maximum recursion depth, i.e. the number of times a component can be split
+	 * @return for each variable, the recursion depth at which it was put in a separator or in an unsplit component; 
+	 * eliminating the variables with higher ranks first yields a pseudo-tree whose top levels follow the dissection
+	 * @see #eliminate(boolean, int[])
+	 */
+	private int[] dissect (final int maxDepth) {
+		
+		final int nbrVars = this.vars.length;
+		int[] ranks = new int [nbrVars];
+		
+		// The component each variable currently belongs to; -1 once it has been ranked
+		int[] comps = new int [nbrVars];
+		int nbrComps = 0;
+		
+		int[] levels = new int [nbrVars];
+		int[] queue = new int [nbrVars];
+		ArrayList<int[]> pending = new ArrayList<int[]> ();
+		
+		// Initially, the components are the connected components of the graph
+		int[] all = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) 
+			all[i] = i;
+		nbrComps = this.splitComponents(all, comps, nbrComps, queue, pending);
+		ArrayList<Integer> depths = new ArrayList<Integer> ();
+		for (int i = pending.size(); i > 0; i--) 
+			depths.add(0);
+		
+		while (! pending.isEmpty()) {
+			int[] comp = pending.remove(pending.size() - 1);
+			final int depth = depths.remove(depths.size() - 1);
+			final int id = comps[comp[0]];
+			
+			// Find a peripheral variable, and perform a breadth-first traversal from it
+			int maxLevel = 0;
+			if (depth < maxDepth && comp.length > 2) {
+				int start = queue[this.bfs(comp[this.rand.nextInt(comp.length)], id, comps, levels, queue)];
+				maxLevel = levels[queue[this.bfs(start, id, comps, levels, queue)]];
+			}
+			
+			if (maxLevel < 2) { // leave the component unsplit
+				for (int var : comp) {
+					ranks[var] = depth;
+					comps[var] = -1;
+				}
+				continue;
+			}
+			
+			// Choose the smallest level between the first and last quarters
+			int[] levelSizes = new int [maxLevel + 1];
+			for (int var : comp) 
+				levelSizes[levels[var]]++;
+			int sepLevel = maxLevel / 2;
+			for (int level = Math.max(1, maxLevel / 4); level <= Math.min(maxLevel - 1, (3 * maxLevel + 3) / 4); level++) 
+				if (levelSizes[level] < levelSizes[sepLevel]) 
+					sepLevel = level;
+			
+			// The separator only contains the variables in that level that have neighbors in the next level
+			for (int var : comp) {
+				if (levels[var] != sepLevel) 
+					continue;
+				for (int other : this.neighbors[var]) {
+					if (comps[other] == id && levels[other] == sepLevel + 1) {
+						ranks[var] = depth;
+						comps[var] = -1;
+						break;
+					}
+				}
+			}
+			
+			// Split the rest of the component
+			int[] rest = new int [comp.length];
+			int nbrRest = 0;
+			for (int var : comp) 
+				if (comps[var] >= 0) 
+					rest[nbrRest++] = var;
+			int nbrPending = pending.size();
+			nbrComps = this.splitComponents(Arrays.copyOf(rest, nbrRest), comps, nbrComps, queue, pending);
+			for (int i = pending.size() - nbrPending; i > 0; i--) 
+				depths.add(depth + 1);
+		}
+		
+		return ranks;
+	}
+	
+	/** Performs a breadth-first traversal within a component
+	 * @param start 	the variable at which to start
+	 * @param comp 		the ID of the component
+	 * @param comps 	the component of each variable
+	 * @param levels 	output parameter: the level of each variable visited
+	 * @param queue 	output parameter: the variables visited, in the order they were visited
+	 * @return the index in \a queue of the last variable visited
+	 */
+	private int bfs (int start, int comp, int[] comps, int[] levels, int[] queue) {
+		
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = start;
+		comps[start] = -2 - comp; // marks the variable as visited
+		levels[start] = 0;
+		while (head < tail) {
+			int var = queue[head++];
+			for (int other : this.neighbors[var]) {
+				if (comps[other] == comp) {
+					comps[other] = -2 - comp;
+					levels[other] = levels[var] + 1;
+					queue[tail++] = other;
+				}
+			}
+		}
+		
+		// Unmark the visited variables
+		for (int i = 0; i < tail; i++) 
+			comps[queue[i]] = comp;
+		
+		return tail - 1;
+	}
+	
+	/** Splits a set of variables into connected components
+	 * @param vars 		the variables
+	 * @param comps 	the component of each variable, updated for the input variables
+	 * @param nbrComps 	the number of component IDs used so far
+	 * @param queue 	a buffer of size at least the total number of variables
+	 * @param pending 	the list of components, to which the new components are added
+	 * @return the new number of component IDs used
+	 */
+	private int splitComponents (int[] vars, int[] comps, int nbrComps, int[] queue, List<int[]> pending) {
+		
+		// Mark the input variables as belonging to a temporary component
+		final int tmp = nbrComps++;
+		for (int var : vars) 
+			comps[var] = tmp;
+		
+		for (int var : vars) {
+			if (comps[var] != tmp) 
+				continue;
+			
+			// Traverse the new component
+			final int id = nbrComps++;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = var;
+			comps[var] = id;
+			while (head < tail) {
+				int next = queue[head++];
+				for (int other : this.neighbors[next]) {
+					if (comps[other] == tmp) {
+						comps[other] = id;
+						queue[tail++] = other;
+					}
+				}
+			}
+			pending.add(Arrays.copyOf(queue, tail));
+		}
+		
+		return nbrComps;
+	}
+	
+	/** Computes the pseudo-tree induced by an elimination order
+	 * 
+	 * The parent of each variable is its neighbor in the induced graph that is eliminated first after it. 
+	 * @param order 	the elimination order, as variable indexes
+	 * @param parents 	output parameter (ignored if \c null): the parent of each variable, or -1 for roots
+	 * @return the maximum separator size, the depth (i.e. the number of levels) and the total separator size of the pseudo-tree
+	 */
+	@SuppressWarnings("unchecked")
+	private int[] evaluateTree (int[] order, int[] parents) {
+		
+		final int nbrVars = this.vars.length;
+		int[] positions = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) 
+			positions[order[i]] = i;
+		
+		HashSet<Integer>[] adj = new HashSet [nbrVars];
+		for (int i = 0; i < nbrVars; i++) {
+			adj[i] = new HashSet<Integer> (this.neighbors[i].length * 2);
+			for (int other : this.neighbors[i]) 
+				adj[i].add(other);
+		}
+		
+		if (parents == null) 
+			parents = new int [nbrVars];
+		int maxSep = 0;
+		int totalSep = 0;
+		for (int var : order) {
+			
+			// The separator consists of the neighbors in the induced graph, which are all eliminated later
+			HashSet<Integer> sep = adj[var];
+			adj[var] = null;
+			maxSep = Math.max(maxSep, sep.size());
+			totalSep += sep.size();
+			
+			int parent = -1;
+			for (Integer other : sep) {
+				adj[other].remove(var);
+				if (parent < 0 || positions[other] < positions[parent]) 
+					parent = other;
+			}
+			parents[var] = parent;
+			
+			for (Integer other1 : sep) 
+				for (Integer other2 : sep) 
+					if (other1 < other2 && adj[other1].add(other2)) 
+						adj[other2].add(other1);
+		}
+		
+		// Compute the depths top-down
+		int[] depths = new int [nbrVars];
+		int depth = 0;
+		for (int i = nbrVars - 1; i >= 0; i--) {
+			int var = order[i];
+			depths[var] = (parents[var] < 0 ? 1 : depths[parents[var]] + 1);
+			depth = Math.max(depth, depths[var]);
+		}
+		
+		return new int[] { maxSep, depth, totalSep };
+	}
+	
+	/** Constructs the pseudo-tree induced by an elimination order, as returned by balance()
+	 * 
+	 * The parent of each variable is its neighbor in the induced graph that is eliminated first after it, 
+	 * and its other neighbors eliminated after it are its pseudo-parents. 
+	 * @param <V> 				the type used for variable values
+	 * @param <U> 				the type used for utility values
+	 * @param neighborhoods 	for each variable, its neighbors in the constraint graph
+	 * @param order 			the elimination order, starting with the first variable eliminated; variables missing from the order are eliminated first
+	 * @param owners 			for each variable, its owner
+	 * @return for each variable, its view of the pseudo-tree, without any spaces
+	 */
+	public static < V extends Addable<V>, U extends Addable<U> > HashMap< String, DFSview<V, U> > getPseudoTree (
+			Map< String, ? extends Collection<String> > neighborhoods, List<String> order, Map<String, String> owners) {
+		
+		PseudoTreeOptimizer optimizer = new PseudoTreeOptimizer (neighborhoods);
+		final int nbrVars = optimizer.vars.length;
+		int[] orderArray = optimizer.toIndexes(order);
+		int[] positions = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) 
+			positions[orderArray[i]] = i;
+		int[] parents = new int [nbrVars];
+		optimizer.evaluateTree(orderArray, parents);
+		
+		ArrayList< DFSview<V, U> > views = new ArrayList< DFSview<V, U> > (nbrVars);
+		for (int var = 0; var < nbrVars; var++) 
+			views.add(new DFSview<V, U> (optimizer.vars[var]));
+		
+		// Add the tree edges, top-down
+		for (int i = nbrVars - 1; i >= 0; i--) {
+			int var = orderArray[i];
+			int parent = parents[var];
+			if (parent >= 0) {
+				views.get(var).setParent(optimizer.vars[parent], owners.get(optimizer.vars[parent]));
+				views.get(parent).addChild(optimizer.vars[var]);
+			}
+		}
+		
+		// Add the back edges
+		for (int var = 0; var < nbrVars; var++) {
+			for (int other : optimizer.neighbors[var]) {
+				if (positions[other] < positions[var] || other == parents[var]) 
+					continue;
+				
+				// other is an ancestor of var; look up its child on the path to var
+				int child = var;
+				while (parents[child] != other) 
+					child = parents[child];
+				views.get(var).addPseudoParent(optimizer.vars[other]);
+				views.get(other).addPseudoChild(optimizer.vars[child], optimizer.vars[var]);
+			}
+		}
+		
+		HashMap< String, DFSview<V, U> > out = new HashMap< String, DFSview<V, U> > (nbrVars);
+		for (DFSview<V, U> view : views) 
+			out.put(view.getID(), view);
+		return out;
+	}
+	
+	/** Converts an order of variable names into an order of variable indexes
+	 * @param order 	the order; variables missing from it are put first
+	 * @return the order, as variable indexes
+	 */
+	private int[] toIndexes (List<String> order) {
+		
+		HashMap<String, Integer> indexes = new HashMap<String, Integer> (this.vars.length);
+		for (int i = 0; i < this.vars.length; i++) 
+			indexes.put(this.vars[i], i);
+		
+		ArrayList<Integer> orderIndexes = new ArrayList<Integer> (this.vars.length);
+		HashSet<String> inOrder = new HashSet<String> (order);
+		for (String var : this.vars) 
+			if (! inOrder.contains(var)) 
+				orderIndexes.add(indexes.get(var));
+		for (String var : order) 
+			if (indexes.containsKey(var)) 
+				orderIndexes.add(indexes.get(var));
+		
+		int[] orderArray = new int [orderIndexes.size()];
+		for (int i = 0; i < orderArray.length; i++) 
+			orderArray[i] = orderIndexes.get(i);
+		return orderArray;
+	}
+	
+	/** Computes the number of fill-in edges that eliminating a variable would add
+	 * @param adj 	the current adjacency sets
+	 * @param var 	the variable
+	 * @return the number of pairs of neighbors of \a var that are not neighbors of each other
+	 */
+	private static int fill (HashSet<Integer>[] adj, int var) {
+		
+		int fill = 0;
+		for (Integer other1 : adj[var]) 
+			for (Integer other2 : adj[var]) 
+				if (other1 < other2 && ! adj[other1].contains(other2)) 
+					fill++;
+		return fill;
+	}
+	
+	/** Simulates the DFS traversal induced by an elimination order and computes its separators
+	 * 
+	 * The root of each connected component is its last variable eliminated, and each variable's next child is 
+	 * its open neighbor that is eliminated last, which is what the EliminationOrderHeuristic yields 
+	 * when used both for root election and as the DFS heuristic. 
+	 * @param order 	the elimination order, as variable indexes
+	 * @return the maximum and the total separator sizes
+	 */
+	private long[] evaluate (int[] order) {
+		
+		final int nbrVars = this.vars.length;
+		final int[] positions = new int [nbrVars];
+		for (int i = 0; i < nbrVars; i++) 
+			positions[order[i]] = i;
+		
+		// Sort each variable's neighbors by decreasing position
+		int[][] sortedNbrs = new int [nbrVars][];
+		for (int i = 0; i < nbrVars; i++) {
+			Integer[] nbrs = new Integer [this.neighbors[i].length];
+			for (int j = 0; j < nbrs.length; j++) 
+				nbrs[j] = this.neighbors[i][j];
+			Arrays.sort(nbrs, new Comparator<Integer> () {
+				public int compare(Integer o1, Integer o2) {
+					return Integer.compare(positions[o2], positions[o1]);
+				}
+			});
+			sortedNbrs[i] = new int [nbrs.length];
+			for (int j = 0; j < nbrs.length; j++) 
+				sortedNbrs[i][j] = nbrs[j];
+		}
+		
+		// Perform the DFS traversals, starting each one at the last variable eliminated that has not been visited yet
+		int[] depths = new int [nbrVars];
+		Arrays.fill(depths, -1);
+		int[] parents = new int [nbrVars];
+		int[] nextNbr = new int [nbrVars];
+		int[] preorder = new int [nbrVars];
+		int nbrVisited = 0;
+		int[] stack = new int [nbrVars];
+		for (int i = nbrVars - 1; i >= 0; i--) {
+			int root = order[i];
+			if (depths[root] >= 0) 
+				continue;
+			
+			depths[root] = 0;
+			parents[root] = -1;
+			preorder[nbrVisited++] = root;
+			int top = 0;
+			stack[0] = root;
+			while (top >= 0) {
+				int var = stack[top];
+				int[] nbrs = sortedNbrs[var];
+				while (nextNbr[var] < nbrs.length && depths[nbrs[nextNbr[var]]] >= 0) 
+					nextNbr[var]++;
+				if (nextNbr[var] == nbrs.length) { // backtrack
+					top--;
+					continue;
+				}
+				int child = nbrs[nextNbr[var]++];
+				depths[child] = depths[var] + 1;
+				parents[child] = var;
+				preorder[nbrVisited++] = child;
+				stack[++top] = child;
+			}
+		}
+		
+		// Compute the separators bottom-up: each variable's separator contains its neighbors above it, 
+		// and its children's separators, minus itself
+		@SuppressWarnings("unchecked")
+		HashSet<Integer>[] seps = new HashSet [nbrVars];
+		long maxSep = 0;
+		long totalSep = 0;
+		for (int i = nbrVars - 1; i >= 0; i--) {
+			int var = preorder[i];
+			HashSet<Integer> sep = seps[var];
+			if (sep == null) 
+				sep = new HashSet<Integer> ();
+			for (int other : this.neighbors[var]) 
+				if (depths[other] < depths[var]) 
+					sep.add(other);
+			seps[var] = null;
+			
+			maxSep = Math.max(maxSep, sep.size());
+			totalSep += sep.size();
+			
+			int parent = parents[var];
+			if (parent >= 0) {
+				sep.remove(parent);
+				if (seps[parent] == null) 
+					seps[parent] = sep;
+				else 
+					seps[parent].addAll(sep);
+			}
+		}
+		
+		return new long[] { maxSep, totalSep };
+	}
+	
+	/** Configures an agent description so that its DFS modules follow a given elimination order
+	 * 
+	 * All \c rootElectionHeuristic and \c dfsHeuristic elements in the agent description are replaced 
+	 * so as to use the EliminationOrderHeuristic, which can be used with DFSgeneration and all its subclasses. 
+	 * @param agentDesc 	the agent description
+	 * @param order 		the elimination order, starting with the first variable eliminated
+	 */
+	public static void setOrder (Document agentDesc, List<String> order) {
+		
+		StringBuilder builder = new StringBuilder ();
+		for (String var : order) 
+			builder.append(var).append(' ');
+		String orderString = builder.toString().trim();
+		
+		ArrayList<Element> elmts = new ArrayList<Element> ();
+		for (Element elmt : agentDesc.getRootElement().getDescendants(Filters.element())) 
+			if (elmt.getName().equals("rootElectionHeuristic") || elmt.getName().equals("dfsHeuristic")) 
+				elmts.add(elmt);
+		
+		for (Element elmt : elmts) {
+			elmt.removeContent();
+			elmt.getAttributes().clear();
+			
+			if (elmt.getName().equals("rootElectionHeuristic")) {
+				elmt.setAttribute("className", EliminationOrderHeuristic.class.getName());
+				elmt.setAttribute("order", orderString);
+			} else {
+				elmt.setAttribute("className", DFSgeneration.BlindScoringHeuristic.class.getName());
+				Element scoringElmt = new Element ("scoringHeuristic");
+				scoringElmt.setAttribute("className", EliminationOrderHeuristic.class.getName());
+				scoringElmt.setAttribute("order", orderString);
+				elmt.addContent(scoringElmt);
+			}
+		}
+	}
+
+}
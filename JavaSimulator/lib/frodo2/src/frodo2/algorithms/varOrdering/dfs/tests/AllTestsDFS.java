@@ -42,6 +42,10 @@ public class AllTestsDFS {
 		
 		suite.addTest(LocalRandVarsDFStest.suite());
 		
+		suite.addTest(PseudoTreeOptimizerTest.suite());
+		
+		suite.addTest(PseudoTreeCacheTest.suite());
+		
 		//$JUnit-END$
 		return suite;
 	}
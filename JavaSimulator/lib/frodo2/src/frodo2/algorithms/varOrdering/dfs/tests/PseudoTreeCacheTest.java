@@ -0,0 +1,299 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.varOrdering.dfs.tests;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.Problem;
+import frodo2.algorithms.Solution;
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.dpop.DPOPsolver;
+import frodo2.algorithms.test.AllTests;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration.DFSview;
+import frodo2.algorithms.varOrdering.dfs.PseudoTreeCache;
+import frodo2.solutionSpaces.AddableInteger;
+
+/** JUnit test case for PseudoTreeCache */
+public class PseudoTreeCacheTest extends TestCase {
+
+	/** @return the test suite */
+	public static TestSuite suite () {
+		TestSuite suite = new TestSuite ("Tests for PseudoTreeCache");
+
+		TestSuite tmp = new TestSuite ("Tests that DPOP reuses the cached pseudo-tree");
+		tmp.addTest(new RepeatedTest (new PseudoTreeCacheTest ("testDPOP"), 100));
+		suite.addTest(tmp);
+
+		tmp = new TestSuite ("Tests that DPOP reuses the cached pseudo-tree when solving components in parallel");
+		tmp.addTest(new RepeatedTest (new PseudoTreeCacheTest ("testDPOPparallel"), 50));
+		suite.addTest(tmp);
+
+		tmp = new TestSuite ("Tests that agents that own no variable terminate when using the cached pseudo-tree");
+		tmp.addTest(new RepeatedTest (new PseudoTreeCacheTest ("testIdleAgent"), 50));
+		suite.addTest(tmp);
+
+		tmp = new TestSuite ("Tests that a pseudo-tree in use remains available after it has been evicted from the cache");
+		tmp.addTest(new RepeatedTest (new PseudoTreeCacheTest ("testEviction"), 20));
+		suite.addTest(tmp);
+
+		tmp = new TestSuite ("Tests that balanced and DFS pseudo-trees are cached separately");
+		tmp.addTest(new RepeatedTest (new PseudoTreeCacheTest ("testBalanced"), 50));
+		suite.addTest(tmp);
+
+		return suite;
+	}
+
+	/** Constructor
+	 * @param method 	name of the test method
+	 */
+	public PseudoTreeCacheTest (String method) {
+		super (method);
+	}
+
+	/** @see junit.framework.TestCase#setUp() */
+	@Override
+	protected void setUp () {
+		PseudoTreeCache.clear();
+	}
+
+	/** @see junit.framework.TestCase#tearDown() */
+	@Override
+	protected void tearDown () {
+		PseudoTreeCache.clear();
+	}
+
+	/** Solves the same problem twice and checks that the second solve uses the cached pseudo-tree
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testDPOP () throws Exception {
+		this.test(false);
+	}
+
+	/** Same as testDPOP(), but solving the independent components in parallel
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testDPOPparallel () throws Exception {
+		this.test(true);
+	}
+
+	/** Solves the same problem twice and checks that the second solve uses the cached pseudo-tree
+	 * @param parallel 		whether to solve the independent components in parallel
+	 * @throws Exception 	if an error occurs
+	 */
+	private void test (boolean parallel) throws Exception {
+
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(10, 15, 10, maximize);
+
+		// First solve: cache miss
+		DPOPsolver<AddableInteger, AddableInteger> solver = new DPOPsolver<AddableInteger, AddableInteger> ();
+		solver.setParallelComponents(parallel);
+		solver.setPseudoTreeCaching(true);
+		Solution<AddableInteger, AddableInteger> sol = solver.solve(problem, false);
+		assertEquals(1, PseudoTreeCache.getNbrLookups());
+		assertEquals(0, PseudoTreeCache.getNbrHits());
+		HashMap< String, DFSview<AddableInteger, AddableInteger> > dfs = new HashMap< String, DFSview<AddableInteger, AddableInteger> > (solver.getDFS());
+
+		// Second solve with a new solver: cache hit
+		solver = new DPOPsolver<AddableInteger, AddableInteger> ();
+		solver.setParallelComponents(parallel);
+		solver.setPseudoTreeCaching(true);
+		Solution<AddableInteger, AddableInteger> sol2 = solver.solve(problem, false);
+		assertEquals(2, PseudoTreeCache.getNbrLookups());
+		assertEquals(1, PseudoTreeCache.getNbrHits());
+		assertEquals(0.5, PseudoTreeCache.getHitRate());
+
+		// Check that the solutions and the pseudo-trees are the same
+		assertEquals(sol.getUtility(), sol2.getUtility());
+		assertEquals(sol.getTreeWidth(), sol2.getTreeWidth());
+		Map< String, DFSview<AddableInteger, AddableInteger> > dfs2 = solver.getDFS();
+		assertEquals(dfs.keySet(), dfs2.keySet());
+		for (Map.Entry< String, DFSview<AddableInteger, AddableInteger> > entry : dfs.entrySet()) {
+			DFSview<AddableInteger, AddableInteger> view = entry.getValue();
+			DFSview<AddableInteger, AddableInteger> view2 = dfs2.get(entry.getKey());
+			assertEquals(view.getParent(), view2.getParent());
+			assertEquals(view.getChildren(), view2.getChildren());
+			assertEquals(view.getPseudoParents(), view2.getPseudoParents());
+			assertEquals(view.getAllPseudoChildren(), view2.getAllPseudoChildren());
+			assertEquals(view.getSpaces().size(), view2.getSpaces().size());
+		}
+
+		// Solving a problem with a different constraint graph must not hit the cache
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger> (problem);
+		Document other = AllTests.createRandProblem(10, 15, 10, maximize);
+		if (! PseudoTreeCache.getFingerprint(parser).equals(PseudoTreeCache.getFingerprint(new XCSPparser<AddableInteger, AddableInteger> (other)))) {
+			solver = new DPOPsolver<AddableInteger, AddableInteger> ();
+			solver.setParallelComponents(parallel);
+			solver.setPseudoTreeCaching(true);
+			assertEquals(new DPOPsolver<AddableInteger, AddableInteger> ().solve(other).getUtility(), solver.solve(other, false).getUtility());
+			assertEquals(1, PseudoTreeCache.getNbrHits());
+		}
+	}
+
+	/** Solves twice a problem with an agent that owns no variable, and checks that the second solve uses the cached pseudo-tree
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testIdleAgent () throws Exception {
+
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(10, 15, 10, maximize);
+		Element agentsElmt = problem.getRootElement().getChild("agents");
+		Element agentElmt = new Element ("agent");
+		agentElmt.setAttribute("name", "idleAgent");
+		agentsElmt.addContent(agentElmt);
+		agentsElmt.setAttribute("nbAgents", Integer.toString(agentsElmt.getChildren().size()));
+		AddableInteger optimum = new DPOPsolver<AddableInteger, AddableInteger> ().solve(problem).getUtility();
+
+		// Without simulated time, the solver waits for all agents to report that they have finished
+		Document agentDesc = XCSPparser.parse("src/frodo2/algorithms/dpop/DPOPagent.xml", false);
+		agentDesc.getRootElement().setAttribute("measureTime", "false");
+
+		for (int i = 1; i <= 2; i++) {
+			DPOPsolver<AddableInteger, AddableInteger> solver = new DPOPsolver<AddableInteger, AddableInteger> (agentDesc);
+			solver.setPseudoTreeCaching(true);
+			Solution<AddableInteger, AddableInteger> sol = solver.solve(problem, 10000L);
+			assertNotNull("Timeout", sol);
+			assertEquals(optimum, sol.getUtility());
+			assertEquals(i - 1, PseudoTreeCache.getNbrHits());
+		}
+	}
+
+	/** Evicts a pseudo-tree after an agent description has been configured to use it, and checks that the solve still succeeds
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testEviction () throws Exception {
+
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(10, 15, 10, maximize);
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger> (problem);
+		DPOPsolver<AddableInteger, AddableInteger> solver = new DPOPsolver<AddableInteger, AddableInteger> ();
+		solver.setPseudoTreeCaching(true);
+		AddableInteger optimum = solver.solve(problem).getUtility();
+
+		// Configure an agent description to use the cached pseudo-tree
+		String fingerprint = PseudoTreeCache.lookup(parser);
+		assertNotNull(fingerprint);
+		Document agentDesc = XCSPparser.parse("src/frodo2/algorithms/dpop/DPOPagent.xml", false);
+		assertTrue(PseudoTreeCache.setCachedDFS(agentDesc, fingerprint));
+
+		// Fill the cache with the pseudo-trees of other problems
+		for (int i = 0; i < PseudoTreeCache.CAPACITY; i++) {
+			Problem<AddableInteger, AddableInteger> other = new Problem<AddableInteger, AddableInteger> (maximize);
+			other.addVariable("evicting_" + i, "agent", new AddableInteger[] { new AddableInteger (0) });
+			HashMap< String, DFSview<AddableInteger, AddableInteger> > dfs = new HashMap< String, DFSview<AddableInteger, AddableInteger> > ();
+			dfs.put("evicting_" + i, new DFSview<AddableInteger, AddableInteger> ("evicting_" + i));
+			assertNotNull(PseudoTreeCache.record(other, dfs, null, 0));
+		}
+		assertNull(PseudoTreeCache.lookup(parser));
+
+		// The pinned pseudo-tree must still be usable, until it is released
+		Solution<AddableInteger, AddableInteger> sol = new DPOPsolver<AddableInteger, AddableInteger> (agentDesc).solve(problem, 10000L);
+		assertNotNull("Timeout", sol);
+		assertEquals(optimum, sol.getUtility());
+		PseudoTreeCache.release(fingerprint);
+		assertFalse(PseudoTreeCache.setCachedDFS(XCSPparser.parse("src/frodo2/algorithms/dpop/DPOPagent.xml", false), fingerprint));
+	}
+
+	/** Checks that balanced pseudo-trees are only looked up by solves requiring balanced pseudo-trees with the same parameters,
+	 * and that they are not recorded when caching is disabled
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testBalanced () throws Exception {
+
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(10, 15, 10, maximize);
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger> (problem);
+		AddableInteger optimum = new DPOPsolver<AddableInteger, AddableInteger> ().solve(problem).getUtility();
+
+		// Without caching, the balanced pseudo-tree must not be recorded
+		DPOPsolver<AddableInteger, AddableInteger> solver = new DPOPsolver<AddableInteger, AddableInteger> (balancedAgent(1));
+		assertEquals(optimum, solver.solve(problem, false).getUtility());
+		assertEquals(parser.getNbrVars(), solver.getDFS().size());
+		assertNull(PseudoTreeCache.lookup(parser));
+		PseudoTreeCache.clear();
+
+		// Record a DFS tree, and check that a balanced solve does not use it
+		solver = new DPOPsolver<AddableInteger, AddableInteger> ();
+		solver.setPseudoTreeCaching(true);
+		assertEquals(optimum, solver.solve(problem, false).getUtility());
+		HashMap<String, String> parents = getParents(solver.getDFS());
+		solver = new DPOPsolver<AddableInteger, AddableInteger> (balancedAgent(1));
+		solver.setPseudoTreeCaching(true);
+		assertEquals(optimum, solver.solve(problem, false).getUtility());
+		assertEquals(2, PseudoTreeCache.getNbrLookups());
+		assertEquals(0, PseudoTreeCache.getNbrHits());
+		HashMap<String, String> balancedParents = getParents(solver.getDFS());
+
+		// The DFS tree and the balanced pseudo-tree must each be reused by solves of the same kind
+		solver = new DPOPsolver<AddableInteger, AddableInteger> ();
+		solver.setPseudoTreeCaching(true);
+		assertEquals(optimum, solver.solve(problem, false).getUtility());
+		assertEquals(1, PseudoTreeCache.getNbrHits());
+		assertEquals(parents, getParents(solver.getDFS()));
+		solver = new DPOPsolver<AddableInteger, AddableInteger> (balancedAgent(1));
+		solver.setPseudoTreeCaching(true);
+		assertEquals(optimum, solver.solve(problem, false).getUtility());
+		assertEquals(2, PseudoTreeCache.getNbrHits());
+		assertEquals(balancedParents, getParents(solver.getDFS()));
+
+		// A balanced solve with different parameters must not use the cached balanced pseudo-tree
+		solver = new DPOPsolver<AddableInteger, AddableInteger> (balancedAgent(2));
+		solver.setPseudoTreeCaching(true);
+		assertEquals(optimum, solver.solve(problem, false).getUtility());
+		assertEquals(5, PseudoTreeCache.getNbrLookups());
+		assertEquals(2, PseudoTreeCache.getNbrHits());
+	}
+
+	/** @return a DPOP agent description that requires a balanced pseudo-tree
+	 * @param maxSepIncrease 	the maximum increase in separator size allowed when balancing the pseudo-tree
+	 * @throws Exception 		if an error occurs
+	 */
+	private static Document balancedAgent (int maxSepIncrease) throws Exception {
+
+		Document agentDesc = XCSPparser.parse("src/frodo2/algorithms/dpop/DPOPagent.xml", false);
+		Element dfsElmt = agentDesc.getRootElement().getChild("modules").getChildren().get(0);
+		dfsElmt.setAttribute("balanced", "true");
+		dfsElmt.setAttribute("maxSepIncrease", Integer.toString(maxSepIncrease));
+		return agentDesc;
+	}
+
+	/** @return for each variable, its parent in the input pseudo-tree
+	 * @param dfs 	for each variable, its view of the pseudo-tree
+	 */
+	private static HashMap<String, String> getParents (Map< String, DFSview<AddableInteger, AddableInteger> > dfs) {
+
+		HashMap<String, String> parents = new HashMap<String, String> ();
+		for (Map.Entry< String, DFSview<AddableInteger, AddableInteger> > entry : dfs.entrySet())
+			parents.put(entry.getKey(), entry.getValue().getParent());
+		return parents;
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.varOrdering.dfs.tests;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.jdom2.Document;
+
+import frodo2.algorithms.Solution;
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.dpop.DPOPsolver;
+import frodo2.algorithms.test.AllTests;
+import frodo2.algorithms.varOrdering.dfs.PseudoTreeCache;
+import frodo2.algorithms.varOrdering.dfs.PseudoTreeOptimizer;
+import frodo2.algorithms.varOrdering.dfs.DFSgeneration.DFSview;
+import frodo2.solutionSpaces.AddableInteger;
+
+/** JUnit test case for PseudoTreeOptimizer */
+public class PseudoTreeOptimizerTest extends TestCase {
+	
+	/** @return the test suite */
+	public static TestSuite suite () {
+		TestSuite suite = new TestSuite ("Tests for PseudoTreeOptimizer");
+		
+		TestSuite tmp = new TestSuite ("Tests that DPOP follows the optimized pseudo-tree");
+		tmp.addTest(new RepeatedTest (new PseudoTreeOptimizerTest ("testDPOP"), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests on hospital-like ladder graphs");
+		tmp.addTest(new RepeatedTest (new PseudoTreeOptimizerTest ("testLadder"), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests that DPOP finds the optimal solution on a balanced pseudo-tree");
+		tmp.addTest(new RepeatedTest (new PseudoTreeOptimizerTest ("testBalancedDPOP"), 100));
+		suite.addTest(tmp);
+		
+		tmp = new TestSuite ("Tests the balancing of pseudo-trees on hospital-like ladder graphs");
+		tmp.addTest(new RepeatedTest (new PseudoTreeOptimizerTest ("testBalancedLadder"), 100));
+		suite.addTest(tmp);
+		
+		return suite;
+	}
+	
+	/** Constructor
+	 * @param method 	name of the test method
+	 */
+	public PseudoTreeOptimizerTest (String method) {
+		super (method);
+	}
+	
+	/** Checks that DPOP finds the optimal solution on the optimized pseudo-tree, and that its separators are as predicted
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testDPOP () throws Exception {
+		
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(10, 20, 10, maximize);
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger> (problem);
+		
+		PseudoTreeOptimizer optimizer = new PseudoTreeOptimizer (parser.getNeighborhoods());
+		List<String> order = optimizer.optimize(10);
+		assertEquals(parser.getNbrVars(), order.size());
+		assertEquals(optimizer.getMaxSeparatorSize(), PseudoTreeOptimizer.getMaxSeparatorSize(parser.getNeighborhoods(), order));
+		
+		// Solve using the optimized order
+		Document agentDesc = XCSPparser.parse("src/frodo2/algorithms/dpop/DPOPagent.xml", false);
+		PseudoTreeOptimizer.setOrder(agentDesc, order);
+		Solution<AddableInteger, AddableInteger> sol = new DPOPsolver<AddableInteger, AddableInteger> (agentDesc).solve(problem);
+		assertTrue(sol.getTreeWidth() <= optimizer.getMaxSeparatorSize()); // messages between variables of the same agent are not counted
+		
+		// Compare with the default pseudo-tree
+		DPOPsolver<AddableInteger, AddableInteger> solver = new DPOPsolver<AddableInteger, AddableInteger> ();
+		AddableInteger optUtil = solver.solve(problem).getUtility();
+		assertEquals(optUtil, sol.getUtility());
+		
+		// Use the option of the DPOPsolver
+		solver = new DPOPsolver<AddableInteger, AddableInteger> ();
+		solver.setPseudoTreeOptimization(10L);
+		assertEquals(optUtil, solver.solve(problem).getUtility());
+	}
+	
+	/** Checks that the optimized pseudo-tree for a hospital floor, with two rows of facing rooms, has separators of size at most 2 */
+	public void testLadder () {
+		
+		// Generate a ladder with a random number of rungs
+		int nbrRungs = 2 + (int) (Math.random() * 50);
+		HashMap< String, Set<String> > neighborhoods = new HashMap< String, Set<String> > ();
+		for (int i = 0; i < nbrRungs; i++) {
+			neighborhoods.put("l" + i, new HashSet<String> ());
+			neighborhoods.put("r" + i, new HashSet<String> ());
+		}
+		for (int i = 0; i < nbrRungs; i++) {
+			link(neighborhoods, "l" + i, "r" + i);
+			if (i > 0) {
+				link(neighborhoods, "l" + i, "l" + (i-1));
+				link(neighborhoods, "r" + i, "r" + (i-1));
+			}
+		}
+		
+		PseudoTreeOptimizer optimizer = new PseudoTreeOptimizer (neighborhoods);
+		List<String> order = optimizer.optimize(10);
+		assertEquals(2 * nbrRungs, order.size());
+		assertTrue(optimizer.getMaxSeparatorSize() <= 2);
+		assertEquals(optimizer.getMaxSeparatorSize(), PseudoTreeOptimizer.getMaxSeparatorSize(neighborhoods, order));
+	}
+	
+	/** Checks that DPOP finds the optimal solution on a balanced pseudo-tree, and that this pseudo-tree is consistent
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testBalancedDPOP () throws Exception {
+		
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(10, 20, 10, maximize);
+		XCSPparser<AddableInteger, AddableInteger> parser = new XCSPparser<AddableInteger, AddableInteger> (problem);
+		
+		PseudoTreeOptimizer optimizer = new PseudoTreeOptimizer (parser.getNeighborhoods());
+		List<String> order = optimizer.balance(10, 1);
+		assertEquals(parser.getNbrVars(), order.size());
+		assertTrue(optimizer.getBalancedDepth() >= 1 && optimizer.getBalancedDepth() <= parser.getNbrVars());
+		
+		// Check that the pseudo-tree is consistent: each constraint links a variable to one of its ancestors
+		Map< String, DFSview<AddableInteger, AddableInteger> > dfs = PseudoTreeOptimizer.getPseudoTree(parser.getNeighborhoods(), order, parser.getOwners());
+		assertEquals(parser.getNbrVars(), dfs.size());
+		HashMap< String, HashSet<String> > ancestors = new HashMap< String, HashSet<String> > ();
+		int depth = 0;
+		for (Map.Entry< String, DFSview<AddableInteger, AddableInteger> > entry : dfs.entrySet()) {
+			String var = entry.getKey();
+			DFSview<AddableInteger, AddableInteger> view = entry.getValue();
+			if (view.getParent() != null) 
+				assertTrue(dfs.get(view.getParent()).getChildren().contains(var));
+			
+			HashSet<String> myAncestors = new HashSet<String> ();
+			for (String parent = view.getParent(); parent != null; parent = dfs.get(parent).getParent()) 
+				myAncestors.add(parent);
+			ancestors.put(var, myAncestors);
+			depth = Math.max(depth, myAncestors.size() + 1);
+			
+			for (String pseudo : view.getPseudoParents()) 
+				assertTrue(myAncestors.contains(pseudo) && dfs.get(pseudo).getAllPseudoChildren().contains(var));
+		}
+		for (String var : dfs.keySet()) 
+			for (String neighbor : parser.getNeighborVars(var)) 
+				assertTrue(ancestors.get(var).contains(neighbor) || ancestors.get(neighbor).contains(var));
+		assertEquals(optimizer.getBalancedDepth(), depth);
+		
+		// Solve using the balanced pseudo-tree
+		AddableInteger optUtil = new DPOPsolver<AddableInteger, AddableInteger> ().solve(problem).getUtility();
+		Document agentDesc = XCSPparser.parse("src/frodo2/algorithms/dpop/DPOPagent.xml", false);
+		agentDesc.getRootElement().getChild("modules").getChildren().get(0).setAttribute("balanced", "true");
+		PseudoTreeCache.clear();
+		DPOPsolver<AddableInteger, AddableInteger> solver = new DPOPsolver<AddableInteger, AddableInteger> (agentDesc);
+		assertEquals(optUtil, solver.solve(problem, false).getUtility());
+		assertEquals(parser.getNbrVars(), solver.getDFS().size());
+		PseudoTreeCache.clear();
+	}
+	
+	/** Checks that the balanced pseudo-tree for a long hospital floor is much shallower than a chain */
+	public void testBalancedLadder () {
+		
+		// Generate a ladder with a random number of rungs
+		int nbrRungs = 16 + (int) (Math.random() * 50);
+		HashMap< String, Set<String> > neighborhoods = new HashMap< String, Set<String> > ();
+		for (int i = 0; i < nbrRungs; i++) {
+			neighborhoods.put("l" + i, new HashSet<String> ());
+			neighborhoods.put("r" + i, new HashSet<String> ());
+		}
+		for (int i = 0; i < nbrRungs; i++) {
+			link(neighborhoods, "l" + i, "r" + i);
+			if (i > 0) {
+				link(neighborhoods, "l" + i, "l" + (i-1));
+				link(neighborhoods, "r" + i, "r" + (i-1));
+			}
+		}
+		
+		PseudoTreeOptimizer optimizer = new PseudoTreeOptimizer (neighborhoods);
+		List<String> order = optimizer.balance(10, 3);
+		assertEquals(2 * nbrRungs, order.size());
+		assertTrue(optimizer.getBalancedMaxSeparatorSize() <= 5);
+		assertTrue(optimizer.getBalancedDepth() + " >= " + nbrRungs, optimizer.getBalancedDepth() < nbrRungs);
+	}
+	
+	/** Adds an edge to a graph
+	 * @param neighborhoods 	the neighborhoods in the graph
+	 * @param var1 				the first variable
+	 * @param var2 				the second variable
+	 */
+	private static void link (Map< String, Set<String> > neighborhoods, String var1, String var2) {
+		neighborhoods.get(var1).add(var2);
+		neighborhoods.get(var2).add(var1);
+	}
+	
+}
@@ -0,0 +1,296 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+*/
+
+package frodo2.algorithms.varOrdering.election;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import frodo2.communication.Message;
+import frodo2.communication.Queue;
+
+/** A leader election protocol based on echo waves with extinction, which detects its own termination
+ *
+ * Contrary to LeaderElectionMaxID, this protocol does not need to know an upper bound on the diameter of the graph.
+ * Each agent starts a wave labeled with its ID, unless it has already joined a wave with a higher ID.
+ * An agent joins a wave with a higher ID than its current one by choosing the sender as its parent,
+ * and forwarding the wave to all its other neighbors; waves with lower IDs are dropped.
+ * Waves with equal IDs are ordered by the communication IDs of their initiators, so that the protocol terminates
+ * even if the IDs are not unique; only one agent then claims to be the leader.
+ * When an agent has received the wave it has joined from all its neighbors, it echoes it back to its parent.
+ * Only the wave of the agent with the highest ID completes; this agent then knows it is the leader,
+ * and sends an announcement down the spanning tree built by its wave.
+ * The protocol terminates within about 3 times the eccentricity of the leader in rounds of messages.
+ * @param <T> the type used for agent IDs
+ */
+public class LeaderElectionEcho < T extends Comparable <T> & Serializable > extends LeaderElectionMaxID<T> {
+
+	/** The type of the messages used to propagate waves */
+	public static final String WAVE_MSG_TYPE = "LEwave";
+
+	/** The type of the messages used to echo waves back to their initiators */
+	public static final String ECHO_MSG_TYPE = "LEecho";
+
+	/** The type of the messages used by the leader to announce the end of the election */
+	public static final String DONE_MSG_TYPE = "LEdone";
+
+	/** Message used to propagate a wave
+	 * @param <T> the type used for agent IDs
+	 */
+	public static class WaveMsg < T extends Comparable <T> & Serializable > extends MaxIDmsg<T> {
+
+		/** Used for serialization */
+		private static final long serialVersionUID = 5512043317271386716L;
+
+		/** The communication ID of the initiator of the wave */
+		private String initiator;
+
+		/** The parent of the sender in the wave; \c null if the sender initiated the wave */
+		private String parent;
+
+		/** Empty constructor */
+		public WaveMsg () {
+			super ();
+		}
+
+		/** Constructor
+		 * @param type 		the type of the message
+		 * @param sender 	the ID of the sender agent
+		 * @param waveID 	the ID of the initiator of the wave
+		 * @param initiator the communication ID of the initiator of the wave
+		 * @param parent 	the parent of the sender in the wave; \c null if the sender initiated the wave
+		 */
+		public WaveMsg (String type, String sender, T waveID, String initiator, String parent) {
+			super (type, sender, waveID);
+			this.initiator = initiator;
+			this.parent = parent;
+		}
+
+		/** @see MaxIDmsg#writeExternal(ObjectOutput) */
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeObject(super.type);
+			super.writeExternal(out);
+			out.writeObject(this.initiator);
+			out.writeObject(this.parent);
+		}
+
+		/** @see MaxIDmsg#readExternal(ObjectInput) */
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			String type = (String) in.readObject();
+			super.readExternal(in);
+			super.type = type;
+			this.initiator = (String) in.readObject();
+			this.parent = (String) in.readObject();
+		}
+
+		/** @see frodo2.communication.MessageWith2Payloads#clone() */
+		@Override
+		public WaveMsg<T> clone () {
+			return new WaveMsg<T> (super.type, this.getSender(), this.getMaxID(), this.initiator, this.parent);
+		}
+
+		/** @return the communication ID of the initiator of the wave */
+		public String getInitiator () {
+			return this.initiator;
+		}
+
+		/** @return the parent of the sender in the wave; \c null if the sender initiated the wave */
+		public String getParent () {
+			return this.parent;
+		}
+
+		/** @see MaxIDmsg#toString() */
+		@Override
+		public String toString () {
+			return "Message " + super.type + "\n\tsender: " + getSender() + "\n\twaveID: " + getMaxID() + "\n\tinitiator: " + this.initiator + "\n\tparent: " + this.parent;
+		}
+	}
+
+	/** The queue on which it should call sendMessage() */
+	private Queue queue;
+
+	/** Communication ID, used to identify the agent as the sender of messages */
+	private final String comID;
+
+	/** The neighbors of this agent */
+	private Collection<String> neighbors;
+
+	/** The communication ID of the initiator of the wave this agent has joined */
+	private String initiator;
+
+	/** The parent of this agent in the wave it has joined; \c null if it is its own wave */
+	private String parent;
+
+	/** The neighbors that have joined the current wave with this agent as their parent */
+	private ArrayList<String> children = new ArrayList<String> ();
+
+	/** The number of neighbors from which this agent has received the current wave */
+	private int nbrReceived = 0;
+
+	/** Whether this agent has already received the message that tells it to start the protocol */
+	private boolean started = false;
+
+	/** Whether this agent has already sent its output */
+	private boolean done = false;
+
+	/** Constructor
+	 * @param comID 		communication ID used to identify this agent as the sender of messages
+	 * @param myID 			ID that uniquely identifies this agent
+	 * @param neighbors 	the neighbors of this agent
+	 */
+	public LeaderElectionEcho (String comID, T myID, Collection <String> neighbors) {
+		super (comID, myID, neighbors, 0);
+		this.comID = comID;
+		this.initiator = comID;
+		this.neighbors = neighbors;
+	}
+
+	/** @see LeaderElectionMaxID#getMsgTypes() */
+	@Override
+	public Collection <String> getMsgTypes() {
+		ArrayList <String> msgTypes = new ArrayList <String> (4);
+		msgTypes.add(START_MSG_TYPE);
+		msgTypes.add(WAVE_MSG_TYPE);
+		msgTypes.add(ECHO_MSG_TYPE);
+		msgTypes.add(DONE_MSG_TYPE);
+		return msgTypes;
+	}
+
+	/** @see LeaderElectionMaxID#setQueue(Queue) */
+	@Override
+	public void setQueue(Queue queue) {
+		super.setQueue(queue);
+		this.queue = queue;
+	}
+
+	/** The actual algorithm
+	 *
+	 * Waves may be received before the message telling the agent to start;
+	 * if the agent has then already joined a wave with a higher ID, it does not start its own.
+	 * Messages may be delivered to agents that are neighbors of the sender but are not concerned;
+	 * the \a parent field of the WaveMsg is used to filter them out.
+	 * @see LeaderElectionMaxID#notifyIn(Message)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void notifyIn(Message msg) {
+
+		if (this.done)
+			return;
+
+		String msgType = msg.getType();
+
+		if (msgType.equals(START_MSG_TYPE)) { // start my own wave, unless I have already joined a wave with a higher ID
+
+			if (this.started)
+				return;
+			this.started = true;
+
+			if (this.neighbors.isEmpty()) { // I'm alone in my connected component
+				this.terminate(true);
+				return;
+			}
+
+			if (this.initiator.equals(this.comID))
+				this.queue.sendMessageToMulti(this.neighbors, new WaveMsg<T> (WAVE_MSG_TYPE, this.comID, this.myID, this.comID, null));
+			return;
+		}
+
+		WaveMsg<T> msg2 = (WaveMsg<T>) msg;
+		String sender = msg2.getSender();
+		T waveID = msg2.getMaxID();
+		String initiator = msg2.getInitiator();
+
+		if (msgType.equals(DONE_MSG_TYPE)) { // the leader has been elected
+
+			if (sender.equals(this.parent))
+				this.terminate(false);
+			return;
+		}
+
+		if (msgType.equals(WAVE_MSG_TYPE)) {
+
+			int cmp = waveID.compareTo(this.maxID);
+			if (cmp == 0)
+				cmp = initiator.compareTo(this.initiator);
+			if (cmp < 0) // drop the wave
+				return;
+
+			else if (cmp > 0) { // join the new wave, and forward it to all my other neighbors
+				this.maxID = waveID;
+				this.initiator = initiator;
+				this.parent = sender;
+				this.children.clear();
+				this.nbrReceived = 0;
+
+				if (this.neighbors.size() > 1) {
+					ArrayList<String> others = new ArrayList<String> (this.neighbors);
+					others.remove(sender);
+					this.queue.sendMessageToMulti(others, new WaveMsg<T> (WAVE_MSG_TYPE, this.comID, waveID, initiator, sender));
+				}
+			}
+
+			else if (this.comID.equals(msg2.getParent())) // the sender has joined the wave as my child; wait for its echo
+				return;
+		}
+
+		else if (msgType.equals(ECHO_MSG_TYPE)) {
+
+			if (! this.comID.equals(msg2.getParent()) || ! initiator.equals(this.initiator)) // not for me
+				return;
+			this.children.add(sender);
+		}
+
+		// Check whether I have received the current wave from all my neighbors
+		if (++this.nbrReceived < this.neighbors.size())
+			return;
+
+		if (this.parent == null) { // my own wave has completed; I am the leader
+			this.terminate(true);
+		} else // echo the wave back to my parent
+			this.queue.sendMessageToMulti(Collections.singleton(this.parent), new WaveMsg<T> (ECHO_MSG_TYPE, this.comID, this.maxID, this.initiator, this.parent));
+	}
+
+	/** Sends the output of the protocol, and announces the end of the election to the children
+	 * @param isLeader 	whether this agent is the leader
+	 */
+	private void terminate (boolean isLeader) {
+
+		this.done = true;
+
+		if (! this.children.isEmpty())
+			this.queue.sendMessageToMulti(this.children, new WaveMsg<T> (DONE_MSG_TYPE, this.comID, this.maxID, this.initiator, this.parent));
+
+		this.queue.sendMessageToSelf(new MessageLEoutput<T> (this.comID, isLeader, this.maxID));
+
+		this.neighbors = null;
+		this.children = null;
+	}
+
+}
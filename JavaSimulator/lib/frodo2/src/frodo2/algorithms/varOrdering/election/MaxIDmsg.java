@@ -50,6 +50,15 @@ public class MaxIDmsg < T extends Comparable <T> & Serializable > extends Messag
 	public MaxIDmsg (String sender, T maxID) {
 		super (LeaderElectionMaxID.LE_MSG_TYPE, sender, maxID);
 	}
+	
+	/** Constructor used by subclasses
+	 * @param type 		the type of the message
+	 * @param sender 	the ID of the sender agent
+	 * @param maxID 	the current maxID
+	 */
+	protected MaxIDmsg (String type, String sender, T maxID) {
+		super (type, sender, maxID);
+	}
 
 	/** @see java.io.Externalizable#writeExternal(java.io.ObjectOutput) */
 	public void writeExternal(ObjectOutput out) throws IOException {
@@ -65,6 +65,9 @@ public class VariableElection < S extends Comparable <S> & Serializable > extend
 	
 	/** The number of steps the protocol should run before it terminates */
 	protected int nbrSteps;
+	
+	/** Whether to use LeaderElectionEcho, which detects its own termination, instead of running for a fixed number of steps */
+	protected boolean echo = false;
 
 	/** The heuristic */
 	protected ScoringHeuristic<S> heuristic;
@@ -98,12 +101,15 @@ public class VariableElection < S extends Comparable <S> & Serializable > extend
 	 * @param problem description of the problem
 	 * @param parameters description of the parameters of this protocol
 	 * @throws Exception if an error occurs
-	 * @warning \a nbrSteps must be an upper bound on the total number of variables for the algorithm to work properly. 
+	 * @warning \a nbrSteps must be an upper bound on the total number of variables for the algorithm to work properly, 
+	 * unless \a echo is \c true, in which case \a nbrSteps is ignored. 
 	 */
 	@SuppressWarnings("unchecked")
 	public VariableElection (DCOPProblemInterface<?, ?> problem, Element parameters) throws Exception {
 		this.problem = problem;
-		this.nbrSteps = Integer.parseInt(parameters.getAttributeValue("nbrSteps"));
+		this.echo = Boolean.parseBoolean(parameters.getAttributeValue("echo"));
+		if (! this.echo) 
+			this.nbrSteps = Integer.parseInt(parameters.getAttributeValue("nbrSteps"));
 		
 		// Instantiate the heuristic 
 		Element heuristicParams = parameters.getChild("varElectionHeuristic");
@@ -159,16 +165,24 @@ public class VariableElection < S extends Comparable <S> & Serializable > extend
 	 * @return a new LeaderElectionMaxID
 	 */
 	protected LeaderElectionMaxID<S> newListener (String var, S score, Collection<String> neighbors) {
+		if (this.echo) 
+			return new LeaderElectionEcho<S> (var, score, neighbors);
 		return new LeaderElectionMaxID<S> (var, score, neighbors, nbrSteps);
 	}
 	
-	/** Listens to messages of types LeaderElectionMaxID.START_MSG_TYPE and LeaderElectionMaxID.LE_MSG_TYPE. 
+	/** Listens to messages of types LeaderElectionMaxID.START_MSG_TYPE and LeaderElectionMaxID.LE_MSG_TYPE, 
+	 * or the message types of LeaderElectionEcho if \a echo is \c true. 
 	 * @see frodo2.communication.IncomingMsgPolicyInterface#getMsgTypes()
 	 */
 	public Collection <String> getMsgTypes() {
-		ArrayList <String> msgTypes = new ArrayList <String> (3);
+		ArrayList <String> msgTypes = new ArrayList <String> (5);
 		msgTypes.add(START_MSG_TYPE);
-		msgTypes.add(LeaderElectionMaxID.LE_MSG_TYPE);
+		if (this.echo) {
+			msgTypes.add(LeaderElectionEcho.WAVE_MSG_TYPE);
+			msgTypes.add(LeaderElectionEcho.ECHO_MSG_TYPE);
+			msgTypes.add(LeaderElectionEcho.DONE_MSG_TYPE);
+		} else 
+			msgTypes.add(LeaderElectionMaxID.LE_MSG_TYPE);
 		msgTypes.add(FINISH_MSG_TYPE);
 		return msgTypes;
 	}
@@ -206,7 +220,7 @@ public class VariableElection < S extends Comparable <S> & Serializable > extend
 			}
 		}
 		
-		else if (msgType.equals(LeaderElectionMaxID.LE_MSG_TYPE)) { // This message contains a value for the maximum score
+		else { // This message was sent by a neighboring variable
 			
 			// Extract the message's sender variable
 			MaxIDmsg<S> msg2 = (MaxIDmsg<S>) msg;
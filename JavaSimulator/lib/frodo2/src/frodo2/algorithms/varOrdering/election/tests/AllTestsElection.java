@@ -37,6 +37,7 @@ public class AllTestsElection {
 		//$JUnit-BEGIN$
 
 		suite.addTest(LeaderElectionMaxIDTest.suite());
+		suite.addTest(LeaderElectionEchoTest.suite());
 		suite.addTest(VariableElectionTest.suite());
 
 		suite.addTest(VarElectionMessengerTest.suite());
@@ -0,0 +1,107 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+*/
+
+package frodo2.algorithms.varOrdering.election.tests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.extensions.RepeatedTest;
+import junit.framework.TestSuite;
+
+import frodo2.algorithms.RandGraphFactory;
+import frodo2.algorithms.varOrdering.election.LeaderElectionEcho;
+import frodo2.algorithms.varOrdering.election.LeaderElectionMaxID;
+
+/** JUnit test for the class LeaderElectionEcho */
+public class LeaderElectionEchoTest extends LeaderElectionMaxIDTest<String> {
+
+	/** Constructor that instantiates a test only for the input method
+	 * @param method test method
+	 */
+	public LeaderElectionEchoTest(String method) {
+		super (method);
+	}
+
+	/** @return the test suite for this test */
+	public static TestSuite suite () {
+		TestSuite testSuite = new TestSuite ("Tests for LeaderElectionEcho");
+		
+		TestSuite testTmp = new TestSuite ("Tests for LeaderElectionEcho using shared memory pipes");
+		testTmp.addTest(new RepeatedTest (new LeaderElectionEchoTest ("testRandomSharedMemory"), 1000));
+		testSuite.addTest(testTmp);
+		
+		testTmp = new TestSuite ("Tests for LeaderElectionEcho using TCP pipes");
+		testTmp.addTest(new RepeatedTest (new LeaderElectionEchoTest ("testRandomTCP"), 100));
+		testSuite.addTest(testTmp);
+		
+		testTmp = new TestSuite ("Tests for LeaderElectionEcho on large rings using shared memory pipes");
+		testTmp.addTest(new RepeatedTest (new LeaderElectionEchoTest ("testRing"), 100));
+		testSuite.addTest(testTmp);
+		
+		return testSuite;
+	}
+	
+	/** Tests the leader election protocol on a ring whose diameter is much larger than in the random graphs
+	 * @throws IOException thrown if the method fails to create pipes
+	 */
+	public void testRing () throws IOException {
+		graph = RandGraphFactory.getRingGraph(3 + (int) (Math.random() * 50));
+		testRandom(false);
+	}
+	
+	/** @see LeaderElectionMaxIDTest#initiatingIDandListener() */
+	@Override
+	protected Map<String, String> initiatingIDandListener() {
+		
+		Map<String, String> uniqueID = new HashMap<String, String> (queues.length);
+		
+		for (int i = 0; i < queues.length; i++) {
+			String iStr = graph.nodes.get(i);
+			uniqueID.put(iStr, iStr);
+			queues[i].addIncomingMessagePolicy(new LeaderElectionEcho<String> (iStr, iStr, graph.neighborhoods.get(iStr)));
+			queues[i].addIncomingMessagePolicy(this);
+		}
+		
+		return uniqueID;
+	}
+	
+	/** @return the number of agents, since only the output messages are counted */
+	@Override
+	protected int getNbrMsgsNeeded () {
+		return graph.nodes.size();
+	}
+	
+	/** Only listens to the outputs of the protocol, whose number of messages depends on the timing of the waves
+	 * @see LeaderElectionMaxIDTest#getMsgTypes()
+	 */
+	@Override
+	public Collection <String> getMsgTypes() {
+		ArrayList <String> types = new ArrayList <String> (1);
+		types.add(LeaderElectionMaxID.OUTPUT_MSG_TYPE);
+		return types;
+	}
+
+}
@@ -120,6 +120,9 @@ public class VariableElectionTest < S extends Comparable<S> & Serializable > ext
 
 	/** The tie-breaking heuristic */
 	private Class< ? extends ScoringHeuristic<?> > tiebreaking;
+	
+	/** Whether VariableElection should use LeaderElectionEcho (only supported when using XML) */
+	private boolean echo = false;
 
 	/** Constructor that instantiates a test only for the input method
 	 * @param useTCP 		\c true whether TCP pipes should be used instead of QueueIOPipes
@@ -136,6 +139,18 @@ public class VariableElectionTest < S extends Comparable<S> & Serializable > ext
 		this.tiebreaking = tiebreaking;
 	}
 
+	/** Constructor that instantiates a test using XML
+	 * @param useTCP 		\c true whether TCP pipes should be used instead of QueueIOPipes
+	 * @param heuristic 	The ScoringHeuristic
+	 * @param tiebreaking 	The tie-breaking heuristic
+	 * @param echo 			Whether VariableElection should use LeaderElectionEcho
+	 */
+	public VariableElectionTest(boolean useTCP, Class< ? extends ScoringHeuristic<?> > heuristic, 
+			Class< ? extends ScoringHeuristic<?> > tiebreaking, boolean echo) {
+		this (useTCP, true, heuristic, tiebreaking);
+		this.echo = echo;
+	}
+
 	/** @return the test suite for this test */
 	public static TestSuite suite () {
 		TestSuite testSuite = new TestSuite ("Tests for VariableElection");
@@ -180,6 +195,14 @@ public class VariableElectionTest < S extends Comparable<S> & Serializable > ext
 		testTmp.addTest(new RepeatedTest (new VariableElectionTest< ScorePair<?, ?> > (true, true, VarNameHeuristic.class, null), 50));
 		testSuite.addTest(testTmp);
 		
+		testTmp = new TestSuite ("Tests for VariableElection with echo waves using shared memory pipes");
+		testTmp.addTest(new RepeatedTest (new VariableElectionTest< ScorePair<?, ?> > (false, VarNameHeuristic.class, null, true), 500));
+		testSuite.addTest(testTmp);
+		
+		testTmp = new TestSuite ("Tests for VariableElection with echo waves using TCP pipes");
+		testTmp.addTest(new RepeatedTest (new VariableElectionTest< ScorePair<?, ?> > (true, VarNameHeuristic.class, null, true), 50));
+		testSuite.addTest(testTmp);
+		
 		return testSuite;
 	}
 	
@@ -400,7 +423,10 @@ public class VariableElectionTest < S extends Comparable<S> & Serializable > ext
 		
 		// Create a description of the parameters of VariableElection
 		Element parameters = new Element ("module");
-		parameters.setAttribute("nbrSteps", Integer.toString(diameter - 1));
+		if (this.echo) 
+			parameters.setAttribute("echo", "true");
+		else 
+			parameters.setAttribute("nbrSteps", Integer.toString(diameter - 1));
 		Element varElectionHeuristicElmt = new Element ("varElectionHeuristic");
 		parameters.addContent(varElectionHeuristicElmt);
 		if (heuristic == VarNameHeuristic.class) 
@@ -0,0 +1,194 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.varOrdering.linear;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom2.Element;
+
+import frodo2.algorithms.AgentInterface;
+import frodo2.communication.IncomingMsgPolicyInterface;
+import frodo2.communication.Message;
+import frodo2.communication.MessageWithPayload;
+import frodo2.communication.Queue;
+import frodo2.solutionSpaces.Addable;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+import frodo2.solutionSpaces.UtilitySolutionSpace;
+
+/** A module that replaces variable election and linear ordering by an order taken from the LinearOrderCache
+ *
+ * When the agent starts, it computes the cached order for each connected component that contains one of its variables,
+ * with the constraints each of its variables is responsible for enforcing computed from the current problem. It only outputs
+ * the order of a component once all other agents in this component have reported that they have started too, so that no
+ * agent receives messages from the search algorithm before its own modules (such as the ProblemRescaler) have been started.
+ * @param <V> the type used for variable values
+ * @param <U> the type used for utility values
+ * @see LinearOrderCache#setCachedOrder(org.jdom2.Document, String)
+ */
+public class CachedLinearOrdering < V extends Addable<V>, U extends Addable<U> > implements IncomingMsgPolicyInterface<String> {
+
+	/** The type of the message telling the module to start */
+	public static String START_MSG_TYPE = AgentInterface.START_AGENT;
+
+	/** The type of the message telling the other agents that this agent has started */
+	public static final String READY_MSG_TYPE = "CachedOrderReady";
+
+	/** The agent's problem */
+	private final DCOPProblemInterface<V, U> problem;
+
+	/** The fingerprint of the constraint graph in the LinearOrderCache */
+	private final String fingerprint;
+
+	/** The queue on which it should call sendMessage() */
+	private Queue queue;
+
+	/** The agents that have reported that they have started */
+	private final HashSet<String> readyAgents = new HashSet<String> ();
+
+	/** For each order not yet output, the other agents in its component */
+	private final LinkedHashMap< OrderMsg<V, U>, HashSet<String> > pendingOrders = new LinkedHashMap< OrderMsg<V, U>, HashSet<String> > ();
+
+	/** Constructor
+	 * @param problem 		this agent's problem
+	 * @param parameters 	the parameters, containing the \c fingerprint of the constraint graph
+	 */
+	public CachedLinearOrdering (DCOPProblemInterface<V, U> problem, Element parameters) {
+		this.problem = problem;
+		this.fingerprint = parameters.getAttributeValue("fingerprint");
+	}
+
+	/** @see IncomingMsgPolicyInterface#getMsgTypes() */
+	public Collection<String> getMsgTypes() {
+		ArrayList<String> types = new ArrayList<String> (2);
+		types.add(START_MSG_TYPE);
+		types.add(READY_MSG_TYPE);
+		return types;
+	}
+
+	/** @see IncomingMsgPolicyInterface#notifyIn(Message) */
+	@SuppressWarnings("unchecked")
+	public void notifyIn(Message msg) {
+
+		String msgType = msg.getType();
+
+		if (msgType.equals(READY_MSG_TYPE)) {
+			this.readyAgents.add(((MessageWithPayload<String>) msg).getPayload());
+			this.sendReadyOrders();
+			return;
+		}
+
+		if (! msgType.equals(START_MSG_TYPE))
+			return;
+
+		// Return immediately if I own no variable
+		if (this.problem.getNbrIntVars() == 0) {
+			this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			return;
+		}
+
+		List< List<String> > orders = LinearOrderCache.getOrders(this.fingerprint);
+		Map<String, String> owners = LinearOrderCache.getOwners(this.fingerprint);
+		if (orders == null) { // the order was not pinned; terminate rather than wait forever for it
+			System.err.println("The order " + this.fingerprint + " has not been pinned in the LinearOrderCache");
+			this.queue.sendMessageToSelf(new Message (AgentInterface.AGENT_FINISHED));
+			return;
+		}
+
+		String myID = this.problem.getAgent();
+		HashSet<String> neighbors = new HashSet<String> ();
+		for (List<String> flatOrder : orders) {
+
+			// The ID of the component is its first variable, as if it had been elected by VariableElection
+			String componentID = flatOrder.get(0);
+
+			ArrayList<String> agents = new ArrayList<String> (flatOrder.size());
+			ArrayList< List<String> > order = new ArrayList< List<String> > (flatOrder.size());
+			for (String var : flatOrder) {
+				agents.add(owners.get(var));
+				ArrayList<String> cluster = new ArrayList<String> (1);
+				cluster.add(var);
+				order.add(cluster);
+			}
+			if (! agents.contains(myID)) // none of my variables is in this component
+				continue;
+
+			// Parse which space each of my variables is responsible for enforcing,
+			// i.e. the spaces for which it is the last variable in the ordering
+			ArrayList< UtilitySolutionSpace<V, U> > jointSpaces = new ArrayList< UtilitySolutionSpace<V, U> > (order.size());
+			HashSet<String> nextVars = new HashSet<String> (this.problem.getVariables());
+			for (List<String> cluster : order) {
+
+				UtilitySolutionSpace<V, U> space = null;
+				nextVars.removeAll(cluster);
+
+				if (myID.equals(owners.get(cluster.get(0)))) {
+					List< ? extends UtilitySolutionSpace<V, U> > spaces = this.problem.getSolutionSpaces(new HashSet<String>(cluster), false, nextVars);
+					if (! spaces.isEmpty()) {
+						space = spaces.remove(0);
+						if (! spaces.isEmpty())
+							space = space.join(spaces.toArray(new UtilitySolutionSpace [spaces.size()]));
+						spaces.clear();
+					}
+				}
+
+				jointSpaces.add(space);
+			}
+
+			HashSet<String> others = new HashSet<String> (agents);
+			others.remove(myID);
+			neighbors.addAll(others);
+			this.pendingOrders.put(new OrderMsg<V, U> (OrderMsg.ORDER_MSG_TYPE, order, flatOrder, agents, componentID, jointSpaces), others);
+			if (myID.equals(agents.get(0)))
+				this.queue.sendMessage(AgentInterface.STATS_MONITOR, new OrderMsg<V, U> (OrderMsg.STATS_MSG_TYPE, componentID, flatOrder, agents));
+		}
+
+		// Tell the agents in my components that I have started, and output the orders of the components in which all agents have
+		for (String neighbor : neighbors)
+			this.queue.sendMessage(neighbor, new MessageWithPayload<String> (READY_MSG_TYPE, myID));
+		this.sendReadyOrders();
+	}
+
+	/** Outputs the pending orders whose components only contain agents that have started */
+	private void sendReadyOrders () {
+
+		for (Iterator< Map.Entry< OrderMsg<V, U>, HashSet<String> > > iter = this.pendingOrders.entrySet().iterator(); iter.hasNext(); ) {
+			Map.Entry< OrderMsg<V, U>, HashSet<String> > entry = iter.next();
+			if (this.readyAgents.containsAll(entry.getValue())) {
+				iter.remove();
+				this.queue.sendMessageToSelf(entry.getKey());
+			}
+		}
+	}
+
+	/** @see IncomingMsgPolicyInterface#setQueue(Queue) */
+	public void setQueue(Queue queue) {
+		this.queue = queue;
+	}
+
+}
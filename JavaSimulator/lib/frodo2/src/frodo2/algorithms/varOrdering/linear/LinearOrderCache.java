@@ -0,0 +1,323 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.varOrdering.linear;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.varOrdering.dfs.PseudoTreeCache;
+import frodo2.algorithms.varOrdering.election.VariableElection;
+import frodo2.solutionSpaces.DCOPProblemInterface;
+
+/** A JVM-wide cache of linear variable orders, keyed by the structure of the constraint graph
+ *
+ * SynchBB and AFB prune the search based on the linear order of the variables, which LinearOrdering and CentralLinearOrdering
+ * recompute from scratch at each solve, after several rounds of variable election. When the whole constraint graph is known,
+ * this cache instead computes the order once per constraint graph, by a maximum-cardinality search started at the most connected
+ * variable, so that each variable is constrained by as many earlier variables as possible. On subsequent solves with the same graph
+ * structure and the same variable owners, the order is reused. In both cases, the variable election and linear ordering
+ * modules in the agent description are replaced with a CachedLinearOrdering module that outputs the order directly.
+ * @see CachedLinearOrdering
+ * @see PseudoTreeCache#getFingerprint(DCOPProblemInterface)
+ */
+public class LinearOrderCache {
+
+	/** The maximum number of orders kept in the cache; the least recently used ones are evicted first */
+	public static final int CAPACITY = 16;
+
+	/** A cached order */
+	private static class CachedOrder {
+
+		/** For each variable, its sorted neighbors */
+		final TreeMap< String, TreeSet<String> > neighborhoods;
+
+		/** For each variable, its owner */
+		final Map<String, String> owners;
+
+		/** For each connected component, the order on its variables */
+		final List< List<String> > orders;
+
+		/** The number of ongoing solves that use this order */
+		int nbrPins;
+
+		/** Constructor
+		 * @param neighborhoods 	for each variable, its sorted neighbors
+		 * @param owners 			for each variable, its owner
+		 * @param orders 			for each connected component, the order on its variables
+		 */
+		CachedOrder (TreeMap< String, TreeSet<String> > neighborhoods, Map<String, String> owners, List< List<String> > orders) {
+			this.neighborhoods = neighborhoods;
+			this.owners = owners;
+			this.orders = orders;
+		}
+	}
+
+	/** The cached orders, indexed by the fingerprints of the constraint graphs, in access order */
+	private static final LinkedHashMap<String, CachedOrder> ENTRIES = new LinkedHashMap<String, CachedOrder> (CAPACITY, .75f, true) {
+
+		/** Used for serialization */
+		private static final long serialVersionUID = -2209385418727470412L;
+
+		/** @see LinkedHashMap#removeEldestEntry(Map.Entry) */
+		@Override
+		protected boolean removeEldestEntry (Map.Entry<String, CachedOrder> eldest) {
+			return this.size() > CAPACITY;
+		}
+	};
+
+	/** The orders in use by ongoing solves, which must remain available even if they are evicted from ENTRIES */
+	private static final HashMap<String, CachedOrder> PINNED = new HashMap<String, CachedOrder> ();
+
+	/** The number of lookups */
+	private static int nbrLookups;
+
+	/** The number of lookups that hit the cache */
+	private static int nbrHits;
+
+	/** Prevents instantiation */
+	private LinearOrderCache () { }
+
+	/** Looks up the order for a problem, computing and recording it if it is not yet in the cache
+	 * @param problem 	the problem, whose whole constraint graph must be known
+	 * @return the fingerprint of the problem's constraint graph
+	 */
+	public static String lookup (DCOPProblemInterface<?, ?> problem) {
+
+		TreeMap< String, TreeSet<String> > structure = PseudoTreeCache.getStructure(problem);
+		Map<String, String> owners = problem.getOwners();
+		String fingerprint = PseudoTreeCache.getFingerprint(structure, owners);
+
+		synchronized (ENTRIES) {
+			nbrLookups++;
+
+			// Guard against hash collisions by checking that the structures are indeed the same
+			CachedOrder entry = ENTRIES.get(fingerprint);
+			if (entry != null && entry.neighborhoods.equals(structure) && entry.owners.equals(owners)) {
+				nbrHits++;
+				return fingerprint;
+			}
+		}
+
+		List< List<String> > orders = computeOrders(structure);
+		synchronized (ENTRIES) {
+			ENTRIES.put(fingerprint, new CachedOrder (structure, new HashMap<String, String> (owners), orders));
+		}
+		return fingerprint;
+	}
+
+	/** Computes an order on the variables of each connected component of a constraint graph
+	 *
+	 * Each component is ordered by a maximum-cardinality search started at its most connected variable: the next variable
+	 * is always one with the most neighbors already in the order, breaking ties by larger numbers of neighbors, and then by name.
+	 * @param neighborhoods 	for each variable, its neighbors
+	 * @return for each connected component, the order on its variables
+	 */
+	public static List< List<String> > computeOrders (final Map< String, ? extends Collection<String> > neighborhoods) {
+
+		// Sort the variables by decreasing numbers of neighbors, breaking ties by name
+		ArrayList<String> vars = new ArrayList<String> (neighborhoods.keySet());
+		Collections.sort(vars, new Comparator<String> () {
+			public int compare(String var1, String var2) {
+				int diff = neighborhoods.get(var2).size() - neighborhoods.get(var1).size();
+				return (diff != 0 ? diff : var1.compareTo(var2));
+			}
+		});
+
+		ArrayList< List<String> > orders = new ArrayList< List<String> > ();
+		HashMap<String, Integer> widths = new HashMap<String, Integer> (vars.size());
+		for (String root : vars) {
+			if (widths.containsKey(root))
+				continue;
+
+			// Gather the variables in the component of the root, sorted by decreasing numbers of neighbors
+			HashSet<String> component = new HashSet<String> ();
+			component.add(root);
+			ArrayList<String> pending = new ArrayList<String> ();
+			pending.add(root);
+			while (! pending.isEmpty())
+				for (String neighbor : neighborhoods.get(pending.remove(pending.size() - 1)))
+					if (neighborhoods.containsKey(neighbor) && component.add(neighbor))
+						pending.add(neighbor);
+			ArrayList<String> open = new ArrayList<String> (component.size());
+			for (String var : vars) {
+				if (component.contains(var)) {
+					open.add(var);
+					widths.put(var, 0);
+				}
+			}
+
+			// Repeatedly pick the first variable with the most neighbors already in the order
+			ArrayList<String> order = new ArrayList<String> (open.size());
+			while (! open.isEmpty()) {
+				int best = 0;
+				for (int i = 1; i < open.size(); i++)
+					if (widths.get(open.get(i)) > widths.get(open.get(best)))
+						best = i;
+				String var = open.remove(best);
+				order.add(var);
+				for (String neighbor : neighborhoods.get(var)) {
+					Integer width = widths.get(neighbor);
+					if (width != null)
+						widths.put(neighbor, width + 1);
+				}
+			}
+			orders.add(order);
+		}
+
+		return orders;
+	}
+
+	/** Returns an order pinned by setCachedOrder()
+	 * @param fingerprint 	the fingerprint of the constraint graph
+	 * @return for each connected component, the order on its variables; \c null if the order is not pinned
+	 */
+	static List< List<String> > getOrders (String fingerprint) {
+
+		synchronized (ENTRIES) {
+			CachedOrder entry = PINNED.get(fingerprint);
+			return (entry == null ? null : entry.orders);
+		}
+	}
+
+	/** Returns the owners of the variables in an order pinned by setCachedOrder()
+	 * @param fingerprint 	the fingerprint of the constraint graph
+	 * @return for each variable, its owner; \c null if the order is not pinned
+	 */
+	static Map<String, String> getOwners (String fingerprint) {
+
+		synchronized (ENTRIES) {
+			CachedOrder entry = PINNED.get(fingerprint);
+			return (entry == null ? null : entry.owners);
+		}
+	}
+
+	/** Configures an agent description to use a cached order
+	 *
+	 * All VariableElection modules are removed, and the first LinearOrdering or CentralLinearOrdering module is replaced
+	 * with a CachedLinearOrdering module, which keeps its message types. On success, the order is pinned so that it cannot
+	 * be evicted before the agents have read it, and the caller must call release() once the solve is over.
+	 * @param agentDesc 	the agent description
+	 * @param fingerprint 	the fingerprint of the constraint graph, as returned by lookup()
+	 * @return \c false if the agent description was left unchanged because it contains no linear ordering module,
+	 * or because the order has been evicted from the cache since the lookup
+	 */
+	public static boolean setCachedOrder (Document agentDesc, String fingerprint) {
+
+		Element modsElmt = agentDesc.getRootElement().getChild("modules");
+		if (modsElmt == null)
+			return false;
+
+		// Look for the modules to be replaced
+		Element orderingElmt = null;
+		ArrayList<Element> elections = new ArrayList<Element> ();
+		for (Element module : modsElmt.getChildren()) {
+			String className = module.getAttributeValue("className");
+
+			if (className.equals(VariableElection.class.getName()))
+				elections.add(module);
+
+			else if (orderingElmt == null && (className.equals(LinearOrdering.class.getName())
+					|| className.startsWith(CentralLinearOrdering.class.getName() + "$")))
+				orderingElmt = module;
+		}
+		if (orderingElmt == null || ! pin(fingerprint))
+			return false;
+
+		// Replace them with a CachedLinearOrdering module
+		Element cachedElmt = new Element ("module");
+		cachedElmt.setAttribute("className", CachedLinearOrdering.class.getName());
+		cachedElmt.setAttribute("fingerprint", fingerprint);
+		Element msgsElmt = orderingElmt.getChild("messages");
+		if (msgsElmt != null)
+			cachedElmt.addContent(msgsElmt.clone());
+		modsElmt.setContent(modsElmt.indexOf(orderingElmt), cachedElmt);
+		for (Element module : elections)
+			modsElmt.removeContent(module);
+
+		return true;
+	}
+
+	/** Prevents a cached order from becoming unavailable until release() is called
+	 * @param fingerprint 	the fingerprint of the constraint graph
+	 * @return \c false if the order is neither in the cache nor already pinned
+	 */
+	private static boolean pin (String fingerprint) {
+
+		synchronized (ENTRIES) {
+			CachedOrder entry = PINNED.get(fingerprint);
+			if (entry == null && (entry = ENTRIES.get(fingerprint)) == null)
+				return false;
+			entry.nbrPins++;
+			PINNED.put(fingerprint, entry);
+			return true;
+		}
+	}
+
+	/** Releases an order pinned by setCachedOrder()
+	 * @param fingerprint 	the fingerprint of the constraint graph
+	 */
+	public static void release (String fingerprint) {
+
+		synchronized (ENTRIES) {
+			CachedOrder entry = PINNED.get(fingerprint);
+			if (entry != null && --entry.nbrPins == 0)
+				PINNED.remove(fingerprint);
+		}
+	}
+
+	/** @return the number of lookups since the last call to clear() */
+	public static int getNbrLookups () {
+		synchronized (ENTRIES) {
+			return nbrLookups;
+		}
+	}
+
+	/** @return the number of lookups that hit the cache since the last call to clear() */
+	public static int getNbrHits () {
+		synchronized (ENTRIES) {
+			return nbrHits;
+		}
+	}
+
+	/** Empties the cache and resets the statistics */
+	public static void clear () {
+		synchronized (ENTRIES) {
+			ENTRIES.clear();
+			nbrLookups = 0;
+			nbrHits = 0;
+		}
+	}
+
+}
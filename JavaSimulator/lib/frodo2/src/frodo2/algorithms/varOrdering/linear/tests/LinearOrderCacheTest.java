@@ -0,0 +1,231 @@
+/*
+FRODO: a FRamework for Open/Distributed Optimization
+Copyright (C) 2008-2013  Thomas Leaute, Brammert Ottens & Radoslaw Szymanek
+
+FRODO is free software: you can redistribute it and/or modify
+it under the terms of the GNU Affero General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+FRODO is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU Affero General Public License for more details.
+
+You should have received a copy of the GNU Affero General Public License
+along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+
+How to contact the authors: 
+<http://frodo2.sourceforge.net/>
+ */
+
+package frodo2.algorithms.varOrdering.linear.tests;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import junit.extensions.RepeatedTest;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import frodo2.algorithms.Problem;
+import frodo2.algorithms.Solution;
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.afb.AFBsolver;
+import frodo2.algorithms.dpop.DPOPsolver;
+import frodo2.algorithms.synchbb.SynchBBsolver;
+import frodo2.algorithms.test.AllTests;
+import frodo2.algorithms.varOrdering.dfs.PseudoTreeCache;
+import frodo2.algorithms.varOrdering.linear.LinearOrderCache;
+import frodo2.solutionSpaces.AddableInteger;
+
+/** JUnit test case for LinearOrderCache */
+public class LinearOrderCacheTest extends TestCase {
+
+	/** @return the test suite */
+	public static TestSuite suite () {
+		TestSuite suite = new TestSuite ("Tests for LinearOrderCache");
+
+		TestSuite tmp = new TestSuite ("Tests that the cached orders cover each component exactly once");
+		tmp.addTest(new RepeatedTest (new LinearOrderCacheTest ("testOrders"), 200));
+		suite.addTest(tmp);
+
+		tmp = new TestSuite ("Tests that SynchBB reuses the cached order");
+		tmp.addTest(new RepeatedTest (new LinearOrderCacheTest ("testSynchBB"), 50));
+		suite.addTest(tmp);
+
+		tmp = new TestSuite ("Tests that AFB reuses the cached order");
+		tmp.addTest(new RepeatedTest (new LinearOrderCacheTest ("testAFB"), 50));
+		suite.addTest(tmp);
+
+		tmp = new TestSuite ("Tests that a cached order works with agents that own no variable");
+		tmp.addTest(new RepeatedTest (new LinearOrderCacheTest ("testIdleAgent"), 50));
+		suite.addTest(tmp);
+
+		tmp = new TestSuite ("Tests that a cached order remains usable when it is evicted during a solve");
+		tmp.addTest(new RepeatedTest (new LinearOrderCacheTest ("testEviction"), 20));
+		suite.addTest(tmp);
+
+		return suite;
+	}
+
+	/** Constructor
+	 * @param method 	name of the test method
+	 */
+	public LinearOrderCacheTest (String method) {
+		super (method);
+	}
+
+	/** @see junit.framework.TestCase#setUp() */
+	@Override
+	protected void setUp () {
+		LinearOrderCache.clear();
+	}
+
+	/** @see junit.framework.TestCase#tearDown() */
+	@Override
+	protected void tearDown () {
+		LinearOrderCache.clear();
+	}
+
+	/** Checks that the orders partition the variables into connected components, and that each variable but the first
+	 * of its component is constrained with at least one previous variable
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testOrders () throws Exception {
+
+		Document problem = AllTests.createRandProblem(15, 15, 10, false);
+		TreeMap< String, TreeSet<String> > neighborhoods = PseudoTreeCache.getStructure(new XCSPparser<AddableInteger, AddableInteger> (problem));
+		List< List<String> > orders = LinearOrderCache.computeOrders(neighborhoods);
+
+		HashSet<String> seen = new HashSet<String> ();
+		for (List<String> order : orders) {
+			assertFalse(order.isEmpty());
+			for (int i = 0; i < order.size(); i++) {
+				String var = order.get(i);
+				assertTrue(var + " appears twice", seen.add(var));
+
+				Set<String> neighbors = neighborhoods.get(var);
+				if (i == 0)
+					assertTrue(order.containsAll(neighbors));
+				else
+					assertFalse(var + " has no previous neighbor", disjoint(order.subList(0, i), neighbors));
+			}
+		}
+		assertEquals(neighborhoods.keySet(), seen);
+	}
+
+	/** Solves the same problem twice with SynchBB and checks that the second solve uses the cached order
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testSynchBB () throws Exception {
+
+		// SynchBB and AFB require non-negative costs, which their default ProblemRescaler does not shift
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(8, 10, 5, maximize, (maximize ? -1 : +1), AllTests.DEFAULT_P2);
+		AddableInteger optimum = new DPOPsolver<AddableInteger, AddableInteger> ().solve(problem).getUtility();
+
+		for (int i = 1; i <= 2; i++) {
+			SynchBBsolver<AddableInteger, AddableInteger> solver = new SynchBBsolver<AddableInteger, AddableInteger> ();
+			solver.setOrderCaching(true);
+			assertEquals(optimum, solver.solve(problem).getUtility());
+			assertEquals(i, LinearOrderCache.getNbrLookups());
+			assertEquals(i - 1, LinearOrderCache.getNbrHits());
+		}
+	}
+
+	/** Solves the same problem twice with AFB and checks that the second solve uses the cached order
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testAFB () throws Exception {
+
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(8, 10, 5, maximize, (maximize ? -1 : +1), AllTests.DEFAULT_P2);
+		AddableInteger optimum = new DPOPsolver<AddableInteger, AddableInteger> ().solve(problem).getUtility();
+
+		for (int i = 1; i <= 2; i++) {
+			AFBsolver<AddableInteger, AddableInteger> solver = new AFBsolver<AddableInteger, AddableInteger> ();
+			solver.setOrderCaching(true);
+			assertEquals(optimum, solver.solve(problem).getUtility());
+			assertEquals(i, LinearOrderCache.getNbrLookups());
+			assertEquals(i - 1, LinearOrderCache.getNbrHits());
+		}
+	}
+
+	/** Solves twice with SynchBB a problem involving an agent that owns no variable, without simulated time
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testIdleAgent () throws Exception {
+
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(8, 10, 5, maximize, (maximize ? -1 : +1), AllTests.DEFAULT_P2);
+		Element agentsElmt = problem.getRootElement().getChild("agents");
+		Element agentElmt = new Element ("agent");
+		agentElmt.setAttribute("name", "idleAgent");
+		agentsElmt.addContent(agentElmt);
+		agentsElmt.setAttribute("nbAgents", Integer.toString(agentsElmt.getChildren().size()));
+		AddableInteger optimum = new DPOPsolver<AddableInteger, AddableInteger> ().solve(problem).getUtility();
+
+		// Without simulated time, the solver waits for all agents to report that they have finished
+		Document agentDesc = XCSPparser.parse("src/frodo2/algorithms/synchbb/SynchBBagent.xml", false);
+		agentDesc.getRootElement().setAttribute("measureTime", "false");
+
+		for (int i = 1; i <= 2; i++) {
+			SynchBBsolver<AddableInteger, AddableInteger> solver = new SynchBBsolver<AddableInteger, AddableInteger> (agentDesc);
+			solver.setOrderCaching(true);
+			Solution<AddableInteger, AddableInteger> sol = solver.solve(problem, 10000L);
+			assertNotNull("Timeout", sol);
+			assertEquals(optimum, sol.getUtility());
+			assertEquals(i - 1, LinearOrderCache.getNbrHits());
+		}
+	}
+
+	/** Evicts an order after an agent description has been configured to use it, and checks that the solve still succeeds
+	 * @throws Exception 	if an error occurs
+	 */
+	public void testEviction () throws Exception {
+
+		boolean maximize = Math.random() < .5;
+		Document problem = AllTests.createRandProblem(8, 10, 5, maximize, (maximize ? -1 : +1), AllTests.DEFAULT_P2);
+		AddableInteger optimum = new DPOPsolver<AddableInteger, AddableInteger> ().solve(problem).getUtility();
+
+		// Configure an agent description to use the cached order
+		String fingerprint = LinearOrderCache.lookup(new XCSPparser<AddableInteger, AddableInteger> (problem));
+		Document agentDesc = XCSPparser.parse("src/frodo2/algorithms/synchbb/SynchBBagent.xml", false);
+		assertTrue(LinearOrderCache.setCachedOrder(agentDesc, fingerprint));
+
+		// Fill the cache with the orders of other problems
+		for (int i = 0; i < LinearOrderCache.CAPACITY; i++) {
+			Problem<AddableInteger, AddableInteger> other = new Problem<AddableInteger, AddableInteger> (maximize);
+			other.addVariable("evicting_" + i, "agent", new AddableInteger[] { new AddableInteger (0) });
+			LinearOrderCache.lookup(other);
+		}
+		assertEquals(0, LinearOrderCache.getNbrHits());
+
+		// The pinned order must still be usable, until it is released
+		Solution<AddableInteger, AddableInteger> sol = new SynchBBsolver<AddableInteger, AddableInteger> (agentDesc).solve(problem, 10000L);
+		assertNotNull("Timeout", sol);
+		assertEquals(optimum, sol.getUtility());
+		LinearOrderCache.release(fingerprint);
+		assertFalse(LinearOrderCache.setCachedOrder(XCSPparser.parse("src/frodo2/algorithms/synchbb/SynchBBagent.xml", false), fingerprint));
+	}
+
+	/** @param vars 		a list of variables
+	 * @param neighbors 	a set of variables
+	 * @return \c true if no variable in the list is in the set
+	 */
+	private static boolean disjoint (List<String> vars, Set<String> neighbors) {
+		ArrayList<String> common = new ArrayList<String> (vars);
+		common.retainAll(neighbors);
+		return common.isEmpty();
+	}
+
+}
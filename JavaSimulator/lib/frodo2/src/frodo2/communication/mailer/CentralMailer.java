@@ -739,10 +739,12 @@ public class CentralMailer extends Thread {
 	public Queue newQueue (String agent, boolean updateTime) {
 
 		FakeQueue queue = new FakeQueue(agent, updateTime);
-		this.queues.put(agent, queue);
+		synchronized (this.queues) { // the AgentFactory may create agents concurrently
+			this.queues.put(agent, queue);
 
-		if (agent.equals(AgentInterface.STATS_MONITOR)) 
-			this.queues.put(Daemon.DAEMON, queue);
+			if (agent.equals(AgentInterface.STATS_MONITOR)) 
+				this.queues.put(Daemon.DAEMON, queue);
+		}
 
 		return queue;
 	}
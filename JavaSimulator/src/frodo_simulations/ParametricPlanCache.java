@@ -0,0 +1,169 @@
+package frodo_simulations;
+
+import core.Device;
+import core.Hospital;
+import core.Room;
+import frodo2.algorithms.XCSPparser;
+import frodo2.algorithms.dpop.param.ParamDPOPsolver;
+import frodo2.solutionSpaces.AddableInteger;
+import frodo2.solutionSpaces.BasicUtilitySolutionSpace;
+import frodo2.solutionSpaces.JaCoP.JaCoPxcspParser;
+import org.jdom2.Document;
+import utils.Constantes;
+import utils.XMLWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Precompute, once per tick, the optimal visit plan as a function of "which room goes critical next"
+ * using Frodo's Param-DPOP, so that an emergency arriving mid-tick is answered by a lookup instead of a new solve.
+ * The plans only account for a single new emergency : they are recomputed as soon as one of them has been used
+ */
+public class ParametricPlanCache {
+
+    /** Key of the plan where no room goes critical */
+    public static final int NO_EMERGENCY = 0;
+
+    private Map<Integer, Map<String, Integer>> plans = new HashMap<Integer, Map<String, Integer>>();
+    private Map<Integer, AddableInteger> costs = new HashMap<Integer, AddableInteger>();
+    private long precomputeTime;
+    private int hits;
+    private int misses;
+
+    /***
+     * Solve the parametric DCOP for the current tick and index one plan per critical room candidate
+     * @param hospital
+     */
+    public void precompute(Hospital hospital) {
+        long startTime = System.currentTimeMillis();
+        invalidate();
+
+        new XMLWriter().writeParametricFileFor(hospital);
+
+        Document agentConfig = null;
+        Document problemDoc = null;
+        try {
+            agentConfig = XCSPparser.parse(Constantes.PARAM_AGENT_XML_FILE, false);
+            problemDoc = JaCoPxcspParser.parse(Constantes.PARAM_PROBLEM_XML_FILE, false);
+        } catch (Exception e) {
+            System.err.println("ERROR PARSING !\n" + e.getMessage());
+            return;
+        }
+
+        ParamDPOPsolver<AddableInteger, AddableInteger> solver = new ParamDPOPsolver<AddableInteger, AddableInteger>(agentConfig);
+        ParamDPOPsolver.ParamSolution<AddableInteger, AddableInteger> solution = solver.solveParam(problemDoc);
+        if(solution == null) {
+            return;
+        }
+
+        //Une entrée par valeur du paramètre : 0 (aucune urgence) ou l'id d'une chambre
+        List<Integer> criticalRooms = new ArrayList<Integer>();
+        criticalRooms.add(NO_EMERGENCY);
+        for(Room room : hospital.getRooms()) {
+            if(!room.hasEmergency()) {
+                criticalRooms.add(room.getId());
+            }
+        }
+
+        for(int criticalRoom : criticalRooms) {
+
+            Map<String, AddableInteger> parameter = Collections.singletonMap(Constantes.CRITICAL_PARAMETER, new AddableInteger(criticalRoom));
+            Map<String, Integer> plan = new HashMap<String, Integer>();
+
+            for(Map.Entry<String[], BasicUtilitySolutionSpace<AddableInteger, ArrayList<AddableInteger>>> entry : solution.getAssignments().entrySet()) {
+                String[] variables = entry.getKey();
+                ArrayList<AddableInteger> values = entry.getValue().getUtility(parameter);
+                for(int i = 0; i < variables.length; i++) {
+                    plan.put(variables[i], values.get(i).intValue());
+                }
+            }
+
+            plans.put(criticalRoom, plan);
+            costs.put(criticalRoom, solution.getUtility().getUtility(parameter));
+        }
+
+        precomputeTime = System.currentTimeMillis() - startTime;
+        System.out.println("PARAMETRIC PLANS PRECOMPUTED : " + plans.size() + " in " + precomputeTime + " ms");
+    }
+
+    /***
+     * Forget all precomputed plans, which no longer match the situation of the hospital
+     */
+    public void invalidate() {
+        plans.clear();
+        costs.clear();
+    }
+
+    /***
+     * Get the precomputed plan if the given room goes critical
+     * @param roomId the room going critical, or NO_EMERGENCY
+     * @return the plan (vi value for each variable "v" + room id), or null if it was not precomputed
+     */
+    public Map<String, Integer> lookup(int roomId) {
+        Map<String, Integer> plan = plans.get(roomId);
+        if(plan == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return plan;
+    }
+
+    /***
+     * Put the device in critical state and update the hospital with the precomputed plan,
+     * falling back to a full DPOP resolution if the plan was not precomputed.
+     * The plans are then recomputed, since they ignore the constraint added by this emergency
+     * @param hospital
+     * @param room the room of the device
+     * @param device
+     */
+    public void onDeviceCritical(Hospital hospital, Room room, Device device) {
+        boolean alreadyInEmergency = room.hasEmergency();
+        device.setInCriticalState(true);
+
+        if(alreadyInEmergency) {
+            return; //le plan courant tient déjà compte de l'urgence
+        }
+
+        long startTime = System.nanoTime();
+        Map<String, Integer> plan = lookup(room.getId());
+        invalidate();
+        if(plan != null) {
+            Simulation.applyAssignments(hospital, plan);
+            System.out.println("EMERGENCY ROOM " + room.getId() + " : PLAN FROM CACHE IN " + (System.nanoTime() - startTime) / 1000 + " µs");
+        } else {
+            System.out.println("EMERGENCY ROOM " + room.getId() + " : NOT IN CACHE, RESOLVING");
+            Simulation.resolveDCOP(hospital);
+        }
+
+        //Les plans restants supposaient une seule urgence : on les recalcule pour la prochaine,
+        //sauf si la résolution complète vient de le faire
+        if(plans.isEmpty()) {
+            precompute(hospital);
+        }
+    }
+
+    /***
+     * @param roomId the room going critical, or NO_EMERGENCY
+     * @return the optimal cost of the precomputed plan, or null
+     */
+    public AddableInteger getCost(int roomId) {
+        return costs.get(roomId);
+    }
+
+    public long getPrecomputeTime() {
+        return precomputeTime;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+}
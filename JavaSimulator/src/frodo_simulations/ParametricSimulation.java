@@ -0,0 +1,29 @@
+package frodo_simulations;
+
+import core.Device;
+import core.Hospital;
+import core.Room;
+
+/***
+ * Run the N = 32 simulation, with devices going critical in the middle of a tick :
+ * the new plans come from the Param-DPOP cache filled by the tick's resolution instead of new resolutions
+ */
+public class ParametricSimulation {
+
+    public static void main(String[] args) {
+        Hospital hospital = Simulation.initSimulatedEnvironment();
+        Simulation.resolveDCOP(hospital);
+
+        System.out.println("T = 5 : EMERGENCIES IN ROOMS 22 AND 9 ---------------------------------- ");
+        for(Room room : hospital.getRooms()) {
+            if(room.getId() == 22 || room.getId() == 9) {
+                Device device = room.getDevices().get(0);
+                Simulation.onDeviceCritical(hospital, room, device);
+            }
+        }
+
+        ParametricPlanCache cache = Simulation.getPlanCache();
+        System.out.println(hospital.toString());
+        System.out.println("CACHE HITS : " + cache.getHits() + " / MISSES : " + cache.getMisses());
+    }
+}
@@ -1,10 +1,13 @@
 package frodo_simulations;
 
+import frodo2.algorithms.AssignmentListener;
 import frodo2.algorithms.Solution;
 import frodo2.algorithms.XCSPparser;
 import frodo2.algorithms.dpop.DPOPsolver;
 import frodo2.algorithms.varOrdering.dfs.DFSgeneration;
+import frodo2.algorithms.varOrdering.dfs.PseudoTreeCache;
 import frodo2.gui.DOTrenderer;
+import frodo2.solutionSpaces.AddableInteger;
 import frodo2.solutionSpaces.JaCoP.JaCoPxcspParser;
 import core.Device;
 import core.Hospital;
@@ -15,6 +18,8 @@ import utils.XMLWriter;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +28,9 @@ import java.util.Map;
  */
 public class Simulation {
 
+    /** Plans precomputed at each tick for the emergencies that may arise before the next one */
+    private static final ParametricPlanCache planCache = new ParametricPlanCache();
+
     public static void main(String[] args) {
 
         System.out.println("SIMULATION A DIFFERENTS T --------------");
@@ -48,7 +56,7 @@ public class Simulation {
      * Write a xml file based on the hospital environment and resolve the DCOP using Frodo's DPOP
      * @param hospital
      */
-    public static void resolveDCOP(Hospital hospital) {
+    public static void resolveDCOP(final Hospital hospital) {
         XMLWriter xmlWriter = new XMLWriter();
         Document agentConfig = null;
         Document problemDoc = null;
@@ -67,19 +75,89 @@ public class Simulation {
 
         DPOPsolver dpopSolver = new DPOPsolver(agentConfig);
 
+        //La topologie de l'hôpital change rarement d'un tick à l'autre : on réutilise le pseudo-arbre DFS
+        dpopSolver.setPseudoTreeCaching(true);
+
+        //Les chambres en urgence reçoivent leur valeur vi dès que leur agent l'a décidée
+        final Map<String, Object> urgentAssignments = Collections.synchronizedMap(new HashMap<String, Object>());
+        dpopSolver.addAssignmentListener(new AssignmentListener<AddableInteger>() {
+            @Override
+            public void assignmentFound(String var, AddableInteger val, long time) {
+                if(!var.startsWith("v")) {
+                    return;
+                }
+                int agentNb = Integer.parseInt(var.split("v")[1]);
+                for(Room room : hospital.getRooms()) {
+                    if(room.getId() == agentNb && room.hasEmergency()) {
+                        applyAssignments(hospital, Collections.singletonMap(var, val));
+                        urgentAssignments.put(var, val);
+                        System.out.println("EMERGENCY ROOM " + agentNb + " : vi = " + val + " AFTER " + time + " ms");
+                        break;
+                    }
+                }
+            }
+        });
+
         System.out.println("PROCESSING BEGIN ------------");
 
         long startTime = System.currentTimeMillis();
         Solution solution = dpopSolver.solve(problemDoc, Constantes.CLEAN_AFTERWARDS, Constantes.TIMEOUT);
         System.out.println(solution.toString());
         System.out.println("JAVA RUNNING TIME : " + (System.currentTimeMillis() - startTime));
+        System.out.println("PSEUDO-TREE CACHE : hit rate = " + PseudoTreeCache.getNbrHits() + "/" + PseudoTreeCache.getNbrLookups()
+                + ", saved messages = " + PseudoTreeCache.getSavedMsgs() + ", saved time = " + PseudoTreeCache.getSavedTime() + " ms");
+
+        //Affectation des valeurs vi aux autres agents :
+        Map<?, ?> remainingAssignments = new HashMap<Object, Object>(solution.getAssignments());
+        remainingAssignments.keySet().removeAll(urgentAssignments.keySet());
+        applyAssignments(hospital, remainingAssignments);
+
+        //Plans de secours si une chambre passe en critique avant le prochain tick
+        if(Constantes.PRECOMPUTE_PARAMETRIC_PLANS) {
+            planCache.precompute(hospital);
+        }
+
+        // Graphes
+        new DOTrenderer("DFS Tree : ", DFSgeneration.dfsToString(dpopSolver.getDFS()));
+        new DOTrenderer("Graph des Contraintes : ", JaCoPxcspParser.toDOT(problemDoc));
+    }
+
+    /***
+     * Handle a device going critical between two ticks : the new plan comes from the precomputed plans when possible
+     * @param hospital
+     * @param room the room of the device
+     * @param device
+     */
+    public static void onDeviceCritical(Hospital hospital, Room room, Device device) {
+        if(Constantes.PRECOMPUTE_PARAMETRIC_PLANS) {
+            planCache.onDeviceCritical(hospital, room, device);
+        } else {
+            boolean alreadyInEmergency = room.hasEmergency();
+            device.setInCriticalState(true);
+            if(!alreadyInEmergency) {
+                resolveDCOP(hospital);
+            }
+        }
+    }
+
+    public static ParametricPlanCache getPlanCache() {
+        return planCache;
+    }
 
-        //Affectation des valeurs vi à chaque agent :
-        for(Object entry : solution.getAssignments().entrySet()) {
+    /***
+     * Give to each room its vi value, and update its priority
+     * @param hospital
+     * @param assignments vi value for each variable "v" + room id
+     */
+    public static void applyAssignments(Hospital hospital, Map<?, ?> assignments) {
+        for(Map.Entry<?, ?> entry : assignments.entrySet()) {
 
-            String[] assignement = entry.toString().split("=");
-            int agentNb = Integer.parseInt(assignement[0].split("v")[1]);
-            int value = Integer.parseInt(assignement[1]);
+            String variable = entry.getKey().toString();
+            if(!variable.startsWith("v")) {
+                continue; //paramètres éventuels
+            }
+            int agentNb = Integer.parseInt(variable.split("v")[1]);
+            int value = Integer.parseInt(entry.getValue().toString());
 
             for(Room room : hospital.getRooms()) {
                 if(room.getId() == agentNb) {
@@ -93,10 +171,6 @@ public class Simulation {
                 }
             }
         }
-
-        // Graphes
-        new DOTrenderer("DFS Tree : ", DFSgeneration.dfsToString(dpopSolver.getDFS()));
-        new DOTrenderer("Graph des Contraintes : ", JaCoPxcspParser.toDOT(problemDoc));
     }
 
     /***
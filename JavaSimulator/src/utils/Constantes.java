@@ -11,6 +11,10 @@ public class Constantes {
 
     public static final String AGENT_XML_FILE = "xmlFiles/myDPOPJaCoPAgent.xml";
     public static final String PROBLEM_XML_FILE = "xmlFiles/problemGenerated.xml";
+    public static final String PARAM_AGENT_XML_FILE = "xmlFiles/myParamDPOPJaCoPAgent.xml";
+    public static final String PARAM_PROBLEM_XML_FILE = "xmlFiles/paramProblemGenerated.xml";
+    public static final String CRITICAL_PARAMETER = "critical"; //paramètre Param-DPOP : chambre qui passe en critique
+    public static final boolean PRECOMPUTE_PARAMETRIC_PLANS = true; //précalcul Param-DPOP à chaque tick
     public static final String RASPBERRY_MQTT_SERVER_ADRESS = "tcp://10.33.120.195:1883";
     public static final String MQTT_ROOT_TOPIC = "DCOP";
 
@@ -27,6 +27,25 @@ public class XMLWriter {
      * @param hospital
      */
     public void writeFileFor(Hospital hospital) {
+        writeFileFor(hospital, false, Constantes.PROBLEM_XML_FILE);
+    }
+
+    /***
+     * Create and write a parametric problemFile to be used by Frodo's Param-DPOP :
+     * the unowned variable Constantes.CRITICAL_PARAMETER tells which room goes critical next (0 = none)
+     * @param hospital
+     */
+    public void writeParametricFileFor(Hospital hospital) {
+        writeFileFor(hospital, true, Constantes.PARAM_PROBLEM_XML_FILE);
+    }
+
+    /***
+     * Create and write the problemFile based on the current hospital environment
+     * @param hospital
+     * @param parametric add the "which room goes critical next" parameter
+     * @param fileName
+     */
+    private void writeFileFor(Hospital hospital, boolean parametric, String fileName) {
 
         try {
 
@@ -53,6 +72,24 @@ public class XMLWriter {
             domain.setAttribute("nbValues","10");
             domain.appendChild(doc.createTextNode("0 5 10 15 20 25 30 35 40 45 50 55 60 120 180 210 235 241"));
             domains.appendChild(domain);
+
+            //Paramètre : chambres sans urgence qui peuvent devenir critiques (0 = aucune)
+            String criticalCandidates = "0";
+            int nbCandidates = 1;
+            if(parametric) {
+                for(Room room : hospital.getRooms()) {
+                    if(!room.hasEmergency()) {
+                        criticalCandidates = criticalCandidates + " " + room.getId();
+                        nbCandidates++;
+                    }
+                }
+
+                domain = doc.createElement("domain");
+                domain.setAttribute("name","rooms");
+                domain.setAttribute("nbValues", String.valueOf(nbCandidates));
+                domain.appendChild(doc.createTextNode(criticalCandidates));
+                domains.appendChild(domain);
+            }
             rootElement.appendChild(domains);
 
             //Agents et Variables elements
@@ -71,6 +108,14 @@ public class XMLWriter {
                 variables.appendChild(variable);
             }
 
+            //Variable sans agent => paramètre pour Param-DPOP
+            if(parametric) {
+                org.w3c.dom.Element variable = doc.createElement("variable");
+                variable.setAttribute("name", Constantes.CRITICAL_PARAMETER);
+                variable.setAttribute("domain", "rooms");
+                variables.appendChild(variable);
+            }
+
             rootElement.appendChild(agents);
             rootElement.appendChild(variables);
 
@@ -103,6 +148,21 @@ public class XMLWriter {
             predicate.appendChild(expression);
             predicates.appendChild(predicate);
 
+            //B1 paramétrique : si la machine passe en état critique au cours du tick
+            if(parametric) {
+                predicate = doc.createElement("predicate");
+                parameters = doc.createElement("parameters");
+                expression = doc.createElement("expression");
+                functional = doc.createElement("functional");
+                predicate.setAttribute("name", "contrainteB1Param");
+                parameters.appendChild(doc.createTextNode("int vi int critical int id"));
+                functional.appendChild(doc.createTextNode("or(ne(critical, id), lt(vi, 10))"));
+                expression.appendChild(functional);
+                predicate.appendChild(parameters);
+                predicate.appendChild(expression);
+                predicates.appendChild(predicate);
+            }
+
             //D et E
             predicate = doc.createElement("predicate");
             parameters = doc.createElement("parameters");
@@ -204,6 +264,16 @@ public class XMLWriter {
 
                 } else {
 
+                    if(parametric) {
+                        constraints.appendChild(getXMLContraint(
+                                "a" + room.getId() + "_may_have_emergency",
+                                "v" + room.getId() + " " + Constantes.CRITICAL_PARAMETER,
+                                "2",
+                                "contrainteB1Param",
+                                "v" + room.getId() + " " + Constantes.CRITICAL_PARAMETER + " " + room.getId()
+                        ));
+                    }
+
                      endingTime = room.getTimeWhenFirstDeviceWillEnd();
 
                     if(endingTime <= 30 && endingTime != -1) {
@@ -298,7 +368,7 @@ public class XMLWriter {
             transformer.setOutputProperty(OutputKeys.INDENT, "yes");
             transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
 
-            transformer.transform(new DOMSource(doc), new StreamResult(new File(Constantes.PROBLEM_XML_FILE)));
+            transformer.transform(new DOMSource(doc), new StreamResult(new File(fileName)));
             System.out.println("Successfully write the xml problem file !");
 
         }catch(ParserConfigurationException pce){